@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Empacota a versão de produção (Spring AOT + arquivo CDS) e mede o tempo até a primeira requisição e a memória.
+#
+# Uso (a partir de demo/):
+#   scripts/inicializacao.sh preparar [argumentos da aplicação...]
+#       Gera o jar com AOT (mvn -Paot), extrai em target/producao e faz uma execução de treino que grava
+#       target/producao/demo.jsa com as classes carregadas até o contexto subir. O treino conecta no banco
+#       (Flyway e Hibernate sobem), então os argumentos devem apontar para um banco já migrado.
+#   scripts/inicializacao.sh medir <rótulo> <comando java...>
+#       Inicia o comando, espera /actuator/health responder 200 e imprime o tempo e o RSS do processo.
+#
+# Exemplos de comandos para comparar:
+#   atual:   java -jar target/demo-0.0.1-SNAPSHOT.jar
+#   aot+cds: java -XX:SharedArchiveFile=target/producao/demo.jsa -Dspring.aot.enabled=true \
+#              -jar target/producao/demo-0.0.1-SNAPSHOT.jar --spring.profiles.active=prod
+set -euo pipefail
+
+URL="${URL:-http://localhost:8080/actuator/health}"
+DESTINO=target/producao
+JAR=demo-0.0.1-SNAPSHOT.jar
+
+preparar()
+{
+    mvn -B -q -Paot -DskipTests package
+    rm -rf "$DESTINO"
+    java -Djarmode=tools -jar "target/$JAR" extract --destination "$DESTINO"
+    # spring.context.exit=onRefresh encerra a aplicação logo depois de subir o contexto, gravando o arquivo CDS
+    java -XX:ArchiveClassesAtExit="$DESTINO/demo.jsa" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+        -jar "$DESTINO/$JAR" --spring.profiles.active=prod "$@"
+}
+
+medir()
+{
+    local rotulo="$1"
+    shift
+    local inicio
+    inicio=$(date +%s%N)
+    "$@" > "target/inicializacao-$rotulo.log" 2>&1 &
+    local pid=$!
+    trap 'kill $pid 2>/dev/null || true' EXIT
+
+    until curl -sf -o /dev/null "$URL"
+    do
+        if ! kill -0 "$pid" 2>/dev/null
+        then
+            echo "$rotulo: a aplicação terminou antes de responder (ver target/inicializacao-$rotulo.log)" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    local fim
+    fim=$(date +%s%N)
+    local rss
+    rss=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+
+    printf '%s: primeira requisição em %d ms, RSS %d MB\n' "$rotulo" $(( (fim - inicio) / 1000000 )) $(( rss / 1024 ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    trap - EXIT
+}
+
+case "${1:-}" in
+    preparar) shift; preparar "$@" ;;
+    medir) shift; medir "$@" ;;
+    *) sed -n '2,16p' "$0"; exit 1 ;;
+esac
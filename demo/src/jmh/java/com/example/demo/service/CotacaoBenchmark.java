@@ -0,0 +1,68 @@
+package com.example.demo.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.config.PrecoProperties;
+import com.example.demo.dto.CotacaoDTO;
+import com.example.demo.model.Casa;
+
+/**
+ * Vazão das cotações de {@link TabelaDePrecos}, em cotações por segundo, com as regras de exemplo do
+ * application.properties e duas temporadas; a casa já está carregada, como vinda do cache de casas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CotacaoBenchmark
+{
+    // Quantidade de noites da estadia cotada
+    @Param({"3", "14", "60"})
+    private int noites;
+
+    private TabelaDePrecos tabela;
+    private Casa casa;
+    private LocalDate hoje;
+
+    @Setup
+    public void preparar()
+    {
+        hoje = LocalDate.now();
+        PrecoProperties regras = new PrecoProperties(540,
+                List.of(new PrecoProperties.Temporada("verao", hoje.plusDays(60), hoje.plusDays(120), 1.4),
+                        new PrecoProperties.Temporada("feriado", hoje.plusDays(90), hoje.plusDays(94), 1.8)),
+                Map.of(DayOfWeek.FRIDAY, 1.15, DayOfWeek.SATURDAY, 1.25),
+                List.of(new PrecoProperties.DescontoEstadia(7, 0.05), new PrecoProperties.DescontoEstadia(28, 0.15)),
+                new PrecoProperties.UltimaHora(14, 0.7, 1.2));
+        // Sem casas nem análises: a tabela é compilada direto, com ocupação zero
+        tabela = new TabelaDePrecos(regras, null, null);
+        tabela.compilar(hoje, new double[14]);
+        casa = new Casa(1L, "Casa de praia", "Avenida Atlântica, 100", null, null, null, 3, 2, 350.0, 6, null);
+    }
+
+    @Benchmark
+    public CotacaoDTO cotar()
+    {
+        LocalDate checkIn = hoje.plusDays(1 + ThreadLocalRandom.current().nextInt(400));
+        return tabela.cotar(casa, checkIn, checkIn.plusDays(noites));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.CasaResponseDTO;
+import com.example.demo.dto.ReservaResponseDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+
+/**
+ * Caminhos quentes que não dependem do banco: conversão de entidades em DTOs
+ * e a verificação de sobreposição do calendário de disponibilidade usada por {@link ReservaService#criarReserva}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapeamentoBenchmark
+{
+    private Casa casa;
+    private Reserva reserva;
+
+    /**
+     * Calendário com uma casa já reservada; separado para que o parâmetro só multiplique esse benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Calendario
+    {
+        // Quantidade de reservas futuras já registradas na casa consultada
+        @Param({"10", "1000"})
+        private int reservasPorCasa;
+
+        private CalendarioDisponibilidade calendario;
+        private LocalDate hoje;
+
+        @Setup
+        public void preparar()
+        {
+            // O repositório só é usado na carga inicial, que aqui não acontece
+            calendario = new CalendarioDisponibilidade(null);
+            hoje = LocalDate.now();
+            for (int i = 0; i < reservasPorCasa; i++)
+            {
+                calendario.registrar(1L, (long) i, hoje.plusDays(1 + i * 3L), hoje.plusDays(3 + i * 3L));
+            }
+        }
+    }
+
+    @Setup
+    public void preparar()
+    {
+        casa = new Casa(1L, "Casa de campo", "Estrada Velha, 42", "x".repeat(1000), -23.5, -46.6, 3, 2, 350.0, 6, "01001000");
+        reserva = new Reserva(1L, casa, "Cliente", "cliente@exemplo.com", "00000000000",
+                LocalDate.now().plusDays(10), LocalDate.now().plusDays(12), 2, casa.getPrecoDiaria());
+    }
+
+    @Benchmark
+    public CasaResponseDTO converterCasa()
+    {
+        return CasaService.convertToResponseDTO(casa);
+    }
+
+    @Benchmark
+    public ReservaResponseDTO converterReserva()
+    {
+        return ReservaService.convertToResponseDTO(reserva);
+    }
+
+    @Benchmark
+    public boolean verificarSobreposicao(Calendario estado)
+    {
+        // Períodos aleatórios dentro do intervalo ocupado: parte livre, parte em conflito
+        long inicio = 1 + ThreadLocalRandom.current().nextLong(estado.reservasPorCasa * 3L);
+        return estado.calendario.estaDisponivel(1L, estado.hoje.plusDays(inicio), estado.hoje.plusDays(inicio + 1));
+    }
+}
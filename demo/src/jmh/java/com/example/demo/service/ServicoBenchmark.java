@@ -0,0 +1,137 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import com.example.demo.DemoApplication;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Caminhos quentes da camada de serviço com o contexto Spring completo, sobre o H2 em memória do profile "test":
+ * filtro de casas, validação de sobreposição em {@link ReservaService#criarReserva} e serialização de uma página de casas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServicoBenchmark
+{
+    private static final int CASAS = 10_000;
+
+    // "none" mede a consulta ao banco; "caffeine" mede o caminho com o cache de leituras
+    @Param({"none", "caffeine"})
+    private String cache;
+
+    private ConfigurableApplicationContext contexto;
+    private CasaService casaService;
+    private ReservaService reservaService;
+    private ObjectMapper objectMapper;
+    private Page<Casa> pagina;
+    private Long casaOcupadaId;
+    private LocalDate inicioOcupado;
+
+    @Setup(Level.Trial)
+    public void iniciar()
+    {
+        contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=test",
+                        "--spring.cache.type=" + cache,
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--logging.level.root=WARN");
+        casaService = contexto.getBean(CasaService.class);
+        reservaService = contexto.getBean(ReservaService.class);
+        objectMapper = contexto.getBean(ObjectMapper.class);
+
+        Random random = new Random(42);
+        List<Casa> casas = new ArrayList<>();
+        for (int i = 0; i < CASAS; i++)
+        {
+            casas.add(new Casa(null, "Casa " + i, "Rua " + i, "Descrição da casa " + i, null, null,
+                    1 + random.nextInt(5), 1 + random.nextInt(3), 80.0 + random.nextInt(900), 2 + random.nextInt(10), null));
+        }
+        casas = contexto.getBean(CasaRepository.class).saveAll(casas);
+        casaOcupadaId = casas.get(0).getId();
+
+        // Uma casa já reservada por um ano, dia sim, dia não
+        inicioOcupado = LocalDate.now().plusDays(1);
+        for (int i = 0; i < 180; i++)
+        {
+            Reserva reserva = novaReserva(inicioOcupado.plusDays(i * 2L), inicioOcupado.plusDays(i * 2L + 1));
+            reservaService.criarReserva(reserva);
+        }
+
+        pagina = casaService.listarCasasComFiltro(null, null, null, null, null, null, null, null, PageRequest.of(0, 20));
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar()
+    {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Page<Casa> filtrarCasas()
+    {
+        int precoMin = ThreadLocalRandom.current().nextInt(8) * 100;
+        return casaService.listarCasasComFiltro((double) precoMin + 200, 2, 1, (double) precoMin, 4, null, 2, null,
+                PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public boolean criarReservaComConflito()
+    {
+        // Período que se sobrepõe a uma reserva existente: percorre validação, trava e calendário, sem gravar
+        long dia = ThreadLocalRandom.current().nextInt(180) * 2L;
+        try
+        {
+            reservaService.criarReserva(novaReserva(inicioOcupado.plusDays(dia), inicioOcupado.plusDays(dia + 1)));
+            return false;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return true;
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarPaginaDeCasas() throws Exception
+    {
+        return objectMapper.writeValueAsBytes(pagina);
+    }
+
+    private Reserva novaReserva(LocalDate checkIn, LocalDate checkOut)
+    {
+        Casa casa = new Casa();
+        casa.setId(casaOcupadaId);
+        return new Reserva(null, casa, "Cliente", "cliente@exemplo.com", "00000000000", checkIn, checkOut, 2, null);
+    }
+}
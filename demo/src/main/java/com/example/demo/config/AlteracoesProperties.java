@@ -0,0 +1,23 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configurações do fluxo de alterações de casas e reservas (prefixo alteracoes no application.properties).
+ * @param publicar false desliga o publicador: os eventos continuam sendo gravados, mas ninguém os entrega.
+ * @param tamanhoLote Quantidade máxima de eventos lidos do banco e entregues de uma vez.
+ * @param intervalo Intervalo da verificação periódica de eventos pendentes (além do aviso a cada commit).
+ * @param bufferPorAssinante Lotes guardados para um assinante lento; além disso os lotes são descartados
+ *        para ele e relidos do banco quando ele alcançar.
+ * @param retencao Por quanto tempo os eventos publicados podem ser relidos.
+ */
+@ConfigurationProperties("alteracoes")
+public record AlteracoesProperties(
+        @DefaultValue("true") boolean publicar,
+        @DefaultValue("500") int tamanhoLote,
+        @DefaultValue("1s") Duration intervalo,
+        @DefaultValue("256") int bufferPorAssinante,
+        @DefaultValue("7d") Duration retencao) {}
@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Habilita o cache de leituras (Spring Cache sobre Caffeine).
+ * Os caches são registrados já na inicialização, cada um com o seu tamanho e TTL, para que o actuator
+ * exponha as métricas cache.gets (acertos e falhas) de cada um.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig
+{
+    /** Casas por ID. */
+    public static final String CASAS = "casas";
+
+    /** Páginas do filtro de casas, pela combinação de filtros e paginação. */
+    public static final String FILTROS_CASAS = "filtrosCasas";
+
+    @Bean
+    CacheManagerCustomizer<CaffeineCacheManager> cachesDeCasas(CasaCacheProperties propriedades)
+    {
+        return cacheManager ->
+        {
+            cacheManager.registerCustomCache(CASAS, construir(propriedades.casas()));
+            cacheManager.registerCustomCache(FILTROS_CASAS, construir(propriedades.filtros()));
+        };
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> construir(CasaCacheProperties.Regiao regiao)
+    {
+        return Caffeine.newBuilder()
+                .maximumSize(regiao.tamanhoMaximo())
+                .expireAfterWrite(regiao.ttl())
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configurações dos caches de leitura de casas (prefixo casas.cache no application.properties).
+ * @param casas Cache de casas por ID.
+ * @param filtros Cache das páginas de /api/casas/filtrar.
+ * @param respostas Cache das respostas JSON já serializadas de /api/casas e /api/casas/filtrar.
+ */
+@ConfigurationProperties("casas.cache")
+public record CasaCacheProperties(
+        @DefaultValue Regiao casas,
+        @DefaultValue Regiao filtros,
+        @DefaultValue Respostas respostas)
+{
+    /**
+     * @param tamanhoMaximo Quantidade máxima de entradas.
+     * @param ttl Tempo de vida de cada entrada, contado a partir da escrita.
+     */
+    public record Regiao(
+            @DefaultValue("10000") long tamanhoMaximo,
+            @DefaultValue("10m") Duration ttl) {}
+
+    /**
+     * @param habilitado Liga ou desliga o cache de respostas.
+     * @param tamanhoMaximo Soma máxima dos corpos guardados (fora do heap).
+     * @param ttl Tempo de vida de cada resposta, contado a partir da escrita.
+     */
+    public record Respostas(
+            @DefaultValue("true") boolean habilitado,
+            @DefaultValue("64MB") DataSize tamanhoMaximo,
+            @DefaultValue("5m") Duration ttl) {}
+}
@@ -0,0 +1,20 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configurações do modo com várias instâncias sobre o mesmo Postgres (prefixo cluster no application.properties).
+ * @param habilitado true quando há mais de uma instância: conflitos de reserva passam a ser decididos sob travas
+ *        do Postgres (advisory locks) e as alterações são avisadas às outras instâncias por LISTEN/NOTIFY.
+ *        false: uma única instância, e as travas locais e o estado em memória bastam.
+ * @param canal Canal do LISTEN/NOTIFY usado pelas instâncias.
+ * @param reconexao Espera antes de reabrir a conexão do LISTEN quando ela cai.
+ */
+@ConfigurationProperties("cluster")
+public record ClusterProperties(
+        @DefaultValue("false") boolean habilitado,
+        @DefaultValue("alteracoes_reservas_casas") String canal,
+        @DefaultValue("5s") Duration reconexao) {}
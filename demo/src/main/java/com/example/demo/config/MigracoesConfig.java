@@ -0,0 +1,36 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Decide o que o Flyway faz na inicialização.
+ * Por padrão as migrações pendentes são aplicadas. Com banco.migracoes.aplicar-na-inicializacao=false
+ * (profile "prod") a aplicação só confere se o banco já está na última versão e não sobe se faltar
+ * alguma migração: assim as instâncias criadas pelo autoscaler não disputam o lock de migração, e as
+ * migrações rodam uma vez por versão, no deploy.
+ * A escolha é feita em tempo de execução (e não com @ConditionalOnProperty) porque o build AOT
+ * congela as condições dos beans.
+ */
+@Configuration
+public class MigracoesConfig
+{
+    @Bean
+    FlywayMigrationStrategy estrategiaDeMigracao(
+            @Value("${banco.migracoes.aplicar-na-inicializacao:true}") boolean aplicarNaInicializacao)
+    {
+        return flyway ->
+        {
+            if (aplicarNaInicializacao)
+            {
+                flyway.migrate();
+            }
+            else
+            {
+                flyway.validate();
+            }
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.config;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Regras de preço das diárias (prefixo precos no application.properties).
+ * Cada noite custa a diária da casa multiplicada pelos fatores da data: temporada, dia da semana e, nas noites
+ * próximas, demanda de última hora. O desconto por tempo de estadia é aplicado sobre o total.
+ * @param horizonteDias Quantos dias à frente podem ser cotados.
+ * @param temporadas Períodos com multiplicador próprio; onde dois se sobrepõem, vale o último da lista.
+ * @param diasDaSemana Multiplicador da noite que começa em cada dia da semana; dias ausentes valem 1.
+ * @param descontosEstadia Descontos por quantidade mínima de noites; vale o maior desconto alcançado.
+ * @param ultimaHora Acréscimo nas noites próximas quando a ocupação geral está alta.
+ */
+@ConfigurationProperties("precos")
+public record PrecoProperties(
+        @DefaultValue("365") int horizonteDias,
+        @DefaultValue List<Temporada> temporadas,
+        @DefaultValue Map<DayOfWeek, Double> diasDaSemana,
+        @DefaultValue List<DescontoEstadia> descontosEstadia,
+        @DefaultValue UltimaHora ultimaHora)
+{
+    public PrecoProperties
+    {
+        if (horizonteDias < 1)
+        {
+            throw new IllegalArgumentException("precos.horizonte-dias deve ser positivo.");
+        }
+        diasDaSemana.values().forEach(PrecoProperties::validarMultiplicador);
+    }
+
+    /**
+     * @param nome Nome da temporada, só para identificação.
+     * @param inicio Primeira noite da temporada.
+     * @param fim Última noite da temporada (inclusive).
+     * @param multiplicador Fator aplicado às noites da temporada.
+     */
+    public record Temporada(
+            String nome,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            double multiplicador)
+    {
+        public Temporada
+        {
+            if (inicio == null || fim == null || fim.isBefore(inicio))
+            {
+                throw new IllegalArgumentException("A temporada " + nome + " precisa de início e fim, com início <= fim.");
+            }
+            validarMultiplicador(multiplicador);
+        }
+    }
+
+    /**
+     * @param noitesMinimas Quantidade de noites a partir da qual o desconto vale.
+     * @param desconto Fração descontada do total, entre 0 e 1 (0.1 = 10%).
+     */
+    public record DescontoEstadia(int noitesMinimas, double desconto)
+    {
+        public DescontoEstadia
+        {
+            if (noitesMinimas < 1 || desconto < 0 || desconto >= 1)
+            {
+                throw new IllegalArgumentException("Descontos por estadia precisam de noites-minimas >= 1 e desconto entre 0 e 1.");
+            }
+        }
+    }
+
+    /**
+     * @param dias Quantas noites a partir de hoje estão sujeitas à demanda de última hora (0 desliga a regra).
+     * @param ocupacaoMinima Fração das casas ocupadas na noite a partir da qual o acréscimo vale.
+     * @param multiplicador Fator aplicado às noites com ocupação alta.
+     */
+    public record UltimaHora(
+            @DefaultValue("0") int dias,
+            @DefaultValue("1") double ocupacaoMinima,
+            @DefaultValue("1") double multiplicador)
+    {
+        public UltimaHora
+        {
+            validarMultiplicador(multiplicador);
+        }
+    }
+
+    private static void validarMultiplicador(double multiplicador)
+    {
+        if (!(multiplicador > 0))
+        {
+            throw new IllegalArgumentException("Multiplicadores de preço devem ser positivos.");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configurações da fila de reservas assíncronas (prefixo reservas.fila no application.properties).
+ * @param capacidade Quantidade máxima de pedidos aguardando processamento; acima disso novos pedidos são recusados.
+ * @param tamanhoLote Quantidade máxima de pedidos da mesma casa gravados em uma única transação.
+ * @param trabalhadores Threads que processam os lotes (e, portanto, conexões usadas ao mesmo tempo pela fila).
+ * @param novaTentativa Espera antes de refazer um lote que falhou; dobra a cada falha seguida da mesma casa.
+ * @param novaTentativaMaxima Limite da espera entre tentativas.
+ * @param tentativas Tentativas de um lote antes de refazer os pedidos dele um a um, e de um pedido sozinho antes de
+ *        recusá-lo com o erro.
+ */
+@ConfigurationProperties("reservas.fila")
+public record ReservaFilaProperties(
+        @DefaultValue("10000") int capacidade,
+        @DefaultValue("100") int tamanhoLote,
+        @DefaultValue("4") int trabalhadores,
+        @DefaultValue("1s") Duration novaTentativa,
+        @DefaultValue("1m") Duration novaTentativaMaxima,
+        @DefaultValue("5") int tentativas) {}
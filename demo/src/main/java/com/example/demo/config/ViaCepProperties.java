@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configurações da integração com o ViaCEP (prefixo viacep no application.properties).
+ * @param url URL da API, com o marcador {cep}.
+ * @param timeoutConexao Tempo máximo para abrir a conexão.
+ * @param timeoutResposta Tempo máximo de espera pela resposta de cada consulta.
+ * @param maximoChamadasSimultaneas Limite de consultas em andamento ao mesmo tempo (bulkhead).
+ * @param cache Configurações do cache de CEPs.
+ * @param disjuntor Configurações do circuit breaker.
+ */
+@ConfigurationProperties("viacep")
+public record ViaCepProperties(
+        @DefaultValue("https://viacep.com.br/ws/{cep}/json/") String url,
+        @DefaultValue("2s") Duration timeoutConexao,
+        @DefaultValue("3s") Duration timeoutResposta,
+        @DefaultValue("50") int maximoChamadasSimultaneas,
+        @DefaultValue Cache cache,
+        @DefaultValue Disjuntor disjuntor)
+{
+    /**
+     * @param tamanhoMaximo Quantidade máxima de CEPs guardados.
+     * @param ttl Tempo de vida de um CEP encontrado.
+     * @param ttlNegativo Tempo de vida de um CEP inexistente.
+     * @param snapshot Arquivo opcional onde o cache é salvo ao desligar.
+     */
+    public record Cache(
+            @DefaultValue("50000") long tamanhoMaximo,
+            @DefaultValue("24h") Duration ttl,
+            @DefaultValue("1h") Duration ttlNegativo,
+            @DefaultValue("") String snapshot) {}
+
+    /**
+     * @param falhasParaAbrir Falhas seguidas que abrem o circuito.
+     * @param tempoAberto Tempo em que as consultas são recusadas antes de uma nova tentativa.
+     */
+    public record Disjuntor(
+            @DefaultValue("5") int falhasParaAbrir,
+            @DefaultValue("30s") Duration tempoAberto) {}
+}
@@ -0,0 +1,92 @@
+package com.example.demo.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.demo.dto.EventoAlteracaoDTO;
+import com.example.demo.service.PublicadorDeAlteracoes;
+
+@RestController
+@RequestMapping("/api/alteracoes")
+public class AlteracaoController
+{
+    private final PublicadorDeAlteracoes publicador;
+
+    public AlteracaoController(PublicadorDeAlteracoes publicador)
+    {
+        this.publicador = publicador;
+    }
+
+    //Endpoint com o fluxo de alterações de casas e reservas em Server-Sent Events (GET /api/alteracoes?apos=120).
+    //O id de cada evento é a sua posição; ao reconectar, o navegador manda o último recebido no cabeçalho Last-Event-ID
+    //e o fluxo continua dali. Sem posição, só as próximas alterações são enviadas
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+
+    public ResponseEntity<SseEmitter> acompanharAlteracoes(
+        @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEvento,
+        @RequestParam(required = false) Long apos)
+    {
+        Long posicao;
+        try
+        {
+            posicao = ultimoEvento != null && !ultimoEvento.isBlank() ? Long.valueOf(ultimoEvento.trim()) : apos;
+        }
+        catch (NumberFormatException e)
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        // Sem timeout: a conexão fica aberta até o cliente sair ou a aplicação parar
+        SseEmitter emitter = new SseEmitter(0L);
+        PublicadorDeAlteracoes.Assinatura assinatura;
+        try
+        {
+            assinatura = publicador.assinar(posicao, lote -> enviar(emitter, lote), emitter::complete);
+        }
+        catch (IllegalStateException e)
+        {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        emitter.onCompletion(assinatura::cancelar);
+        emitter.onTimeout(assinatura::cancelar);
+        emitter.onError(erro -> assinatura.cancelar());
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
+    }
+
+    // O lote inteiro sai em uma única escrita na conexão, em vez de uma escrita por evento
+    private static void enviar(SseEmitter emitter, List<EventoAlteracaoDTO> lote)
+    {
+        Set<ResponseBodyEmitter.DataWithMediaType> dados = new LinkedHashSet<>();
+        for (EventoAlteracaoDTO evento : lote)
+        {
+            dados.addAll(SseEmitter.event()
+                    .id(String.valueOf(evento.getPosicao()))
+                    .name(evento.getEntidade().name().toLowerCase() + "." + evento.getTipo().name().toLowerCase())
+                    .data(evento, MediaType.APPLICATION_JSON)
+                    .build());
+        }
+        try
+        {
+            emitter.send(dados);
+        }
+        catch (IOException e)
+        {
+            // O cliente desconectou: a exceção cancela a assinatura
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.controller;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.dto.IndicadoresOcupacaoDTO;
+import com.example.demo.dto.OcupacaoDiaDTO;
+import com.example.demo.service.AnaliseOcupacao;
+
+@RestController
+@RequestMapping("/api/analises")
+public class AnaliseController 
+{
+    private final AnaliseOcupacao analiseOcupacao;
+
+    public AnaliseController(AnaliseOcupacao analiseOcupacao)
+    {
+        this.analiseOcupacao = analiseOcupacao;
+    }
+
+    //Endpoint com ocupação, diária média e receita de todas as casas por mês (GET /api/analises/meses?de=2026-01&ate=2026-12)
+    @GetMapping("/meses")
+
+    public ResponseEntity<List<IndicadoresOcupacaoDTO>> indicadoresGerais(
+        @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth de,
+        @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth ate)
+    {
+        try
+        {
+            return new ResponseEntity<>(analiseOcupacao.indicadoresGerais(de, ate), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    //Endpoint com os mesmos indicadores para uma casa (GET /api/analises/casas/{casaId}?de=2026-01&ate=2026-12)
+    @GetMapping("/casas/{casaId}")
+
+    public ResponseEntity<List<IndicadoresOcupacaoDTO>> indicadoresDaCasa(@PathVariable Long casaId,
+        @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth de,
+        @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth ate)
+    {
+        try
+        {
+            return new ResponseEntity<>(analiseOcupacao.indicadoresDaCasa(casaId, de, ate), HttpStatus.OK);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    //Endpoint com a ocupação dia a dia de uma casa em um mês (GET /api/analises/casas/{casaId}/dias?mes=2026-01)
+    @GetMapping("/casas/{casaId}/dias")
+
+    public ResponseEntity<List<OcupacaoDiaDTO>> ocupacaoDiaria(@PathVariable Long casaId,
+        @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth mes)
+    {
+        return new ResponseEntity<>(analiseOcupacao.ocupacaoDiaria(casaId, mes), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.demo.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.example.demo.config.CasaCacheProperties;
+import com.example.demo.service.CasaAlteradaEvent;
+import com.example.demo.service.InvalidacaoCacheCasas;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Cache das respostas JSON de GET /api/casas e /api/casas/filtrar, guardando os bytes já serializados
+ * fora do heap (ByteBuffer direto), pela URL com os parâmetros normalizados.
+ * Cada resposta leva um ETag; o cliente que reenviar o ETag em If-None-Match recebe 304 sem corpo.
+ * Qualquer alteração de casa descarta todo o cache e avança a geração, que também faz parte do ETag.
+ */
+@Component
+public class CacheRespostasCasasFilter extends OncePerRequestFilter
+{
+    private static final String LISTAGEM = "/api/casas";
+    private static final String FILTRO = "/api/casas/filtrar";
+
+    private final boolean habilitado;
+    private final Cache<String, Resposta> respostas;
+    // Avança a cada alteração; uma resposta montada antes da alteração não entra mais no cache
+    private final AtomicLong geracao = new AtomicLong();
+
+    // Corpo serializado (fora do heap) e o seu ETag
+    private record Resposta(ByteBuffer corpo, String etag, String contentType) {}
+
+    public CacheRespostasCasasFilter(CasaCacheProperties propriedades, MeterRegistry meterRegistry)
+    {
+        CasaCacheProperties.Respostas configuracao = propriedades.respostas();
+        this.habilitado = configuracao.habilitado();
+        this.respostas = Caffeine.newBuilder()
+                .maximumWeight(configuracao.tamanhoMaximo().toBytes())
+                .weigher((String chave, Resposta resposta) -> resposta.corpo().capacity())
+                .expireAfterWrite(configuracao.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, respostas, "respostasCasas");
+    }
+
+    // Depois dos caches do CasaService: se a geração avançasse antes, uma requisição que chegasse nesse meio
+    // montaria a resposta com a página antiga do filtro e a guardaria na geração nova
+    @Order(InvalidacaoCacheCasas.ORDEM + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        invalidar();
+    }
+
+    /**
+     * Descarta todas as respostas guardadas.
+     */
+    public void invalidar()
+    {
+        geracao.incrementAndGet();
+        respostas.invalidateAll();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request)
+    {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        return !habilitado
+                || !HttpMethod.GET.matches(request.getMethod())
+                || !(caminho.equals(LISTAGEM) || caminho.equals(FILTRO));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException
+    {
+        String chave = chave(request);
+        Resposta guardada = respostas.getIfPresent(chave);
+        if (guardada != null)
+        {
+            response.setHeader("X-Cache", "HIT");
+            responder(request, response, guardada);
+            return;
+        }
+
+        long geracaoInicial = geracao.get();
+        ContentCachingResponseWrapper envoltorio = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, envoltorio);
+
+        if (envoltorio.getStatus() != HttpStatus.OK.value() || envoltorio.getContentType() == null
+                || !MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(envoltorio.getContentType())))
+        {
+            envoltorio.copyBodyToResponse();
+            return;
+        }
+
+        byte[] bytes = envoltorio.getContentAsByteArray();
+        ByteBuffer corpo = ByteBuffer.allocateDirect(bytes.length);
+        corpo.put(bytes).flip();
+        Resposta nova = new Resposta(corpo.asReadOnlyBuffer(), etag(geracaoInicial, bytes), envoltorio.getContentType());
+        if (geracao.get() == geracaoInicial)
+        {
+            respostas.put(chave, nova);
+        }
+
+        // O corpo guardado no envoltório é descartado; a resposta sai do buffer, como num acerto
+        response.setHeader("X-Cache", "MISS");
+        responder(request, response, nova);
+    }
+
+    private static void responder(HttpServletRequest request, HttpServletResponse response, Resposta resposta)
+            throws IOException
+    {
+        response.setHeader(HttpHeaders.ETAG, resposta.etag());
+        // no-cache: o cliente pode guardar, mas revalida a cada uso (o que aqui custa só um 304)
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(resposta.etag())))
+        {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(resposta.contentType());
+        response.setContentLength(resposta.corpo().remaining());
+        // duplicate(): cada requisição lê o mesmo buffer com a sua própria posição
+        Channels.newChannel(response.getOutputStream()).write(resposta.corpo().duplicate());
+    }
+
+    // Caminho e parâmetros em ordem alfabética, sem parâmetros vazios e sem os valores padrão da paginação
+    static String chave(HttpServletRequest request)
+    {
+        Map<String, String[]> parametros = new TreeMap<>(request.getParameterMap());
+        StringBuilder chave = new StringBuilder(request.getRequestURI());
+        char separador = '?';
+        for (Map.Entry<String, String[]> parametro : parametros.entrySet())
+        {
+            String nome = parametro.getKey();
+            for (String valor : parametro.getValue())
+            {
+                if (valor == null || valor.isBlank()
+                        || (nome.equals("page") && valor.equals("0"))
+                        || (nome.equals("size") && valor.equals("20")))
+                {
+                    continue;
+                }
+                chave.append(separador).append(nome).append('=').append(valor.trim());
+                separador = '&';
+            }
+        }
+        return chave.toString();
+    }
+
+    private static String etag(long geracao, byte[] corpo)
+    {
+        CRC32C crc = new CRC32C();
+        crc.update(corpo);
+        return "\"" + geracao + "-" + Long.toHexString(crc.getValue()) + "-" + corpo.length + "\"";
+    }
+}
@@ -1,7 +1,14 @@
 package com.example.demo.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -10,15 +17,23 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.dto.CasaBuscaDTO;
+import com.example.demo.dto.CasaProximaDTO;
 import com.example.demo.dto.CasaRequestDTO;
 import com.example.demo.dto.CasaResponseDTO;
+import com.example.demo.dto.CotacaoDTO;
+import com.example.demo.dto.ImportacaoResultadoDTO;
 import com.example.demo.dto.ViaCepResponseDTO;
 import com.example.demo.model.Casa;
+import com.example.demo.service.CasaImportacaoService;
 import com.example.demo.service.CasaService;
+import com.example.demo.service.IndiceGeografico;
+import com.example.demo.service.TabelaDePrecos;
 import com.example.demo.service.ViaCepService;
 
 /**
@@ -32,16 +47,23 @@ public class CasaController
 
     private final CasaService casaService;
     private final ViaCepService cepService;
+    private final CasaImportacaoService importacaoService;
+    private final TabelaDePrecos tabelaDePrecos;
 
     /**
-     * Construtor para injeção de dependências dos serviços CasaService e ViaCepService.
+     * Construtor para injeção de dependências dos serviços CasaService, ViaCepService, CasaImportacaoService e TabelaDePrecos.
      * @param casaService Serviço responsável pela lógica de negócio das casas.
      * @param cepService Serviço responsável pela consulta de CEPs via ViaCEP.
+     * @param importacaoService Serviço responsável pela importação em massa de casas.
+     * @param tabelaDePrecos Serviço responsável pelas cotações de estadias.
      */
-    public CasaController(CasaService casaService, ViaCepService cepService) 
+    public CasaController(CasaService casaService, ViaCepService cepService, CasaImportacaoService importacaoService,
+            TabelaDePrecos tabelaDePrecos) 
     {
         this.casaService = casaService;
         this.cepService = cepService;
+        this.importacaoService = importacaoService;
+        this.tabelaDePrecos = tabelaDePrecos;
     }
 
     /**
@@ -61,6 +83,24 @@ public class CasaController
       return new ResponseEntity<>(resposta, HttpStatus.CREATED);
     }
 
+    /**
+     * Endpoint para importar casas em massa.
+     * Aceita NDJSON (um {@link CasaRequestDTO} por linha) ou CSV com cabeçalho usando os nomes dos campos do DTO.
+     * @param contentType O tipo do conteúdo enviado (application/x-ndjson ou text/csv).
+     * @param corpo O conteúdo a ser importado, lido em fluxo.
+     * @return ResponseEntity com o {@link ImportacaoResultadoDTO} e status HTTP 200 (OK).
+     * @throws IOException se o corpo da requisição não puder ser lido.
+     */
+    @PostMapping(value = "/importar", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<ImportacaoResultadoDTO> importarCasas(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream corpo) throws IOException 
+    {
+        CasaImportacaoService.Formato formato = contentType.contains("csv")
+                ? CasaImportacaoService.Formato.CSV
+                : CasaImportacaoService.Formato.NDJSON;
+        return new ResponseEntity<>(importacaoService.importar(corpo, formato), HttpStatus.OK);
+    }
+
     /**
      * Endpoint para listar todas as casas com suporte a paginação.
      * @param pageable Objeto Pageable para definir a paginação (página, tamanho, ordenação).
@@ -75,19 +115,25 @@ public class CasaController
 
     /**
      * Endpoint para buscar informações de endereço utilizando um CEP via ViaCEP.
+     * A consulta é assíncrona: a thread da requisição é liberada enquanto o ViaCEP responde.
      * @param cep O CEP a ser consultado.
      * @return ResponseEntity com os dados do endereço {@link ViaCepResponseDTO} e status HTTP 200 (OK),
-     *         ou status HTTP 404 (Not Found) se o CEP não for encontrado ou for inválido.
+     *         status HTTP 404 (Not Found) se o CEP não for encontrado ou for inválido,
+     *         ou status HTTP 503 (Service Unavailable) se o ViaCEP não puder ser consultado.
      */
     @GetMapping("/cep/{cep}")
-    public ResponseEntity<ViaCepResponseDTO> buscarEnderecoPorCep(@PathVariable String cep) 
+    public CompletableFuture<ResponseEntity<ViaCepResponseDTO>> buscarEnderecoPorCep(@PathVariable String cep) 
     {
-        ViaCepResponseDTO endereco = cepService.buscarCep(cep);
-        if (endereco == null || endereco.getCep() == null) 
-        {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        return new ResponseEntity<>(endereco, HttpStatus.OK);
+        return cepService.buscarCepAsync(cep)
+                .thenApply(endereco -> 
+                {
+                    if (endereco == null || endereco.getCep() == null) 
+                    {
+                        return new ResponseEntity<ViaCepResponseDTO>(HttpStatus.NOT_FOUND);
+                    }
+                    return new ResponseEntity<>(endereco, HttpStatus.OK);
+                })
+                .exceptionally(erro -> new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE));
     }
 
     /**
@@ -127,13 +173,15 @@ public class CasaController
 
     /**
      * Endpoint para listar casas com filtros e suporte a paginação.
-     * Permite filtrar por preço máximo/mínimo, quantidade de quartos e banheiros.
+     * Permite filtrar por preço máximo/mínimo, quantidade de quartos, banheiros e capacidade de pessoas.
      * @param precoMax 
      * @param quartosMin 
      * @param banheirosMin 
      * @param precoMin 
      * @param quartosMax
      * @param banheirosMax
+     * @param capacidadeMin
+     * @param capacidadeMax
      * @param pageable Objeto Pageable para definir a paginação.
      * @return ResponseEntity com uma página de entidades {@link Casa} filtradas e status HTTP 200 (OK).
      */
@@ -145,15 +193,184 @@ public class CasaController
             @RequestParam(required = false) Double precoMin,
             @RequestParam(required = false) Integer quartosMax,
             @RequestParam(required = false) Integer banheirosMax,
+            @RequestParam(required = false) Integer capacidadeMin,
+            @RequestParam(required = false) Integer capacidadeMax,
             Pageable pageable) {
 
         Page<Casa> casas = casaService.listarCasasComFiltro(
                 precoMax, quartosMin, banheirosMin, precoMin,
-                quartosMax, banheirosMax, pageable);
+                quartosMax, banheirosMax, capacidadeMin, capacidadeMax, pageable);
 
         return new ResponseEntity<>(casas, HttpStatus.OK);
     }
 
+    /**
+     * Endpoint para listar as casas livres em um período, com capacidade para os hóspedes e os filtros de /filtrar.
+     * Evita que o cliente precise tentar reservar casa por casa até encontrar uma disponível.
+     * @param checkIn Data de entrada (ISO, por exemplo 2025-12-20).
+     * @param checkOut Data de saída (exclusiva).
+     * @param quantidadePessoas Quantidade de hóspedes.
+     * @param precoMax 
+     * @param quartosMin 
+     * @param banheirosMin 
+     * @param precoMin 
+     * @param quartosMax
+     * @param banheirosMax
+     * @param pageable Objeto Pageable para definir a paginação.
+     * @return ResponseEntity com uma página de entidades {@link Casa} disponíveis e status HTTP 200 (OK),
+     *         ou status HTTP 400 (Bad Request) se o período for inválido.
+     */
+    @GetMapping("/disponiveis")
+    public ResponseEntity<Page<Casa>> listarCasasDisponiveis(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+            @RequestParam(required = false) Integer quantidadePessoas,
+            @RequestParam(required = false) Double precoMax,
+            @RequestParam(required = false) Integer quartosMin,
+            @RequestParam(required = false) Integer banheirosMin,
+            @RequestParam(required = false) Double precoMin,
+            @RequestParam(required = false) Integer quartosMax,
+            @RequestParam(required = false) Integer banheirosMax,
+            Pageable pageable) 
+    {
+        try 
+        {
+            Page<Casa> casas = casaService.listarCasasDisponiveis(checkIn, checkOut, quantidadePessoas,
+                    precoMax, quartosMin, banheirosMin, precoMin, quartosMax, banheirosMax, pageable);
+            return new ResponseEntity<>(casas, HttpStatus.OK);
+        } 
+        catch (IllegalArgumentException e) 
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Endpoint para buscar casas próximas a um ponto, ordenadas pela distância.
+     * A área pode ser um raio em km, um retângulo (latitude/longitude mínimas e máximas) ou os dois juntos,
+     * e aceita os mesmos filtros de /filtrar.
+     * @param latitude Latitude do ponto de referência.
+     * @param longitude Longitude do ponto de referência.
+     * @param raioKm Raio da busca em km.
+     * @param latitudeMin 
+     * @param latitudeMax 
+     * @param longitudeMin 
+     * @param longitudeMax 
+     * @param precoMax 
+     * @param quartosMin 
+     * @param banheirosMin 
+     * @param precoMin 
+     * @param quartosMax
+     * @param banheirosMax
+     * @param capacidadeMin
+     * @param capacidadeMax
+     * @param pageable Página e tamanho; a ordenação é sempre pela distância.
+     * @return ResponseEntity com uma página de {@link CasaProximaDTO} e status HTTP 200 (OK),
+     *         ou status HTTP 400 (Bad Request) se a área da busca for inválida.
+     */
+    @GetMapping("/proximas")
+    public ResponseEntity<Page<CasaProximaDTO>> buscarCasasProximas(
+            @RequestParam Double latitude,
+            @RequestParam Double longitude,
+            @RequestParam(required = false) Double raioKm,
+            @RequestParam(required = false) Double latitudeMin,
+            @RequestParam(required = false) Double latitudeMax,
+            @RequestParam(required = false) Double longitudeMin,
+            @RequestParam(required = false) Double longitudeMax,
+            @RequestParam(required = false) Double precoMax,
+            @RequestParam(required = false) Integer quartosMin,
+            @RequestParam(required = false) Integer banheirosMin,
+            @RequestParam(required = false) Double precoMin,
+            @RequestParam(required = false) Integer quartosMax,
+            @RequestParam(required = false) Integer banheirosMax,
+            @RequestParam(required = false) Integer capacidadeMin,
+            @RequestParam(required = false) Integer capacidadeMax,
+            Pageable pageable) 
+    {
+        IndiceGeografico.Area area = new IndiceGeografico.Area(latitude, longitude, raioKm,
+                latitudeMin, latitudeMax, longitudeMin, longitudeMax);
+        try 
+        {
+            Page<CasaProximaDTO> casas = casaService.buscarCasasProximas(area, precoMax, quartosMin, banheirosMin,
+                    precoMin, quartosMax, banheirosMax, capacidadeMin, capacidadeMax, pageable);
+            return new ResponseEntity<>(casas, HttpStatus.OK);
+        } 
+        catch (IllegalArgumentException e) 
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Endpoint para buscar casas por palavras no nome, na descrição e no endereço, ordenadas pela relevância.
+     * Palavras vazias, plurais e acentos são ignorados ("casa com piscina perto da praia" encontra
+     * "Chalé com piscinas, a 200 m da praia"), e aceita os mesmos filtros de /filtrar.
+     * @param q O texto da busca.
+     * @param precoMax 
+     * @param quartosMin 
+     * @param banheirosMin 
+     * @param precoMin 
+     * @param quartosMax
+     * @param banheirosMax
+     * @param capacidadeMin
+     * @param capacidadeMax
+     * @param pageable Página e tamanho; a ordenação é sempre pela relevância.
+     * @return ResponseEntity com uma página de {@link CasaBuscaDTO} e status HTTP 200 (OK),
+     *         ou status HTTP 400 (Bad Request) se o texto não tiver palavras buscáveis ou a página for funda demais.
+     */
+    @GetMapping("/busca")
+    public ResponseEntity<Page<CasaBuscaDTO>> buscarCasasPorTexto(
+            @RequestParam String q,
+            @RequestParam(required = false) Double precoMax,
+            @RequestParam(required = false) Integer quartosMin,
+            @RequestParam(required = false) Integer banheirosMin,
+            @RequestParam(required = false) Double precoMin,
+            @RequestParam(required = false) Integer quartosMax,
+            @RequestParam(required = false) Integer banheirosMax,
+            @RequestParam(required = false) Integer capacidadeMin,
+            @RequestParam(required = false) Integer capacidadeMax,
+            Pageable pageable) 
+    {
+        try 
+        {
+            Page<CasaBuscaDTO> casas = casaService.buscarCasasPorTexto(q, precoMax, quartosMin, banheirosMin,
+                    precoMin, quartosMax, banheirosMax, capacidadeMin, capacidadeMax, pageable);
+            return new ResponseEntity<>(casas, HttpStatus.OK);
+        } 
+        catch (IllegalArgumentException e) 
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Endpoint para cotar uma estadia em uma casa, noite a noite, com as regras de preço em vigor
+     * (temporadas, dias da semana, demanda de última hora e desconto por tempo de estadia).
+     * @param id O ID da casa.
+     * @param checkIn Data de entrada (ISO, por exemplo 2025-12-20).
+     * @param checkOut Data de saída (exclusiva).
+     * @return ResponseEntity com a {@link CotacaoDTO} e status HTTP 200 (OK), status HTTP 400 (Bad Request)
+     *         se o período for inválido ou passar do horizonte de cotação, ou 404 (Not Found) se a casa não existir.
+     */
+    @GetMapping("/{id}/cotacao")
+    public ResponseEntity<CotacaoDTO> cotar(@PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut) 
+    {
+        try 
+        {
+            return new ResponseEntity<>(tabelaDePrecos.cotar(id, checkIn, checkOut), HttpStatus.OK);
+        } 
+        catch (IllegalArgumentException e) 
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        } 
+        catch (RuntimeException e) 
+        {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
     /**
      * Endpoint para deletar uma casa por ID.
      * @param id O ID da casa a ser deletada.
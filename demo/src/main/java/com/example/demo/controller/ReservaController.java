@@ -3,23 +3,33 @@ package com.example.demo.controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.example.demo.dto.CasaResponseDTO;
+import com.example.demo.dto.PaginaReservasDTO;
+import com.example.demo.dto.ReservaLoteRequestDTO;
+import com.example.demo.dto.ReservaLoteResponseDTO;
 import com.example.demo.dto.ReservaRequestDTO;
 import com.example.demo.dto.ReservaResponseDTO;
+import com.example.demo.dto.SolicitacaoReservaDTO;
+import com.example.demo.model.Casa;
 import com.example.demo.model.Reserva;
+import com.example.demo.model.SolicitacaoReserva;
+import com.example.demo.service.FilaCheiaException;
+import com.example.demo.service.FilaDeReservas;
 import com.example.demo.service.ReservaService;
 
-import java.net.http.HttpClient;
-import java.util.List;
+import java.net.URI;
+import java.time.LocalDate;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 
@@ -31,11 +41,13 @@ public class ReservaController
 
 {
     private final ReservaService reservaService;
+    private final FilaDeReservas filaDeReservas;
 
 
-    public ReservaController (ReservaService reservaService)
+    public ReservaController (ReservaService reservaService, FilaDeReservas filaDeReservas)
     {
         this.reservaService = reservaService;
+        this.filaDeReservas = filaDeReservas;
     }
 
     //Endpoint para criar uma nova reserva (POST /api/reservas)
@@ -46,6 +58,9 @@ public class ReservaController
     {
        Reserva reserva = new Reserva();
 
+       Casa casa = new Casa();
+       casa.setId(reservaRequestDTO.getCasaId());
+       reserva.setCasa(casa);
        reserva.setNomeCliente(reservaRequestDTO.getNomeCliente());
        reserva.setCheckIn(reservaRequestDTO.getCheckIn());
        reserva.setCheckOut(reservaRequestDTO.getCheckOut());
@@ -56,33 +71,107 @@ public class ReservaController
        Reserva novaReserva = reservaService.criarReserva(reserva);
        
 
-       ReservaResponseDTO responder = new ReservaResponseDTO();
-       
-       reserva.setCasa(responder.getCasa());
-       reserva.setNomeCliente(responder.getNomeCliente());
-       reserva.setCheckIn(responder.getCheckIn());
-       reserva.setCheckOut(responder.getCheckOut());
-       reserva.setEmailCliente(responder.getEmailCliente());
-       reserva.setCpfCliente(responder.getCpfCliente());
-       reserva.setQuantidadePessoas(responder.getQuantidadePessoas());
+       ReservaResponseDTO responder = ReservaService.convertToResponseDTO(novaReserva);
 
       return new ResponseEntity<>(responder,HttpStatus.CREATED);
 
     }
-    //Endpoint para listar todas as reservas (GET/api/reservas)
+    //Endpoint para criar várias reservas de uma vez, tudo ou nada (POST /api/reservas/lote)
+    //201 se todas foram criadas; 409 se algum item conflita com outra reserva; 400 se algum item é inválido.
+    //Em todos os casos o corpo traz o resultado de cada item
+    @PostMapping("/lote")
+
+    public ResponseEntity<ReservaLoteResponseDTO> criarReservasEmLote(@RequestBody ReservaLoteRequestDTO loteRequestDTO)
+    {
+        ReservaLoteResponseDTO resultado;
+        try
+        {
+            resultado = reservaService.criarReservasEmLote(loteRequestDTO.getItens());
+        }
+        catch (IllegalArgumentException e)
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        if (resultado.isCriadas())
+        {
+            return new ResponseEntity<>(resultado, HttpStatus.CREATED);
+        }
+        boolean conflito = resultado.getItens().stream().anyMatch(item -> ReservaService.CONFLITO.equals(item.getStatus()));
+        return new ResponseEntity<>(resultado, conflito ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST);
+    }
+
+    //Endpoint para pedir uma reserva de forma assíncrona (POST /api/reservas/assincronas, cabeçalho Idempotency-Key)
+    //Responde 202 com o endereço do pedido; repetir com a mesma chave devolve o mesmo pedido
+    @PostMapping("/assincronas")
+
+    public ResponseEntity<SolicitacaoReservaDTO> solicitarReserva(@RequestHeader("Idempotency-Key") String chaveIdempotencia,
+        @RequestBody ReservaRequestDTO reservaRequestDTO)
+    {
+        try
+        {
+            SolicitacaoReserva solicitacao = filaDeReservas.enfileirar(chaveIdempotencia, reservaRequestDTO);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/reservas/solicitacoes/" + solicitacao.getId()))
+                .body(FilaDeReservas.convertToDTO(solicitacao));
+        }
+        catch (FilaCheiaException e)
+        {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+        }
+        catch (IllegalArgumentException e)
+        {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    //Endpoint para acompanhar um pedido assíncrono (GET /api/reservas/solicitacoes/{id})
+    @GetMapping("/solicitacoes/{id}")
+
+    public ResponseEntity<SolicitacaoReservaDTO> buscarSolicitacao(@PathVariable Long id)
+    {
+        return filaDeReservas.buscarSolicitacao(id)
+            .map(solicitacao -> new ResponseEntity<>(FilaDeReservas.convertToDTO(solicitacao), HttpStatus.OK))
+            .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    //Endpoint para listar reservas com paginação por cursor (GET /api/reservas?apos={id}&limite=50)
+    //Para a próxima página, envie em "apos" o valor de proximoCursor da resposta anterior
     @GetMapping
 
-    public ResponseEntity<List<Reserva>> listarTodasAsReservas()
+    public ResponseEntity<PaginaReservasDTO> listarReservas(
+        @RequestParam(required = false) Long apos,
+        @RequestParam(defaultValue = "50") int limite,
+        @RequestParam(required = false) Long casaId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+        @RequestParam(required = false) String cpfCliente,
+        @RequestParam(required = false) String emailCliente)
     {
-         List<Reserva> reservas = reservaService.listarTodasAsReservas();
+         PaginaReservasDTO pagina = reservaService.listarReservas(apos, limite, casaId, de, ate, cpfCliente, emailCliente);
           
-         return new ResponseEntity<>(reservas, HttpStatus.OK);
+         return new ResponseEntity<>(pagina, HttpStatus.OK);
     
     }
+
+    //Endpoint para exportar todas as reservas filtradas em NDJSON, em fluxo (GET /api/reservas/exportar)
+    @GetMapping(value = "/exportar", produces = "application/x-ndjson")
+
+    public ResponseEntity<StreamingResponseBody> exportarReservas(
+        @RequestParam(required = false) Long casaId,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate de,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate ate,
+        @RequestParam(required = false) String cpfCliente,
+        @RequestParam(required = false) String emailCliente)
+    {
+         StreamingResponseBody corpo = saida -> reservaService.exportarReservas(saida, casaId, de, ate, cpfCliente, emailCliente);
+
+         return new ResponseEntity<>(corpo, HttpStatus.OK);
+    }
     //Endpoit pra buscar uma reserva por ID (GET/api/reservas/{id})
     @GetMapping("/{id}")
     
-    public ResponseEntity<Reserva> buscarReservaPorId (@PathVariable Long id)  
+    public ResponseEntity<ReservaResponseDTO> buscarReservaPorId (@PathVariable Long id)  
     {
 
        return reservaService.buscarReservaPorId(id)
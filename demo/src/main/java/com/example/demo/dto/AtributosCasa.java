@@ -0,0 +1,11 @@
+package com.example.demo.dto;
+
+// Projeção com os campos filtráveis de uma casa, usada para montar o índice colunar
+public interface AtributosCasa 
+{
+    Long getId();
+    Double getPrecoDiaria();
+    Integer getQuantidadeQuartos();
+    Integer getQuantidadeBanheiros();
+    Integer getCapacidadePessoas();
+}
@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CasaBuscaDTO 
+{
+    private Long id;
+    private String nome;
+    private String descricao;
+    private String endereco;
+    private Double precoDiaria;
+    private Integer quantidadeQuartos;
+    private Integer quantidadeBanheiros;
+    private Integer capacidadePessoas;
+    private Float relevancia;
+}
@@ -0,0 +1,22 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CasaProximaDTO 
+{
+    private Long id;
+    private String nome;
+    private String endereco;
+    private Double precoDiaria;
+    private Integer quantidadeQuartos;
+    private Integer quantidadeBanheiros;
+    private Integer capacidadePessoas;
+    private Double latitude;
+    private Double longitude;
+    private Double distanciaKm;
+}
@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CotacaoDTO 
+{
+    private Long casaId;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private int noites;
+    // Valor de cada noite, já com temporada, dia da semana e demanda de última hora
+    private List<DiariaCotadaDTO> diarias;
+    private double subtotal;
+    // Desconto por tempo de estadia, sobre o subtotal
+    private double desconto;
+    private double total;
+}
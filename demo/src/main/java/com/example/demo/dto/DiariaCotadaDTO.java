@@ -0,0 +1,17 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DiariaCotadaDTO 
+{
+    // Data da noite (a noite que começa neste dia)
+    private LocalDate data;
+    private double valor;
+}
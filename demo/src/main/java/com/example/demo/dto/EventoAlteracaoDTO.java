@@ -0,0 +1,26 @@
+package com.example.demo.dto;
+
+import java.time.Instant;
+
+import com.example.demo.model.EventoAlteracao;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoAlteracaoDTO 
+{
+    // Ordem de entrega, sem lacunas; é o id do evento SSE e o cursor para retomar a leitura
+    private long posicao;
+    private EventoAlteracao.Entidade entidade;
+    private EventoAlteracao.Tipo tipo;
+    private Long entidadeId;
+    // Novo estado, já em JSON; null quando a casa foi removida
+    @JsonRawValue
+    private String dados;
+    private Instant criadoEm;
+}
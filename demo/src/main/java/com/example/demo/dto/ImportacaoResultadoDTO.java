@@ -0,0 +1,20 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacaoResultadoDTO 
+{
+    private long linhasLidas;
+    private long importadas;
+    private long totalErros;
+    private List<ErroImportacaoDTO> erros; // Limitado aos primeiros erros encontrados
+    private long duracaoMs;
+    private double linhasPorSegundo;
+}
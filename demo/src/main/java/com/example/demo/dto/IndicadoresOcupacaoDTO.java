@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import java.time.YearMonth;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Indicadores de um mês, de uma casa (casaId preenchido) ou de todas as casas (casaId nulo)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicadoresOcupacaoDTO 
+{
+    private YearMonth mes;
+    private Long casaId;
+    private long noitesDisponiveis;
+    private long noitesOcupadas;
+    private double taxaOcupacao;
+    private double diariaMedia;
+    private double receita;
+    private double mediaHospedes;
+}
@@ -0,0 +1,19 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemLoteReservaDTO 
+{
+    // Posição do item no pedido, começando em zero
+    private int indice;
+    private Long casaId;
+    // CRIADA, CONFLITO, INVALIDA ou NAO_GRAVADA (item válido de um lote recusado por causa de outros itens)
+    private String status;
+    private Long reservaId;
+    private String mensagem;
+}
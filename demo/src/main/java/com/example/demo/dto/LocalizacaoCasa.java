@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+// Projeção com a posição e os campos filtráveis de uma casa, usada para montar o índice geográfico
+public interface LocalizacaoCasa 
+{
+    Long getId();
+    Double getLatitude();
+    Double getLongitude();
+    Double getPrecoDiaria();
+    Integer getQuantidadeQuartos();
+    Integer getQuantidadeBanheiros();
+    Integer getCapacidadePessoas();
+}
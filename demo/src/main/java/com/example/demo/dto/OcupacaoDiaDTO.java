@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OcupacaoDiaDTO 
+{
+    private LocalDate dia;
+    private boolean ocupada;
+    private int hospedes;
+    private double receita;
+}
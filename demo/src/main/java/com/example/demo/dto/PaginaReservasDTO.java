@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaReservasDTO 
+{
+    private List<ReservaResponseDTO> itens;
+    private Long proximoCursor; // ID a ser enviado em "apos" para buscar a próxima página; nulo na última
+}
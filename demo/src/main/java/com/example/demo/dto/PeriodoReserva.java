@@ -0,0 +1,12 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+// Projeção com apenas as colunas necessárias para montar o calendário de disponibilidade
+public interface PeriodoReserva 
+{
+    Long getId();
+    Long getCasaId();
+    LocalDate getCheckIn();
+    LocalDate getCheckOut();
+}
@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaLoteRequestDTO 
+{
+    // Cada item é uma reserva completa, como em POST /api/reservas; casas e datas podem variar entre os itens
+    private List<ReservaRequestDTO> itens;
+}
@@ -0,0 +1,18 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaLoteResponseDTO 
+{
+    // true só quando todas as reservas do lote foram gravadas; caso contrário nenhuma foi
+    private boolean criadas;
+    // Um resultado por item, na ordem do pedido
+    private List<ItemLoteReservaDTO> itens;
+}
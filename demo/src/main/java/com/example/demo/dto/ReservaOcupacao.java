@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Período da reserva acrescido do que as análises de ocupação e receita precisam (hóspedes e diária cobrada)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaOcupacao implements PeriodoReserva
+{
+    private Long id;
+    private Long casaId;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private Integer quantidadePessoas;
+    private Double precoDiaria;
+}
@@ -14,6 +14,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ReservaRequestDTO 
 {
+    private Long casaId;
     private String nomeCliente;
     private String emailCliente;  
     private String cpfCliente;
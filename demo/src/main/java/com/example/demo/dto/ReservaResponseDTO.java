@@ -2,8 +2,6 @@ package com.example.demo.dto;
 
 import java.time.LocalDate;
 
-import com.example.demo.model.Casa;
-
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,7 +11,10 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class ReservaResponseDTO 
 {
-    private Casa casa;
+    private Long id;
+    // Só o identificador e o nome da casa; os demais dados ficam em /api/casas/{id}
+    private Long casaId;
+    private String casaNome;
     private String nomeCliente;
     private String emailCliente;  
     private String cpfCliente;
@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitacaoReservaDTO 
+{
+    private Long id;
+    private String chaveIdempotencia;
+    private Long casaId;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private String status;
+    private Long reservaId;
+    private String mensagem;
+    private Instant criadaEm;
+    private Instant processadaEm;
+}
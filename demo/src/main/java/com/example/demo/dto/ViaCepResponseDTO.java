@@ -15,5 +15,6 @@ public class ViaCepResponseDTO
    private String gia;
    private String ddd;
    private String siafi;
+   private Boolean erro; // O ViaCEP devolve "erro": true quando o CEP não existe
 }
 
@@ -5,6 +5,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,7 +16,10 @@ import lombok.NoArgsConstructor;
 
 
 @Entity //Indica que a classe é uma entidade JPA
-@Table (name = "casas")
+@Table (name = "casas", indexes = {
+    // Índice composto usado pelo filtro de /api/casas/filtrar (preço, quartos, banheiros, capacidade)
+    @Index(name = "idx_casas_filtro", columnList = "precoDiaria, quantidadeQuartos, quantidadeBanheiros, capacidadePessoas")
+})
 @NoArgsConstructor // Gera um construtor públicos sem argumentos
 @Data // Gera Automaticamente os getters e os setters
 @AllArgsConstructor // Gera um construtor público com todos os argumentos
@@ -22,7 +27,9 @@ import lombok.NoArgsConstructor;
 public class Casa 
 {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence em vez de IDENTITY para que o Hibernate consiga agrupar inserts em lotes JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "casas_seq")
+    @SequenceGenerator(name = "casas_seq", sequenceName = "casas_seq", allocationSize = 50)
 
     private Long id;
 
@@ -0,0 +1,63 @@
+package com.example.demo.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Alteração de uma casa ou reserva, gravada na mesma transação da alteração (outbox).
+ * O publicador de alterações lê os eventos ainda sem posição, numera-os em sequência e os entrega
+ * aos assinantes; a posição também é o cursor com que um assinante retoma a leitura.
+ */
+@Entity
+@Table(name = "eventos_alteracao",
+    uniqueConstraints = @UniqueConstraint(name = "uk_eventos_alteracao_posicao", columnNames = "posicao"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventoAlteracao
+{
+    public enum Entidade { CASA, RESERVA }
+
+    public enum Tipo { CRIADA, ATUALIZADA, REMOVIDA, CANCELADA }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "eventos_alteracao_seq")
+    @SequenceGenerator(name = "eventos_alteracao_seq", sequenceName = "eventos_alteracao_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Entidade entidade;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Tipo tipo;
+
+    @Column(nullable = false)
+    private Long entidadeId;
+
+    // Novo estado em JSON (CasaResponseDTO ou ReservaOcupacao); null quando a casa foi removida
+    @Column(length = 8000)
+    private String dados;
+
+    @Column(nullable = false)
+    private Instant criadoEm;
+
+    // Preenchidos pelo publicador: ordem de entrega, sem lacunas, e momento da publicação
+    private Long posicao;
+
+    private Instant publicadoEm;
+}
@@ -5,18 +5,28 @@ import java.time.LocalDate;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn; // Para Coluna de chave estrangeira
 import jakarta.persistence.ManyToOne; //Para relacionamento com Casa
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity // Marca esta classe como entidade JPA.
-@Table(name = "reservas") 
+@Table(name = "reservas", indexes = {
+    // Usado na busca de casas disponíveis: para cada casa, procura reservas que se sobrepõem ao período
+    @Index(name = "idx_reservas_casa_periodo", columnList = "casa_id, checkIn, checkOut"),
+    // Carga do calendário em memória: reservas com check-out no futuro
+    @Index(name = "idx_reservas_check_out", columnList = "checkOut")
+})
+// No Postgres o esquema vem das migrações do Flyway, que também mantêm a coluna daterange "periodo"
+// e a restrição de exclusão reservas_sem_sobreposicao (não mapeadas aqui)
 @Data // Gera getters, setters, toString, equals e hashCode
 @NoArgsConstructor
 @AllArgsConstructor
@@ -24,12 +34,16 @@ import lombok.NoArgsConstructor;
 public class Reserva 
 {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence em vez de IDENTITY para que os lotes da fila de reservas virem inserts em lote JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservas_seq")
+    @SequenceGenerator(name = "reservas_seq", sequenceName = "reservas_seq", allocationSize = 50)
 
     private Long id;
 
     
-    @ManyToOne // Define um relacionamento de muitos para um com a entidade casa 
+    // Define um relacionamento de muitos para um com a entidade casa.
+    // LAZY: a casa só é lida quando realmente usada; as consultas de leitura usam projeções
+    @ManyToOne(fetch = FetchType.LAZY)
 
     @JoinColumn(name = "casa_id", nullable = false) //Coluna de chava estrangeira para Casa
 
@@ -53,6 +67,9 @@ public class Reserva
     @Column (nullable = false)
     private Integer quantidadePessoas;
 
+    // Diária da casa no momento da reserva, usada nas análises de receita
+    private Double precoDiaria;
+
 
 
 
@@ -0,0 +1,83 @@
+package com.example.demo.model;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pedido de reserva recebido pelo modo assíncrono (POST /api/reservas/assincronas).
+ * A tabela funciona como a fila durável (outbox) da fila em memória: o pedido é gravado como
+ * PENDENTE antes de a requisição ser respondida, e pedidos ainda pendentes são retomados
+ * na próxima inicialização.
+ */
+@Entity
+@Table(name = "solicitacoes_reserva",
+    uniqueConstraints = @UniqueConstraint(name = "uk_solicitacoes_reserva_chave", columnNames = "chaveIdempotencia"),
+    indexes = @Index(name = "idx_solicitacoes_reserva_status", columnList = "status"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SolicitacaoReserva
+{
+    public enum Status { PENDENTE, CONFIRMADA, RECUSADA }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "solicitacoes_reserva_seq")
+    @SequenceGenerator(name = "solicitacoes_reserva_seq", sequenceName = "solicitacoes_reserva_seq", allocationSize = 50)
+    private Long id;
+
+    // Enviada pelo cliente no cabeçalho Idempotency-Key; repetir a requisição devolve o mesmo pedido
+    @Column(nullable = false, length = 100)
+    private String chaveIdempotencia;
+
+    @Column(nullable = false)
+    private Long casaId;
+
+    @Column(nullable = false)
+    private String nomeCliente;
+
+    @Column(nullable = false)
+    private String emailCliente;
+
+    @Column(nullable = false)
+    private String cpfCliente;
+
+    @Column(nullable = false)
+    private LocalDate checkIn;
+
+    @Column(nullable = false)
+    private LocalDate checkOut;
+
+    @Column(nullable = false)
+    private Integer quantidadePessoas;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    // Preenchido quando o pedido é confirmado
+    private Long reservaId;
+
+    // Motivo da recusa
+    @Column(length = 500)
+    private String mensagem;
+
+    @Column(nullable = false)
+    private Instant criadaEm;
+
+    private Instant processadaEm;
+}
@@ -1,6 +1,8 @@
 package com.example.demo.repository;
 
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
@@ -10,6 +12,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.demo.dto.AtributosCasa;
+import com.example.demo.dto.LocalizacaoCasa;
 import com.example.demo.model.Casa;
 
 @Repository
@@ -24,14 +28,14 @@ public interface CasaRepository  extends JpaRepository<Casa, Long>
     // Novo método para buscar casas por quantidade de banheiros
     List<Casa> findByQuantidadeBanheiros(Integer quantidadeBanheiros);
 
-    //Para filtrar diretamente no banco de dados
+    //Para filtrar diretamente no banco de dados.
+    //Os limites nunca são nulos (o serviço substitui filtros ausentes pelos extremos),
+    //assim cada condição vira um intervalo que o índice idx_casas_filtro consegue percorrer.
     @Query("SELECT c FROM Casa c " +
-           "WHERE (:precoMax IS NULL OR c.precoDiaria <= :precoMax) " +
-           "AND (:precoMin IS NULL OR c.precoDiaria >= :precoMin) " +
-           "AND (:quartosMax IS NULL OR c.quantidadeQuartos <= :quartosMax) " +
-           "AND (:quartosMin IS NULL OR c.quantidadeQuartos >= :quartosMin) " +
-           "AND (:banheirosMax IS NULL OR c.quantidadeBanheiros <= :banheirosMax) " +
-           "AND (:banheirosMin IS NULL OR c.quantidadeBanheiros >= :banheirosMin)")
+           "WHERE c.precoDiaria BETWEEN :precoMin AND :precoMax " +
+           "AND c.quantidadeQuartos BETWEEN :quartosMin AND :quartosMax " +
+           "AND c.quantidadeBanheiros BETWEEN :banheirosMin AND :banheirosMax " +
+           "AND c.capacidadePessoas BETWEEN :capacidadeMin AND :capacidadeMax")
     Page<Casa> filtrarCasas(
         @Param("precoMax") Double precoMax,
         @Param("precoMin") Double precoMin,
@@ -39,8 +43,48 @@ public interface CasaRepository  extends JpaRepository<Casa, Long>
         @Param("quartosMin") Integer quartosMin,
         @Param("banheirosMax") Integer banheirosMax,
         @Param("banheirosMin") Integer banheirosMin,
+        @Param("capacidadeMax") Integer capacidadeMax,
+        @Param("capacidadeMin") Integer capacidadeMin,
         Pageable pageable
     );
 
+    //Casas livres no período: mesmos filtros de filtrarCasas, mais um anti-join (NOT EXISTS) contra as reservas
+    //que se sobrepõem ao período (check-out exclusivo). O banco resolve tudo em uma consulta, usando o índice
+    //idx_reservas_casa_periodo para cada casa candidata, em vez de uma consulta de sobreposição por casa.
+    @Query("SELECT c FROM Casa c " +
+           "WHERE c.precoDiaria BETWEEN :precoMin AND :precoMax " +
+           "AND c.quantidadeQuartos BETWEEN :quartosMin AND :quartosMax " +
+           "AND c.quantidadeBanheiros BETWEEN :banheirosMin AND :banheirosMax " +
+           "AND c.capacidadePessoas >= :quantidadePessoas " +
+           "AND NOT EXISTS (SELECT 1 FROM Reserva r WHERE r.casa = c " +
+           "AND r.checkIn < :checkOut AND r.checkOut > :checkIn)")
+    Page<Casa> buscarDisponiveis(
+        @Param("checkIn") LocalDate checkIn,
+        @Param("checkOut") LocalDate checkOut,
+        @Param("quantidadePessoas") Integer quantidadePessoas,
+        @Param("precoMax") Double precoMax,
+        @Param("precoMin") Double precoMin,
+        @Param("quartosMax") Integer quartosMax,
+        @Param("quartosMin") Integer quartosMin,
+        @Param("banheirosMax") Integer banheirosMax,
+        @Param("banheirosMin") Integer banheirosMin,
+        Pageable pageable
+    );
+
+    //Somente as casas com coordenadas, e só as colunas usadas pelo índice geográfico
+    @Query("SELECT c.id AS id, c.latitude AS latitude, c.longitude AS longitude, c.precoDiaria AS precoDiaria, " +
+           "c.quantidadeQuartos AS quantidadeQuartos, c.quantidadeBanheiros AS quantidadeBanheiros, " +
+           "c.capacidadePessoas AS capacidadePessoas " +
+           "FROM Casa c WHERE c.latitude IS NOT NULL AND c.longitude IS NOT NULL")
+    List<LocalizacaoCasa> buscarLocalizacoes();
+
+    //Só as colunas filtráveis de todas as casas, em ordem de ID, usadas pelo índice colunar
+    @Query("SELECT c.id AS id, c.precoDiaria AS precoDiaria, c.quantidadeQuartos AS quantidadeQuartos, " +
+           "c.quantidadeBanheiros AS quantidadeBanheiros, c.capacidadePessoas AS capacidadePessoas " +
+           "FROM Casa c ORDER BY c.id")
+    List<AtributosCasa> buscarAtributosFiltro();
 
+    //Casas de uma página montada em memória; a lista IN usa a chave primária (o findAllById manda um array, que o H2 não indexa)
+    @Query("SELECT c FROM Casa c WHERE c.id IN :ids")
+    List<Casa> buscarPorIds(@Param("ids") Collection<Long> ids);
 }
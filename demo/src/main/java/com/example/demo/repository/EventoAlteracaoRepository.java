@@ -0,0 +1,37 @@
+package com.example.demo.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.dto.EventoAlteracaoDTO;
+import com.example.demo.model.EventoAlteracao;
+
+@Repository
+public interface EventoAlteracaoRepository extends JpaRepository<EventoAlteracao, Long>
+{
+     //Eventos gravados e ainda não publicados, na ordem em que foram gerados
+     @Query("SELECT e FROM EventoAlteracao e WHERE e.posicao IS NULL ORDER BY e.id")
+     List<EventoAlteracao> buscarPendentes(Limit limite);
+
+     @Query("SELECT COALESCE(MAX(e.posicao), 0) FROM EventoAlteracao e")
+     long buscarUltimaPosicao();
+
+     //Eventos já publicados depois de uma posição, para o assinante que retoma a leitura ou perdeu lotes
+     @Query("SELECT new com.example.demo.dto.EventoAlteracaoDTO(e.posicao, e.entidade, e.tipo, e.entidadeId, e.dados, e.criadoEm) " +
+            "FROM EventoAlteracao e WHERE e.posicao > :apos AND e.posicao <= :ate ORDER BY e.posicao")
+     List<EventoAlteracaoDTO> buscarPublicados(@Param("apos") long apos, @Param("ate") long ate, Limit limite);
+
+     //Retenção: eventos publicados há mais tempo que o configurado deixam de poder ser relidos.
+     //O de maior posição nunca é apagado: a numeração continua a partir dele, mesmo depois de um período sem alterações
+     @Modifying
+     @Query("DELETE FROM EventoAlteracao e WHERE e.publicadoEm < :limite " +
+            "AND e.posicao < (SELECT MAX(u.posicao) FROM EventoAlteracao u)")
+     int apagarPublicadosAntes(@Param("limite") Instant limite);
+}
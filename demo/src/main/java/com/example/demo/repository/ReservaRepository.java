@@ -2,21 +2,107 @@ package com.example.demo.repository;
 
 import org.springframework.stereotype.Repository;
 
-import com.example.demo.model.Casa;
+import com.example.demo.dto.PeriodoReserva;
+import com.example.demo.dto.ReservaOcupacao;
+import com.example.demo.dto.ReservaResponseDTO;
 import com.example.demo.model.Reserva;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
 
 @Repository
 public interface ReservaRepository extends JpaRepository<Reserva, Long>
 {    
-     //Metódo que verifica sobreposição de reservas
-     List<Reserva> findByCasaAndCheckInBeforeAndCheckOutAfter(
-        Casa casa,
-        LocalDate checkOut,
-        LocalDate checkIn
+     //Projeção usada nas leituras: só as colunas da resposta, e da casa apenas o nome
+     String SELECAO_RESPOSTA = "SELECT new com.example.demo.dto.ReservaResponseDTO(" +
+            "r.id, c.id, c.nome, r.nomeCliente, r.emailCliente, r.cpfCliente, r.checkIn, r.checkOut, r.quantidadePessoas) " +
+            "FROM Reserva r JOIN r.casa c ";
+
+     @Query(SELECAO_RESPOSTA + "WHERE r.id = :id")
+     Optional<ReservaResponseDTO> buscarResposta(@Param("id") Long id);
+
+     //Dados de ocupação de uma reserva, usados no cancelamento para desfazer o período nas análises
+     String SELECAO_OCUPACAO = "SELECT new com.example.demo.dto.ReservaOcupacao(" +
+            "r.id, r.casa.id, r.checkIn, r.checkOut, r.quantidadePessoas, r.precoDiaria) FROM Reserva r ";
+
+     @Query(SELECAO_OCUPACAO + "WHERE r.id = :id")
+     Optional<ReservaOcupacao> buscarOcupacao(@Param("id") Long id);
+
+     //Todo o histórico, só com as colunas das análises, para montar os acumulados de ocupação na inicialização
+     @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "5000"))
+     @Query(SELECAO_OCUPACAO)
+     List<ReservaOcupacao> buscarTodasParaOcupacao();
+
+     //Carrega somente os períodos ainda não encerrados, usados pelo calendário de disponibilidade
+     @Query("SELECT r.id AS id, r.casa.id AS casaId, r.checkIn AS checkIn, r.checkOut AS checkOut " +
+            "FROM Reserva r WHERE r.checkOut > :data")
+     List<PeriodoReserva> findPeriodosComCheckOutApos(@Param("data") LocalDate data);
+
+     //O mesmo, só de algumas casas; usado no modo cluster para reler o calendário sob a trava do banco
+     @Query("SELECT r.id AS id, r.casa.id AS casaId, r.checkIn AS checkIn, r.checkOut AS checkOut " +
+            "FROM Reserva r WHERE r.casa.id IN :casaIds AND r.checkOut > :data")
+     List<PeriodoReserva> findPeriodosDasCasasComCheckOutApos(
+        @Param("casaIds") Collection<Long> casaIds,
+        @Param("data") LocalDate data
+     );
+
+     //Períodos de várias casas que cruzam o intervalo informado, em uma consulta; usado para apontar os itens
+     //de um lote de reservas recusado pela restrição de exclusão
+     @Query("SELECT r.id AS id, r.casa.id AS casaId, r.checkIn AS checkIn, r.checkOut AS checkOut " +
+            "FROM Reserva r WHERE r.casa.id IN :casaIds AND r.checkIn < :ate AND r.checkOut > :de")
+     List<PeriodoReserva> buscarPeriodosSobrepostos(
+        @Param("casaIds") Collection<Long> casaIds,
+        @Param("de") LocalDate de,
+        @Param("ate") LocalDate ate
+    );
+
+     //Paginação por cursor (keyset): busca as reservas com ID maior que o último já entregue,
+     //percorrendo a chave primária em vez de contar e pular linhas como no OFFSET
+     @Query(SELECAO_RESPOSTA +
+            "WHERE r.id > :aposId " +
+            "AND (:casaId IS NULL OR r.casa.id = :casaId) " +
+            "AND (:de IS NULL OR r.checkOut > :de) " +
+            "AND (:ate IS NULL OR r.checkIn < :ate) " +
+            "AND (:cpfCliente IS NULL OR r.cpfCliente = :cpfCliente) " +
+            "AND (:emailCliente IS NULL OR r.emailCliente = :emailCliente) " +
+            "ORDER BY r.id")
+     List<ReservaResponseDTO> buscarPagina(
+        @Param("aposId") Long aposId,
+        @Param("casaId") Long casaId,
+        @Param("de") LocalDate de,
+        @Param("ate") LocalDate ate,
+        @Param("cpfCliente") String cpfCliente,
+        @Param("emailCliente") String emailCliente,
+        Limit limite
+    );
+
+     //Mesmos filtros da paginação, mas lendo com um cursor no servidor para exportar tudo em fluxo
+     //Como são DTOs, nada fica no contexto de persistência durante a exportação
+     @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+     @Query(SELECAO_RESPOSTA +
+            "WHERE (:casaId IS NULL OR r.casa.id = :casaId) " +
+            "AND (:de IS NULL OR r.checkOut > :de) " +
+            "AND (:ate IS NULL OR r.checkIn < :ate) " +
+            "AND (:cpfCliente IS NULL OR r.cpfCliente = :cpfCliente) " +
+            "AND (:emailCliente IS NULL OR r.emailCliente = :emailCliente) " +
+            "ORDER BY r.id")
+     Stream<ReservaResponseDTO> buscarParaExportacao(
+        @Param("casaId") Long casaId,
+        @Param("de") LocalDate de,
+        @Param("ate") LocalDate ate,
+        @Param("cpfCliente") String cpfCliente,
+        @Param("emailCliente") String emailCliente
     );
 }
@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import com.example.demo.model.SolicitacaoReserva;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface SolicitacaoReservaRepository extends JpaRepository<SolicitacaoReserva, Long>
+{
+    Optional<SolicitacaoReserva> findByChaveIdempotencia(String chaveIdempotencia);
+
+    //Pedidos que ainda não foram processados, retomados na inicialização
+    List<SolicitacaoReserva> findByStatusOrderById(SolicitacaoReserva.Status status);
+
+    //Reivindica os pedidos ainda pendentes com SELECT ... FOR UPDATE: quem chegar depois espera o commit de quem os
+    //processa e, com o status já alterado, não os recebe de novo
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<SolicitacaoReserva> findByIdInAndStatusOrderById(Collection<Long> ids, SolicitacaoReserva.Status status);
+}
@@ -0,0 +1,438 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.dto.IndicadoresOcupacaoDTO;
+import com.example.demo.dto.OcupacaoDiaDTO;
+import com.example.demo.dto.ReservaOcupacao;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Análises de ocupação e receita por casa e por mês, calculadas sobre acumulados diários mantidos em memória.
+ * Na inicialização os acumulados são montados a partir de todo o histórico, em paralelo (fork/join por casa);
+ * depois disso cada reserva criada ou cancelada só soma ou subtrai as suas noites, de modo que as consultas
+ * nunca percorrem a tabela reservas.
+ * A receita de cada noite é a diária gravada na própria reserva, e não o preço atual da casa.
+ * Além dos acumulados por casa, guarda quantas casas estão ocupadas em cada dia, atualizado junto com eles,
+ * para que a ocupação geral de uma noite seja lida sem percorrer as casas.
+ */
+@Service
+public class AnaliseOcupacao
+{
+    private static final Logger log = LoggerFactory.getLogger(AnaliseOcupacao.class);
+
+    static final int MAXIMO_MESES = 120;
+    // Abaixo disso a montagem não é mais dividida entre tarefas
+    private static final int LIMIAR_PARALELO = 10_000;
+
+    private final ReservaRepository reservaRepository;
+    private final CasaRepository casaRepository;
+    private final IndiceColunarCasas indiceColunar;
+    private volatile Acumulados acumulados = new Acumulados();
+    // Alterações de reserva aplicam-se sob a trava de leitura; a carga usa a de escrita para começar a guardar as
+    // alterações recebidas durante a leitura do banco e, no fim, para conciliá-las e trocar os acumulados
+    private final ReentrantReadWriteLock troca = new ReentrantReadWriteLock();
+    private ConcurrentLinkedQueue<ReservaAlteradaEvent> recebidasDuranteACarga;
+
+    // Os acumulados de cada casa e, por mês, quantas casas têm ao menos uma reserva em cada dia.
+    // Trocados juntos na carga, para que as casas sempre atualizem as contagens do mesmo conjunto
+    private record Acumulados(ConcurrentHashMap<Long, OcupacaoCasa> porCasa,
+            ConcurrentHashMap<YearMonth, AtomicIntegerArray> casasOcupadas)
+    {
+        Acumulados()
+        {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+
+        OcupacaoCasa casa(Long casaId)
+        {
+            return porCasa.computeIfAbsent(casaId, id -> new OcupacaoCasa(casasOcupadas));
+        }
+    }
+
+    // Acumulados de uma casa em um mês: uma posição por dia, mais os totais do mês
+    private static final class Mes
+    {
+        final int[] noites;
+        final int[] hospedes;
+        final long[] receitaCentavos;
+        // Contagem de casas ocupadas por dia do mês, compartilhada com as outras casas
+        final AtomicIntegerArray casasOcupadas;
+        long totalNoites;
+        long totalHospedes;
+        long totalReceitaCentavos;
+
+        Mes(YearMonth mes, AtomicIntegerArray casasOcupadas)
+        {
+            int dias = mes.lengthOfMonth();
+            this.noites = new int[dias];
+            this.hospedes = new int[dias];
+            this.receitaCentavos = new long[dias];
+            this.casasOcupadas = casasOcupadas;
+        }
+
+        // Soma (sinal 1) ou subtrai (sinal -1) uma estadia nos dias [primeiro, ultimo], contados a partir de zero
+        synchronized void aplicar(int primeiro, int ultimo, int pessoas, long diariaCentavos, int sinal)
+        {
+            for (int dia = primeiro; dia <= ultimo; dia++)
+            {
+                int antes = noites[dia];
+                noites[dia] += sinal;
+                // A casa só entra ou sai da contagem do dia quando passa de livre para ocupada ou o contrário
+                if (antes == 0 && noites[dia] > 0)
+                {
+                    casasOcupadas.incrementAndGet(dia);
+                }
+                else if (antes > 0 && noites[dia] == 0)
+                {
+                    casasOcupadas.decrementAndGet(dia);
+                }
+                hospedes[dia] += sinal * pessoas;
+                receitaCentavos[dia] += sinal * diariaCentavos;
+            }
+            long quantidade = ultimo - primeiro + 1L;
+            totalNoites += sinal * quantidade;
+            totalHospedes += sinal * quantidade * pessoas;
+            totalReceitaCentavos += sinal * quantidade * diariaCentavos;
+        }
+
+        // Noites, hóspedes-noite e receita em centavos, lidos juntos
+        synchronized long[] totais()
+        {
+            return new long[] { totalNoites, totalHospedes, totalReceitaCentavos };
+        }
+
+        synchronized OcupacaoDiaDTO dia(LocalDate data)
+        {
+            int i = data.getDayOfMonth() - 1;
+            return new OcupacaoDiaDTO(data, noites[i] > 0, hospedes[i], receitaCentavos[i] / 100.0);
+        }
+    }
+
+    private static final class OcupacaoCasa
+    {
+        final ConcurrentHashMap<YearMonth, Mes> meses = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<YearMonth, AtomicIntegerArray> casasOcupadas;
+
+        OcupacaoCasa(ConcurrentHashMap<YearMonth, AtomicIntegerArray> casasOcupadas)
+        {
+            this.casasOcupadas = casasOcupadas;
+        }
+
+        void aplicar(ReservaOcupacao reserva, int sinal)
+        {
+            int pessoas = reserva.getQuantidadePessoas() != null ? reserva.getQuantidadePessoas() : 0;
+            long diariaCentavos = reserva.getPrecoDiaria() != null ? Math.round(reserva.getPrecoDiaria() * 100) : 0;
+            // Percorre a estadia mês a mês; o check-out não conta como noite
+            LocalDate dia = reserva.getCheckIn();
+            LocalDate ultimaNoite = reserva.getCheckOut().minusDays(1);
+            while (!dia.isAfter(ultimaNoite))
+            {
+                YearMonth mes = YearMonth.from(dia);
+                LocalDate fimDoTrecho = ultimaNoite.isBefore(mes.atEndOfMonth()) ? ultimaNoite : mes.atEndOfMonth();
+                meses.computeIfAbsent(mes, m -> new Mes(m, casasOcupadas.computeIfAbsent(m,
+                                doMes -> new AtomicIntegerArray(doMes.lengthOfMonth()))))
+                        .aplicar(dia.getDayOfMonth() - 1, fimDoTrecho.getDayOfMonth() - 1, pessoas, diariaCentavos, sinal);
+                dia = fimDoTrecho.plusDays(1);
+            }
+        }
+    }
+
+    // Monta os acumulados de um trecho das reservas (ordenadas por casa), dividindo-o sem separar uma casa em duas tarefas
+    private static final class Montagem extends RecursiveAction
+    {
+        private final ReservaOcupacao[] reservas;
+        private final int inicio;
+        private final int fim;
+        private final Acumulados destino;
+
+        Montagem(ReservaOcupacao[] reservas, int inicio, int fim, Acumulados destino)
+        {
+            this.reservas = reservas;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.destino = destino;
+        }
+
+        @Override
+        protected void compute()
+        {
+            int meio = (inicio + fim) >>> 1;
+            while (meio > inicio && meio < fim && reservas[meio].getCasaId().equals(reservas[meio - 1].getCasaId()))
+            {
+                meio++;
+            }
+            if (fim - inicio <= LIMIAR_PARALELO || meio == fim)
+            {
+                OcupacaoCasa casa = null;
+                for (int i = inicio; i < fim; i++)
+                {
+                    if (casa == null || !reservas[i].getCasaId().equals(reservas[i - 1].getCasaId()))
+                    {
+                        casa = destino.casa(reservas[i].getCasaId());
+                    }
+                    casa.aplicar(reservas[i], 1);
+                }
+                return;
+            }
+            invokeAll(new Montagem(reservas, inicio, meio, destino), new Montagem(reservas, meio, fim, destino));
+        }
+    }
+
+    public AnaliseOcupacao(ReservaRepository reservaRepository, CasaRepository casaRepository,
+            IndiceColunarCasas indiceColunar)
+    {
+        this.reservaRepository = reservaRepository;
+        this.casaRepository = casaRepository;
+        this.indiceColunar = indiceColunar;
+    }
+
+    /**
+     * Monta os acumulados a partir de todas as reservas gravadas.
+     * Executado na inicialização, antes do servidor web começar a aceitar requisições, e de novo na ressincronização
+     * do modo cluster, com reservas chegando: as alterações recebidas enquanto o banco é lido continuam valendo
+     * para os acumulados atuais e são conciliadas com os novos antes da troca.
+     */
+    @PostConstruct
+    public synchronized void carregar()
+    {
+        long inicio = System.nanoTime();
+        ConcurrentLinkedQueue<ReservaAlteradaEvent> recebidas = new ConcurrentLinkedQueue<>();
+        troca.writeLock().lock();
+        try
+        {
+            recebidasDuranteACarga = recebidas;
+        }
+        finally
+        {
+            troca.writeLock().unlock();
+        }
+
+        ReservaOcupacao[] reservas = reservaRepository.buscarTodasParaOcupacao().toArray(ReservaOcupacao[]::new);
+        Arrays.parallelSort(reservas, Comparator.comparing(ReservaOcupacao::getCasaId));
+        Acumulados novos = new Acumulados();
+        ForkJoinPool.commonPool().invoke(new Montagem(reservas, 0, reservas.length, novos));
+
+        troca.writeLock().lock();
+        try
+        {
+            conciliar(novos, reservas, recebidas);
+            acumulados = novos;
+            recebidasDuranteACarga = null;
+        }
+        finally
+        {
+            troca.writeLock().unlock();
+        }
+        log.info("Análises de ocupação montadas com {} reservas de {} casas em {} ms",
+                reservas.length, novos.porCasa().size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    // Antes dos outros ouvintes, que podem ler os acumulados logo em seguida (como a TabelaDePrecos)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarReserva(ReservaAlteradaEvent evento)
+    {
+        troca.readLock().lock();
+        try
+        {
+            acumulados.casa(evento.reserva().getCasaId()).aplicar(evento.reserva(), evento.cancelada() ? -1 : 1);
+            ConcurrentLinkedQueue<ReservaAlteradaEvent> recebidas = recebidasDuranteACarga;
+            if (recebidas != null)
+            {
+                recebidas.add(evento);
+            }
+        }
+        finally
+        {
+            troca.readLock().unlock();
+        }
+    }
+
+    // Aplica nos acumulados novos as alterações recebidas durante a carga que a leitura do banco não viu.
+    // Cada uma pode ter sido gravada antes ou depois da leitura; o que decide é se a reserva estava na leitura,
+    // acompanhando, na ordem de chegada, as criações e cancelamentos da mesma reserva
+    private static void conciliar(Acumulados novos, ReservaOcupacao[] lidas, Iterable<ReservaAlteradaEvent> recebidas)
+    {
+        Map<Long, Boolean> existe = new HashMap<>();
+        recebidas.forEach(evento -> existe.put(evento.reserva().getId(), false));
+        if (existe.isEmpty())
+        {
+            return;
+        }
+        for (ReservaOcupacao lida : lidas)
+        {
+            existe.computeIfPresent(lida.getId(), (id, valor) -> true);
+        }
+        for (ReservaAlteradaEvent evento : recebidas)
+        {
+            Long id = evento.reserva().getId();
+            // Uma criação só falta se a reserva não estava lá; um cancelamento, só se ainda estava
+            if (evento.cancelada() == existe.get(id))
+            {
+                novos.casa(evento.reserva().getCasaId()).aplicar(evento.reserva(), evento.cancelada() ? -1 : 1);
+                existe.put(id, !evento.cancelada());
+            }
+        }
+    }
+
+    /**
+     * Indicadores mensais de uma casa.
+     * @param casaId O ID da casa.
+     * @param de Primeiro mês.
+     * @param ate Último mês (inclusive).
+     * @return Um item por mês, inclusive os meses sem reservas.
+     * @throws IllegalArgumentException se o intervalo for inválido ou maior que {@value #MAXIMO_MESES} meses.
+     */
+    public List<IndicadoresOcupacaoDTO> indicadoresDaCasa(Long casaId, YearMonth de, YearMonth ate)
+    {
+        validarIntervalo(de, ate);
+        OcupacaoCasa casa = acumulados.porCasa().get(casaId);
+        List<IndicadoresOcupacaoDTO> indicadores = new ArrayList<>();
+        for (YearMonth mes = de; !mes.isAfter(ate); mes = mes.plusMonths(1))
+        {
+            Mes acumulado = casa == null ? null : casa.meses.get(mes);
+            long[] totais = acumulado == null ? new long[3] : acumulado.totais();
+            indicadores.add(indicadores(mes, casaId, mes.lengthOfMonth(), totais));
+        }
+        return indicadores;
+    }
+
+    /**
+     * Indicadores mensais somando todas as casas cadastradas.
+     * @param de Primeiro mês.
+     * @param ate Último mês (inclusive).
+     * @return Um item por mês, inclusive os meses sem reservas.
+     * @throws IllegalArgumentException se o intervalo for inválido ou maior que {@value #MAXIMO_MESES} meses.
+     */
+    public List<IndicadoresOcupacaoDTO> indicadoresGerais(YearMonth de, YearMonth ate)
+    {
+        validarIntervalo(de, ate);
+        long casas = quantidadeDeCasas();
+        Collection<OcupacaoCasa> todas = acumulados.porCasa().values();
+        List<IndicadoresOcupacaoDTO> indicadores = new ArrayList<>();
+        for (YearMonth mes = de; !mes.isAfter(ate); mes = mes.plusMonths(1))
+        {
+            long[] soma = new long[3];
+            for (OcupacaoCasa casa : todas)
+            {
+                Mes acumulado = casa.meses.get(mes);
+                if (acumulado != null)
+                {
+                    long[] totais = acumulado.totais();
+                    for (int i = 0; i < soma.length; i++)
+                    {
+                        soma[i] += totais[i];
+                    }
+                }
+            }
+            indicadores.add(indicadores(mes, null, casas * mes.lengthOfMonth(), soma));
+        }
+        return indicadores;
+    }
+
+    /**
+     * Ocupação, hóspedes e receita de cada dia do mês para uma casa.
+     * @param casaId O ID da casa.
+     * @param mes O mês.
+     * @return Um item por dia do mês.
+     */
+    public List<OcupacaoDiaDTO> ocupacaoDiaria(Long casaId, YearMonth mes)
+    {
+        if (mes == null)
+        {
+            throw new IllegalArgumentException("Informe o mês.");
+        }
+        OcupacaoCasa casa = acumulados.porCasa().get(casaId);
+        Mes acumulado = casa == null ? null : casa.meses.get(mes);
+        List<OcupacaoDiaDTO> dias = new ArrayList<>(mes.lengthOfMonth());
+        for (int dia = 1; dia <= mes.lengthOfMonth(); dia++)
+        {
+            LocalDate data = mes.atDay(dia);
+            dias.add(acumulado == null ? new OcupacaoDiaDTO(data, false, 0, 0) : acumulado.dia(data));
+        }
+        return dias;
+    }
+
+    /**
+     * Fração das casas cadastradas ocupadas em cada noite, a partir de uma data.
+     * Usada pela demanda de última hora da {@link TabelaDePrecos}; lê uma contagem por noite, sem percorrer as casas
+     * e sem ir ao banco (a quantidade de casas vem do {@link IndiceColunarCasas}, quando habilitado).
+     * @param de Primeira noite.
+     * @param dias Quantidade de noites.
+     * @return Uma posição por noite, entre 0 e 1.
+     */
+    public double[] ocupacaoGeral(LocalDate de, int dias)
+    {
+        double[] ocupacao = new double[dias];
+        long casas = dias == 0 ? 0 : quantidadeDeCasas();
+        if (casas == 0)
+        {
+            return ocupacao;
+        }
+        ConcurrentHashMap<YearMonth, AtomicIntegerArray> casasOcupadas = acumulados.casasOcupadas();
+        for (int i = 0; i < dias; i++)
+        {
+            LocalDate noite = de.plusDays(i);
+            AtomicIntegerArray doMes = casasOcupadas.get(YearMonth.from(noite));
+            if (doMes != null)
+            {
+                ocupacao[i] = doMes.get(noite.getDayOfMonth() - 1) / (double) casas;
+            }
+        }
+        return ocupacao;
+    }
+
+    private long quantidadeDeCasas()
+    {
+        return indiceColunar.quantidadeDeCasas().orElseGet(casaRepository::count);
+    }
+
+    private static IndicadoresOcupacaoDTO indicadores(YearMonth mes, Long casaId, long noitesDisponiveis, long[] totais)
+    {
+        long noites = totais[0];
+        double receita = totais[2] / 100.0;
+        return new IndicadoresOcupacaoDTO(mes, casaId, noitesDisponiveis, noites,
+                noitesDisponiveis == 0 ? 0 : noites / (double) noitesDisponiveis,
+                noites == 0 ? 0 : receita / noites,
+                receita,
+                noites == 0 ? 0 : totais[1] / (double) noites);
+    }
+
+    private static void validarIntervalo(YearMonth de, YearMonth ate)
+    {
+        if (de == null || ate == null || de.isAfter(ate))
+        {
+            throw new IllegalArgumentException("Informe um intervalo de meses válido (de <= ate).");
+        }
+        if (ChronoUnit.MONTHS.between(de, ate) >= MAXIMO_MESES)
+        {
+            throw new IllegalArgumentException("O intervalo pode ter no máximo " + MAXIMO_MESES + " meses.");
+        }
+    }
+}
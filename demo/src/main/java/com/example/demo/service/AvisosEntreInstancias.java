@@ -0,0 +1,269 @@
+package com.example.demo.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.config.ClusterProperties;
+import com.example.demo.controller.CacheRespostasCasasFilter;
+import com.example.demo.dto.ReservaOcupacao;
+import com.example.demo.repository.CasaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Mantém o estado em memória de cada instância (caches e índices de casas, calendário, análises de ocupação)
+ * coerente com as alterações feitas pelas outras instâncias, pelo LISTEN/NOTIFY do Postgres.
+ * Cada alteração local manda um NOTIFY dentro da própria transação, que o Postgres só entrega no commit;
+ * as outras instâncias recebem o aviso e republicam localmente o {@link CasaAlteradaEvent} ou o
+ * {@link ReservaAlteradaEvent} (marcado como remoto), de modo que os ouvintes de sempre se atualizam.
+ * Os avisos emitidos enquanto a conexão do LISTEN estava caída se perdem; ao reconectar, a instância relê
+ * do banco tudo o que mantém em memória.
+ * Só atua com cluster.habilitado=true.
+ */
+@Component
+public class AvisosEntreInstancias
+{
+    private static final Logger log = LoggerFactory.getLogger(AvisosEntreInstancias.class);
+
+    private final ClusterProperties cluster;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventos;
+    private final CasaRepository casaRepository;
+    private final CalendarioDisponibilidade calendario;
+    private final Ressincronizacao ressincronizacao;
+    // Identifica esta instância nos avisos, para que ela ignore os que ela mesma mandou
+    private final String instancia = UUID.randomUUID().toString();
+    private volatile Thread ouvinte;
+
+    // Conteúdo do NOTIFY: uma casa alterada (o estado atual é lido do banco) ou uma reserva criada ou cancelada
+    record Aviso(String instancia, Long casaId, ReservaOcupacao reserva, boolean cancelada) {}
+
+    /**
+     * Tudo o que é mantido em memória a partir do banco e precisa ser relido depois de uma queda da conexão do LISTEN.
+     */
+    @Component
+    static class Ressincronizacao
+    {
+        private final CalendarioDisponibilidade calendario;
+        private final AnaliseOcupacao analiseOcupacao;
+        private final TabelaDePrecos tabelaDePrecos;
+        private final IndiceGeografico indiceGeografico;
+        private final IndiceColunarCasas indiceColunar;
+        private final IndiceTextualCasas indiceTextual;
+        private final InvalidacaoCacheCasas invalidacaoCache;
+        private final CacheRespostasCasasFilter cacheRespostas;
+
+        Ressincronizacao(CalendarioDisponibilidade calendario, AnaliseOcupacao analiseOcupacao,
+                TabelaDePrecos tabelaDePrecos, IndiceGeografico indiceGeografico, IndiceColunarCasas indiceColunar,
+                IndiceTextualCasas indiceTextual, InvalidacaoCacheCasas invalidacaoCache, CacheRespostasCasasFilter cacheRespostas)
+        {
+            this.calendario = calendario;
+            this.analiseOcupacao = analiseOcupacao;
+            this.tabelaDePrecos = tabelaDePrecos;
+            this.indiceGeografico = indiceGeografico;
+            this.indiceColunar = indiceColunar;
+            this.indiceTextual = indiceTextual;
+            this.invalidacaoCache = invalidacaoCache;
+            this.cacheRespostas = cacheRespostas;
+        }
+
+        void executar()
+        {
+            calendario.carregar();
+            // O índice colunar antes da tabela de preços, que lê dele a quantidade de casas
+            indiceColunar.carregar();
+            analiseOcupacao.carregar();
+            tabelaDePrecos.compilar();
+            indiceGeografico.carregar();
+            indiceTextual.carregar();
+            invalidacaoCache.invalidarTudo();
+            cacheRespostas.invalidar();
+        }
+    }
+
+    public AvisosEntreInstancias(ClusterProperties cluster, DataSource dataSource, JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper, ApplicationEventPublisher eventos, CasaRepository casaRepository,
+            CalendarioDisponibilidade calendario, Ressincronizacao ressincronizacao)
+    {
+        // O canal entra direto no comando LISTEN, que não aceita parâmetros
+        if (!cluster.canal().matches("[a-z_][a-z0-9_]{0,62}"))
+        {
+            throw new IllegalArgumentException("Nome de canal inválido para o LISTEN: " + cluster.canal());
+        }
+        this.cluster = cluster;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventos = eventos;
+        this.casaRepository = casaRepository;
+        this.calendario = calendario;
+        this.ressincronizacao = ressincronizacao;
+    }
+
+    @PostConstruct
+    void iniciar()
+    {
+        if (cluster.habilitado())
+        {
+            ouvinte = Thread.ofPlatform().name("avisos-entre-instancias").daemon().start(this::ouvir);
+        }
+    }
+
+    @PreDestroy
+    void encerrar()
+    {
+        Thread atual = ouvinte;
+        ouvinte = null;
+        if (atual != null)
+        {
+            atual.interrupt();
+        }
+    }
+
+    // BEFORE_COMMIT: o NOTIFY faz parte da transação da alteração e só é entregue se ela for confirmada
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        if (cluster.habilitado() && !evento.remota())
+        {
+            notificar(new Aviso(instancia, evento.casaId(), null, false));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void aoAlterarReserva(ReservaAlteradaEvent evento)
+    {
+        if (cluster.habilitado() && !evento.remota())
+        {
+            notificar(new Aviso(instancia, null, evento.reserva(), evento.cancelada()));
+        }
+    }
+
+    private void notificar(Aviso aviso)
+    {
+        String conteudo;
+        try
+        {
+            conteudo = objectMapper.writeValueAsString(aviso);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException("Não foi possível serializar o aviso entre instâncias", e);
+        }
+        jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) comando ->
+        {
+            comando.setString(1, cluster.canal());
+            comando.setString(2, conteudo);
+            return comando.execute();
+        });
+    }
+
+    // Thread do LISTEN: segura uma conexão do pool enquanto a aplicação estiver no ar
+    private void ouvir()
+    {
+        boolean reconectando = false;
+        while (ouvinte != null)
+        {
+            try (Connection conexao = dataSource.getConnection())
+            {
+                try (Statement comando = conexao.createStatement())
+                {
+                    comando.execute("LISTEN " + cluster.canal());
+                }
+                if (reconectando)
+                {
+                    log.info("Conexão do LISTEN restabelecida; relendo o estado em memória");
+                    ressincronizacao.executar();
+                    reconectando = false;
+                }
+                PGConnection postgres = conexao.unwrap(PGConnection.class);
+                while (ouvinte != null)
+                {
+                    PGNotification[] recebidos = postgres.getNotifications(1000);
+                    if (recebidos != null)
+                    {
+                        for (PGNotification recebido : recebidos)
+                        {
+                            aplicar(recebido.getParameter());
+                        }
+                    }
+                }
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                if (ouvinte == null)
+                {
+                    return;
+                }
+                log.warn("Falha na conexão do LISTEN; nova tentativa em {}", cluster.reconexao(), e);
+                reconectando = true;
+                try
+                {
+                    Thread.sleep(cluster.reconexao().toMillis());
+                }
+                catch (InterruptedException interrompida)
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void aplicar(String conteudo)
+    {
+        Aviso aviso;
+        try
+        {
+            aviso = objectMapper.readValue(conteudo, Aviso.class);
+        }
+        catch (JsonProcessingException e)
+        {
+            log.warn("Aviso entre instâncias ignorado: {}", conteudo, e);
+            return;
+        }
+        if (instancia.equals(aviso.instancia()))
+        {
+            return;
+        }
+
+        if (aviso.casaId() != null)
+        {
+            // O aviso só diz qual casa mudou; o estado atual vem do banco (null se ela foi removida)
+            eventos.publishEvent(CasaAlteradaEvent.deOutraInstancia(aviso.casaId(),
+                    casaRepository.findById(aviso.casaId()).orElse(null)));
+        }
+        else if (aviso.reserva() != null)
+        {
+            ReservaOcupacao reserva = aviso.reserva();
+            if (aviso.cancelada())
+            {
+                calendario.remover(reserva.getCasaId(), reserva.getId());
+            }
+            else
+            {
+                calendario.registrar(reserva.getCasaId(), reserva.getId(), reserva.getCheckIn(), reserva.getCheckOut());
+            }
+            eventos.publishEvent(ReservaAlteradaEvent.deOutraInstancia(reserva, aviso.cancelada()));
+        }
+    }
+}
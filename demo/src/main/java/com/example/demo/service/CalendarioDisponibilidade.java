@@ -0,0 +1,243 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.dto.PeriodoReserva;
+import com.example.demo.repository.ReservaRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Calendário de disponibilidade mantido em memória, usado para verificar conflitos de reserva
+ * sem consultar a tabela reservas.
+ * Cada casa guarda um vetor imutável de períodos ordenados por check-in. Leituras não usam trava
+ * e escritas trocam o vetor inteiro com compare-and-set, de modo que uma consulta sempre enxerga
+ * um estado consistente.
+ */
+@Component
+public class CalendarioDisponibilidade
+{
+    // Cada período ocupa 4 posições no vetor: check-in, check-out, maior check-out até aqui e ID da reserva.
+    // As datas são guardadas como dias desde a época (LocalDate.toEpochDay).
+    private static final int CAMPOS = 4;
+    private static final int CHECK_IN = 0;
+    private static final int CHECK_OUT = 1;
+    private static final int MAIOR_CHECK_OUT = 2;
+    private static final int RESERVA_ID = 3;
+    private static final long[] VAZIO = new long[0];
+
+    private final ConcurrentHashMap<Long, AtomicReference<long[]>> periodosPorCasa = new ConcurrentHashMap<>();
+    private final ReservaRepository reservaRepository;
+
+    /**
+     * Construtor para injeção do repositório usado na carga inicial.
+     * @param reservaRepository Repositório de reservas.
+     */
+    public CalendarioDisponibilidade(ReservaRepository reservaRepository)
+    {
+        this.reservaRepository = reservaRepository;
+    }
+
+    /**
+     * Carrega do banco os períodos ainda não encerrados, montando o calendário de cada casa.
+     * Executado na inicialização, antes do servidor web começar a aceitar requisições.
+     */
+    @PostConstruct
+    public void carregar()
+    {
+        Map<Long, long[]> vetores = montar(reservaRepository.findPeriodosComCheckOutApos(LocalDate.now()));
+        periodosPorCasa.clear();
+        vetores.forEach((casaId, vetor) -> periodosPorCasa.put(casaId, new AtomicReference<>(vetor)));
+    }
+
+    /**
+     * Relê do banco o calendário de algumas casas, descartando o que está em memória.
+     * Usado no modo cluster, sob a trava do banco das casas, para enxergar as reservas gravadas por outras instâncias.
+     * @param casaIds Os IDs das casas.
+     */
+    public void recarregar(Collection<Long> casaIds)
+    {
+        Map<Long, long[]> vetores = montar(reservaRepository.findPeriodosDasCasasComCheckOutApos(casaIds, LocalDate.now()));
+        for (Long casaId : casaIds)
+        {
+            // Troca o conteúdo da referência, e não a referência, para não perder um registrar concorrente
+            periodosPorCasa.computeIfAbsent(casaId, id -> new AtomicReference<>(VAZIO))
+                    .set(vetores.getOrDefault(casaId, VAZIO));
+        }
+    }
+
+    // Monta o vetor de cada casa a partir dos períodos lidos do banco
+    private static Map<Long, long[]> montar(List<PeriodoReserva> periodosLidos)
+    {
+        Map<Long, List<long[]>> periodos = new HashMap<>();
+        for (PeriodoReserva periodo : periodosLidos)
+        {
+            periodos.computeIfAbsent(periodo.getCasaId(), id -> new ArrayList<>())
+                    .add(new long[] {
+                        periodo.getCheckIn().toEpochDay(),
+                        periodo.getCheckOut().toEpochDay(),
+                        periodo.getId()
+                    });
+        }
+
+        Map<Long, long[]> vetores = new HashMap<>();
+        periodos.forEach((casaId, lista) ->
+        {
+            lista.sort((a, b) -> Long.compare(a[0], b[0]));
+            long[] vetor = new long[lista.size() * CAMPOS];
+            for (int i = 0; i < lista.size(); i++)
+            {
+                long[] periodo = lista.get(i);
+                escrever(vetor, i, periodo[0], periodo[1], periodo[2]);
+            }
+            vetores.put(casaId, vetor);
+        });
+        return vetores;
+    }
+
+    /**
+     * Verifica se a casa está livre no período informado (check-out exclusivo).
+     * @param casaId O ID da casa.
+     * @param checkIn Data de entrada.
+     * @param checkOut Data de saída.
+     * @return true se nenhuma reserva da casa se sobrepõe ao período.
+     */
+    public boolean estaDisponivel(Long casaId, LocalDate checkIn, LocalDate checkOut)
+    {
+        AtomicReference<long[]> referencia = periodosPorCasa.get(casaId);
+        if (referencia == null)
+        {
+            return true;
+        }
+
+        long[] vetor = referencia.get();
+        // Último período que começa antes do novo check-out; o maior check-out acumulado até ele
+        // diz se algum período anterior ainda está em andamento no novo check-in.
+        int anterior = contarComCheckInAntes(vetor, checkOut.toEpochDay()) - 1;
+        return anterior < 0 || vetor[anterior * CAMPOS + MAIOR_CHECK_OUT] <= checkIn.toEpochDay();
+    }
+
+    /**
+     * Registra uma reserva no calendário da casa.
+     * Períodos já encerrados são descartados a cada escrita para manter o vetor pequeno.
+     * @param casaId O ID da casa.
+     * @param reservaId O ID da reserva.
+     * @param checkIn Data de entrada.
+     * @param checkOut Data de saída.
+     */
+    public void registrar(Long casaId, Long reservaId, LocalDate checkIn, LocalDate checkOut)
+    {
+        AtomicReference<long[]> referencia = periodosPorCasa.computeIfAbsent(casaId, id -> new AtomicReference<>(VAZIO));
+        long inicio = checkIn.toEpochDay();
+        long fim = checkOut.toEpochDay();
+        long hoje = LocalDate.now().toEpochDay();
+
+        long[] atual;
+        long[] novo;
+        do
+        {
+            atual = referencia.get();
+            novo = new long[atual.length + CAMPOS];
+            int posicao = 0;
+            boolean inserido = false;
+            for (int i = 0; i < atual.length / CAMPOS; i++)
+            {
+                int base = i * CAMPOS;
+                if (!inserido && atual[base + CHECK_IN] > inicio)
+                {
+                    escrever(novo, posicao++, inicio, fim, reservaId);
+                    inserido = true;
+                }
+                // A mesma reserva pode chegar duas vezes no modo cluster (releitura do banco e aviso da outra instância)
+                if (atual[base + CHECK_OUT] > hoje && atual[base + RESERVA_ID] != reservaId)
+                {
+                    escrever(novo, posicao++, atual[base + CHECK_IN], atual[base + CHECK_OUT], atual[base + RESERVA_ID]);
+                }
+            }
+            if (!inserido)
+            {
+                escrever(novo, posicao++, inicio, fim, reservaId);
+            }
+            novo = Arrays.copyOf(novo, posicao * CAMPOS);
+        }
+        while (!referencia.compareAndSet(atual, novo));
+    }
+
+    /**
+     * Remove uma reserva do calendário da casa, por exemplo após o cancelamento.
+     * @param casaId O ID da casa.
+     * @param reservaId O ID da reserva removida.
+     */
+    public void remover(Long casaId, Long reservaId)
+    {
+        AtomicReference<long[]> referencia = periodosPorCasa.get(casaId);
+        if (referencia == null)
+        {
+            return;
+        }
+
+        long[] atual;
+        long[] novo;
+        do
+        {
+            atual = referencia.get();
+            novo = new long[atual.length];
+            int posicao = 0;
+            for (int i = 0; i < atual.length / CAMPOS; i++)
+            {
+                int base = i * CAMPOS;
+                if (atual[base + RESERVA_ID] != reservaId)
+                {
+                    escrever(novo, posicao++, atual[base + CHECK_IN], atual[base + CHECK_OUT], atual[base + RESERVA_ID]);
+                }
+            }
+            if (posicao * CAMPOS == atual.length)
+            {
+                return; // Reserva não estava no calendário
+            }
+            novo = Arrays.copyOf(novo, posicao * CAMPOS);
+        }
+        while (!referencia.compareAndSet(atual, novo));
+    }
+
+    // Escreve o período na posição indicada, recalculando o maior check-out acumulado
+    private static void escrever(long[] vetor, int posicao, long checkIn, long checkOut, long reservaId)
+    {
+        int base = posicao * CAMPOS;
+        long maiorAnterior = posicao == 0 ? Long.MIN_VALUE : vetor[base - CAMPOS + MAIOR_CHECK_OUT];
+        vetor[base + CHECK_IN] = checkIn;
+        vetor[base + CHECK_OUT] = checkOut;
+        vetor[base + MAIOR_CHECK_OUT] = Math.max(maiorAnterior, checkOut);
+        vetor[base + RESERVA_ID] = reservaId;
+    }
+
+    // Busca binária pela quantidade de períodos com check-in anterior à data informada
+    private static int contarComCheckInAntes(long[] vetor, long data)
+    {
+        int baixo = 0;
+        int alto = vetor.length / CAMPOS;
+        while (baixo < alto)
+        {
+            int meio = (baixo + alto) >>> 1;
+            if (vetor[meio * CAMPOS + CHECK_IN] < data)
+            {
+                baixo = meio + 1;
+            }
+            else
+            {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Casa;
+
+/**
+ * Evento publicado pelo {@link CasaService} sempre que uma casa é cadastrada, atualizada ou removida,
+ * para que estruturas mantidas em memória (índices, caches) acompanhem o banco.
+ * Os ouvintes recebem o evento depois do commit.
+ * @param casaId O ID da casa alterada.
+ * @param casa O novo estado da casa, ou null se ela foi removida.
+ * @param cadastrada true se a casa acabou de ser cadastrada.
+ * @param remota true se a alteração foi feita por outra instância e chegou pelos {@link AvisosEntreInstancias};
+ *        ela já foi gravada (e avisada) lá, então aqui só atualiza o que está em memória.
+ */
+public record CasaAlteradaEvent(Long casaId, Casa casa, boolean cadastrada, boolean remota) 
+{
+    // Atualização ou remoção
+    public CasaAlteradaEvent(Long casaId, Casa casa) 
+    {
+        this(casaId, casa, false, false);
+    }
+
+    public static CasaAlteradaEvent cadastro(Casa casa) 
+    {
+        return new CasaAlteradaEvent(casa.getId(), casa, true, false);
+    }
+
+    public static CasaAlteradaEvent deOutraInstancia(Long casaId, Casa casa) 
+    {
+        return new CasaAlteradaEvent(casaId, casa, false, true);
+    }
+
+    public boolean removida() 
+    {
+        return casa == null;
+    }
+}
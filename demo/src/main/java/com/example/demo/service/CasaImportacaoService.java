@@ -0,0 +1,306 @@
+package com.example.demo.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.dto.CasaRequestDTO;
+import com.example.demo.dto.ErroImportacaoDTO;
+import com.example.demo.dto.ImportacaoResultadoDTO;
+import com.example.demo.dto.ViaCepResponseDTO;
+import com.example.demo.model.Casa;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Importação em massa de casas a partir de NDJSON (um {@link CasaRequestDTO} por linha)
+ * ou CSV (cabeçalho com os nomes dos campos do DTO).
+ * A entrada é lida em fluxo e processada em lotes: os CEPs distintos de cada lote são consultados
+ * em paralelo e as casas válidas são gravadas em lotes JDBC. Erros são reportados por linha.
+ */
+@Service
+public class CasaImportacaoService
+{
+    private static final int MAXIMO_ERROS_DETALHADOS = 1000;
+
+    public enum Formato { NDJSON, CSV }
+
+    private final CasaService casaService;
+    private final ViaCepService viaCepService;
+    private final ObjectMapper objectMapper;
+    private final int tamanhoLote;
+    private final int cepsSimultaneos;
+
+    // Linha já convertida, guardando o número original para o relatório de erros
+    private record Linha(long numero, CasaRequestDTO dto) {}
+
+    // Contadores acumulados durante uma importação
+    private static class Progresso
+    {
+        long linhasLidas;
+        long importadas;
+        long totalErros;
+        final List<ErroImportacaoDTO> erros = new ArrayList<>();
+
+        void erro(long linha, String mensagem)
+        {
+            totalErros++;
+            if (erros.size() < MAXIMO_ERROS_DETALHADOS)
+            {
+                erros.add(new ErroImportacaoDTO(linha, mensagem));
+            }
+        }
+    }
+
+    public CasaImportacaoService(CasaService casaService, ViaCepService viaCepService, ObjectMapper objectMapper,
+            @Value("${casas.importacao.tamanho-lote:1000}") int tamanhoLote,
+            @Value("${casas.importacao.ceps-simultaneos:20}") int cepsSimultaneos)
+    {
+        this.casaService = casaService;
+        this.viaCepService = viaCepService;
+        this.objectMapper = objectMapper;
+        this.tamanhoLote = tamanhoLote;
+        this.cepsSimultaneos = cepsSimultaneos;
+    }
+
+    /**
+     * Importa as casas lidas da entrada.
+     * @param entrada O conteúdo NDJSON ou CSV, em UTF-8.
+     * @param formato O formato da entrada.
+     * @return O resumo da importação, com os erros por linha e a taxa de linhas por segundo.
+     * @throws IOException se a entrada não puder ser lida.
+     */
+    public ImportacaoResultadoDTO importar(InputStream entrada, Formato formato) throws IOException
+    {
+        long inicio = System.nanoTime();
+        Progresso progresso = new Progresso();
+
+        try (BufferedReader leitor = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8)))
+        {
+            long numero = 0;
+            List<String> cabecalho = null;
+            if (formato == Formato.CSV)
+            {
+                String primeira = leitor.readLine();
+                numero++;
+                cabecalho = primeira == null ? List.of() : lerCamposCsv(primeira);
+            }
+
+            List<Linha> lote = new ArrayList<>(tamanhoLote);
+            String texto;
+            while ((texto = leitor.readLine()) != null)
+            {
+                numero++;
+                if (texto.isBlank())
+                {
+                    continue;
+                }
+                progresso.linhasLidas++;
+                try
+                {
+                    lote.add(new Linha(numero, converter(texto, formato, cabecalho)));
+                }
+                catch (JsonProcessingException | IllegalArgumentException e)
+                {
+                    progresso.erro(numero, "Linha inválida: " + e.getMessage());
+                }
+
+                if (lote.size() == tamanhoLote)
+                {
+                    processarLote(lote, progresso);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty())
+            {
+                processarLote(lote, progresso);
+            }
+        }
+
+        long duracaoNanos = System.nanoTime() - inicio;
+        double segundos = Math.max(duracaoNanos, 1) / 1_000_000_000.0;
+        return new ImportacaoResultadoDTO(progresso.linhasLidas, progresso.importadas, progresso.totalErros,
+                progresso.erros, duracaoNanos / 1_000_000, progresso.linhasLidas / segundos);
+    }
+
+    private CasaRequestDTO converter(String texto, Formato formato, List<String> cabecalho) throws JsonProcessingException
+    {
+        if (formato == Formato.NDJSON)
+        {
+            return objectMapper.readValue(texto, CasaRequestDTO.class);
+        }
+
+        List<String> valores = lerCamposCsv(texto);
+        if (valores.size() != cabecalho.size())
+        {
+            throw new IllegalArgumentException("esperadas " + cabecalho.size() + " colunas, encontradas " + valores.size());
+        }
+        Map<String, String> campos = new HashMap<>();
+        for (int i = 0; i < cabecalho.size(); i++)
+        {
+            if (!valores.get(i).isEmpty())
+            {
+                campos.put(cabecalho.get(i), valores.get(i));
+            }
+        }
+        return objectMapper.convertValue(campos, CasaRequestDTO.class);
+    }
+
+    private void processarLote(List<Linha> lote, Progresso progresso)
+    {
+        Map<String, CompletableFuture<ViaCepResponseDTO>> enderecos = consultarCeps(lote);
+
+        List<Casa> casas = new ArrayList<>(lote.size());
+        List<Long> numeros = new ArrayList<>(lote.size());
+        for (Linha linha : lote)
+        {
+            CasaRequestDTO dto = linha.dto();
+            ViaCepResponseDTO viaCep = null;
+            if (CasaService.possuiCep(dto))
+            {
+                CompletableFuture<ViaCepResponseDTO> consulta = enderecos.get(ViaCepService.normalizar(dto.getCep()));
+                // Assim como no cadastro individual, falhas do ViaCEP fazem a casa usar o endereço informado
+                viaCep = consulta == null ? null : consulta.handle((endereco, erro) -> erro == null ? endereco : null).join();
+            }
+
+            Casa casa = casaService.montarCasa(dto, viaCep);
+            String problema = validar(casa);
+            if (problema != null)
+            {
+                progresso.erro(linha.numero(), problema);
+                continue;
+            }
+            casas.add(casa);
+            numeros.add(linha.numero());
+        }
+
+        gravar(casas, numeros, progresso);
+    }
+
+    // Consulta cada CEP distinto do lote uma única vez, com no máximo cepsSimultaneos consultas em andamento
+    private Map<String, CompletableFuture<ViaCepResponseDTO>> consultarCeps(List<Linha> lote)
+    {
+        Map<String, CompletableFuture<ViaCepResponseDTO>> consultas = new LinkedHashMap<>();
+        Semaphore emAndamento = new Semaphore(cepsSimultaneos);
+        for (Linha linha : lote)
+        {
+            String cep = CasaService.possuiCep(linha.dto()) ? ViaCepService.normalizar(linha.dto().getCep()) : null;
+            if (cep == null || consultas.containsKey(cep))
+            {
+                continue;
+            }
+            emAndamento.acquireUninterruptibly();
+            consultas.put(cep, viaCepService.buscarCepAsync(cep).whenComplete((endereco, erro) -> emAndamento.release()));
+        }
+        return consultas;
+    }
+
+    private void gravar(List<Casa> casas, List<Long> numeros, Progresso progresso)
+    {
+        if (casas.isEmpty())
+        {
+            return;
+        }
+        try
+        {
+            casaService.cadastrarCasasEmLote(casas);
+            progresso.importadas += casas.size();
+        }
+        catch (DataAccessException e)
+        {
+            // O lote inteiro foi desfeito: grava uma a uma para descobrir quais linhas têm problema
+            for (int i = 0; i < casas.size(); i++)
+            {
+                Casa casa = casas.get(i);
+                casa.setId(null);
+                try
+                {
+                    casaService.cadastrarCasasEmLote(List.of(casa));
+                    progresso.importadas++;
+                }
+                catch (DataAccessException erro)
+                {
+                    progresso.erro(numeros.get(i), "Erro ao gravar: " + erro.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private static String validar(Casa casa)
+    {
+        if (casa.getNome() == null || casa.getNome().isBlank())
+        {
+            return "Nome é obrigatório";
+        }
+        if (casa.getEndereco() == null || casa.getEndereco().isBlank())
+        {
+            return "Endereço é obrigatório (informe o endereço ou um CEP válido)";
+        }
+        if (casa.getPrecoDiaria() == null || casa.getQuantidadeQuartos() == null
+                || casa.getQuantidadeBanheiros() == null || casa.getCapacidadePessoas() == null)
+        {
+            return "Preço da diária, quartos, banheiros e capacidade são obrigatórios";
+        }
+        if (casa.getDescricao() != null && casa.getDescricao().length() > 1000)
+        {
+            return "Descrição excede 1000 caracteres";
+        }
+        return null;
+    }
+
+    // Separa os campos de uma linha CSV, aceitando valores entre aspas com vírgulas e aspas duplicadas
+    static List<String> lerCamposCsv(String linha)
+    {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++)
+        {
+            char c = linha.charAt(i);
+            if (entreAspas)
+            {
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"')
+                {
+                    atual.append('"');
+                    i++;
+                }
+                else if (c == '"')
+                {
+                    entreAspas = false;
+                }
+                else
+                {
+                    atual.append(c);
+                }
+            }
+            else if (c == '"')
+            {
+                entreAspas = true;
+            }
+            else if (c == ',')
+            {
+                campos.add(atual.toString().trim());
+                atual.setLength(0);
+            }
+            else
+            {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString().trim());
+        return campos;
+    }
+}
@@ -1,14 +1,32 @@
 package com.example.demo.service;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.CasaBuscaDTO;
+import com.example.demo.dto.CasaProximaDTO;
 import com.example.demo.dto.CasaRequestDTO;
 import com.example.demo.dto.CasaResponseDTO;
 import com.example.demo.dto.ViaCepResponseDTO;
@@ -22,18 +40,42 @@ import com.example.demo.repository.CasaRepository;
 @Service
 public class CasaService 
 {
+    private static final Logger log = LoggerFactory.getLogger(CasaService.class);
 
     private final CasaRepository casaRepository;
     private final ViaCepService viaCepService;
+    private final IndiceGeografico indiceGeografico;
+    private final IndiceColunarCasas indiceColunar;
+    private final IndiceTextualCasas indiceTextual;
+    private final ApplicationEventPublisher eventos;
+    private final TransactionTemplate transacao;
+    private final CacheManager cacheManager;
+    private final InvalidacaoCacheCasas invalidacaoCache;
 
     /**
      * Construtor para injeção de dependências dos repositórios e serviços necessários.
      * @param casaRepository Repositório para acesso aos dados das casas.
      * @param viaCepService Serviço para consulta de CEPs.
+     * @param indiceGeografico Índice em memória usado na busca de casas próximas.
+     * @param indiceColunar Índice em memória usado no filtro de casas.
+     * @param indiceTextual Índice de texto usado na busca por palavras.
+     * @param eventos Publicador dos eventos de {@link CasaAlteradaEvent}.
+     * @param transacao Transação do cadastro, aberta só depois da consulta ao ViaCEP.
+     * @param cacheManager Caches de leitura de casas (por ID e páginas do filtro).
+     * @param invalidacaoCache Invalidação desses caches, cuja geração impede guardar leituras desatualizadas.
      */
-    public CasaService(CasaRepository casaRepository, ViaCepService viaCepService) {
+    public CasaService(CasaRepository casaRepository, ViaCepService viaCepService,
+            IndiceGeografico indiceGeografico, IndiceColunarCasas indiceColunar, IndiceTextualCasas indiceTextual, ApplicationEventPublisher eventos,
+            TransactionTemplate transacao, CacheManager cacheManager, InvalidacaoCacheCasas invalidacaoCache) {
         this.casaRepository = casaRepository;
         this.viaCepService = viaCepService;
+        this.indiceGeografico = indiceGeografico;
+        this.indiceColunar = indiceColunar;
+        this.indiceTextual = indiceTextual;
+        this.eventos = eventos;
+        this.transacao = transacao;
+        this.cacheManager = cacheManager;
+        this.invalidacaoCache = invalidacaoCache;
     }
 
     /**
@@ -44,6 +86,52 @@ public class CasaService
      * @return Um {@link CasaResponseDTO} representando a casa cadastrada.
      */
     public CasaResponseDTO cadastrarCasa (CasaRequestDTO dto) 
+    {
+        // Se um CEP for fornecido no DTO, tenta buscar o endereço via ViaCEP
+        ViaCepResponseDTO viaCep = possuiCep(dto) ? buscarCepOuNulo(dto.getCep()) : null;
+
+        // A consulta ao ViaCEP fica fora da transação; a casa e o seu evento no outbox são gravados juntos
+        Casa novaCasa = transacao.execute(status -> 
+        {
+            Casa salva = casaRepository.save(montarCasa(dto, viaCep));
+            eventos.publishEvent(CasaAlteradaEvent.cadastro(salva));
+            return salva;
+        });
+        return convertToResponseDTO(novaCasa);
+    }
+
+    /**
+     * Cadastra várias casas de uma vez, usado pela importação em lote.
+     * Como o ID vem de uma sequence, o Hibernate agrupa os inserts em lotes JDBC.
+     * @param casas As entidades já montadas com {@link #montarCasa}.
+     * @return As casas salvas, com os IDs preenchidos.
+     */
+    @Transactional
+    public List<Casa> cadastrarCasasEmLote(List<Casa> casas) 
+    {
+        List<Casa> salvas = casaRepository.saveAll(casas);
+        // Os ouvintes só recebem os eventos se o lote inteiro for confirmado
+        salvas.forEach(casa -> eventos.publishEvent(CasaAlteradaEvent.cadastro(casa)));
+        return salvas;
+    }
+
+    /**
+     * Indica se o DTO traz um CEP a ser consultado no ViaCEP.
+     * @param dto O DTO da casa.
+     * @return true se o CEP foi preenchido.
+     */
+    static boolean possuiCep(CasaRequestDTO dto) 
+    {
+        return dto.getCep() != null && !dto.getCep().trim().isEmpty();
+    }
+
+    /**
+     * Converte um {@link CasaRequestDTO} em {@link Casa}, usando o endereço do ViaCEP quando ele foi encontrado.
+     * @param dto O DTO contendo os dados da casa.
+     * @param viaCep O endereço retornado pelo ViaCEP, ou null se não houver.
+     * @return A entidade Casa ainda não salva.
+     */
+    Casa montarCasa(CasaRequestDTO dto, ViaCepResponseDTO viaCep) 
     {
         Casa casa = new Casa();
         casa.setNome(dto.getNome());
@@ -55,12 +143,8 @@ public class CasaService
         casa.setPrecoDiaria(dto.getPrecoDiaria());
         casa.setCapacidadePessoas(dto.getCapacidadePessoas());
 
-        // Se um CEP for fornecido no DTO, tenta buscar o endereço via ViaCEP
-        if (dto.getCep() != null && !dto.getCep().trim().isEmpty()) 
-        
+        if (possuiCep(dto)) 
         {
-            
-          ViaCepResponseDTO viaCep = viaCepService.buscarCep(dto.getCep());
            if (viaCep != null && viaCep.getLogradouro() != null) 
           {
           String enderecoCompleto = viaCep.getLogradouro() + ", "
@@ -72,7 +156,7 @@ public class CasaService
           } 
           else 
           {
-          // Se o CEP não for encontrado ou inválido, usa o endereço fornecido no DTO (se houver)
+          // Se o CEP não for encontrado, for inválido ou o ViaCEP estiver fora do ar, usa o endereço fornecido no DTO (se houver)
            casa.setEndereco(dto.getEndereco());
            casa.setCep(dto.getCep()); // Mantém o CEP original mesmo que não tenha sido encontrado
           }
@@ -83,9 +167,25 @@ public class CasaService
             casa.setEndereco(dto.getEndereco());
             casa.setCep(null); // Garante que o CEP seja nulo se não foi fornecido
         }
+        return casa;
+    }
 
-        Casa novaCasa = casaRepository.save(casa);
-        return convertToResponseDTO(novaCasa);
+    /**
+     * Consulta o CEP no ViaCEP sem impedir o cadastro quando o serviço está fora do ar.
+     * @param cep O CEP informado.
+     * @return O endereço encontrado, ou null se o CEP não existir ou o ViaCEP estiver indisponível.
+     */
+    private ViaCepResponseDTO buscarCepOuNulo(String cep) 
+    {
+        try 
+        {
+            return viaCepService.buscarCep(cep);
+        } 
+        catch (ViaCepIndisponivelException e) 
+        {
+            log.warn("ViaCEP indisponível ao cadastrar casa com CEP {}: {}", cep, e.getMessage());
+            return null;
+        }
     }
 
     /**
@@ -100,11 +200,54 @@ public class CasaService
 
     /**
      * Busca uma casa específica por ID.
+     * O resultado fica em cache até a casa ser alterada (ver {@link InvalidacaoCacheCasas}); casas
+     * inexistentes não são guardadas. A instância devolvida é compartilhada e não deve ser modificada.
      * @param id O ID da casa a ser buscada.
      * @return Um {@link Optional} contendo a casa, se encontrada.
      */
     public Optional<Casa> buscarCasaPorId(Long id) {
-        return casaRepository.findById(id);
+        return Optional.ofNullable(lerComCache(CacheConfig.CASAS, id, () -> casaRepository.findById(id).orElse(null)));
+    }
+
+    // Lê do cache ou carrega e guarda. O que foi carregado só fica no cache se nenhuma casa mudou enquanto isso:
+    // sem a conferência, uma leitura feita antes do commit de uma alteração poderia guardar o estado antigo
+    // depois da invalidação, e ele ficaria no cache até o TTL
+    @SuppressWarnings("unchecked")
+    private <T> T lerComCache(String nome, Object chave, Supplier<T> carregar)
+    {
+        Cache cache = cacheManager.getCache(nome);
+        if (cache == null)
+        {
+            return carregar.get();
+        }
+        Cache.ValueWrapper guardado = cache.get(chave);
+        if (guardado != null)
+        {
+            return (T) guardado.get();
+        }
+        long geracao = invalidacaoCache.geracao();
+        T valor = carregar.get();
+        if (valor != null && invalidacaoCache.geracao() == geracao)
+        {
+            cache.put(chave, valor);
+            // A invalidação pode ter acontecido entre a conferência e o put; nesse caso o put é desfeito
+            if (invalidacaoCache.geracao() != geracao)
+            {
+                cache.evict(chave);
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Busca várias casas pela chave primária em uma única consulta, sem passar pelo cache.
+     * Usado pelas reservas em lote, que precisam de dezenas de casas de uma vez.
+     * @param ids Os IDs das casas; repetidos são lidos uma vez e inexistentes ficam de fora.
+     * @return As casas encontradas, indexadas pelo ID.
+     */
+    public Map<Long, Casa> buscarCasasPorIds(Collection<Long> ids) 
+    {
+        return buscarNaOrdem(List.copyOf(new LinkedHashSet<>(ids)));
     }
 
     /**
@@ -114,6 +257,7 @@ public class CasaService
      * @return A entidade {@link Casa} atualizada.
      * @throws RuntimeException se a casa não for encontrada.
      */
+        @Transactional
         public Casa atualizarCasa(Long id, Casa casaAtualizada) 
         {
              return casaRepository.findById(id).map(casaExistente -> 
@@ -128,7 +272,9 @@ public class CasaService
             casaExistente.setPrecoDiaria(casaAtualizada.getPrecoDiaria());
             casaExistente.setCapacidadePessoas(casaAtualizada.getCapacidadePessoas());
             casaExistente.setCep(casaAtualizada.getCep()); // Adicionado o CEP na atualização
-            return casaRepository.save(casaExistente);
+            Casa salva = casaRepository.save(casaExistente);
+            eventos.publishEvent(new CasaAlteradaEvent(salva.getId(), salva));
+            return salva;
             }).orElseThrow(() -> new RuntimeException("Casa não encontrada com ID: " + id));
         }
 
@@ -137,6 +283,7 @@ public class CasaService
      * @param id O ID da casa a ser deletada.
      * @throws RuntimeException se a casa não for encontrada.
      */
+    @Transactional
     public void deletarCasa(Long id) 
     {
         if (!casaRepository.existsById(id)) 
@@ -144,46 +291,222 @@ public class CasaService
             throw new RuntimeException("Casa não encontrada com ID: " + id);
         }
         casaRepository.deleteById(id);
+        eventos.publishEvent(new CasaAlteradaEvent(id, null));
     }
 
     /**
      * Lista casas com filtros e suporte a paginação.
-     * Os filtros são aplicados em memória após a busca inicial paginada.
+     * Sem ordenação (ou ordenando por ID), a filtragem e a contagem são feitas no {@link IndiceColunarCasas}
+     * em memória, e o banco só é consultado pela chave primária para montar as casas da página.
+     * Com outras ordenações, ou com o índice desabilitado, são feitas no banco através de
+     * {@link CasaRepository#filtrarCasas}. Nos dois casos o total de elementos da página corresponde
+     * a todas as casas que atendem aos filtros.
+     * Filtros ausentes são substituídos pelos extremos do intervalo para que a consulta use o índice composto.
+     * As páginas ficam em cache até a próxima alteração de qualquer casa (ver {@link InvalidacaoCacheCasas}).
       @param precoMax 
       @param quartosMin 
       @param banheirosMin 
       @param precoMin 
       @param quartosMax
       @param banheirosMax 
+      @param capacidadeMin
+      @param capacidadeMax
       @param pageable Objeto Pageable para definir a paginação.
       @return Uma página de entidades {@link Casa} filtradas.
      */
     public Page<Casa> listarCasasComFiltro( Double precoMax, Integer quartosMin, Integer banheirosMin,
-    Double precoMin, Integer quartosMax, Integer banheirosMax, Pageable pageable) 
+    Double precoMin, Integer quartosMax, Integer banheirosMax, Integer capacidadeMin, Integer capacidadeMax,
+    Pageable pageable) 
+    {
+        return lerComCache(CacheConfig.FILTROS_CASAS,
+                new SimpleKey(precoMax, quartosMin, banheirosMin, precoMin, quartosMax, banheirosMax, capacidadeMin,
+                        capacidadeMax, pageable),
+                () -> filtrar(precoMax, quartosMin, banheirosMin, precoMin, quartosMax, banheirosMax, capacidadeMin,
+                        capacidadeMax, pageable));
+    }
+
+    private Page<Casa> filtrar(Double precoMax, Integer quartosMin, Integer banheirosMin, Double precoMin,
+            Integer quartosMax, Integer banheirosMax, Integer capacidadeMin, Integer capacidadeMax, Pageable pageable)
     {
+        if (indiceColunar.atende(pageable)) 
+        {
+            IndiceColunarCasas.Pagina pagina = indiceColunar.filtrar(
+                    filtro(precoMax, quartosMin, banheirosMin, precoMin, quartosMax, banheirosMax, capacidadeMin, capacidadeMax),
+                    pageable.getOffset(), pageable.getPageSize());
+            // Casas removidas entre a busca e a leitura são ignoradas
+            List<Casa> casas = buscarNaOrdem(pagina.ids()).values().stream().toList();
+            return new PageImpl<>(casas, pageable, pagina.total());
+        }
+        return casaRepository.filtrarCasas(
+                precoMax != null ? precoMax : Double.MAX_VALUE,
+                precoMin != null ? precoMin : -Double.MAX_VALUE,
+                quartosMax != null ? quartosMax : Integer.MAX_VALUE,
+                quartosMin != null ? quartosMin : Integer.MIN_VALUE,
+                banheirosMax != null ? banheirosMax : Integer.MAX_VALUE,
+                banheirosMin != null ? banheirosMin : Integer.MIN_VALUE,
+                capacidadeMax != null ? capacidadeMax : Integer.MAX_VALUE,
+                capacidadeMin != null ? capacidadeMin : Integer.MIN_VALUE,
+                pageable);
+    }
 
-        // Busca todas as casas paginadas (primeiro vem todas as páginas do banco)
-        Page<Casa> casas = casaRepository.findAll(pageable);
+    /**
+     * Lista as casas livres em um período, que comportam a quantidade de pessoas e atendem aos filtros.
+     * A disponibilidade é calculada no banco em uma única consulta (anti-join com as reservas),
+     * sem verificar casa por casa.
+     * @param checkIn Data de entrada.
+     * @param checkOut Data de saída (exclusiva).
+     * @param quantidadePessoas Quantidade de hóspedes; opcional.
+     * @param precoMax 
+     * @param quartosMin 
+     * @param banheirosMin 
+     * @param precoMin 
+     * @param quartosMax
+     * @param banheirosMax 
+     * @param pageable Objeto Pageable para definir a paginação.
+     * @return Uma página de entidades {@link Casa} disponíveis.
+     * @throws IllegalArgumentException se as datas forem ausentes ou o check-out não for posterior ao check-in.
+     */
+    public Page<Casa> listarCasasDisponiveis(LocalDate checkIn, LocalDate checkOut, Integer quantidadePessoas,
+    Double precoMax, Integer quartosMin, Integer banheirosMin, Double precoMin, Integer quartosMax,
+    Integer banheirosMax, Pageable pageable) 
+    {
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) 
+        {
+            throw new IllegalArgumentException("Informe check-in e check-out, com o check-out depois do check-in.");
+        }
+        return casaRepository.buscarDisponiveis(
+                checkIn,
+                checkOut,
+                quantidadePessoas != null ? quantidadePessoas : Integer.MIN_VALUE,
+                precoMax != null ? precoMax : Double.MAX_VALUE,
+                precoMin != null ? precoMin : -Double.MAX_VALUE,
+                quartosMax != null ? quartosMax : Integer.MAX_VALUE,
+                quartosMin != null ? quartosMin : Integer.MIN_VALUE,
+                banheirosMax != null ? banheirosMax : Integer.MAX_VALUE,
+                banheirosMin != null ? banheirosMin : Integer.MIN_VALUE,
+                pageable);
+    }
 
-        // Aplica os filtros "em memória"
-        List<Casa> filtradas = casas.getContent().stream()
-                .filter(casa -> precoMax == null || casa.getPrecoDiaria() <= precoMax)
-                .filter(casa -> precoMin == null || casa.getPrecoDiaria() >= precoMin)
-                .filter(casa -> quartosMax == null || casa.getQuantidadeQuartos() <= quartosMax)
-                .filter(casa -> quartosMin == null || casa.getQuantidadeQuartos() >= quartosMin)
-                .filter(casa -> banheirosMax == null || casa.getQuantidadeBanheiros() <= banheirosMax)
-                .filter(casa -> banheirosMin == null || casa.getQuantidadeBanheiros() >= banheirosMin)
-                .collect(Collectors.toList());
+    /**
+     * Busca casas próximas a um ponto, ordenadas pela distância, combinando raio e/ou retângulo
+     * com os mesmos filtros de {@link #listarCasasComFiltro}.
+     * A busca geográfica é feita no {@link IndiceGeografico} em memória; o banco só é consultado
+     * pela chave primária para montar as casas da página.
+     * @param area O centro, o raio e o retângulo da busca.
+     * @param precoMax 
+     * @param quartosMin 
+     * @param banheirosMin 
+     * @param precoMin 
+     * @param quartosMax
+     * @param banheirosMax 
+     * @param capacidadeMin
+     * @param capacidadeMax
+     * @param pageable Página e tamanho; a ordenação é sempre pela distância.
+     * @return Uma página de {@link CasaProximaDTO} com a distância de cada casa em km.
+     * @throws IllegalArgumentException se a área da busca for inválida.
+     */
+    public Page<CasaProximaDTO> buscarCasasProximas(IndiceGeografico.Area area, Double precoMax, Integer quartosMin,
+    Integer banheirosMin, Double precoMin, Integer quartosMax, Integer banheirosMax, Integer capacidadeMin,
+    Integer capacidadeMax, Pageable pageable) 
+    {
+        IndiceGeografico.Filtro filtro = filtro(precoMax, quartosMin, banheirosMin, precoMin, quartosMax,
+                banheirosMax, capacidadeMin, capacidadeMax);
 
-        // Calcula os índices de início e fim da página
-        int start = (int) pageable.getOffset();
-        int end = Math.min(start + pageable.getPageSize(), filtradas.size());
+        IndiceGeografico.Pagina pagina = indiceGeografico.buscar(area, filtro, pageable.getOffset(), pageable.getPageSize());
 
-        // Garante que não dê erro se a página pedida for maior que o tamanho da lista
-        List<Casa> paginadas = (start <= end) ? filtradas.subList(start, end) : List.of();
+        Map<Long, Casa> casas = buscarNaOrdem(pagina.itens().stream().map(IndiceGeografico.Resultado::casaId).toList());
 
-        // Retorna o Page respeitando paginação e total de elementos
-        return new PageImpl<>(paginadas, pageable, filtradas.size());
+        // Mantém a ordem por distância; casas removidas entre a busca e a leitura são ignoradas
+        List<CasaProximaDTO> itens = pagina.itens().stream()
+                .filter(resultado -> casas.containsKey(resultado.casaId()))
+                .map(resultado -> 
+                {
+                    Casa casa = casas.get(resultado.casaId());
+                    return new CasaProximaDTO(casa.getId(), casa.getNome(), casa.getEndereco(), casa.getPrecoDiaria(),
+                            casa.getQuantidadeQuartos(), casa.getQuantidadeBanheiros(), casa.getCapacidadePessoas(),
+                            casa.getLatitude(), casa.getLongitude(), resultado.distanciaKm());
+                })
+                .toList();
+        return new PageImpl<>(itens, pageable, pagina.total());
+    }
+
+    /**
+     * Busca casas por palavras no nome, na descrição e no endereço, da mais para a menos relevante,
+     * com os mesmos filtros de {@link #listarCasasComFiltro}.
+     * A busca é feita no {@link IndiceTextualCasas}; o banco só é consultado pela chave primária
+     * para montar as casas da página.
+     * @param texto O texto digitado, por exemplo "casa com piscina perto da praia".
+     * @param precoMax 
+     * @param quartosMin 
+     * @param banheirosMin 
+     * @param precoMin 
+     * @param quartosMax
+     * @param banheirosMax 
+     * @param capacidadeMin
+     * @param capacidadeMax
+     * @param pageable Página e tamanho; a ordenação é sempre pela relevância.
+     * @return Uma página de {@link CasaBuscaDTO} com a relevância de cada casa.
+     * @throws IllegalArgumentException se o texto não tiver palavras buscáveis ou a página for funda demais.
+     */
+    public Page<CasaBuscaDTO> buscarCasasPorTexto(String texto, Double precoMax, Integer quartosMin,
+    Integer banheirosMin, Double precoMin, Integer quartosMax, Integer banheirosMax, Integer capacidadeMin,
+    Integer capacidadeMax, Pageable pageable) 
+    {
+        IndiceGeografico.Filtro filtro = filtro(precoMax, quartosMin, banheirosMin, precoMin, quartosMax,
+                banheirosMax, capacidadeMin, capacidadeMax);
+
+        IndiceTextualCasas.Pagina pagina = indiceTextual.buscar(texto, filtro, pageable.getOffset(), pageable.getPageSize());
+
+        Map<Long, Casa> casas = buscarNaOrdem(pagina.itens().stream().map(IndiceTextualCasas.Resultado::casaId).toList());
+
+        // Mantém a ordem por relevância; casas removidas entre a busca e a leitura são ignoradas
+        List<CasaBuscaDTO> itens = pagina.itens().stream()
+                .filter(resultado -> casas.containsKey(resultado.casaId()))
+                .map(resultado -> 
+                {
+                    Casa casa = casas.get(resultado.casaId());
+                    return new CasaBuscaDTO(casa.getId(), casa.getNome(), casa.getDescricao(), casa.getEndereco(),
+                            casa.getPrecoDiaria(), casa.getQuantidadeQuartos(), casa.getQuantidadeBanheiros(),
+                            casa.getCapacidadePessoas(), resultado.relevancia());
+                })
+                .toList();
+        return new PageImpl<>(itens, pageable, pagina.total());
+    }
+
+    // Filtros ausentes viram os extremos do intervalo, como na consulta ao banco
+    private static IndiceGeografico.Filtro filtro(Double precoMax, Integer quartosMin, Integer banheirosMin,
+    Double precoMin, Integer quartosMax, Integer banheirosMax, Integer capacidadeMin, Integer capacidadeMax) 
+    {
+        return new IndiceGeografico.Filtro(
+                precoMin != null ? precoMin : -Double.MAX_VALUE,
+                precoMax != null ? precoMax : Double.MAX_VALUE,
+                quartosMin != null ? quartosMin : Integer.MIN_VALUE,
+                quartosMax != null ? quartosMax : Integer.MAX_VALUE,
+                banheirosMin != null ? banheirosMin : Integer.MIN_VALUE,
+                banheirosMax != null ? banheirosMax : Integer.MAX_VALUE,
+                capacidadeMin != null ? capacidadeMin : Integer.MIN_VALUE,
+                capacidadeMax != null ? capacidadeMax : Integer.MAX_VALUE);
+    }
+
+    // Lê as casas pela chave primária em uma consulta, mantendo a ordem dos IDs informados
+    private Map<Long, Casa> buscarNaOrdem(List<Long> ids) 
+    {
+        if (ids.isEmpty()) 
+        {
+            return Map.of();
+        }
+        Map<Long, Casa> lidas = casaRepository.buscarPorIds(ids).stream()
+                .collect(Collectors.toMap(Casa::getId, Function.identity()));
+        Map<Long, Casa> naOrdem = new LinkedHashMap<>();
+        for (Long id : ids) 
+        {
+            Casa casa = lidas.get(id);
+            if (casa != null) 
+            {
+                naOrdem.put(id, casa);
+            }
+        }
+        return naOrdem;
     }
 
     /**
@@ -191,7 +514,7 @@ public class CasaService
      * @param casa A entidade Casa a ser convertida.
      * @return O DTO de resposta da casa.
      */
-    private CasaResponseDTO convertToResponseDTO(Casa casa) 
+    static CasaResponseDTO convertToResponseDTO(Casa casa) 
     {
         CasaResponseDTO resposta = new CasaResponseDTO();
         resposta.setId(casa.getId()); // Adicionado o ID ao DTO de resposta
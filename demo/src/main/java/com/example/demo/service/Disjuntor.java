@@ -0,0 +1,60 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker simples baseado em falhas consecutivas.
+ * Depois de {@code falhasParaAbrir} falhas seguidas o circuito abre e recusa chamadas durante
+ * {@code tempoAberto}; passado esse tempo, uma única chamada de teste é liberada e o resultado
+ * dela decide se o circuito fecha ou volta a abrir.
+ */
+public class Disjuntor 
+{
+    private final int falhasParaAbrir;
+    private final long tempoAbertoNanos;
+
+    private final AtomicInteger falhasSeguidas = new AtomicInteger();
+    private final AtomicBoolean testeEmAndamento = new AtomicBoolean();
+    private volatile long abertoAte;
+
+    public Disjuntor(int falhasParaAbrir, Duration tempoAberto) 
+    {
+        this.falhasParaAbrir = falhasParaAbrir;
+        this.tempoAbertoNanos = tempoAberto.toNanos();
+    }
+
+    /**
+     * @return true se a chamada pode seguir; false se o circuito está aberto.
+     */
+    public boolean permitir() 
+    {
+        if (falhasSeguidas.get() < falhasParaAbrir) 
+        {
+            return true;
+        }
+        // Circuito aberto: só deixa passar uma chamada de teste depois do tempo de espera
+        return System.nanoTime() - abertoAte >= 0 && testeEmAndamento.compareAndSet(false, true);
+    }
+
+    public void registrarSucesso() 
+    {
+        falhasSeguidas.set(0);
+        testeEmAndamento.set(false);
+    }
+
+    public void registrarFalha() 
+    {
+        if (falhasSeguidas.incrementAndGet() >= falhasParaAbrir) 
+        {
+            abertoAte = System.nanoTime() + tempoAbertoNanos;
+            testeEmAndamento.set(false);
+        }
+    }
+
+    public boolean estaAberto() 
+    {
+        return falhasSeguidas.get() >= falhasParaAbrir;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+/**
+ * Lançada quando a fila de reservas assíncronas atingiu a capacidade configurada.
+ * O pedido não é gravado; o cliente deve tentar de novo mais tarde com a mesma chave de idempotência.
+ */
+public class FilaCheiaException extends RuntimeException
+{
+    public FilaCheiaException(String mensagem)
+    {
+        super(mensagem);
+    }
+}
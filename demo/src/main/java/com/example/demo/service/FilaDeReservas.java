@@ -0,0 +1,499 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.config.ReservaFilaProperties;
+import com.example.demo.dto.ReservaRequestDTO;
+import com.example.demo.dto.SolicitacaoReservaDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.model.SolicitacaoReserva;
+import com.example.demo.repository.ReservaRepository;
+import com.example.demo.repository.SolicitacaoReservaRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Modo de reserva assíncrono, para absorver picos de pedidos.
+ * Cada pedido é gravado como PENDENTE na tabela solicitacoes_reserva (a parte durável da fila)
+ * e o ID entra na faixa da casa, uma fila em memória. Cada faixa é drenada por no máximo um
+ * trabalhador por vez, em lotes: os pedidos do lote são validados sob a trava da casa e as reservas
+ * aceitas são gravadas numa única transação, com inserts em lote, em vez de uma transação por reserva.
+ * Um lote que falha continua com a faixa e é refeito depois de uma espera crescente, à frente dos pedidos mais novos.
+ * Se continuar falhando, os pedidos dele são refeitos um a um, e o que ainda falhar sozinho é recusado com o erro,
+ * para que um pedido problemático não segure para sempre os pedidos seguintes da casa.
+ */
+@Service
+public class FilaDeReservas
+{
+    private static final Logger log = LoggerFactory.getLogger(FilaDeReservas.class);
+    private static final String CONFLITO = "A casa já está reservada para o período solicitado.";
+
+    private final SolicitacaoReservaRepository solicitacaoRepository;
+    private final ReservaRepository reservaRepository;
+    private final CasaService casaService;
+    private final CalendarioDisponibilidade calendario;
+    private final TravasPorCasa travas;
+    private final TransactionTemplate transacao;
+    private final TravaDistribuida travaDistribuida;
+    private final ReservaFilaProperties propriedades;
+    private final ApplicationEventPublisher eventos;
+    private final ExecutorService trabalhadores;
+    // Só espera o tempo de uma nova tentativa; o lote volta a ser processado por um dos trabalhadores
+    private final ScheduledExecutorService novasTentativas;
+    private final ConcurrentHashMap<Long, Faixa> faixas = new ConcurrentHashMap<>();
+    // Pedidos registrados e ainda não processados, somando todas as faixas
+    private final AtomicInteger pendentes = new AtomicInteger();
+
+    // Pedidos de uma casa aguardando processamento; "agendada" indica que um trabalhador já cuida da faixa
+    private static final class Faixa
+    {
+        final Long casaId;
+        final ConcurrentLinkedQueue<Long> solicitacoes = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean agendada = new AtomicBoolean();
+        // Só o trabalhador que está com a faixa lê e altera: pedidos de tentativas que falharam, que vêm antes dos
+        // novos, se eles são refeitos um a um e quantas tentativas seguidas falharam
+        final ArrayDeque<Long> aRefazer = new ArrayDeque<>();
+        boolean umPorVez;
+        int falhasSeguidas;
+
+        Faixa(Long casaId)
+        {
+            this.casaId = casaId;
+        }
+    }
+
+    public FilaDeReservas(SolicitacaoReservaRepository solicitacaoRepository, ReservaRepository reservaRepository,
+            CasaService casaService, CalendarioDisponibilidade calendario, TravasPorCasa travas,
+            TransactionTemplate transacao, ReservaFilaProperties propriedades, MeterRegistry meterRegistry,
+            ApplicationEventPublisher eventos, TravaDistribuida travaDistribuida)
+    {
+        this.eventos = eventos;
+        this.travaDistribuida = travaDistribuida;
+        this.solicitacaoRepository = solicitacaoRepository;
+        this.reservaRepository = reservaRepository;
+        this.casaService = casaService;
+        this.calendario = calendario;
+        this.travas = travas;
+        this.transacao = transacao;
+        this.propriedades = propriedades;
+        // Poucas threads de propósito: cada uma segura uma conexão enquanto grava um lote
+        this.trabalhadores = Executors.newFixedThreadPool(propriedades.trabalhadores());
+        this.novasTentativas = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("fila-reservas-novas-tentativas").daemon().factory());
+
+        Gauge.builder("reservas.fila.pendentes", pendentes, AtomicInteger::get)
+                .description("Pedidos de reserva assíncronos aguardando processamento")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra um pedido de reserva para processamento assíncrono.
+     * Repetir a chamada com a mesma chave devolve o pedido já registrado, sem criar outro.
+     * @param chaveIdempotencia Chave enviada pelo cliente (cabeçalho Idempotency-Key).
+     * @param dto Os dados da reserva.
+     * @return O pedido registrado; PENDENTE enquanto não for processado.
+     * @throws IllegalArgumentException se a chave ou algum campo obrigatório estiver ausente.
+     * @throws FilaCheiaException se a fila atingiu a capacidade configurada.
+     */
+    public SolicitacaoReserva enfileirar(String chaveIdempotencia, ReservaRequestDTO dto)
+    {
+        validarPedido(chaveIdempotencia, dto);
+        Optional<SolicitacaoReserva> existente = solicitacaoRepository.findByChaveIdempotencia(chaveIdempotencia);
+        if (existente.isPresent())
+        {
+            return existente.get();
+        }
+
+        if (pendentes.incrementAndGet() > propriedades.capacidade())
+        {
+            pendentes.decrementAndGet();
+            throw new FilaCheiaException("Fila de reservas cheia, tente novamente em instantes.");
+        }
+
+        SolicitacaoReserva solicitacao;
+        try
+        {
+            solicitacao = solicitacaoRepository.save(novaSolicitacao(chaveIdempotencia, dto));
+        }
+        catch (RuntimeException e)
+        {
+            pendentes.decrementAndGet();
+            if (e instanceof DataIntegrityViolationException)
+            {
+                // Outra requisição com a mesma chave gravou o pedido entre a consulta e o insert
+                return solicitacaoRepository.findByChaveIdempotencia(chaveIdempotencia).orElseThrow(() -> e);
+            }
+            throw e;
+        }
+        agendar(solicitacao.getCasaId(), solicitacao.getId());
+        return solicitacao;
+    }
+
+    public Optional<SolicitacaoReserva> buscarSolicitacao(Long id)
+    {
+        return solicitacaoRepository.findById(id);
+    }
+
+    /**
+     * Retoma os pedidos que ficaram pendentes (por exemplo, quando a aplicação parou com a fila cheia).
+     * No modo cluster todas as instâncias retomam os mesmos pedidos; cada um é reivindicado com SELECT ... FOR UPDATE
+     * na hora de processar, então só uma delas o confirma ou recusa e as demais o descartam.
+     */
+    @PostConstruct
+    void retomarPendentes()
+    {
+        List<SolicitacaoReserva> pendentesNoBanco = solicitacaoRepository.findByStatusOrderById(SolicitacaoReserva.Status.PENDENTE);
+        for (SolicitacaoReserva solicitacao : pendentesNoBanco)
+        {
+            // Já estão gravados, então entram mesmo que passem da capacidade
+            pendentes.incrementAndGet();
+            agendar(solicitacao.getCasaId(), solicitacao.getId());
+        }
+        if (!pendentesNoBanco.isEmpty())
+        {
+            log.info("Retomados {} pedidos de reserva pendentes", pendentesNoBanco.size());
+        }
+    }
+
+    @PreDestroy
+    void encerrar() throws InterruptedException
+    {
+        // Pedidos que não forem processados a tempo continuam PENDENTE no banco e são retomados depois
+        novasTentativas.shutdownNow();
+        trabalhadores.shutdown();
+        if (!trabalhadores.awaitTermination(10, TimeUnit.SECONDS))
+        {
+            trabalhadores.shutdownNow();
+        }
+    }
+
+    private void agendar(Long casaId, Long solicitacaoId)
+    {
+        Faixa faixa = faixas.computeIfAbsent(casaId, Faixa::new);
+        faixa.solicitacoes.add(solicitacaoId);
+        if (faixa.agendada.compareAndSet(false, true))
+        {
+            trabalhadores.execute(() -> drenar(faixa));
+        }
+    }
+
+    // Processa um lote da faixa (começando pelos pedidos de uma tentativa anterior que falhou) e, se ainda houver
+    // pedidos, devolve a faixa para o fim da fila dos trabalhadores, para que uma casa muito disputada não monopolize
+    // uma thread
+    private void drenar(Faixa faixa)
+    {
+        faixa.umPorVez = faixa.umPorVez && !faixa.aRefazer.isEmpty();
+        int limite = faixa.umPorVez ? 1 : propriedades.tamanhoLote();
+        List<Long> lote = new ArrayList<>();
+        Long id;
+        while (lote.size() < limite && (id = faixa.aRefazer.poll()) != null)
+        {
+            lote.add(id);
+        }
+        while (lote.size() < limite && (id = faixa.solicitacoes.poll()) != null)
+        {
+            lote.add(id);
+        }
+
+        try
+        {
+            if (!lote.isEmpty())
+            {
+                processarLote(faixa.casaId, lote);
+            }
+            faixa.falhasSeguidas = 0;
+            pendentes.addAndGet(-lote.size());
+        }
+        catch (RuntimeException e)
+        {
+            if (!desistirDaTentativa(faixa, lote, e))
+            {
+                return;
+            }
+        }
+
+        // Libera a faixa antes de olhar a fila: um pedido que chegue depois disso agenda a faixa sozinho
+        faixa.agendada.set(false);
+        if ((!faixa.solicitacoes.isEmpty() || !faixa.aRefazer.isEmpty()) && faixa.agendada.compareAndSet(false, true))
+        {
+            trabalhadores.execute(() -> drenar(faixa));
+        }
+    }
+
+    // Trata um lote que falhou. Devolve true se o lote saiu da faixa (o pedido foi recusado) e ela pode seguir;
+    // false se ele volta para a frente da faixa, que continua agendada até a nova tentativa
+    private boolean desistirDaTentativa(Faixa faixa, List<Long> lote, RuntimeException e)
+    {
+        boolean esgotou = ++faixa.falhasSeguidas >= propriedades.tentativas();
+        if (esgotou && lote.size() == 1 && recusarPorFalha(lote.get(0), e))
+        {
+            log.warn("Pedido de reserva {} da casa {} recusado depois de {} tentativas", lote.get(0), faixa.casaId,
+                    faixa.falhasSeguidas, e);
+            faixa.falhasSeguidas = 0;
+            pendentes.decrementAndGet();
+            return true;
+        }
+
+        for (int i = lote.size() - 1; i >= 0; i--)
+        {
+            faixa.aRefazer.addFirst(lote.get(i));
+        }
+        Duration espera;
+        if (esgotou && lote.size() > 1)
+        {
+            // Algum pedido do lote pode ser o culpado: cada um é refeito sozinho, com as suas próprias tentativas
+            faixa.umPorVez = true;
+            faixa.falhasSeguidas = 0;
+            espera = Duration.ZERO;
+            log.warn("Lote de {} pedidos de reserva da casa {} falhou {} vezes; refazendo os pedidos um a um",
+                    lote.size(), faixa.casaId, propriedades.tentativas(), e);
+        }
+        else
+        {
+            // A faixa continua agendada durante a espera: os pedidos que chegarem ficam atrás do lote que falhou
+            espera = esperaAntesDeTentarDeNovo(faixa.falhasSeguidas);
+            log.warn("Falha ao processar {} pedidos de reserva da casa {}; nova tentativa em {}",
+                    lote.size(), faixa.casaId, espera, e);
+        }
+        try
+        {
+            novasTentativas.schedule(() -> trabalhadores.execute(() -> drenar(faixa)), espera.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException desligando)
+        {
+            // Aplicação desligando: os pedidos continuam PENDENTE no banco e são retomados na próxima inicialização
+        }
+        return false;
+    }
+
+    // Recusa um pedido que falhou sozinho em todas as tentativas. Se nem isso for possível (o banco fora do ar, por
+    // exemplo), o pedido continua pendente e é tentado de novo
+    private boolean recusarPorFalha(Long id, RuntimeException erro)
+    {
+        String mensagem = "Não foi possível processar o pedido: " + erro.getMessage();
+        try
+        {
+            transacao.executeWithoutResult(status -> solicitacaoRepository
+                    .findByIdInAndStatusOrderById(List.of(id), SolicitacaoReserva.Status.PENDENTE)
+                    .forEach(solicitacao -> recusar(solicitacao, mensagem.length() > 500 ? mensagem.substring(0, 500) : mensagem)));
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            return false;
+        }
+    }
+
+    private Duration esperaAntesDeTentarDeNovo(int falhas)
+    {
+        Duration espera = propriedades.novaTentativa().multipliedBy(1L << Math.min(falhas - 1, 20));
+        return espera.compareTo(propriedades.novaTentativaMaxima()) > 0 ? propriedades.novaTentativaMaxima() : espera;
+    }
+
+    private void processarLote(Long casaId, List<Long> ids)
+    {
+        Casa casa = casaService.buscarCasaPorId(casaId).orElse(null);
+        travas.executar(casaId, () ->
+        {
+            gravar(casaId, casa, ids);
+            return null;
+        });
+    }
+
+    // Executado sob a trava da casa
+    private void gravar(Long casaId, Casa casa, List<Long> ids)
+    {
+        List<Reserva> aceitas;
+        try
+        {
+            aceitas = transacao.execute(status -> validarEGravar(casa, ids));
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            if (!ReservaService.violouExclusao(e))
+            {
+                throw e;
+            }
+            // Outra instância reservou algum desses períodos: a transação do lote foi desfeita,
+            // então cada pedido é refeito sozinho para descobrir qual conflita
+            if (ids.size() > 1)
+            {
+                for (Long id : ids)
+                {
+                    gravar(casaId, casa, List.of(id));
+                }
+                return;
+            }
+            transacao.executeWithoutResult(status -> solicitacaoRepository
+                    .findByIdInAndStatusOrderById(ids, SolicitacaoReserva.Status.PENDENTE)
+                    .forEach(solicitacao -> recusar(solicitacao, CONFLITO)));
+            return;
+        }
+
+        for (Reserva reserva : aceitas)
+        {
+            calendario.registrar(casaId, reserva.getId(), reserva.getCheckIn(), reserva.getCheckOut());
+        }
+    }
+
+    // Executado numa transação: valida cada pedido, grava as reservas aceitas e atualiza o estado dos pedidos
+    private List<Reserva> validarEGravar(Casa casa, List<Long> ids)
+    {
+        // No modo cluster a casa fica travada em todas as instâncias até o commit, e o calendário dela é relido do banco
+        if (casa != null && travaDistribuida.travarCasas(List.of(casa.getId())))
+        {
+            calendario.recarregar(List.of(casa.getId()));
+        }
+
+        // Só depois da trava os pedidos são lidos, e travados: outra instância (ou a retomada de outra instância)
+        // pode ter processado os mesmos pedidos, e os que já saíram de PENDENTE não voltam a ser avaliados
+        List<SolicitacaoReserva> solicitacoes = solicitacaoRepository.findByIdInAndStatusOrderById(ids,
+                SolicitacaoReserva.Status.PENDENTE);
+
+        List<Reserva> aceitas = new ArrayList<>();
+        List<SolicitacaoReserva> confirmadas = new ArrayList<>();
+        for (SolicitacaoReserva solicitacao : solicitacoes)
+        {
+            if (casa == null)
+            {
+                recusar(solicitacao, "Casa não encontrada com ID: " + solicitacao.getCasaId());
+                continue;
+            }
+            Reserva reserva = paraReserva(solicitacao, casa);
+            try
+            {
+                ReservaService.validarDados(reserva, casa);
+            }
+            catch (IllegalArgumentException e)
+            {
+                recusar(solicitacao, e.getMessage());
+                continue;
+            }
+            // O calendário ainda não conhece as reservas deste lote, então elas são conferidas à parte
+            if (!calendario.estaDisponivel(casa.getId(), reserva.getCheckIn(), reserva.getCheckOut())
+                    || sobrepoe(reserva, aceitas))
+            {
+                recusar(solicitacao, CONFLITO);
+                continue;
+            }
+            aceitas.add(reserva);
+            confirmadas.add(solicitacao);
+        }
+
+        // Com IDs vindos da sequence, os inserts saem em lote; o flush faz a restrição de exclusão
+        // do Postgres falhar aqui, e não no commit
+        reservaRepository.saveAllAndFlush(aceitas);
+        // Publicados dentro da transação para que o outbox de alterações grave os eventos junto com as reservas
+        aceitas.forEach(reserva -> eventos.publishEvent(ReservaAlteradaEvent.criada(reserva)));
+        Instant agora = Instant.now();
+        for (int i = 0; i < confirmadas.size(); i++)
+        {
+            SolicitacaoReserva solicitacao = confirmadas.get(i);
+            solicitacao.setStatus(SolicitacaoReserva.Status.CONFIRMADA);
+            solicitacao.setReservaId(aceitas.get(i).getId());
+            solicitacao.setProcessadaEm(agora);
+        }
+        return aceitas;
+    }
+
+    private static boolean sobrepoe(Reserva reserva, List<Reserva> outras)
+    {
+        for (Reserva outra : outras)
+        {
+            if (reserva.getCheckIn().isBefore(outra.getCheckOut()) && reserva.getCheckOut().isAfter(outra.getCheckIn()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void recusar(SolicitacaoReserva solicitacao, String mensagem)
+    {
+        solicitacao.setStatus(SolicitacaoReserva.Status.RECUSADA);
+        solicitacao.setMensagem(mensagem);
+        solicitacao.setProcessadaEm(Instant.now());
+    }
+
+    private static void validarPedido(String chaveIdempotencia, ReservaRequestDTO dto)
+    {
+        if (chaveIdempotencia == null || chaveIdempotencia.isBlank() || chaveIdempotencia.length() > 100)
+        {
+            throw new IllegalArgumentException("Informe uma chave de idempotência de até 100 caracteres.");
+        }
+        if (dto.getCasaId() == null || dto.getNomeCliente() == null || dto.getEmailCliente() == null
+                || dto.getCpfCliente() == null || dto.getCheckIn() == null || dto.getCheckOut() == null
+                || dto.getQuantidadePessoas() == null)
+        {
+            throw new IllegalArgumentException("Todos os campos da reserva são obrigatórios.");
+        }
+    }
+
+    private static SolicitacaoReserva novaSolicitacao(String chaveIdempotencia, ReservaRequestDTO dto)
+    {
+        SolicitacaoReserva solicitacao = new SolicitacaoReserva();
+        solicitacao.setChaveIdempotencia(chaveIdempotencia);
+        solicitacao.setCasaId(dto.getCasaId());
+        solicitacao.setNomeCliente(dto.getNomeCliente());
+        solicitacao.setEmailCliente(dto.getEmailCliente());
+        solicitacao.setCpfCliente(dto.getCpfCliente());
+        solicitacao.setCheckIn(dto.getCheckIn());
+        solicitacao.setCheckOut(dto.getCheckOut());
+        solicitacao.setQuantidadePessoas(dto.getQuantidadePessoas());
+        solicitacao.setStatus(SolicitacaoReserva.Status.PENDENTE);
+        solicitacao.setCriadaEm(Instant.now());
+        return solicitacao;
+    }
+
+    private static Reserva paraReserva(SolicitacaoReserva solicitacao, Casa casa)
+    {
+        Reserva reserva = new Reserva();
+        reserva.setCasa(casa);
+        reserva.setNomeCliente(solicitacao.getNomeCliente());
+        reserva.setEmailCliente(solicitacao.getEmailCliente());
+        reserva.setCpfCliente(solicitacao.getCpfCliente());
+        reserva.setCheckIn(solicitacao.getCheckIn());
+        reserva.setCheckOut(solicitacao.getCheckOut());
+        reserva.setQuantidadePessoas(solicitacao.getQuantidadePessoas());
+        reserva.setPrecoDiaria(casa.getPrecoDiaria());
+        return reserva;
+    }
+
+    /**
+     * Converte um pedido para o DTO devolvido pela API.
+     * @param solicitacao O pedido.
+     * @return O DTO com o estado do pedido.
+     */
+    public static SolicitacaoReservaDTO convertToDTO(SolicitacaoReserva solicitacao)
+    {
+        return new SolicitacaoReservaDTO(solicitacao.getId(), solicitacao.getChaveIdempotencia(),
+                solicitacao.getCasaId(), solicitacao.getCheckIn(), solicitacao.getCheckOut(),
+                solicitacao.getStatus().name(), solicitacao.getReservaId(), solicitacao.getMensagem(),
+                solicitacao.getCriadaEm(), solicitacao.getProcessadaEm());
+    }
+}
@@ -0,0 +1,504 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.dto.AtributosCasa;
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Cópia colunar, em memória, dos campos filtráveis da tabela casas, usada pelo filtro de /api/casas/filtrar.
+ * Cada campo fica em um vetor primitivo, e cada casa ocupa a mesma posição em todos eles (em ordem de ID).
+ * Quartos, banheiros e capacidade têm ainda um índice bitmap por valor: um filtro por intervalo vira a união
+ * dos bitmaps dos valores no intervalo, e os três filtros são cruzados 64 casas por vez com operações de bits.
+ * O preço tem um índice ordenado: quando a faixa de preço pedida é estreita, só as casas dessa faixa são
+ * conferidas (sem percorrer a tabela); quando é larga, o preço só é comparado nas casas que sobraram dos bitmaps.
+ * A busca conta o total exato sem criar objetos por casa.
+ * Leituras usam a trava de leitura; cadastros, atualizações e remoções (vindos de {@link CasaAlteradaEvent})
+ * alteram só a posição da casa sob a trava de escrita. Casas novas entram no fim, já que os IDs são
+ * crescentes; cadastros concorrentes podem chegar fora de ordem, e a ordem volta a ser exata na próxima
+ * compactação ou carga completa. A posição de uma casa removida não é reaproveitada por outra (isso tiraria as
+ * posições da ordem de ID): quando as removidas passam de uma fração das posições, as colunas são compactadas
+ * em memória, sem ir ao banco.
+ */
+@Component
+public class IndiceColunarCasas
+{
+    private static final int CAPACIDADE_INICIAL = 1024;
+    private static final long[][] TODOS = null;
+    // Faixas de preço com até 1/16 das casas são conferidas uma a uma; acima disso compensa cruzar os bitmaps
+    private static final int FRACAO_PRECO_SELETIVO = 16;
+    // Com mais de 1/4 das posições ocupadas por casas removidas, as colunas são compactadas
+    private static final int FRACAO_REMOVIDAS_PARA_COMPACTAR = 4;
+
+    private final CasaRepository casaRepository;
+    private final boolean habilitado;
+    private final ReentrantReadWriteLock trava = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[0];
+    private double[] precos = new double[0];
+    private int[] quartos = new int[0];
+    private int[] banheiros = new int[0];
+    private int[] capacidades = new int[0];
+    // Bit ligado: a posição guarda uma casa que existe
+    private long[] vivas = new long[0];
+    // Posições já usadas (vivas ou não)
+    private int usadas;
+    private final Map<Long, Integer> posicaoPorCasa = new HashMap<>();
+    // Para cada valor do campo, as posições das casas com esse valor
+    private final TreeMap<Integer, long[]> porQuartos = new TreeMap<>();
+    private final TreeMap<Integer, long[]> porBanheiros = new TreeMap<>();
+    private final TreeMap<Integer, long[]> porCapacidade = new TreeMap<>();
+    // Posições das casas vivas em ordem de preço, e o preço de cada uma (para a busca binária)
+    private int[] posicoesPorPreco = new int[0];
+    private double[] precosOrdenados = new double[0];
+    // Quantas posições de posicoesPorPreco estão em uso (o número de casas vivas)
+    private int quantidadeVivas;
+
+    /**
+     * Os IDs das casas da página, em ordem de ID, e o total de casas que atendem ao filtro.
+     */
+    public record Pagina(List<Long> ids, long total) {}
+
+    /**
+     * @param casaRepository Repositório usado na carga inicial.
+     * @param habilitado Se false, o índice fica vazio e o filtro continua sendo feito no banco.
+     */
+    public IndiceColunarCasas(CasaRepository casaRepository,
+            @Value("${casas.colunar.habilitado:true}") boolean habilitado)
+    {
+        this.casaRepository = casaRepository;
+        this.habilitado = habilitado;
+    }
+
+    /**
+     * Carrega do banco os campos filtráveis de todas as casas, descartando o conteúdo anterior.
+     * Executado na inicialização, antes do servidor web começar a aceitar requisições.
+     */
+    @PostConstruct
+    public void carregar()
+    {
+        if (!habilitado)
+        {
+            return;
+        }
+        List<AtributosCasa> casas = casaRepository.buscarAtributosFiltro();
+        trava.writeLock().lock();
+        try
+        {
+            esvaziar(casas.size());
+            for (AtributosCasa casa : casas)
+            {
+                registrar(casa.getId(), casa.getPrecoDiaria(), casa.getQuantidadeQuartos(),
+                        casa.getQuantidadeBanheiros(), casa.getCapacidadePessoas(), false);
+            }
+            ordenarPorPreco();
+        }
+        finally
+        {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indica se o índice pode responder a uma consulta com esta paginação: ele só devolve as casas
+     * em ordem de ID, então ordenações por outros campos continuam indo ao banco.
+     * @param pageable A paginação pedida.
+     * @return true se o índice está habilitado e a ordenação é nenhuma ou por ID crescente.
+     */
+    public boolean atende(Pageable pageable)
+    {
+        Sort sort = pageable.getSort();
+        return habilitado && (sort.isUnsorted()
+                || (sort.stream().count() == 1 && sort.getOrderFor("id") != null && sort.getOrderFor("id").isAscending()));
+    }
+
+    /**
+     * Quantas casas existem, sem ir ao banco.
+     * @return O número de casas no índice, ou vazio se o índice estiver desabilitado.
+     */
+    public OptionalLong quantidadeDeCasas()
+    {
+        if (!habilitado)
+        {
+            return OptionalLong.empty();
+        }
+        trava.readLock().lock();
+        try
+        {
+            return OptionalLong.of(quantidadeVivas);
+        }
+        finally
+        {
+            trava.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mantém o índice em dia com os cadastros, atualizações e remoções de casas.
+     * Roda antes dos outros ouvintes, que podem ler a quantidade de casas logo em seguida (como a TabelaDePrecos).
+     * @param evento O evento publicado pelo {@link CasaService} depois do commit.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        if (!habilitado)
+        {
+            return;
+        }
+        Casa casa = evento.casa();
+        trava.writeLock().lock();
+        try
+        {
+            if (evento.removida())
+            {
+                remover(evento.casaId());
+                if (usadas - quantidadeVivas > usadas / FRACAO_REMOVIDAS_PARA_COMPACTAR)
+                {
+                    compactar();
+                }
+            }
+            else
+            {
+                registrar(casa.getId(), casa.getPrecoDiaria(), casa.getQuantidadeQuartos(),
+                        casa.getQuantidadeBanheiros(), casa.getCapacidadePessoas(), true);
+            }
+        }
+        finally
+        {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca as casas que atendem ao filtro, em ordem de ID.
+     * @param filtro Os limites (inclusivos) de preço, quartos, banheiros e capacidade.
+     * @param inicio Quantas casas pular (deslocamento da página).
+     * @param quantidade Tamanho da página.
+     * @return Os IDs da página e o total exato de casas encontradas.
+     */
+    public Pagina filtrar(IndiceGeografico.Filtro filtro, long inicio, int quantidade)
+    {
+        trava.readLock().lock();
+        try
+        {
+            int de = primeiraComPrecoAPartirDe(filtro.precoMin(), false);
+            // Com preço mínimo acima do máximo a faixa fica vazia
+            int ate = Math.max(de, primeiraComPrecoAPartirDe(filtro.precoMax(), true));
+            if (ate - de <= quantidadeVivas / FRACAO_PRECO_SELETIVO)
+            {
+                return filtrarFaixaDePreco(filtro, de, ate, inicio, quantidade);
+            }
+
+            long[][] comQuartos = bitmaps(porQuartos, filtro.quartosMin(), filtro.quartosMax());
+            long[][] comBanheiros = bitmaps(porBanheiros, filtro.banheirosMin(), filtro.banheirosMax());
+            long[][] comCapacidade = bitmaps(porCapacidade, filtro.capacidadeMin(), filtro.capacidadeMax());
+
+            List<Long> pagina = new ArrayList<>(Math.min(quantidade, 1024));
+            long total = 0;
+            int palavras = (usadas + 63) >>> 6;
+            for (int palavra = 0; palavra < palavras; palavra++)
+            {
+                long candidatas = vivas[palavra] & uniao(comQuartos, palavra)
+                        & uniao(comBanheiros, palavra) & uniao(comCapacidade, palavra);
+                while (candidatas != 0)
+                {
+                    int posicao = (palavra << 6) | Long.numberOfTrailingZeros(candidatas);
+                    candidatas &= candidatas - 1;
+                    double preco = precos[posicao];
+                    if (preco >= filtro.precoMin() && preco <= filtro.precoMax())
+                    {
+                        if (total >= inicio && pagina.size() < quantidade)
+                        {
+                            pagina.add(ids[posicao]);
+                        }
+                        total++;
+                    }
+                }
+            }
+            return new Pagina(pagina, total);
+        }
+        finally
+        {
+            trava.readLock().unlock();
+        }
+    }
+
+    // Bitmaps dos valores dentro do intervalo; TODOS quando o intervalo cobre todos os valores existentes
+    private static long[][] bitmaps(TreeMap<Integer, long[]> indice, int minimo, int maximo)
+    {
+        if (minimo > maximo)
+        {
+            return new long[0][];
+        }
+        if (indice.isEmpty() || (minimo <= indice.firstKey() && maximo >= indice.lastKey()))
+        {
+            return TODOS;
+        }
+        Collection<long[]> valores = indice.subMap(minimo, true, maximo, true).values();
+        return valores.toArray(long[][]::new);
+    }
+
+    // Confere as casas das posições [de, ate) da ordem por preço e as devolve em ordem de ID
+    private Pagina filtrarFaixaDePreco(IndiceGeografico.Filtro filtro, int de, int ate, long inicio, int quantidade)
+    {
+        int[] encontradas = new int[ate - de];
+        int total = 0;
+        for (int i = de; i < ate; i++)
+        {
+            int posicao = posicoesPorPreco[i];
+            if (quartos[posicao] >= filtro.quartosMin() && quartos[posicao] <= filtro.quartosMax()
+                    && banheiros[posicao] >= filtro.banheirosMin() && banheiros[posicao] <= filtro.banheirosMax()
+                    && capacidades[posicao] >= filtro.capacidadeMin() && capacidades[posicao] <= filtro.capacidadeMax())
+            {
+                encontradas[total++] = posicao;
+            }
+        }
+        Arrays.sort(encontradas, 0, total);
+        List<Long> pagina = new ArrayList<>(Math.min(quantidade, 1024));
+        for (long i = inicio; i < total && pagina.size() < quantidade; i++)
+        {
+            pagina.add(ids[encontradas[(int) i]]);
+        }
+        return new Pagina(pagina, total);
+    }
+
+    // Primeira posição em precosOrdenados com preço >= valor (ou > valor, se depois for true)
+    private int primeiraComPrecoAPartirDe(double valor, boolean depois)
+    {
+        int baixo = 0;
+        int alto = quantidadeVivas;
+        while (baixo < alto)
+        {
+            int meio = (baixo + alto) >>> 1;
+            if (precosOrdenados[meio] < valor || (depois && precosOrdenados[meio] == valor))
+            {
+                baixo = meio + 1;
+            }
+            else
+            {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    private static long uniao(long[][] bitmaps, int palavra)
+    {
+        if (bitmaps == TODOS)
+        {
+            return -1L;
+        }
+        long bits = 0;
+        for (long[] bitmap : bitmaps)
+        {
+            bits |= bitmap[palavra];
+        }
+        return bits;
+    }
+
+    // Chamado com a trava de escrita; na carga completa a ordem por preço é montada uma vez só, no fim
+    private void registrar(long id, double preco, int quartosDaCasa, int banheirosDaCasa, int capacidadeDaCasa,
+            boolean manterOrdemPorPreco)
+    {
+        Integer posicao = posicaoPorCasa.get(id);
+        if (posicao == null)
+        {
+            garantirCapacidade(usadas + 1);
+            posicao = usadas++;
+            posicaoPorCasa.put(id, posicao);
+            ids[posicao] = id;
+            ligar(vivas, posicao);
+        }
+        else
+        {
+            if (manterOrdemPorPreco)
+            {
+                tirarDaOrdemPorPreco(posicao);
+            }
+            desligar(porQuartos.get(quartos[posicao]), posicao);
+            desligar(porBanheiros.get(banheiros[posicao]), posicao);
+            desligar(porCapacidade.get(capacidades[posicao]), posicao);
+        }
+        precos[posicao] = preco;
+        quartos[posicao] = quartosDaCasa;
+        banheiros[posicao] = banheirosDaCasa;
+        capacidades[posicao] = capacidadeDaCasa;
+        ligar(bitmapDoValor(porQuartos, quartosDaCasa), posicao);
+        ligar(bitmapDoValor(porBanheiros, banheirosDaCasa), posicao);
+        ligar(bitmapDoValor(porCapacidade, capacidadeDaCasa), posicao);
+        if (manterOrdemPorPreco)
+        {
+            colocarNaOrdemPorPreco(posicao);
+        }
+    }
+
+    // Chamado com a trava de escrita
+    private void remover(long id)
+    {
+        Integer posicao = posicaoPorCasa.remove(id);
+        if (posicao == null)
+        {
+            return;
+        }
+        tirarDaOrdemPorPreco(posicao);
+        desligar(vivas, posicao);
+        desligar(porQuartos.get(quartos[posicao]), posicao);
+        desligar(porBanheiros.get(banheiros[posicao]), posicao);
+        desligar(porCapacidade.get(capacidades[posicao]), posicao);
+    }
+
+    // Descarta o conteúdo e aloca os vetores para a quantidade de casas informada
+    private void esvaziar(int quantidade)
+    {
+        int capacidade = Math.max(CAPACIDADE_INICIAL, Integer.highestOneBit(Math.max(1, quantidade)) << 1);
+        ids = new long[capacidade];
+        precos = new double[capacidade];
+        quartos = new int[capacidade];
+        banheiros = new int[capacidade];
+        capacidades = new int[capacidade];
+        vivas = new long[capacidade >>> 6];
+        usadas = 0;
+        posicaoPorCasa.clear();
+        porQuartos.clear();
+        porBanheiros.clear();
+        porCapacidade.clear();
+    }
+
+    // Chamado com a trava de escrita. Remonta as colunas só com as casas vivas, em ordem de ID, a partir das
+    // colunas atuais; os vetores voltam ao tamanho que a carga completa daria
+    private void compactar()
+    {
+        long[] idsAnteriores = ids;
+        double[] precosAnteriores = precos;
+        int[] quartosAnteriores = quartos;
+        int[] banheirosAnteriores = banheiros;
+        int[] capacidadesAnteriores = capacidades;
+        int[] posicoes = posicaoPorCasa.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .mapToInt(Map.Entry::getValue)
+                .toArray();
+        esvaziar(posicoes.length);
+        for (int posicao : posicoes)
+        {
+            registrar(idsAnteriores[posicao], precosAnteriores[posicao], quartosAnteriores[posicao],
+                    banheirosAnteriores[posicao], capacidadesAnteriores[posicao], false);
+        }
+        ordenarPorPreco();
+    }
+
+    // Posições já usadas, vivas ou não; para os testes
+    int posicoesUsadas()
+    {
+        trava.readLock().lock();
+        try
+        {
+            return usadas;
+        }
+        finally
+        {
+            trava.readLock().unlock();
+        }
+    }
+
+    private void ordenarPorPreco()
+    {
+        posicoesPorPreco = new int[ids.length];
+        precosOrdenados = new double[ids.length];
+        Integer[] ordem = new Integer[usadas];
+        for (int i = 0; i < usadas; i++)
+        {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, (a, b) -> Double.compare(precos[a], precos[b]));
+        for (int i = 0; i < usadas; i++)
+        {
+            posicoesPorPreco[i] = ordem[i];
+            precosOrdenados[i] = precos[ordem[i]];
+        }
+        quantidadeVivas = usadas;
+    }
+
+    // Insere a posição na ordem por preço, deslocando as seguintes
+    private void colocarNaOrdemPorPreco(int posicao)
+    {
+        int destino = primeiraComPrecoAPartirDe(precos[posicao], true);
+        System.arraycopy(posicoesPorPreco, destino, posicoesPorPreco, destino + 1, quantidadeVivas - destino);
+        System.arraycopy(precosOrdenados, destino, precosOrdenados, destino + 1, quantidadeVivas - destino);
+        posicoesPorPreco[destino] = posicao;
+        precosOrdenados[destino] = precos[posicao];
+        quantidadeVivas++;
+    }
+
+    // Remove a posição da ordem por preço (precos[posicao] ainda tem o preço antigo)
+    private void tirarDaOrdemPorPreco(int posicao)
+    {
+        int i = primeiraComPrecoAPartirDe(precos[posicao], false);
+        while (posicoesPorPreco[i] != posicao)
+        {
+            i++;
+        }
+        System.arraycopy(posicoesPorPreco, i + 1, posicoesPorPreco, i, quantidadeVivas - i - 1);
+        System.arraycopy(precosOrdenados, i + 1, precosOrdenados, i, quantidadeVivas - i - 1);
+        quantidadeVivas--;
+    }
+
+    private long[] bitmapDoValor(TreeMap<Integer, long[]> indice, int valor)
+    {
+        return indice.computeIfAbsent(valor, v -> new long[vivas.length]);
+    }
+
+    // Dobra os vetores (e todos os bitmaps) quando as posições acabam
+    private void garantirCapacidade(int necessaria)
+    {
+        if (necessaria <= ids.length)
+        {
+            return;
+        }
+        int capacidade = Math.max(CAPACIDADE_INICIAL, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacidade);
+        precos = Arrays.copyOf(precos, capacidade);
+        quartos = Arrays.copyOf(quartos, capacidade);
+        banheiros = Arrays.copyOf(banheiros, capacidade);
+        capacidades = Arrays.copyOf(capacidades, capacidade);
+        posicoesPorPreco = Arrays.copyOf(posicoesPorPreco, capacidade);
+        precosOrdenados = Arrays.copyOf(precosOrdenados, capacidade);
+        int palavras = capacidade >>> 6;
+        vivas = Arrays.copyOf(vivas, palavras);
+        porQuartos.replaceAll((valor, bitmap) -> Arrays.copyOf(bitmap, palavras));
+        porBanheiros.replaceAll((valor, bitmap) -> Arrays.copyOf(bitmap, palavras));
+        porCapacidade.replaceAll((valor, bitmap) -> Arrays.copyOf(bitmap, palavras));
+    }
+
+    private static void ligar(long[] bitmap, int posicao)
+    {
+        bitmap[posicao >>> 6] |= 1L << posicao;
+    }
+
+    private static void desligar(long[] bitmap, int posicao)
+    {
+        if (bitmap != null)
+        {
+            bitmap[posicao >>> 6] &= ~(1L << posicao);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.dto.LocalizacaoCasa;
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Índice geográfico das casas mantido em memória, usado pela busca de casas próximas.
+ * O mapa é dividido em uma grade de células quadradas (em graus); cada célula guarda um vetor imutável
+ * com a posição e os campos filtráveis das suas casas. Uma busca só percorre as células que cruzam
+ * o retângulo pedido, sem consultar o banco.
+ * Leituras não usam trava; escritas (vindas de {@link CasaAlteradaEvent}) são serializadas e trocam
+ * o vetor da célula inteiro, de modo que uma busca sempre enxerga um estado consistente de cada célula.
+ */
+@Component
+public class IndiceGeografico
+{
+    private static final double KM_POR_GRAU_LATITUDE = 111.32;
+    private static final double RAIO_TERRA_KM = 6371.0088;
+    private static final Ponto[] VAZIO = new Ponto[0];
+
+    private final CasaRepository casaRepository;
+    private final double tamanhoCelula;
+    private final long colunas;
+    private final ConcurrentHashMap<Long, Ponto[]> celulas = new ConcurrentHashMap<>();
+    // Célula em que cada casa está, para remover ou mover a casa quando ela muda
+    private final ConcurrentHashMap<Long, Long> celulaPorCasa = new ConcurrentHashMap<>();
+
+    // Posição e campos filtráveis de uma casa dentro de uma célula
+    private record Ponto(long id, double latitude, double longitude, double preco, int quartos, int banheiros, int capacidade) {}
+
+    /**
+     * Filtros aplicados junto com a busca geográfica; os limites são inclusivos.
+     */
+    public record Filtro(double precoMin, double precoMax, int quartosMin, int quartosMax,
+            int banheirosMin, int banheirosMax, int capacidadeMin, int capacidadeMax)
+    {
+        public static final Filtro NENHUM = new Filtro(-Double.MAX_VALUE, Double.MAX_VALUE,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        private boolean aceita(Ponto ponto)
+        {
+            return ponto.preco() >= precoMin && ponto.preco() <= precoMax
+                    && ponto.quartos() >= quartosMin && ponto.quartos() <= quartosMax
+                    && ponto.banheiros() >= banheirosMin && ponto.banheiros() <= banheirosMax
+                    && ponto.capacidade() >= capacidadeMin && ponto.capacidade() <= capacidadeMax;
+        }
+    }
+
+    /**
+     * Área da busca: o centro (usado para ordenar por distância), um raio opcional e um retângulo opcional.
+     * Quando os dois são informados, valem as casas dentro de ambos.
+     */
+    public record Area(double latitude, double longitude, Double raioKm,
+            Double latitudeMin, Double latitudeMax, Double longitudeMin, Double longitudeMax) {}
+
+    /**
+     * Uma casa encontrada e a sua distância ao centro da busca.
+     */
+    public record Resultado(long casaId, double distanciaKm) {}
+
+    /**
+     * Uma página de resultados ordenados por distância e o total de casas encontradas.
+     */
+    public record Pagina(List<Resultado> itens, long total) {}
+
+    /**
+     * @param casaRepository Repositório usado na carga inicial.
+     * @param tamanhoCelula Lado de cada célula da grade, em graus (0,05° são cerca de 5,5 km de latitude).
+     */
+    public IndiceGeografico(CasaRepository casaRepository,
+            @Value("${casas.geo.tamanho-celula:0.05}") double tamanhoCelula)
+    {
+        this.casaRepository = casaRepository;
+        this.tamanhoCelula = tamanhoCelula;
+        this.colunas = (long) Math.ceil(360 / tamanhoCelula) + 1;
+    }
+
+    /**
+     * Carrega do banco a posição de todas as casas com coordenadas.
+     * Executado na inicialização, antes do servidor web começar a aceitar requisições.
+     */
+    @PostConstruct
+    public synchronized void carregar()
+    {
+        Map<Long, List<Ponto>> porCelula = new HashMap<>();
+        Map<Long, Long> celulaDe = new HashMap<>();
+        for (LocalizacaoCasa localizacao : casaRepository.buscarLocalizacoes())
+        {
+            Ponto ponto = new Ponto(localizacao.getId(), localizacao.getLatitude(), localizacao.getLongitude(),
+                    localizacao.getPrecoDiaria(), localizacao.getQuantidadeQuartos(),
+                    localizacao.getQuantidadeBanheiros(), localizacao.getCapacidadePessoas());
+            long celula = celulaDe(ponto.latitude(), ponto.longitude());
+            porCelula.computeIfAbsent(celula, c -> new ArrayList<>()).add(ponto);
+            celulaDe.put(ponto.id(), celula);
+        }
+
+        celulas.clear();
+        celulaPorCasa.clear();
+        porCelula.forEach((celula, pontos) -> celulas.put(celula, pontos.toArray(VAZIO)));
+        celulaPorCasa.putAll(celulaDe);
+    }
+
+    /**
+     * Mantém o índice em dia com os cadastros, atualizações e remoções de casas.
+     * @param evento O evento publicado pelo {@link CasaService} depois do commit.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        Casa casa = evento.casa();
+        if (evento.removida() || casa.getLatitude() == null || casa.getLongitude() == null)
+        {
+            remover(evento.casaId());
+            return;
+        }
+        registrar(new Ponto(casa.getId(), casa.getLatitude(), casa.getLongitude(), casa.getPrecoDiaria(),
+                casa.getQuantidadeQuartos(), casa.getQuantidadeBanheiros(), casa.getCapacidadePessoas()));
+    }
+
+    private synchronized void registrar(Ponto ponto)
+    {
+        remover(ponto.id());
+        long celula = celulaDe(ponto.latitude(), ponto.longitude());
+        Ponto[] atual = celulas.getOrDefault(celula, VAZIO);
+        Ponto[] novo = Arrays.copyOf(atual, atual.length + 1);
+        novo[atual.length] = ponto;
+        celulas.put(celula, novo);
+        celulaPorCasa.put(ponto.id(), celula);
+    }
+
+    private synchronized void remover(long casaId)
+    {
+        Long celula = celulaPorCasa.remove(casaId);
+        if (celula == null)
+        {
+            return;
+        }
+        Ponto[] atual = celulas.getOrDefault(celula, VAZIO);
+        Ponto[] novo = Arrays.stream(atual).filter(ponto -> ponto.id() != casaId).toArray(Ponto[]::new);
+        if (novo.length == 0)
+        {
+            celulas.remove(celula);
+        }
+        else
+        {
+            celulas.put(celula, novo);
+        }
+    }
+
+    /**
+     * Busca as casas dentro da área que atendem aos filtros, ordenadas pela distância ao centro.
+     * Apenas as primeiras {@code inicio + quantidade} casas são mantidas durante a busca (em um heap),
+     * o restante é só contado.
+     * @param area O centro e os limites da busca.
+     * @param filtro Os filtros de preço, quartos, banheiros e capacidade.
+     * @param inicio Quantas casas pular (deslocamento da página).
+     * @param quantidade Tamanho da página.
+     * @return A página de resultados e o total de casas encontradas.
+     * @throws IllegalArgumentException se a área não tiver raio nem retângulo, ou tiver coordenadas inválidas.
+     */
+    public Pagina buscar(Area area, Filtro filtro, long inicio, int quantidade)
+    {
+        double[] limites = limites(area);
+        double latitudeMin = limites[0];
+        double latitudeMax = limites[1];
+        double longitudeMin = limites[2];
+        double longitudeMax = limites[3];
+        if (latitudeMin > latitudeMax || longitudeMin > longitudeMax)
+        {
+            return new Pagina(List.of(), 0);
+        }
+
+        long mantidos = Math.min(inicio + quantidade, Integer.MAX_VALUE);
+        // Heap com as mais distantes no topo, para descartar rapidamente quem fica fora da página
+        PriorityQueue<Resultado> melhores = new PriorityQueue<>(
+                Comparator.comparingDouble(Resultado::distanciaKm).reversed());
+        long total = 0;
+
+        long linhaMin = linha(latitudeMin);
+        long linhaMax = linha(latitudeMax);
+        long colunaMin = coluna(longitudeMin);
+        long colunaMax = coluna(longitudeMax);
+        long celulasNaArea = (linhaMax - linhaMin + 1) * (colunaMax - colunaMin + 1);
+
+        List<Ponto[]> candidatas = new ArrayList<>();
+        if (celulasNaArea <= celulas.size())
+        {
+            for (long l = linhaMin; l <= linhaMax; l++)
+            {
+                for (long c = colunaMin; c <= colunaMax; c++)
+                {
+                    Ponto[] pontos = celulas.get(l * colunas + c);
+                    if (pontos != null)
+                    {
+                        candidatas.add(pontos);
+                    }
+                }
+            }
+        }
+        else
+        {
+            // Área maior que o número de células ocupadas: é mais barato olhar só as ocupadas
+            celulas.forEach((celula, pontos) ->
+            {
+                long l = celula / colunas;
+                long c = celula % colunas;
+                if (l >= linhaMin && l <= linhaMax && c >= colunaMin && c <= colunaMax)
+                {
+                    candidatas.add(pontos);
+                }
+            });
+        }
+
+        for (Ponto[] pontos : candidatas)
+        {
+            for (Ponto ponto : pontos)
+            {
+                if (ponto.latitude() < latitudeMin || ponto.latitude() > latitudeMax
+                        || ponto.longitude() < longitudeMin || ponto.longitude() > longitudeMax
+                        || !filtro.aceita(ponto))
+                {
+                    continue;
+                }
+                double distancia = distanciaKm(area.latitude(), area.longitude(), ponto.latitude(), ponto.longitude());
+                if (area.raioKm() != null && distancia > area.raioKm())
+                {
+                    continue;
+                }
+                total++;
+                if (melhores.size() < mantidos)
+                {
+                    melhores.add(new Resultado(ponto.id(), distancia));
+                }
+                else if (mantidos > 0 && distancia < melhores.peek().distanciaKm())
+                {
+                    melhores.poll();
+                    melhores.add(new Resultado(ponto.id(), distancia));
+                }
+            }
+        }
+
+        List<Resultado> ordenados = new ArrayList<>(melhores);
+        ordenados.sort(Comparator.comparingDouble(Resultado::distanciaKm));
+        List<Resultado> pagina = inicio >= ordenados.size()
+                ? List.of()
+                : ordenados.subList((int) inicio, ordenados.size());
+        return new Pagina(List.copyOf(pagina), total);
+    }
+
+    // Retângulo efetivo da busca: o que envolve o raio, recortado pelo retângulo informado
+    private static double[] limites(Area area)
+    {
+        if (area.raioKm() == null && (area.latitudeMin() == null || area.latitudeMax() == null
+                || area.longitudeMin() == null || area.longitudeMax() == null))
+        {
+            throw new IllegalArgumentException("Informe o raio ou os quatro limites do retângulo da busca.");
+        }
+        if (Math.abs(area.latitude()) > 90 || Math.abs(area.longitude()) > 180)
+        {
+            throw new IllegalArgumentException("Latitude deve estar entre -90 e 90 e longitude entre -180 e 180.");
+        }
+        if (area.raioKm() != null && area.raioKm() <= 0)
+        {
+            throw new IllegalArgumentException("O raio deve ser maior que zero.");
+        }
+
+        double latitudeMin = -90;
+        double latitudeMax = 90;
+        double longitudeMin = -180;
+        double longitudeMax = 180;
+        if (area.raioKm() != null)
+        {
+            double deltaLatitude = area.raioKm() / KM_POR_GRAU_LATITUDE;
+            double cosseno = Math.cos(Math.toRadians(area.latitude()));
+            // Perto dos polos (ou com raios enormes) o retângulo cobre todas as longitudes.
+            // Buscas que cruzam o antimeridiano também caem nesse caso, por simplicidade.
+            double deltaLongitude = cosseno < 1e-6 ? 360 : area.raioKm() / (KM_POR_GRAU_LATITUDE * cosseno);
+            latitudeMin = area.latitude() - deltaLatitude;
+            latitudeMax = area.latitude() + deltaLatitude;
+            longitudeMin = area.longitude() - deltaLongitude;
+            longitudeMax = area.longitude() + deltaLongitude;
+            if (longitudeMin < -180 || longitudeMax > 180)
+            {
+                longitudeMin = -180;
+                longitudeMax = 180;
+            }
+        }
+        if (area.latitudeMin() != null && area.latitudeMax() != null
+                && area.longitudeMin() != null && area.longitudeMax() != null)
+        {
+            latitudeMin = Math.max(latitudeMin, area.latitudeMin());
+            latitudeMax = Math.min(latitudeMax, area.latitudeMax());
+            longitudeMin = Math.max(longitudeMin, area.longitudeMin());
+            longitudeMax = Math.min(longitudeMax, area.longitudeMax());
+        }
+        return new double[] {
+            Math.max(latitudeMin, -90), Math.min(latitudeMax, 90),
+            Math.max(longitudeMin, -180), Math.min(longitudeMax, 180)
+        };
+    }
+
+    /**
+     * Distância em km entre dois pontos pela fórmula de haversine.
+     */
+    static double distanciaKm(double latitude1, double longitude1, double latitude2, double longitude2)
+    {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private long celulaDe(double latitude, double longitude)
+    {
+        return linha(latitude) * colunas + coluna(longitude);
+    }
+
+    private long linha(double latitude)
+    {
+        return (long) Math.floor((latitude + 90) / tamanhoCelula);
+    }
+
+    private long coluna(double longitude)
+    {
+        return (long) Math.floor((longitude + 180) / tamanhoCelula);
+    }
+}
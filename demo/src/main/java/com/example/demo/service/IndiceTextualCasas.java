@@ -0,0 +1,358 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.pt.PortugueseAnalyzer;
+import org.apache.lucene.analysis.pt.PortugueseLightStemFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollectorManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Índice invertido (Lucene, em memória) do nome, da descrição e do endereço das casas, usado pela busca por texto.
+ * O texto passa por um analisador de português: minúsculas, sem palavras vazias ("com", "da", "perto de"...),
+ * redução ao radical ("piscinas" e "piscina" viram o mesmo termo) e sem acentos, de modo que "sitio" encontra "sítio".
+ * Cada palavra da busca vale pelo campo em que melhor aparece (o nome pesa mais que o endereço, e este mais
+ * que a descrição), e a relevância é o BM25 do Lucene. Os filtros numéricos entram na mesma consulta,
+ * como intervalos sobre os pontos de preço, quartos, banheiros e capacidade, sem afetar a relevância.
+ * Carregado na inicialização e mantido em dia pelos {@link CasaAlteradaEvent}. As alterações ficam visíveis
+ * na busca seguinte: ela reabre o leitor do índice uma vez só, por mais casas que tenham mudado desde a
+ * anterior (uma importação em lote não reabre o índice a cada casa).
+ */
+@Component
+public class IndiceTextualCasas
+{
+    private static final Logger log = LoggerFactory.getLogger(IndiceTextualCasas.class);
+
+    /** Até onde a busca pagina (página × tamanho), como em outros motores de busca. */
+    static final int MAXIMO_RESULTADOS = 10_000;
+
+    private static final String ID = "id";
+    private static final String NOME = "nome";
+    private static final String DESCRICAO = "descricao";
+    private static final String ENDERECO = "endereco";
+    private static final String PRECO = "preco";
+    private static final String QUARTOS = "quartos";
+    private static final String BANHEIROS = "banheiros";
+    private static final String CAPACIDADE = "capacidade";
+    private static final float PESO_NOME = 3f;
+    private static final float PESO_ENDERECO = 1.5f;
+    private static final float PESO_DESCRICAO = 1f;
+    // Quanto os outros campos em que a palavra aparece somam à relevância, além do melhor
+    private static final float DESEMPATE_CAMPOS = 0.1f;
+
+    private final CasaRepository casaRepository;
+    private final Analyzer analisador = new AnalisadorPortugues();
+    private IndexWriter escritor;
+    private volatile SearcherManager buscadores;
+    private final AtomicBoolean alterado = new AtomicBoolean();
+
+    /**
+     * Uma casa encontrada e a relevância dela para o texto buscado.
+     */
+    public record Resultado(long casaId, float relevancia) {}
+
+    /**
+     * Uma página de resultados, do mais para o menos relevante, e o total exato de casas encontradas.
+     */
+    public record Pagina(List<Resultado> itens, long total) {}
+
+    // Minúsculas, sem palavras vazias, sem acentos e reduzidas ao radical. Os acentos saem antes do radical para que
+    // "chalé" e "chale", digitado sem acento, cheguem iguais às regras do radicalizador
+    private static final class AnalisadorPortugues extends Analyzer
+    {
+        @Override
+        protected TokenStreamComponents createComponents(String campo)
+        {
+            Tokenizer tokenizer = new StandardTokenizer();
+            TokenStream fluxo = new LowerCaseFilter(tokenizer);
+            fluxo = new StopFilter(fluxo, PortugueseAnalyzer.getDefaultStopSet());
+            fluxo = new ASCIIFoldingFilter(fluxo);
+            fluxo = new PortugueseLightStemFilter(fluxo);
+            return new TokenStreamComponents(tokenizer, fluxo);
+        }
+    }
+
+    public IndiceTextualCasas(CasaRepository casaRepository)
+    {
+        this.casaRepository = casaRepository;
+    }
+
+    /**
+     * Monta o índice com todas as casas do banco, descartando o anterior.
+     * Executado na inicialização, antes do servidor web começar a aceitar requisições.
+     */
+    @PostConstruct
+    public synchronized void carregar()
+    {
+        long inicio = System.nanoTime();
+        try
+        {
+            IndexWriter novoEscritor = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analisador));
+            List<Casa> casas = casaRepository.findAll();
+            for (Casa casa : casas)
+            {
+                novoEscritor.addDocument(documento(casa));
+            }
+            novoEscritor.commit();
+            SearcherManager novosBuscadores = new SearcherManager(novoEscritor, null);
+
+            IndexWriter anterior = escritor;
+            SearcherManager buscadoresAnteriores = buscadores;
+            escritor = novoEscritor;
+            buscadores = novosBuscadores;
+            fechar(buscadoresAnteriores, anterior);
+            log.info("Índice de texto montado com {} casas em {} ms", casas.size(), (System.nanoTime() - inicio) / 1_000_000);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Mantém o índice em dia com os cadastros, atualizações e remoções de casas.
+     * @param evento O evento publicado pelo {@link CasaService} depois do commit.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        try
+        {
+            Term id = new Term(ID, String.valueOf(evento.casaId()));
+            if (evento.removida())
+            {
+                escritor.deleteDocuments(id);
+            }
+            else
+            {
+                escritor.updateDocument(id, documento(evento.casa()));
+            }
+            alterado.set(true);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Busca as casas que contêm as palavras do texto, da mais para a menos relevante.
+     * Basta uma palavra aparecer para a casa ser encontrada; quanto mais palavras, e em campos mais importantes,
+     * maior a relevância.
+     * @param texto O texto digitado.
+     * @param filtro Os limites (inclusivos) de preço, quartos, banheiros e capacidade.
+     * @param inicio Quantas casas pular (deslocamento da página).
+     * @param quantidade Tamanho da página.
+     * @return A página de resultados e o total exato de casas encontradas.
+     * @throws IllegalArgumentException se o texto não tiver nenhuma palavra buscável ou se a página
+     *         passar de {@value #MAXIMO_RESULTADOS} resultados.
+     */
+    public Pagina buscar(String texto, IndiceGeografico.Filtro filtro, long inicio, int quantidade)
+    {
+        if (inicio + quantidade > MAXIMO_RESULTADOS)
+        {
+            throw new IllegalArgumentException("A busca por texto vai até o resultado " + MAXIMO_RESULTADOS + ".");
+        }
+        Query consulta = consulta(texto, filtro);
+
+        try
+        {
+            SearcherManager gerenciador = buscadores;
+            IndexSearcher buscador;
+            try
+            {
+                if (alterado.compareAndSet(true, false))
+                {
+                    gerenciador.maybeRefreshBlocking();
+                }
+                buscador = gerenciador.acquire();
+            }
+            catch (AlreadyClosedException e)
+            {
+                // O índice foi remontado (carregar) e o gerenciador lido aqui já foi fechado; o novo já está publicado.
+                // Buscas que já tinham um buscador seguem com ele: fechar o gerenciador só o libera no último release
+                if (gerenciador == buscadores)
+                {
+                    throw e;
+                }
+                alterado.set(true);
+                return buscar(texto, filtro, inicio, quantidade);
+            }
+            try
+            {
+                // Contagem exata: o coletor não para de contar depois de achar os primeiros resultados
+                TopDocs encontrados = buscador.search(consulta,
+                        new TopScoreDocCollectorManager((int) inicio + quantidade, Integer.MAX_VALUE));
+                StoredFields campos = buscador.storedFields();
+                List<Resultado> itens = new ArrayList<>(quantidade);
+                for (int i = (int) inicio; i < encontrados.scoreDocs.length; i++)
+                {
+                    ScoreDoc encontrado = encontrados.scoreDocs[i];
+                    long casaId = campos.document(encontrado.doc, Set.of(ID)).getField(ID).numericValue().longValue();
+                    itens.add(new Resultado(casaId, encontrado.score));
+                }
+                return new Pagina(itens, encontrados.totalHits.value);
+            }
+            finally
+            {
+                gerenciador.release(buscador);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void fechar()
+    {
+        fechar(buscadores, escritor);
+    }
+
+    private Query consulta(String texto, IndiceGeografico.Filtro filtro)
+    {
+        Set<String> termos = termos(texto);
+        if (termos.isEmpty())
+        {
+            throw new IllegalArgumentException("Informe ao menos uma palavra para a busca.");
+        }
+
+        BooleanQuery.Builder consulta = new BooleanQuery.Builder();
+        for (String termo : termos)
+        {
+            consulta.add(new DisjunctionMaxQuery(List.of(
+                    new BoostQuery(new TermQuery(new Term(NOME, termo)), PESO_NOME),
+                    new BoostQuery(new TermQuery(new Term(ENDERECO, termo)), PESO_ENDERECO),
+                    new BoostQuery(new TermQuery(new Term(DESCRICAO, termo)), PESO_DESCRICAO)),
+                    DESEMPATE_CAMPOS), BooleanClause.Occur.SHOULD);
+        }
+        consulta.setMinimumNumberShouldMatch(1);
+
+        // Filtros sem limite não entram na consulta
+        if (filtro.precoMin() > -Double.MAX_VALUE || filtro.precoMax() < Double.MAX_VALUE)
+        {
+            consulta.add(DoublePoint.newRangeQuery(PRECO, filtro.precoMin(), filtro.precoMax()), BooleanClause.Occur.FILTER);
+        }
+        filtrarIntervalo(consulta, QUARTOS, filtro.quartosMin(), filtro.quartosMax());
+        filtrarIntervalo(consulta, BANHEIROS, filtro.banheirosMin(), filtro.banheirosMax());
+        filtrarIntervalo(consulta, CAPACIDADE, filtro.capacidadeMin(), filtro.capacidadeMax());
+        return consulta.build();
+    }
+
+    private static void filtrarIntervalo(BooleanQuery.Builder consulta, String campo, int minimo, int maximo)
+    {
+        if (minimo > Integer.MIN_VALUE || maximo < Integer.MAX_VALUE)
+        {
+            consulta.add(IntPoint.newRangeQuery(campo, minimo, maximo), BooleanClause.Occur.FILTER);
+        }
+    }
+
+    // Os termos do texto digitado, passados pelo mesmo analisador usado na indexação
+    private Set<String> termos(String texto)
+    {
+        Set<String> termos = new LinkedHashSet<>();
+        if (texto == null)
+        {
+            return termos;
+        }
+        try (TokenStream fluxo = analisador.tokenStream(NOME, texto))
+        {
+            CharTermAttribute termo = fluxo.addAttribute(CharTermAttribute.class);
+            fluxo.reset();
+            while (fluxo.incrementToken())
+            {
+                termos.add(termo.toString());
+            }
+            fluxo.end();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return termos;
+    }
+
+    private static Document documento(Casa casa)
+    {
+        Document documento = new Document();
+        documento.add(new StringField(ID, String.valueOf(casa.getId()), Field.Store.NO));
+        documento.add(new StoredField(ID, casa.getId()));
+        documento.add(new TextField(NOME, casa.getNome(), Field.Store.NO));
+        documento.add(new TextField(ENDERECO, casa.getEndereco(), Field.Store.NO));
+        if (casa.getDescricao() != null)
+        {
+            documento.add(new TextField(DESCRICAO, casa.getDescricao(), Field.Store.NO));
+        }
+        documento.add(new DoublePoint(PRECO, casa.getPrecoDiaria()));
+        documento.add(new IntPoint(QUARTOS, casa.getQuantidadeQuartos()));
+        documento.add(new IntPoint(BANHEIROS, casa.getQuantidadeBanheiros()));
+        documento.add(new IntPoint(CAPACIDADE, casa.getCapacidadePessoas()));
+        return documento;
+    }
+
+    private static void fechar(SearcherManager buscadores, IndexWriter escritor)
+    {
+        try
+        {
+            if (buscadores != null)
+            {
+                buscadores.close();
+            }
+            if (escritor != null)
+            {
+                escritor.close();
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Falha ao fechar o índice de texto anterior", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.config.CacheConfig;
+
+/**
+ * Invalida os caches de leitura de casas quando uma casa muda.
+ * A casa alterada sai do cache por ID, e as páginas do filtro são descartadas, já que qualquer
+ * alteração pode mudar o resultado de qualquer filtro.
+ * Invalidar depois do commit não basta: uma leitura que carregou a casa antes do commit pode guardá-la no cache
+ * depois da invalidação. Por isso cada invalidação avança uma geração, e o {@link CasaService} só mantém no cache
+ * o que carregou sem que a geração tenha mudado no meio.
+ */
+@Component
+public class InvalidacaoCacheCasas
+{
+    /**
+     * Ordem do ouvinte de alterações: depois dos índices em memória, que as páginas do filtro consultam, e antes do
+     * cache de respostas HTTP, que guarda respostas montadas a partir destes caches.
+     */
+    public static final int ORDEM = 0;
+
+    private final CacheManager cacheManager;
+    private final AtomicLong geracao = new AtomicLong();
+
+    public InvalidacaoCacheCasas(CacheManager cacheManager)
+    {
+        this.cacheManager = cacheManager;
+    }
+
+    @Order(ORDEM)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        // Antes de invalidar, para que uma leitura em andamento não guarde o que carregou
+        geracao.incrementAndGet();
+        Cache casas = cacheManager.getCache(CacheConfig.CASAS);
+        if (casas != null)
+        {
+            casas.evict(evento.casaId());
+        }
+        Cache filtros = cacheManager.getCache(CacheConfig.FILTROS_CASAS);
+        if (filtros != null)
+        {
+            filtros.clear();
+        }
+    }
+
+    /**
+     * Descarta tudo o que está nos caches, como depois de perder avisos de alteração.
+     */
+    public void invalidarTudo()
+    {
+        geracao.incrementAndGet();
+        cacheManager.getCacheNames().forEach(nome -> cacheManager.getCache(nome).clear());
+    }
+
+    /**
+     * A geração atual, que avança a cada invalidação.
+     * @return Um número que só cresce.
+     */
+    public long geracao()
+    {
+        return geracao.get();
+    }
+}
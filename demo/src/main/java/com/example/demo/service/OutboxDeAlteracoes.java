@@ -0,0 +1,73 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.model.EventoAlteracao;
+import com.example.demo.repository.EventoAlteracaoRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Grava cada alteração de casa ou reserva na tabela eventos_alteracao, dentro da transação que fez a alteração:
+ * ou a alteração e o evento são confirmados juntos, ou nenhum dos dois. A entrega aos assinantes fica com o
+ * {@link PublicadorDeAlteracoes}, que lê a tabela depois do commit.
+ */
+@Service
+public class OutboxDeAlteracoes
+{
+    private final EventoAlteracaoRepository eventoRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxDeAlteracoes(EventoAlteracaoRepository eventoRepository, ObjectMapper objectMapper)
+    {
+        this.eventoRepository = eventoRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    // BEFORE_COMMIT: ainda dentro da transação da alteração. Sem transação (fallback), o evento é gravado sozinho
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        // Alterações de outra instância já foram gravadas no outbox por ela
+        if (evento.remota())
+        {
+            return;
+        }
+        EventoAlteracao.Tipo tipo = evento.removida() ? EventoAlteracao.Tipo.REMOVIDA
+                : evento.cadastrada() ? EventoAlteracao.Tipo.CRIADA : EventoAlteracao.Tipo.ATUALIZADA;
+        String dados = evento.removida() ? null : paraJson(CasaService.convertToResponseDTO(evento.casa()));
+        gravar(EventoAlteracao.Entidade.CASA, tipo, evento.casaId(), dados);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void aoAlterarReserva(ReservaAlteradaEvent evento)
+    {
+        if (evento.remota())
+        {
+            return;
+        }
+        EventoAlteracao.Tipo tipo = evento.cancelada() ? EventoAlteracao.Tipo.CANCELADA : EventoAlteracao.Tipo.CRIADA;
+        gravar(EventoAlteracao.Entidade.RESERVA, tipo, evento.reserva().getId(), paraJson(evento.reserva()));
+    }
+
+    private void gravar(EventoAlteracao.Entidade entidade, EventoAlteracao.Tipo tipo, Long entidadeId, String dados)
+    {
+        eventoRepository.save(new EventoAlteracao(null, entidade, tipo, entidadeId, dados, Instant.now(), null, null));
+    }
+
+    private String paraJson(Object dados)
+    {
+        try
+        {
+            return objectMapper.writeValueAsString(dados);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException("Não foi possível serializar o evento de alteração", e);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.config.AlteracoesProperties;
+import com.example.demo.dto.EventoAlteracaoDTO;
+import com.example.demo.model.EventoAlteracao;
+import com.example.demo.repository.EventoAlteracaoRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Entrega aos assinantes, em ordem, as alterações gravadas pelo {@link OutboxDeAlteracoes}.
+ * Uma única thread lê os eventos pendentes em lotes, numera-os com posições consecutivas (a ordem de entrega,
+ * sem lacunas) e repassa cada lote a um {@link SubmissionPublisher}, que faz as vezes de broker local.
+ * A thread é acordada a cada commit que grava eventos e, por segurança, a cada intervalo configurado.
+ * No modo cluster todas as instâncias publicam: a numeração é feita sob uma trava do banco, por uma instância
+ * de cada vez, e as demais só percebem que a última posição avançou e entregam aos seus assinantes relendo do banco.
+ * Cada assinante tem um buffer limitado de lotes; um assinante lento não segura os demais nem o publicador:
+ * os lotes que não cabem no buffer são descartados para ele e relidos do banco quando ele alcançar,
+ * a partir da última posição que recebeu.
+ */
+@Service
+public class PublicadorDeAlteracoes
+{
+    private static final Logger log = LoggerFactory.getLogger(PublicadorDeAlteracoes.class);
+    // Chave da trava do banco que escolhe a instância que numera os eventos (ver TravaDistribuida)
+    static final long TRAVA_NUMERACAO = -1L;
+
+    private final EventoAlteracaoRepository eventoRepository;
+    private final TransactionTemplate transacao;
+    private final TravaDistribuida travaDistribuida;
+    private final AlteracoesProperties propriedades;
+    private final SubmissionPublisher<List<EventoAlteracaoDTO>> broker;
+    private final ScheduledExecutorService relay;
+    // Evita enfileirar uma leitura por commit quando já há uma a caminho
+    private final AtomicBoolean avisado = new AtomicBoolean();
+    // Última posição já confirmada no banco e repassada ao broker
+    private volatile long ultimaPosicao;
+
+    /**
+     * Assinatura das alterações; {@link #cancelar()} para de entregar lotes ao consumidor.
+     */
+    public interface Assinatura
+    {
+        void cancelar();
+    }
+
+    public PublicadorDeAlteracoes(EventoAlteracaoRepository eventoRepository, TransactionTemplate transacao,
+            TravaDistribuida travaDistribuida, AlteracoesProperties propriedades, MeterRegistry meterRegistry)
+    {
+        this.eventoRepository = eventoRepository;
+        this.transacao = transacao;
+        this.travaDistribuida = travaDistribuida;
+        this.propriedades = propriedades;
+        // Cada assinante é atendido em uma thread virtual, já que a entrega costuma esperar pela rede
+        this.broker = new SubmissionPublisher<>(Executors.newVirtualThreadPerTaskExecutor(), propriedades.bufferPorAssinante());
+        this.relay = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("publicador-alteracoes").daemon().factory());
+
+        Gauge.builder("alteracoes.assinantes", broker, SubmissionPublisher::getNumberOfSubscribers)
+                .description("Assinantes do fluxo de alterações de casas e reservas")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar()
+    {
+        ultimaPosicao = eventoRepository.buscarUltimaPosicao();
+        if (!propriedades.publicar())
+        {
+            return;
+        }
+        long intervalo = propriedades.intervalo().toMillis();
+        relay.scheduleWithFixedDelay(this::publicarPendentes, 0, intervalo, TimeUnit.MILLISECONDS);
+        relay.scheduleWithFixedDelay(this::apagarAntigos, 1, 60, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    void encerrar()
+    {
+        relay.shutdownNow();
+        // Avisa os assinantes (onComplete); eles retomam de onde pararam na próxima conexão
+        broker.close();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        avisar();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarReserva(ReservaAlteradaEvent evento)
+    {
+        avisar();
+    }
+
+    private void avisar()
+    {
+        if (propriedades.publicar() && avisado.compareAndSet(false, true))
+        {
+            relay.execute(this::publicarPendentes);
+        }
+    }
+
+    /**
+     * Assina as alterações posteriores a uma posição.
+     * Primeiro são relidos do banco os eventos já publicados depois dela; em seguida chegam os novos, em lotes.
+     * Eventos apagados pela retenção não são relidos: a posição do primeiro evento recebido salta.
+     * @param apos Última posição que o consumidor já recebeu, ou null para receber só as próximas alterações.
+     * @param consumidor Recebe cada lote, sempre em ordem de posição e sem repetições, em uma thread própria
+     *        da assinatura. Se lançar uma exceção, a assinatura é cancelada.
+     * @param aoEncerrar Executado quando a assinatura termina, seja por cancelamento, erro ou desligamento.
+     * @return A assinatura, para cancelá-la.
+     * @throws IllegalStateException se a publicação estiver desligada nesta instância.
+     */
+    public Assinatura assinar(Long apos, Consumer<List<EventoAlteracaoDTO>> consumidor, Runnable aoEncerrar)
+    {
+        if (!propriedades.publicar())
+        {
+            throw new IllegalStateException("A publicação de alterações está desligada nesta instância.");
+        }
+        Assinante assinante = new Assinante(apos != null ? apos : ultimaPosicao, consumidor, aoEncerrar);
+        broker.subscribe(assinante);
+        return assinante;
+    }
+
+    /**
+     * Última posição publicada; é o ponto de partida de quem assina sem informar uma posição.
+     */
+    public long ultimaPosicao()
+    {
+        return ultimaPosicao;
+    }
+
+    // Executado só na thread do relay: numera e repassa os pendentes até esvaziar
+    void publicarPendentes()
+    {
+        avisado.set(false);
+        try
+        {
+            List<EventoAlteracaoDTO> lote;
+            do
+            {
+                lote = transacao.execute(status -> numerarPendentes());
+                if (!lote.isEmpty())
+                {
+                    ultimaPosicao = lote.get(lote.size() - 1).getPosicao();
+                    // offer não bloqueia: para quem está com o buffer cheio o lote é descartado e relido depois
+                    broker.offer(lote, (assinante, descartado) -> false);
+                }
+            }
+            while (lote.size() == propriedades.tamanhoLote());
+
+            // No modo cluster outra instância pode ter numerado eventos; um lote vazio faz os assinantes
+            // desta instância relerem do banco o que ela publicou
+            if (travaDistribuida.compartilhada())
+            {
+                long noBanco = eventoRepository.buscarUltimaPosicao();
+                if (noBanco > ultimaPosicao)
+                {
+                    ultimaPosicao = noBanco;
+                    broker.offer(List.of(), (assinante, descartado) -> false);
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            log.warn("Falha ao publicar alterações; nova tentativa em {}", propriedades.intervalo(), e);
+        }
+    }
+
+    // Executado numa transação: os eventos só ganham posição se a numeração inteira for confirmada
+    private List<EventoAlteracaoDTO> numerarPendentes()
+    {
+        // Com outra instância numerando ao mesmo tempo, as posições se repetiriam
+        if (!travaDistribuida.tentarTravar(TRAVA_NUMERACAO))
+        {
+            return List.of();
+        }
+        List<EventoAlteracao> pendentes = eventoRepository.buscarPendentes(Limit.of(propriedades.tamanhoLote()));
+        long posicao = eventoRepository.buscarUltimaPosicao();
+        Instant agora = Instant.now();
+        for (EventoAlteracao evento : pendentes)
+        {
+            evento.setPosicao(++posicao);
+            evento.setPublicadoEm(agora);
+        }
+        return pendentes.stream()
+                .map(evento -> new EventoAlteracaoDTO(evento.getPosicao(), evento.getEntidade(), evento.getTipo(),
+                        evento.getEntidadeId(), evento.getDados(), evento.getCriadoEm()))
+                .toList();
+    }
+
+    void apagarAntigos()
+    {
+        try
+        {
+            Integer apagados = transacao.execute(status ->
+                    eventoRepository.apagarPublicadosAntes(Instant.now().minus(propriedades.retencao())));
+            if (apagados != null && apagados > 0)
+            {
+                log.info("Apagados {} eventos de alteração publicados há mais de {}", apagados, propriedades.retencao());
+            }
+        }
+        catch (RuntimeException e)
+        {
+            log.warn("Falha ao apagar eventos de alteração antigos", e);
+        }
+    }
+
+    // O broker chama os métodos de um mesmo assinante sempre um de cada vez, então "entregue" dispensa sincronização
+    private final class Assinante implements Flow.Subscriber<List<EventoAlteracaoDTO>>, Assinatura
+    {
+        private final Consumer<List<EventoAlteracaoDTO>> consumidor;
+        private final Runnable aoEncerrar;
+        private final AtomicBoolean encerrada = new AtomicBoolean();
+        private volatile Flow.Subscription inscricao;
+        private volatile boolean cancelada;
+        private long entregue;
+
+        Assinante(long apos, Consumer<List<EventoAlteracaoDTO>> consumidor, Runnable aoEncerrar)
+        {
+            this.entregue = apos;
+            this.consumidor = consumidor;
+            this.aoEncerrar = aoEncerrar;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription inscricao)
+        {
+            this.inscricao = inscricao;
+            if (cancelada)
+            {
+                inscricao.cancel();
+                return;
+            }
+            // Os lotes que chegarem durante a releitura esperam no buffer; os repetidos são ignorados
+            if (alcancar())
+            {
+                inscricao.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<EventoAlteracaoDTO> lote)
+        {
+            if (cancelada)
+            {
+                return;
+            }
+            // Se lotes anteriores foram descartados, o lote não emenda no que foi entregue e tudo vem do banco
+            boolean emenda = !lote.isEmpty() && lote.get(0).getPosicao() <= entregue + 1;
+            if (emenda && !entregar(lote.stream().filter(evento -> evento.getPosicao() > entregue).toList()))
+            {
+                return;
+            }
+            // Também recupera lotes descartados depois deste, já que a última posição é atualizada antes da oferta
+            if (alcancar())
+            {
+                inscricao.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable erro)
+        {
+            encerrar();
+        }
+
+        @Override
+        public void onComplete()
+        {
+            encerrar();
+        }
+
+        @Override
+        public void cancelar()
+        {
+            cancelada = true;
+            Flow.Subscription atual = inscricao;
+            if (atual != null)
+            {
+                atual.cancel();
+            }
+            encerrar();
+        }
+
+        // Relê do banco o que foi publicado entre a última posição entregue e a última publicada
+        private boolean alcancar()
+        {
+            long ate = ultimaPosicao;
+            while (entregue < ate && !cancelada)
+            {
+                List<EventoAlteracaoDTO> lote = eventoRepository.buscarPublicados(entregue, ate,
+                        Limit.of(propriedades.tamanhoLote()));
+                if (lote.isEmpty() || !entregar(lote))
+                {
+                    break;
+                }
+            }
+            return !cancelada;
+        }
+
+        private boolean entregar(List<EventoAlteracaoDTO> lote)
+        {
+            if (lote.isEmpty())
+            {
+                return true;
+            }
+            try
+            {
+                consumidor.accept(lote);
+                entregue = lote.get(lote.size() - 1).getPosicao();
+                return true;
+            }
+            catch (RuntimeException e)
+            {
+                log.debug("Assinatura de alterações cancelada pelo consumidor", e);
+                cancelar();
+                return false;
+            }
+        }
+
+        private void encerrar()
+        {
+            if (encerrada.compareAndSet(false, true) && aoEncerrar != null)
+            {
+                aoEncerrar.run();
+            }
+        }
+    }
+}
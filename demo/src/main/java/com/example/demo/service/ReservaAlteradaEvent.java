@@ -0,0 +1,36 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ReservaOcupacao;
+import com.example.demo.model.Reserva;
+
+/**
+ * Evento publicado sempre que uma reserva é criada (pela API síncrona ou pela fila) ou cancelada,
+ * para que estruturas mantidas em memória acompanhem as reservas sem reler a tabela.
+ * Os ouvintes recebem o evento depois do commit.
+ * @param reserva O período, hóspedes e diária da reserva.
+ * @param cancelada true se a reserva foi cancelada, false se foi criada.
+ * @param remota true se a alteração foi feita por outra instância e chegou pelos {@link AvisosEntreInstancias}.
+ */
+public record ReservaAlteradaEvent(ReservaOcupacao reserva, boolean cancelada, boolean remota) 
+{
+    public ReservaAlteradaEvent(ReservaOcupacao reserva, boolean cancelada) 
+    {
+        this(reserva, cancelada, false);
+    }
+
+    public static ReservaAlteradaEvent criada(Reserva reserva) 
+    {
+        return new ReservaAlteradaEvent(new ReservaOcupacao(reserva.getId(), reserva.getCasa().getId(),
+                reserva.getCheckIn(), reserva.getCheckOut(), reserva.getQuantidadePessoas(), reserva.getPrecoDiaria()), false);
+    }
+
+    public static ReservaAlteradaEvent cancelada(ReservaOcupacao reserva) 
+    {
+        return new ReservaAlteradaEvent(reserva, true);
+    }
+
+    public static ReservaAlteradaEvent deOutraInstancia(ReservaOcupacao reserva, boolean cancelada) 
+    {
+        return new ReservaAlteradaEvent(reserva, cancelada, true);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.demo.service;
+
+/**
+ * Lançada quando o período pedido se sobrepõe a uma reserva existente da casa.
+ * Continua sendo uma {@link IllegalArgumentException}, como as demais validações da reserva.
+ */
+public class ReservaConflitanteException extends IllegalArgumentException
+{
+    public ReservaConflitanteException(String mensagem)
+    {
+        super(mensagem);
+    }
+}
@@ -1,43 +1,396 @@
 package com.example.demo.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.demo.dto.ItemLoteReservaDTO;
+import com.example.demo.dto.PaginaReservasDTO;
+import com.example.demo.dto.PeriodoReserva;
+import com.example.demo.dto.ReservaLoteResponseDTO;
+import com.example.demo.dto.ReservaOcupacao;
+import com.example.demo.dto.ReservaRequestDTO;
+import com.example.demo.dto.ReservaResponseDTO;
 import com.example.demo.model.Casa;
 import com.example.demo.model.Reserva;
-import com.example.demo.repository.CasaRepository;
 import com.example.demo.repository.ReservaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class ReservaService 
 {
     
     private final ReservaRepository reservaRepository;
-    private final CasaRepository casaRepository;
+    private final CasaService casaService;
+    private final CalendarioDisponibilidade calendario;
+    private final TravasPorCasa travas;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventos;
+    private final TransactionTemplate transacao;
+    private final TravaDistribuida travaDistribuida;
+
+    static final int LIMITE_MAXIMO_PAGINA = 500;
+    static final int MAXIMO_ITENS_LOTE = 100;
+
+    // Situação de cada item de um lote de reservas
+    public static final String CRIADA = "CRIADA";
+    public static final String CONFLITO = "CONFLITO";
+    public static final String INVALIDA = "INVALIDA";
+    public static final String NAO_GRAVADA = "NAO_GRAVADA";
+    private static final String MENSAGEM_CONFLITO = "A casa já está reservada para o período solicitado.";
+
+    // SQLSTATE do Postgres para violação de restrição de exclusão (reservas_sem_sobreposicao)
+    static final String VIOLACAO_DE_EXCLUSAO = "23P01";
 
     public ReservaService(ReservaRepository reservaRepository,
-    CasaRepository casaRepository)
+    CasaService casaService, CalendarioDisponibilidade calendario, TravasPorCasa travas,
+    ObjectMapper objectMapper, MeterRegistry meterRegistry, ApplicationEventPublisher eventos,
+    TransactionTemplate transacao, TravaDistribuida travaDistribuida)
     {
+        this.transacao = transacao;
+        this.travaDistribuida = travaDistribuida;
+        this.eventos = eventos;
+        this.meterRegistry = meterRegistry;
         this.reservaRepository = reservaRepository;
-        this.casaRepository = casaRepository;
+        this.casaService = casaService;
+        this.calendario = calendario;
+        this.travas = travas;
+        this.objectMapper = objectMapper;
     }
 
-    //Método para criar uma nova reserva
+    //Método para criar uma nova reserva; o tempo fica na métrica reservas.criacao,
+    //separado entre reservas criadas, recusadas por conflito de datas e recusadas por outras validações
 
     public Reserva criarReserva(Reserva reserva)
+    {
+        Timer.Sample amostra = Timer.start();
+        String resultado = "erro";
+        try 
+        {
+            Reserva novaReserva = validarEGravar(reserva);
+            resultado = "criada";
+            return novaReserva;
+        } 
+        catch (ReservaConflitanteException e) 
+        {
+            resultado = "conflito";
+            throw e;
+        } 
+        catch (IllegalArgumentException e) 
+        {
+            resultado = "invalida";
+            throw e;
+        } 
+        finally 
+        {
+            amostra.stop(Timer.builder("reservas.criacao")
+                    .description("Criação de reservas, por resultado")
+                    .tag("resultado", resultado)
+                    .register(meterRegistry));
+        }
+    }
+
+    private Reserva validarEGravar(Reserva reserva)
     
     {
 
-        //Verifica se a casa existe 
-        Casa casa = casaRepository.findById(reserva.getCasa().getId())
+        //Verifica se a casa existe (lida do cache de casas, sem ida ao banco na maioria das reservas)
+        Casa casa = casaService.buscarCasaPorId(reserva.getCasa().getId())
        .orElseThrow(() -> new RuntimeException("Casa não encontrada com ID: " + reserva.getCasa().getId()));  
                                
-        //Garante que a casa associada é a do banco de dados
-        reserva.setCasa(casa);                                                                                                                          
+        //Garante que a casa associada é a do banco de dados, e guarda a diária cobrada
+        reserva.setCasa(casa);
+        reserva.setPrecoDiaria(casa.getPrecoDiaria());                                                                                                                          
     
+        validarDados(reserva, casa);
+
+        // A verificação de disponibilidade e a gravação acontecem sob a trava da casa,
+        // para que duas requisições simultâneas não reservem o mesmo período
+        return travas.executar(casa.getId(), () -> 
+        {
+            // Verificar disponibilidade da casa para as datas no calendário em memória; no modo cluster ele pode
+            // estar atrasado, e a verificação fica para dentro da transação, com a casa travada em todas as instâncias
+            if (!travaDistribuida.compartilhada())
+            {
+                conferirDisponibilidade(reserva);
+            }
+
+            Reserva novaReserva;
+            try 
+            {
+                // O evento é publicado dentro da transação para que o outbox de alterações o grave junto com a reserva
+                novaReserva = transacao.execute(status -> 
+                {
+                    if (travarNoCluster(List.of(casa.getId())))
+                    {
+                        conferirDisponibilidade(reserva);
+                    }
+                    Reserva gravada = reservaRepository.saveAndFlush(reserva);
+                    eventos.publishEvent(ReservaAlteradaEvent.criada(gravada));
+                    return gravada;
+                });
+            } 
+            catch (DataIntegrityViolationException e) 
+            {
+                // O calendário é local a esta instância; a restrição de exclusão do banco
+                // recusa a sobreposição gravada por outra instância
+                if (violouExclusao(e))
+                {
+                    throw new ReservaConflitanteException(MENSAGEM_CONFLITO);
+                }
+                throw e;
+            }
+            calendario.registrar(casa.getId(), novaReserva.getId(), novaReserva.getCheckIn(), novaReserva.getCheckOut());
+            return novaReserva;
+        });
+ 
+    }
+
+    private void conferirDisponibilidade(Reserva reserva)
+    {
+        if (!calendario.estaDisponivel(reserva.getCasa().getId(), reserva.getCheckIn(), reserva.getCheckOut())) 
+        {
+            throw new ReservaConflitanteException(MENSAGEM_CONFLITO);
+        }
+    }
+
+    // No modo cluster, dentro da transação: trava as casas em todas as instâncias até o commit e relê o calendário
+    // delas do banco, que passa a incluir as reservas gravadas por outras instâncias. Com uma instância não faz nada
+    private boolean travarNoCluster(Collection<Long> casaIds)
+    {
+        if (!travaDistribuida.travarCasas(casaIds))
+        {
+            return false;
+        }
+        calendario.recarregar(casaIds);
+        return true;
+    }
+
+    /**
+     * Cria várias reservas de uma vez, em regime de tudo ou nada: ou todas são gravadas, ou nenhuma.
+     * Todas as casas do lote são lidas em uma consulta e todos os itens são conferidos antes de qualquer
+     * gravação, de modo que a resposta aponta todos os problemas de uma vez. As reservas aceitas são gravadas
+     * em uma única transação, com inserts em lote. O tempo fica na métrica reservas.lote.
+     * @param itens As reservas pedidas (no máximo {@value #MAXIMO_ITENS_LOTE}).
+     * @return O resultado de cada item e se o lote foi gravado.
+     * @throws IllegalArgumentException se o lote estiver vazio ou passar do tamanho máximo.
+     */
+    public ReservaLoteResponseDTO criarReservasEmLote(List<ReservaRequestDTO> itens)
+    {
+        if (itens == null || itens.isEmpty() || itens.size() > MAXIMO_ITENS_LOTE)
+        {
+            throw new IllegalArgumentException("Informe entre 1 e " + MAXIMO_ITENS_LOTE + " reservas no lote.");
+        }
+
+        Timer.Sample amostra = Timer.start();
+        List<ItemLoteReservaDTO> resultados = new ArrayList<>(itens.size());
+        List<Reserva> reservas = new ArrayList<>(itens.size());
+        boolean criadas = false;
+        try
+        {
+            Map<Long, Casa> casas = casaService.buscarCasasPorIds(
+                    itens.stream().map(ReservaRequestDTO::getCasaId).filter(Objects::nonNull).toList());
+            for (int i = 0; i < itens.size(); i++)
+            {
+                ReservaRequestDTO item = itens.get(i);
+                ItemLoteReservaDTO resultado = new ItemLoteReservaDTO(i, item.getCasaId(), NAO_GRAVADA, null, null);
+                resultados.add(resultado);
+                reservas.add(prepararItemDoLote(item, casas, resultado));
+            }
+
+            // Disponibilidade e gravação sob as travas de todas as casas do lote, como em criarReserva
+            criadas = travas.executarTodas(casas.keySet(), () -> conferirEGravarLote(reservas, resultados));
+            if (!criadas)
+            {
+                resultados.stream().filter(item -> NAO_GRAVADA.equals(item.getStatus()))
+                        .forEach(item -> item.setMensagem("Reserva válida, mas o lote foi recusado por causa de outros itens."));
+            }
+            return new ReservaLoteResponseDTO(criadas, resultados);
+        }
+        finally
+        {
+            String resultado = criadas ? "criadas"
+                    : resultados.stream().anyMatch(item -> CONFLITO.equals(item.getStatus())) ? "conflito" : "invalida";
+            amostra.stop(Timer.builder("reservas.lote")
+                    .description("Criação de reservas em lote, por resultado")
+                    .tag("resultado", resultado)
+                    .register(meterRegistry));
+        }
+    }
+
+    // Validações de um item que não dependem das outras reservas; devolve null se o item foi recusado
+    private static Reserva prepararItemDoLote(ReservaRequestDTO item, Map<Long, Casa> casas, ItemLoteReservaDTO resultado)
+    {
+        if (item.getCasaId() == null || item.getNomeCliente() == null || item.getEmailCliente() == null
+                || item.getCpfCliente() == null || item.getCheckIn() == null || item.getCheckOut() == null
+                || item.getQuantidadePessoas() == null)
+        {
+            recusar(resultado, INVALIDA, "Todos os campos da reserva são obrigatórios.");
+            return null;
+        }
+        Casa casa = casas.get(item.getCasaId());
+        if (casa == null)
+        {
+            recusar(resultado, INVALIDA, "Casa não encontrada com ID: " + item.getCasaId());
+            return null;
+        }
+
+        Reserva reserva = new Reserva();
+        reserva.setCasa(casa);
+        reserva.setPrecoDiaria(casa.getPrecoDiaria());
+        reserva.setNomeCliente(item.getNomeCliente());
+        reserva.setEmailCliente(item.getEmailCliente());
+        reserva.setCpfCliente(item.getCpfCliente());
+        reserva.setCheckIn(item.getCheckIn());
+        reserva.setCheckOut(item.getCheckOut());
+        reserva.setQuantidadePessoas(item.getQuantidadePessoas());
+        try
+        {
+            validarDados(reserva, casa);
+        }
+        catch (IllegalArgumentException e)
+        {
+            recusar(resultado, INVALIDA, e.getMessage());
+            return null;
+        }
+        return reserva;
+    }
+
+    // Executado sob as travas das casas do lote: confere a disponibilidade de todos os itens e, se nenhum
+    // foi recusado, grava todos
+    private boolean conferirEGravarLote(List<Reserva> reservas, List<ItemLoteReservaDTO> resultados)
+    {
+        try
+        {
+            // A conferência fica na transação da gravação para que, no modo cluster, as casas já estejam
+            // travadas em todas as instâncias e com o calendário relido do banco
+            boolean gravado = Boolean.TRUE.equals(transacao.execute(status -> 
+            {
+                travarNoCluster(reservas.stream().filter(Objects::nonNull).map(reserva -> reserva.getCasa().getId()).toList());
+                if (!conferirLote(reservas, resultados))
+                {
+                    return false;
+                }
+                // Com IDs vindos da sequence, os inserts saem em lote; o flush faz a restrição de exclusão
+                // do Postgres falhar aqui, e não no commit
+                reservaRepository.saveAllAndFlush(reservas);
+                reservas.forEach(reserva -> eventos.publishEvent(ReservaAlteradaEvent.criada(reserva)));
+                return true;
+            }));
+            if (!gravado)
+            {
+                return false;
+            }
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            if (!violouExclusao(e))
+            {
+                throw e;
+            }
+            // Outra instância reservou algum desses períodos e a transação do lote foi desfeita
+            apontarConflitosNoBanco(reservas, resultados);
+            return false;
+        }
+
+        for (int i = 0; i < reservas.size(); i++)
+        {
+            Reserva reserva = reservas.get(i);
+            calendario.registrar(reserva.getCasa().getId(), reserva.getId(), reserva.getCheckIn(), reserva.getCheckOut());
+            resultados.get(i).setStatus(CRIADA);
+            resultados.get(i).setReservaId(reserva.getId());
+        }
+        return true;
+    }
+
+    // Aponta os itens que conflitam com reservas do calendário ou com itens anteriores do lote;
+    // false se algum item foi recusado, por conflito ou pelas validações anteriores
+    private boolean conferirLote(List<Reserva> reservas, List<ItemLoteReservaDTO> resultados)
+    {
+        for (int i = 0; i < reservas.size(); i++)
+        {
+            Reserva reserva = reservas.get(i);
+            // O calendário não conhece os outros itens do lote, então eles são conferidos à parte
+            if (reserva != null && (!calendario.estaDisponivel(reserva.getCasa().getId(), reserva.getCheckIn(), reserva.getCheckOut())
+                    || sobrepoeItemAnterior(reservas, i)))
+            {
+                recusar(resultados.get(i), CONFLITO, MENSAGEM_CONFLITO);
+            }
+        }
+        return resultados.stream().allMatch(item -> NAO_GRAVADA.equals(item.getStatus()));
+    }
+
+    private static boolean sobrepoeItemAnterior(List<Reserva> reservas, int indice)
+    {
+        Reserva reserva = reservas.get(indice);
+        for (int i = 0; i < indice; i++)
+        {
+            Reserva outra = reservas.get(i);
+            if (outra != null && outra.getCasa().getId().equals(reserva.getCasa().getId())
+                    && reserva.getCheckIn().isBefore(outra.getCheckOut()) && reserva.getCheckOut().isAfter(outra.getCheckIn()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Descobre, com uma consulta sobre todas as casas do lote, quais itens cruzam reservas gravadas por outra instância
+    private void apontarConflitosNoBanco(List<Reserva> reservas, List<ItemLoteReservaDTO> resultados)
+    {
+        LocalDate de = reservas.stream().map(Reserva::getCheckIn).min(LocalDate::compareTo).orElseThrow();
+        LocalDate ate = reservas.stream().map(Reserva::getCheckOut).max(LocalDate::compareTo).orElseThrow();
+        List<PeriodoReserva> gravados = reservaRepository.buscarPeriodosSobrepostos(
+                reservas.stream().map(reserva -> reserva.getCasa().getId()).distinct().toList(), de, ate);
+
+        boolean encontrado = false;
+        for (int i = 0; i < reservas.size(); i++)
+        {
+            Reserva reserva = reservas.get(i);
+            boolean conflita = gravados.stream().anyMatch(periodo -> periodo.getCasaId().equals(reserva.getCasa().getId())
+                    && reserva.getCheckIn().isBefore(periodo.getCheckOut()) && reserva.getCheckOut().isAfter(periodo.getCheckIn()));
+            if (conflita)
+            {
+                recusar(resultados.get(i), CONFLITO, MENSAGEM_CONFLITO);
+                encontrado = true;
+            }
+        }
+        if (!encontrado)
+        {
+            // A reserva concorrente já foi cancelada; sem saber qual item conflitou, todos ficam como conflito
+            resultados.forEach(item -> recusar(item, CONFLITO, MENSAGEM_CONFLITO));
+        }
+    }
+
+    private static void recusar(ItemLoteReservaDTO resultado, String status, String mensagem)
+    {
+        resultado.setStatus(status);
+        resultado.setMensagem(mensagem);
+    }
+        
+    // Validações que não dependem das outras reservas; também usadas pela fila de reservas assíncronas
+    static void validarDados(Reserva reserva, Casa casa)
+    {
         // Valida as datas (check-in não pode ser depois de check-out, datas futuras, etc)
         if (reserva.getCheckIn().isAfter(reserva.getCheckOut()))
         {
@@ -50,47 +403,118 @@ public class ReservaService
 
         }
             
-         // Verificar disponibilidade da casa para as datas 
-        List<Reserva> reservasConflitantes = reservaRepository.findByCasaAndCheckInBeforeAndCheckOutAfter(
-            casa,
-            reserva.getCheckOut(), // checkOut da NOVA reserva
-            reserva.getCheckIn()   // checkIn da NOVA reserva
-        );
-
-        if (!reservasConflitantes.isEmpty()) 
-        {
-            throw new IllegalArgumentException("A casa já está reservada para o período solicitado.");
-        }
-
         //Verifica capacidade de pessoas  
         if (reserva.getQuantidadePessoas() > casa.getCapacidadePessoas()) 
         {
             throw new IllegalArgumentException("A quantidade de pessoas excede a capacidade da casa.");
         }
+    }
 
-         return reservaRepository.save(reserva);
- 
+    // Procura, na cadeia de causas, o erro do driver com o SQLSTATE de violação de exclusão
+    static boolean violouExclusao(Throwable erro)
+    {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause())
+        {
+            if (causa instanceof SQLException sql && VIOLACAO_DE_EXCLUSAO.equals(sql.getSQLState()))
+            {
+                return true;
+            }
+        }
+        return false;
     }
         
-         public List<Reserva> listarTodasAsReservas() 
-         {
-         return reservaRepository.findAll();
+        /**
+         * Lista reservas com paginação por cursor (keyset) sobre o ID.
+         * @param apos ID da última reserva recebida na página anterior, ou null para começar do início.
+         * @param limite Quantidade máxima de reservas na página (limitada a {@value #LIMITE_MAXIMO_PAGINA}).
+         * @param casaId Filtro opcional pela casa.
+         * @param de Filtro opcional: reservas com check-out depois desta data.
+         * @param ate Filtro opcional: reservas com check-in antes desta data.
+         * @param cpfCliente Filtro opcional pelo CPF do cliente.
+         * @param emailCliente Filtro opcional pelo e-mail do cliente.
+         * @return A página de reservas e o cursor para a próxima página.
+         */
+        public PaginaReservasDTO listarReservas(Long apos, int limite, Long casaId, LocalDate de, LocalDate ate,
+        String cpfCliente, String emailCliente) 
+        {
+            int tamanho = Math.max(1, Math.min(limite, LIMITE_MAXIMO_PAGINA));
+            List<ReservaResponseDTO> itens = reservaRepository.buscarPagina(
+                    apos != null ? apos : 0L, casaId, de, ate, cpfCliente, emailCliente, Limit.of(tamanho));
 
-         }
+            // Só existe próxima página se esta veio cheia
+            Long proximoCursor = itens.size() == tamanho ? itens.get(itens.size() - 1).getId() : null;
+            return new PaginaReservasDTO(itens, proximoCursor);
+        }
 
-        public Optional<Reserva> buscarReservaPorId(Long id) 
+        /**
+         * Exporta as reservas filtradas em NDJSON (uma reserva por linha), lendo o banco com um cursor.
+         * As linhas são lidas como DTOs, que não ficam no contexto de persistência, então o consumo
+         * de memória não cresce com a quantidade de reservas.
+         * @param saida Onde as linhas são escritas.
+         * @param casaId Filtro opcional pela casa.
+         * @param de Filtro opcional: reservas com check-out depois desta data.
+         * @param ate Filtro opcional: reservas com check-in antes desta data.
+         * @param cpfCliente Filtro opcional pelo CPF do cliente.
+         * @param emailCliente Filtro opcional pelo e-mail do cliente.
+         * @throws IOException se a escrita falhar (por exemplo, cliente desconectado).
+         */
+        @Transactional(readOnly = true)
+        public void exportarReservas(OutputStream saida, Long casaId, LocalDate de, LocalDate ate,
+        String cpfCliente, String emailCliente) throws IOException 
         {
-        return reservaRepository.findById(id);
+            try (Stream<ReservaResponseDTO> reservas = reservaRepository.buscarParaExportacao(casaId, de, ate, cpfCliente, emailCliente)) 
+            {
+                Iterator<ReservaResponseDTO> iterador = reservas.iterator();
+                while (iterador.hasNext()) 
+                {
+                    saida.write(objectMapper.writeValueAsBytes(iterador.next()));
+                    saida.write('\n');
+                }
+            }
+        }
+
+        /**
+         * Converte uma entidade {@link Reserva} para um {@link ReservaResponseDTO}.
+         * @param reserva A entidade a ser convertida.
+         * @return O DTO de resposta da reserva.
+         */
+        public static ReservaResponseDTO convertToResponseDTO(Reserva reserva) 
+        {
+            ReservaResponseDTO resposta = new ReservaResponseDTO();
+            resposta.setId(reserva.getId());
+            resposta.setCasaId(reserva.getCasa().getId());
+            resposta.setCasaNome(reserva.getCasa().getNome());
+            resposta.setNomeCliente(reserva.getNomeCliente());
+            resposta.setEmailCliente(reserva.getEmailCliente());
+            resposta.setCpfCliente(reserva.getCpfCliente());
+            resposta.setCheckIn(reserva.getCheckIn());
+            resposta.setCheckOut(reserva.getCheckOut());
+            resposta.setQuantidadePessoas(reserva.getQuantidadePessoas());
+            return resposta;
+        }
+
+        public Optional<ReservaResponseDTO> buscarReservaPorId(Long id) 
+        {
+        return reservaRepository.buscarResposta(id);
         }
 
         public void cancelarReserva(Long id) 
         {
         
-            if (!reservaRepository.existsById(id)) 
+            // Bastam a casa, o período, os hóspedes e a diária para cancelar; a reserva e a casa não são carregadas
+            ReservaOcupacao ocupacao = reservaRepository.buscarOcupacao(id)
+            .orElseThrow(() -> new RuntimeException("Reserva não encontrada com ID: " + id));
+            Long casaId = ocupacao.getCasaId();
+            travas.executar(casaId, () -> 
             {
-            throw new RuntimeException("Reserva não encontrada com ID: " + id);
-            }
-            reservaRepository.deleteById(id);
+                transacao.executeWithoutResult(status -> 
+                {
+                    reservaRepository.deleteById(id);
+                    eventos.publishEvent(ReservaAlteradaEvent.cancelada(ocupacao));
+                });
+                calendario.remover(casaId, id);
+                return null;
+            });
     }
 }
 
@@ -0,0 +1,233 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.demo.config.PrecoProperties;
+import com.example.demo.dto.CotacaoDTO;
+import com.example.demo.dto.DiariaCotadaDTO;
+import com.example.demo.model.Casa;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Cotação de estadias a partir das regras de preço ({@link PrecoProperties}).
+ * As regras dependem só da data, e não da casa, então são compiladas em uma única tabela com o fator de cada noite
+ * do horizonte (temporada x dia da semana x demanda de última hora) e o desconto de cada duração de estadia.
+ * A diária de uma casa em uma noite é a diária da casa vezes o fator da noite, e cotar uma estadia é somar um
+ * trecho da tabela, sem avaliar regra nenhuma.
+ * A tabela é imutável e trocada inteira quando muda o dia. Quando uma reserva ou um cadastro de casa altera a
+ * ocupação das noites próximas, só o fator dessas noites é refeito, a partir das contagens já mantidas pela
+ * {@link AnaliseOcupacao}, e a tabela é trocada por uma cópia; as cotações nunca recompilam por causa de reservas.
+ */
+@Service
+public class TabelaDePrecos
+{
+    private final PrecoProperties regras;
+    private final CasaService casaService;
+    private final AnaliseOcupacao analiseOcupacao;
+    // Descontos em ordem crescente de noites mínimas
+    private final List<PrecoProperties.DescontoEstadia> descontos;
+    private volatile Tabela tabela;
+
+    // Fator de cada noite a partir de "inicio", o mesmo fator sem a demanda de última hora (temporada x dia da semana)
+    // e desconto de cada quantidade de noites (posição 0 sem uso)
+    record Tabela(LocalDate inicio, double[] fatoresBase, double[] fatores, double[] descontoPorNoites) {}
+
+    public TabelaDePrecos(PrecoProperties regras, CasaService casaService, AnaliseOcupacao analiseOcupacao)
+    {
+        this.regras = regras;
+        this.casaService = casaService;
+        this.analiseOcupacao = analiseOcupacao;
+        this.descontos = regras.descontosEstadia().stream()
+                .sorted(Comparator.comparingInt(PrecoProperties.DescontoEstadia::noitesMinimas))
+                .toList();
+    }
+
+    /**
+     * Compila a tabela para hoje, com a ocupação atual.
+     * Executado na inicialização, depois da montagem das análises de ocupação.
+     */
+    @PostConstruct
+    public synchronized void compilar()
+    {
+        LocalDate hoje = LocalDate.now();
+        compilar(hoje, analiseOcupacao.ocupacaoGeral(hoje, noitesDeUltimaHora()));
+    }
+
+    // Monta e publica a tabela; a ocupação cobre as primeiras noites a partir de hoje (as de última hora)
+    synchronized void compilar(LocalDate hoje, double[] ocupacao)
+    {
+        double[] fatoresBase = new double[regras.horizonteDias()];
+        for (int i = 0; i < fatoresBase.length; i++)
+        {
+            LocalDate noite = hoje.plusDays(i);
+            double temporadaDaNoite = 1;
+            for (PrecoProperties.Temporada temporada : regras.temporadas())
+            {
+                if (!noite.isBefore(temporada.inicio()) && !noite.isAfter(temporada.fim()))
+                {
+                    temporadaDaNoite = temporada.multiplicador();
+                }
+            }
+            fatoresBase[i] = regras.diasDaSemana().getOrDefault(noite.getDayOfWeek(), 1.0) * temporadaDaNoite;
+        }
+
+        double[] descontoPorNoites = new double[regras.horizonteDias() + 1];
+        for (PrecoProperties.DescontoEstadia desconto : descontos)
+        {
+            for (int noites = desconto.noitesMinimas(); noites < descontoPorNoites.length; noites++)
+            {
+                descontoPorNoites[noites] = Math.max(descontoPorNoites[noites], desconto.desconto());
+            }
+        }
+        tabela = new Tabela(hoje, fatoresBase, comDemanda(fatoresBase, fatoresBase, ocupacao), descontoPorNoites);
+    }
+
+    // Depois das análises de ocupação (ver a ordem em AnaliseOcupacao), para que a ocupação lida já inclua a reserva
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarReserva(ReservaAlteradaEvent evento)
+    {
+        // Só as noites de última hora dependem da ocupação; reservas mais distantes não mudam a tabela
+        LocalDate limite = LocalDate.now().plusDays(regras.ultimaHora().dias());
+        if (evento.reserva().getCheckIn().isBefore(limite))
+        {
+            atualizarDemanda();
+        }
+    }
+
+    // Cadastros e remoções mudam a quantidade de casas, e com ela a ocupação de todas as noites de última hora.
+    // Depois do IndiceColunarCasas, de onde vem a quantidade; avisos de outras instâncias não dizem se a casa é nova
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarCasa(CasaAlteradaEvent evento)
+    {
+        if (evento.cadastrada() || evento.removida() || evento.remota())
+        {
+            atualizarDemanda();
+        }
+    }
+
+    // Refaz o fator das noites de última hora com a ocupação atual e publica uma cópia da tabela. A ocupação é lida
+    // inteira de novo (e não somada à anterior), então eventos simultâneos não contam uma reserva duas vezes
+    private synchronized void atualizarDemanda()
+    {
+        Tabela atual = tabela;
+        // Com o dia virado, a próxima cotação compila a tabela inteira
+        if (atual == null || !atual.inicio().equals(LocalDate.now()))
+        {
+            return;
+        }
+        double[] ocupacao = analiseOcupacao.ocupacaoGeral(atual.inicio(), noitesDeUltimaHora());
+        tabela = new Tabela(atual.inicio(), atual.fatoresBase(), comDemanda(atual.fatoresBase(), atual.fatores(), ocupacao),
+                atual.descontoPorNoites());
+    }
+
+    // Copia os fatores e aplica o acréscimo de última hora nas primeiras noites, conforme a ocupação de cada uma
+    private double[] comDemanda(double[] fatoresBase, double[] fatores, double[] ocupacao)
+    {
+        PrecoProperties.UltimaHora ultimaHora = regras.ultimaHora();
+        double[] novos = fatores.clone();
+        for (int i = 0; i < ocupacao.length && i < novos.length; i++)
+        {
+            novos[i] = ocupacao[i] >= ultimaHora.ocupacaoMinima() ? fatoresBase[i] * ultimaHora.multiplicador() : fatoresBase[i];
+        }
+        return novos;
+    }
+
+    private int noitesDeUltimaHora()
+    {
+        return Math.min(regras.ultimaHora().dias(), regras.horizonteDias());
+    }
+
+    /**
+     * Cota uma estadia em uma casa.
+     * @param casaId O ID da casa.
+     * @param checkIn Data de entrada.
+     * @param checkOut Data de saída (a noite do check-out não é cobrada).
+     * @return O valor de cada noite, o subtotal, o desconto por estadia e o total.
+     * @throws IllegalArgumentException se o período for inválido ou passar do horizonte de cotação.
+     * @throws RuntimeException se a casa não for encontrada.
+     */
+    public CotacaoDTO cotar(Long casaId, LocalDate checkIn, LocalDate checkOut)
+    {
+        validarPeriodo(checkIn, checkOut);
+        Casa casa = casaService.buscarCasaPorId(casaId)
+                .orElseThrow(() -> new RuntimeException("Casa não encontrada com ID: " + casaId));
+        return cotar(casa, checkIn, checkOut);
+    }
+
+    /**
+     * Cota uma estadia em uma casa já carregada.
+     * @param casa A casa.
+     * @param checkIn Data de entrada.
+     * @param checkOut Data de saída (a noite do check-out não é cobrada).
+     * @return O valor de cada noite, o subtotal, o desconto por estadia e o total.
+     * @throws IllegalArgumentException se o período for inválido ou passar do horizonte de cotação.
+     */
+    public CotacaoDTO cotar(Casa casa, LocalDate checkIn, LocalDate checkOut)
+    {
+        validarPeriodo(checkIn, checkOut);
+        Tabela atual = tabelaAtual();
+        long primeira = (checkIn.toEpochDay() - atual.inicio().toEpochDay());
+        long noites = checkOut.toEpochDay() - checkIn.toEpochDay();
+        if (primeira < 0)
+        {
+            throw new IllegalArgumentException("Data de check-in deve ser no futuro. ");
+        }
+        if (primeira + noites > atual.fatores().length)
+        {
+            throw new IllegalArgumentException("Só é possível cotar estadias até " + regras.horizonteDias() + " dias à frente.");
+        }
+
+        // Valores em centavos, arredondados noite a noite, para que o total bata com a soma das diárias mostradas
+        double diaria = casa.getPrecoDiaria() * 100;
+        List<DiariaCotadaDTO> diarias = new ArrayList<>((int) noites);
+        long subtotal = 0;
+        for (int i = 0; i < noites; i++)
+        {
+            long valor = Math.round(diaria * atual.fatores()[(int) primeira + i]);
+            subtotal += valor;
+            diarias.add(new DiariaCotadaDTO(checkIn.plusDays(i), valor / 100.0));
+        }
+        long desconto = Math.round(subtotal * atual.descontoPorNoites()[(int) noites]);
+        return new CotacaoDTO(casa.getId(), checkIn, checkOut, (int) noites, diarias,
+                subtotal / 100.0, desconto / 100.0, (subtotal - desconto) / 100.0);
+    }
+
+    // Recompila se o dia virou; cotações simultâneas compilam uma vez só
+    private Tabela tabelaAtual()
+    {
+        Tabela atual = tabela;
+        if (desatualizada(atual))
+        {
+            synchronized (this)
+            {
+                atual = tabela;
+                if (desatualizada(atual))
+                {
+                    compilar();
+                    atual = tabela;
+                }
+            }
+        }
+        return atual;
+    }
+
+    private boolean desatualizada(Tabela atual)
+    {
+        return !atual.inicio().equals(LocalDate.now());
+    }
+
+    private static void validarPeriodo(LocalDate checkIn, LocalDate checkOut)
+    {
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn))
+        {
+            throw new IllegalArgumentException("Informe um check-in anterior ao check-out.");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.config.ClusterProperties;
+
+/**
+ * Travas que valem para todas as instâncias da aplicação, usando os advisory locks do Postgres
+ * (pg_advisory_xact_lock), presos à transação atual e liberados no commit ou rollback.
+ * A chave de uma casa é o próprio ID; chaves negativas ficam para recursos da aplicação.
+ * Com cluster.habilitado=false há uma única instância: {@link TravasPorCasa}, que os chamadores já seguram,
+ * faz o mesmo papel, e estes métodos não vão ao banco.
+ * O modo é lido no construtor, e não escolhido por bean condicional, pelo mesmo motivo de
+ * {@link com.example.demo.config.MigracoesConfig}.
+ */
+@Component
+public class TravaDistribuida
+{
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean compartilhada;
+
+    public TravaDistribuida(JdbcTemplate jdbcTemplate, ClusterProperties cluster)
+    {
+        this.jdbcTemplate = jdbcTemplate;
+        this.compartilhada = cluster.habilitado();
+    }
+
+    /**
+     * Indica se outras instâncias gravam no mesmo banco; nesse caso o estado em memória desta instância
+     * pode estar atrasado e decisões de conflito precisam ser conferidas no banco, sob {@link #travarCasas}.
+     */
+    public boolean compartilhada()
+    {
+        return compartilhada;
+    }
+
+    /**
+     * Trava as casas em todas as instâncias até o fim da transação atual.
+     * As travas são pegas em ordem crescente de ID, como em {@link TravasPorCasa#executarTodas}, para que lotes
+     * com casas em comum não entrem em deadlock, e em uma única ida ao banco.
+     * @param casaIds Os IDs das casas.
+     * @return true se as casas foram travadas no banco; false quando há uma única instância.
+     * @throws IllegalStateException se chamado fora de uma transação.
+     */
+    public boolean travarCasas(Collection<Long> casaIds)
+    {
+        if (!compartilhada)
+        {
+            return false;
+        }
+        exigirTransacao();
+        Long[] ids = casaIds.stream().distinct().sorted().toArray(Long[]::new);
+        if (ids.length > 0)
+        {
+            jdbcTemplate.queryForObject("SELECT count(pg_advisory_xact_lock(id)) "
+                    + "FROM (SELECT id FROM unnest(?::bigint[]) AS id ORDER BY id) AS casas", Long.class, (Object) ids);
+        }
+        return true;
+    }
+
+    /**
+     * Tenta travar um recurso da aplicação até o fim da transação atual, sem esperar.
+     * @param chave Chave negativa do recurso.
+     * @return true se a trava foi obtida (sempre, quando há uma única instância); false se outra instância já a tem.
+     * @throws IllegalStateException se chamado fora de uma transação.
+     */
+    public boolean tentarTravar(long chave)
+    {
+        if (!compartilhada)
+        {
+            return true;
+        }
+        exigirTransacao();
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, chave));
+    }
+
+    // Fora de uma transação a trava seria liberada logo ao fim da instrução, sem proteger nada
+    private static void exigirTransacao()
+    {
+        if (!TransactionSynchronizationManager.isActualTransactionActive())
+        {
+            throw new IllegalStateException("As travas do banco só valem dentro de uma transação.");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conjunto fixo de travas distribuídas pelo ID da casa (lock striping).
+ * Operações sobre a mesma casa são serializadas, enquanto casas diferentes caem, em geral,
+ * em travas diferentes e podem ser reservadas em paralelo.
+ */
+@Component
+public class TravasPorCasa 
+{
+    private final ReentrantLock[] travas;
+
+    /**
+     * @param quantidade Número de travas; arredondado para a próxima potência de dois.
+     */
+    public TravasPorCasa(@Value("${reservas.travas.quantidade:1024}") int quantidade) 
+    {
+        int tamanho = Integer.highestOneBit(Math.max(1, quantidade - 1)) << 1;
+        this.travas = new ReentrantLock[tamanho];
+        for (int i = 0; i < tamanho; i++) 
+        {
+            travas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Executa a ação segurando a trava da casa informada.
+     * @param casaId O ID da casa.
+     * @param acao A ação a ser executada com exclusividade sobre a casa.
+     * @return O resultado da ação.
+     */
+    public <T> T executar(Long casaId, Supplier<T> acao) 
+    {
+        ReentrantLock trava = travaDa(casaId);
+        trava.lock();
+        try 
+        {
+            return acao.get();
+        } 
+        finally 
+        {
+            trava.unlock();
+        }
+    }
+
+    /**
+     * Executa a ação segurando as travas de todas as casas informadas.
+     * As travas são adquiridas sempre em ordem crescente de posição no vetor, então duas chamadas com
+     * conjuntos de casas que se cruzam não entram em deadlock; casas que caem na mesma trava a adquirem uma vez só.
+     * @param casaIds Os IDs das casas.
+     * @param acao A ação a ser executada com exclusividade sobre todas as casas.
+     * @return O resultado da ação.
+     */
+    public <T> T executarTodas(Collection<Long> casaIds, Supplier<T> acao) 
+    {
+        int[] posicoes = casaIds.stream().mapToInt(this::posicaoDa).distinct().sorted().toArray();
+        int adquiridas = 0;
+        try 
+        {
+            for (int posicao : posicoes) 
+            {
+                travas[posicao].lock();
+                adquiridas++;
+            }
+            return acao.get();
+        } 
+        finally 
+        {
+            for (int i = adquiridas - 1; i >= 0; i--) 
+            {
+                travas[posicoes[i]].unlock();
+            }
+        }
+    }
+
+    ReentrantLock travaDa(Long casaId) 
+    {
+        return travas[posicaoDa(casaId)];
+    }
+
+    private int posicaoDa(Long casaId) 
+    {
+        int hash = casaId.hashCode();
+        return (hash ^ (hash >>> 16)) & (travas.length - 1);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+/**
+ * Indica que o ViaCEP não pôde ser consultado: tempo esgotado, erro de rede,
+ * circuito aberto ou limite de chamadas simultâneas atingido.
+ */
+public class ViaCepIndisponivelException extends RuntimeException 
+{
+    public ViaCepIndisponivelException(String mensagem) 
+    {
+        super(mensagem);
+    }
+
+    public ViaCepIndisponivelException(String mensagem, Throwable causa) 
+    {
+        super(mensagem, causa);
+    }
+}
@@ -1,23 +1,286 @@
 package com.example.demo.service;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import com.example.demo.config.ViaCepProperties;
 import com.example.demo.dto.ViaCepResponseDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 // Criação de um Service para uma API dia 26.09.25
+/**
+ * Consulta endereços na API ViaCEP, mantendo um cache limitado por tamanho e por tempo.
+ * CEPs inexistentes também ficam no cache (por um tempo menor), e o conteúdo pode ser salvo
+ * em disco ao desligar para que a próxima inicialização já comece com o cache aquecido.
+ * As consultas usam um único {@link HttpClient} compartilhado (com reaproveitamento de conexões),
+ * com timeouts, limite de chamadas simultâneas e circuit breaker, para que um ViaCEP lento
+ * nunca prenda as threads que atendem a API.
+ */
 @Service
-public class ViaCepService 
+public class ViaCepService
 {
-    private static final String VIA_CEP_URL = "https://viacep.com.br/ws/{cep}/json/";
-    
+    private static final Logger log = LoggerFactory.getLogger(ViaCepService.class);
+
+    private final ViaCepProperties propriedades;
+    private final ObjectMapper objectMapper;
+    private final Path snapshot;
+    private final AsyncCache<String, ResultadoCep> cache;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final Semaphore chamadasSimultaneas;
+    private final Disjuntor disjuntor;
+    private final Timer consultasNoCache;
+    private final Timer consultasAoViaCep;
+    private final Timer consultasComErro;
+
+    // Resultado guardado no cache; endereço nulo indica um CEP inexistente (cache negativo)
+    private record ResultadoCep(ViaCepResponseDTO endereco) {}
+
+    public ViaCepService(ViaCepProperties propriedades, ObjectMapper objectMapper, MeterRegistry meterRegistry)
+    {
+        this.propriedades = propriedades;
+        this.objectMapper = objectMapper;
+        this.snapshot = propriedades.cache().snapshot().isBlank() ? null : Path.of(propriedades.cache().snapshot());
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(propriedades.cache().tamanhoMaximo())
+                .expireAfter(Expiry.<String, ResultadoCep>creating((cep, resultado) ->
+                        resultado.endereco() == null ? propriedades.cache().ttlNegativo() : propriedades.cache().ttl()))
+                .recordStats()
+                .buildAsync();
+
+        // As respostas são tratadas em threads virtuais, sem ocupar as threads do Tomcat
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(propriedades.timeoutConexao())
+                .executor(executor)
+                .build();
+        this.chamadasSimultaneas = new Semaphore(propriedades.maximoChamadasSimultaneas());
+        this.disjuntor = new Disjuntor(propriedades.disjuntor().falhasParaAbrir(), propriedades.disjuntor().tempoAberto());
+
+        // Expõe acertos, falhas e remoções do cache como métricas cache.* com a tag cache=viacep
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "viacep");
+
+        // Tempo de cada consulta, separado entre resposta do cache, chamada ao ViaCEP e erro
+        this.consultasNoCache = timerDeConsultas(meterRegistry, "hit");
+        this.consultasAoViaCep = timerDeConsultas(meterRegistry, "miss");
+        this.consultasComErro = timerDeConsultas(meterRegistry, "error");
+    }
+
+    /**
+     * Busca o endereço de um CEP, consultando o ViaCEP apenas quando o CEP não está no cache.
+     * @param cep O CEP, com ou sem hífen.
+     * @return O endereço encontrado, ou null se o CEP for inválido ou não existir.
+     * @throws ViaCepIndisponivelException se o ViaCEP não puder ser consultado.
+     */
     public ViaCepResponseDTO buscarCep(String cep)
     {
-        RestTemplate restTemplate = new RestTemplate();
-        
+        try
+        {
+            return buscarCepAsync(cep).join();
+        }
+        catch (CompletionException e)
+        {
+            throw e.getCause() instanceof ViaCepIndisponivelException indisponivel
+                    ? indisponivel
+                    : new ViaCepIndisponivelException("Falha ao consultar o CEP " + cep, e.getCause());
+        }
+    }
+
+    /**
+     * Versão assíncrona de {@link #buscarCep(String)}. Consultas simultâneas ao mesmo CEP
+     * compartilham uma única chamada ao ViaCEP.
+     * @param cep O CEP, com ou sem hífen.
+     * @return Um futuro com o endereço encontrado, ou null se o CEP for inválido ou não existir.
+     */
+    public CompletableFuture<ViaCepResponseDTO> buscarCepAsync(String cep)
+    {
+        String normalizado = normalizar(cep);
+        if (normalizado == null)
+        {
+            return CompletableFuture.completedFuture(null); // Formato inválido, nem chega a consultar a API
+        }
+        Timer.Sample amostra = Timer.start();
+        // A função só é chamada (na própria thread) quando o CEP não está no cache
+        boolean[] consultouViaCep = {false};
+        CompletableFuture<ResultadoCep> futuro = cache.get(normalizado, (chave, executorCache) ->
+                {
+                    consultouViaCep[0] = true;
+                    return consultar(chave);
+                });
+        return futuro
+                .whenComplete((resultado, erro) ->
+                {
+                    // O Caffeine só descarta um futuro com erro depois que quem o aguardava já viu a falha;
+                    // retirá-lo aqui garante que a próxima consulta tente de novo (ou passe pelo circuito aberto)
+                    if (erro != null)
+                    {
+                        cache.asMap().remove(normalizado, futuro);
+                    }
+                    amostra.stop(erro != null ? consultasComErro
+                            : consultouViaCep[0] ? consultasAoViaCep : consultasNoCache);
+                })
+                .thenApply(ResultadoCep::endereco);
+    }
+
+    private static Timer timerDeConsultas(MeterRegistry meterRegistry, String resultado)
+    {
+        return Timer.builder("viacep.consultas")
+                .description("Consultas de CEP, pelo cache ou pelo ViaCEP")
+                .tag("result", resultado)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Normaliza o CEP para os 8 dígitos, que é a chave usada no cache.
+     * @param cep O CEP informado.
+     * @return O CEP só com dígitos, ou null se não tiver 8 dígitos.
+     */
+    static String normalizar(String cep)
+    {
+        if (cep == null)
+        {
+            return null;
+        }
+        String digitos = cep.replaceAll("\\D", "");
+        return digitos.length() == 8 ? digitos : null;
+    }
+
+    private CompletableFuture<ResultadoCep> consultar(String cep)
+    {
+        if (!chamadasSimultaneas.tryAcquire())
+        {
+            return CompletableFuture.failedFuture(
+                    new ViaCepIndisponivelException("Limite de consultas simultâneas ao ViaCEP atingido"));
+        }
+        if (!disjuntor.permitir())
+        {
+            chamadasSimultaneas.release();
+            return CompletableFuture.failedFuture(
+                    new ViaCepIndisponivelException("ViaCEP indisponível (circuito aberto)"));
+        }
+
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(propriedades.url().replace("{cep}", cep)))
+                .timeout(propriedades.timeoutResposta())
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+
         // Faz uma chamada GET para a API ViaCEP e converte a resposta em ViaCepResponseDTO
-        return restTemplate.getForObject(VIA_CEP_URL, ViaCepResponseDTO.class, cep);
+        return httpClient.sendAsync(requisicao, HttpResponse.BodyHandlers.ofByteArray())
+                .orTimeout(propriedades.timeoutResposta().toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(resposta -> converter(cep, resposta))
+                .whenComplete((resultado, erro) ->
+                {
+                    chamadasSimultaneas.release();
+                    if (erro == null)
+                    {
+                        disjuntor.registrarSucesso();
+                    }
+                    else
+                    {
+                        disjuntor.registrarFalha();
+                    }
+                });
     }
 
+    private ResultadoCep converter(String cep, HttpResponse<byte[]> resposta)
+    {
+        if (resposta.statusCode() == 400)
+        {
+            // O ViaCEP responde 400 para CEPs mal formatados; o resultado também vai para o cache
+            return new ResultadoCep(null);
+        }
+        if (resposta.statusCode() != 200)
+        {
+            throw new ViaCepIndisponivelException("ViaCEP respondeu " + resposta.statusCode() + " para o CEP " + cep);
+        }
+        try
+        {
+            ViaCepResponseDTO endereco = objectMapper.readValue(resposta.body(), ViaCepResponseDTO.class);
+            boolean inexistente = endereco == null || Boolean.TRUE.equals(endereco.getErro());
+            return new ResultadoCep(inexistente ? null : endereco);
+        }
+        catch (IOException e)
+        {
+            throw new ViaCepIndisponivelException("Resposta inválida do ViaCEP para o CEP " + cep, e);
+        }
+    }
 
+    @PostConstruct
+    void carregarSnapshot()
+    {
+        if (snapshot == null || !Files.exists(snapshot))
+        {
+            return;
+        }
+        try
+        {
+            Map<String, ViaCepResponseDTO> salvos = objectMapper.readValue(snapshot.toFile(),
+                    new TypeReference<Map<String, ViaCepResponseDTO>>() {});
+            salvos.forEach((cep, endereco) ->
+                    cache.put(cep, CompletableFuture.completedFuture(new ResultadoCep(endereco))));
+            log.info("Cache de CEPs carregado de {} com {} entradas", snapshot, salvos.size());
+        }
+        catch (IOException e)
+        {
+            log.warn("Não foi possível carregar o cache de CEPs de {}", snapshot, e);
+        }
+    }
+
+    void salvarSnapshot()
+    {
+        if (snapshot == null)
+        {
+            return;
+        }
+        Map<String, ViaCepResponseDTO> entradas = new HashMap<>();
+        cache.synchronous().asMap().forEach((cep, resultado) -> entradas.put(cep, resultado.endereco()));
+        try
+        {
+            // Grava em um arquivo temporário e troca no final, para não deixar um snapshot pela metade
+            Path temporario = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            objectMapper.writeValue(temporario.toFile(), entradas);
+            Files.move(temporario, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            log.warn("Não foi possível salvar o cache de CEPs em {}", snapshot, e);
+        }
+    }
+
+    @PreDestroy
+    void encerrar()
+    {
+        salvarSnapshot();
+        httpClient.close();
+        executor.close();
+    }
 }
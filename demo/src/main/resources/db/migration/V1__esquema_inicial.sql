@@ -0,0 +1,36 @@
+-- Esquema inicial: o mesmo que o Hibernate gerava com ddl-auto=update.
+-- Usa IF NOT EXISTS para que bancos já criados pelo Hibernate possam ser adotados pelo Flyway
+-- (baseline na versão 0) sem recriar nada.
+
+CREATE SEQUENCE IF NOT EXISTS casas_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS casas (
+    id                   bigint           NOT NULL PRIMARY KEY,
+    nome                 varchar(255)     NOT NULL,
+    endereco             varchar(255)     NOT NULL,
+    descricao            varchar(1000),
+    latitude             double precision,
+    longitude            double precision,
+    quantidade_quartos   integer          NOT NULL,
+    quantidade_banheiros integer          NOT NULL,
+    preco_diaria         double precision NOT NULL,
+    capacidade_pessoas   integer          NOT NULL,
+    cep                  varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS reservas (
+    id                 bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    casa_id            bigint       NOT NULL REFERENCES casas (id),
+    nome_cliente       varchar(255) NOT NULL,
+    email_cliente      varchar(255) NOT NULL,
+    cpf_cliente        varchar(255) NOT NULL,
+    check_in           date         NOT NULL,
+    check_out          date         NOT NULL,
+    quantidade_pessoas integer      NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_casas_filtro
+    ON casas (preco_diaria, quantidade_quartos, quantidade_banheiros, capacidade_pessoas);
+
+-- Bancos antigos tinham casas com ID gerado por IDENTITY: a sequence precisa começar depois do maior ID
+SELECT setval('casas_seq', (SELECT COALESCE(MAX(id), 0) FROM casas) + 50);
@@ -0,0 +1,51 @@
+-- Proteção contra reservas sobrepostas no próprio banco.
+-- O período da estadia vira uma coluna daterange gerada a partir das datas (check-out exclusivo, '[)'),
+-- e uma restrição de exclusão GiST impede duas reservas da mesma casa com períodos que se cruzam.
+-- Com isso a verificação de conflito e o insert são uma única operação indexada, válida mesmo com
+-- várias instâncias da aplicação gravando ao mesmo tempo.
+
+-- Bancos que já tinham dados podem ter reservas sobrepostas, gravadas antes da trava por casa da aplicação.
+-- Nesse caso a migração para antes de alterar qualquer coisa e a mensagem lista os pares em conflito
+-- (casa e IDs das reservas). Resolva cada par no banco, apagando a reserva indevida ou corrigindo as datas,
+-- por exemplo:
+--   DELETE FROM reservas WHERE id = <id da reserva indevida>;
+-- e rode a migração de novo; até lá a aplicação não sobe, nem com banco.migracoes.aplicar-na-inicializacao=false.
+-- Para listar todos os pares:
+--   SELECT a.casa_id, a.id, b.id FROM reservas a JOIN reservas b ON a.casa_id = b.casa_id AND a.id < b.id
+--    AND a.check_in < b.check_out AND b.check_in < a.check_out ORDER BY 1, 2, 3;
+DO $$
+DECLARE
+    total    bigint;
+    exemplos text;
+BEGIN
+    SELECT count(*), string_agg(par, '; ') FILTER (WHERE ordem <= 50)
+      INTO total, exemplos
+      FROM (SELECT format('casa %s: reservas %s e %s', a.casa_id, a.id, b.id) AS par,
+                   row_number() OVER (ORDER BY a.casa_id, a.id, b.id) AS ordem
+              FROM reservas a
+              JOIN reservas b ON a.casa_id = b.casa_id AND a.id < b.id
+                             AND a.check_in < b.check_out AND b.check_in < a.check_out) AS pares;
+    IF total > 0 THEN
+        RAISE EXCEPTION 'Há % pares de reservas sobrepostas; resolva-os antes de aplicar esta migração: %', total, exemplos
+            USING HINT = 'Apague a reserva indevida de cada par (ou corrija as datas) e rode a migração de novo; '
+                      || 'ver o comentário de V2__reservas_periodo_sem_sobreposicao.sql';
+    END IF;
+END
+$$;
+
+-- Necessária para combinar igualdade de bigint (casa_id) e sobreposição de intervalos no mesmo índice GiST
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+ALTER TABLE reservas
+    ADD COLUMN periodo daterange GENERATED ALWAYS AS (daterange(check_in, check_out, '[)')) STORED;
+
+ALTER TABLE reservas
+    ADD CONSTRAINT reservas_sem_sobreposicao
+    EXCLUDE USING gist (casa_id WITH =, periodo WITH &&);
+
+-- O índice da restrição (casa_id, periodo) também atende "quais reservas da casa cruzam este período";
+-- o índice B-tree antigo continua servindo o anti-join da busca de casas disponíveis, feito com datas
+CREATE INDEX IF NOT EXISTS idx_reservas_casa_periodo ON reservas (casa_id, check_in, check_out);
+
+-- Carga do calendário em memória na inicialização (reservas com check-out no futuro)
+CREATE INDEX IF NOT EXISTS idx_reservas_check_out ON reservas (check_out);
@@ -0,0 +1,31 @@
+-- Fila durável do modo de reserva assíncrono e sequence para gravar reservas em lote.
+
+-- Reservas passam a ter ID gerado por sequence (alocado em blocos de 50) para que o Hibernate
+-- agrupe os inserts de cada lote da fila; a coluna IDENTITY continua aceitando IDs explícitos
+CREATE SEQUENCE IF NOT EXISTS reservas_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('reservas_seq', (SELECT COALESCE(MAX(id), 0) FROM reservas) + 50);
+
+CREATE SEQUENCE IF NOT EXISTS solicitacoes_reserva_seq START WITH 1 INCREMENT BY 50;
+
+-- Sem chave estrangeira para casas ou reservas: o pedido é o registro do que o cliente enviou,
+-- inclusive de casas que não existem ou que foram removidas depois
+CREATE TABLE solicitacoes_reserva (
+    id                 bigint                   NOT NULL PRIMARY KEY,
+    chave_idempotencia varchar(100)             NOT NULL,
+    casa_id            bigint                   NOT NULL,
+    nome_cliente       varchar(255)             NOT NULL,
+    email_cliente      varchar(255)             NOT NULL,
+    cpf_cliente        varchar(255)             NOT NULL,
+    check_in           date                     NOT NULL,
+    check_out          date                     NOT NULL,
+    quantidade_pessoas integer                  NOT NULL,
+    status             varchar(20)              NOT NULL,
+    reserva_id         bigint,
+    mensagem           varchar(500),
+    criada_em          timestamp(6) with time zone NOT NULL,
+    processada_em      timestamp(6) with time zone,
+    CONSTRAINT uk_solicitacoes_reserva_chave UNIQUE (chave_idempotencia)
+);
+
+-- Só os pendentes são lidos por status (na retomada); o índice parcial fica do tamanho da fila
+CREATE INDEX idx_solicitacoes_reserva_status ON solicitacoes_reserva (status) WHERE status = 'PENDENTE';
@@ -0,0 +1,6 @@
+-- Diária cobrada em cada reserva, copiada da casa no momento da reserva.
+-- As análises de receita usam este valor, que não muda quando o preço da casa é alterado depois.
+ALTER TABLE reservas ADD COLUMN preco_diaria double precision;
+
+-- Reservas antigas recebem o preço atual da casa, que é o melhor valor disponível
+UPDATE reservas r SET preco_diaria = c.preco_diaria FROM casas c WHERE c.id = r.casa_id;
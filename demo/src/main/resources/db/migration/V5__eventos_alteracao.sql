@@ -0,0 +1,19 @@
+-- Outbox das alterações de casas e reservas: cada alteração grava um evento na mesma transação,
+-- e o publicador numera os eventos (posicao) na ordem em que os entrega aos assinantes.
+
+CREATE SEQUENCE IF NOT EXISTS eventos_alteracao_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE eventos_alteracao (
+    id           bigint                      NOT NULL PRIMARY KEY,
+    entidade     varchar(20)                 NOT NULL,
+    tipo         varchar(20)                 NOT NULL,
+    entidade_id  bigint                      NOT NULL,
+    dados        varchar(8000),
+    criado_em    timestamp(6) with time zone NOT NULL,
+    posicao      bigint,
+    publicado_em timestamp(6) with time zone,
+    CONSTRAINT uk_eventos_alteracao_posicao UNIQUE (posicao)
+);
+
+-- O publicador só lê os eventos ainda sem posição; o índice parcial fica do tamanho do que falta publicar
+CREATE INDEX idx_eventos_alteracao_pendentes ON eventos_alteracao (id) WHERE posicao IS NULL;
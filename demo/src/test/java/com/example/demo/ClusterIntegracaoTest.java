@@ -0,0 +1,259 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.model.SolicitacaoReserva;
+import com.example.demo.repository.SolicitacaoReservaRepository;
+import com.example.demo.service.FilaDeReservas;
+import com.example.demo.service.ReservaConflitanteException;
+import com.example.demo.service.ReservaService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Modo cluster de ponta a ponta: várias instâncias da aplicação, cada uma com seu servidor HTTP e seu estado
+ * em memória, sobre um único Postgres. Precisa de Docker; sem ele o teste é ignorado.
+ * A restrição de exclusão das reservas é removida antes da carga, para que só as travas do banco
+ * (advisory locks) impeçam reservas sobrepostas feitas por instâncias diferentes.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ClusterIntegracaoTest
+{
+    private static final int INSTANCIAS = 3;
+    private static final int CLIENTES_POR_INSTANCIA = 4;
+    private static final int CASAS = 40;
+    private static final Duration DURACAO_DA_CARGA = Duration.ofSeconds(8);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withCommand("postgres", "-c", "max_connections=200");
+
+    private static final List<ConfigurableApplicationContext> instancias = new ArrayList<>();
+    private static final List<String> enderecos = new ArrayList<>();
+    private static final List<Long> casaIds = new ArrayList<>();
+    private static final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private static final ObjectMapper json = new ObjectMapper().findAndRegisterModules();
+
+    @BeforeAll
+    static void iniciarInstancias() throws Exception
+    {
+        // Uma de cada vez: a primeira aplica as migrações, as demais só as conferem
+        for (int i = 0; i < INSTANCIAS; i++)
+        {
+            ConfigurableApplicationContext contexto = new SpringApplicationBuilder(DemoApplication.class).run(
+                    "--spring.datasource.url=" + POSTGRES.getJdbcUrl(),
+                    "--spring.datasource.username=" + POSTGRES.getUsername(),
+                    "--spring.datasource.password=" + POSTGRES.getPassword(),
+                    "--spring.datasource.hikari.maximum-pool-size=16",
+                    "--server.port=0",
+                    "--cluster.habilitado=true",
+                    "--alteracoes.publicar=true",
+                    "--spring.devtools.restart.enabled=false",
+                    "--spring.main.banner-mode=off");
+            instancias.add(contexto);
+            enderecos.add("http://localhost:" + ((WebServerApplicationContext) contexto).getWebServer().getPort());
+        }
+        banco().execute("ALTER TABLE reservas DROP CONSTRAINT reservas_sem_sobreposicao");
+
+        for (int i = 0; i < CASAS; i++)
+        {
+            JsonNode casa = enviar("POST", enderecos.get(i % INSTANCIAS) + "/api/casas", Map.of(
+                    "nome", "Casa " + i, "endereco", "Rua " + i, "quantidadeQuartos", 2, "quantidadeBanheiros", 1,
+                    "precoDiaria", 200.0, "capacidadePessoas", 4)).corpo();
+            casaIds.add(casa.get("id").asLong());
+        }
+    }
+
+    @AfterAll
+    static void encerrarInstancias()
+    {
+        instancias.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void reservasDeVariasInstanciasNaoSeSobrepoemEOThroughputCresceComAsInstancias() throws Exception
+    {
+        double comUma = carga(1, LocalDate.now().plusDays(10));
+        double comTodas = carga(INSTANCIAS, LocalDate.now().plusDays(400));
+        System.out.printf("reservas por segundo: 1 instância=%.0f, %d instâncias=%.0f (%.2fx)%n",
+                comUma, INSTANCIAS, comTodas, comTodas / comUma);
+
+        Long sobrepostas = banco().queryForObject("SELECT count(*) FROM reservas a JOIN reservas b "
+                + "ON a.casa_id = b.casa_id AND a.id < b.id AND a.check_in < b.check_out AND b.check_in < a.check_out",
+                Long.class);
+        assertEquals(0L, sobrepostas);
+
+        // Instâncias, clientes e banco dividem a mesma máquina; só com núcleos sobrando o ganho é medido
+        if (Runtime.getRuntime().availableProcessors() >= 8)
+        {
+            assertTrue(comTodas >= comUma * 1.5, "Sem ganho com " + INSTANCIAS + " instâncias");
+        }
+    }
+
+    @Test
+    void alteracoesDeUmaInstanciaChegamAsOutras() throws Exception
+    {
+        Long casaId = casaIds.get(0);
+        // Deixa a casa no cache da segunda instância antes de alterá-la na primeira
+        assertEquals("Casa 0", enviar("GET", enderecos.get(1) + "/api/casas/" + casaId, null).corpo().get("nome").asText());
+
+        enviar("PUT", enderecos.get(0) + "/api/casas/" + casaId, Map.of(
+                "nome", "Casa 0 reformada", "endereco", "Rua 0", "quantidadeQuartos", 3, "quantidadeBanheiros", 2,
+                "precoDiaria", 320.0, "capacidadePessoas", 6));
+        String nome = "";
+        for (int i = 0; i < 50 && !nome.equals("Casa 0 reformada"); i++)
+        {
+            Thread.sleep(100);
+            nome = enviar("GET", enderecos.get(1) + "/api/casas/" + casaId, null).corpo().get("nome").asText();
+        }
+        assertEquals("Casa 0 reformada", nome);
+
+        // O calendário da segunda instância é relido do banco sob a trava, mesmo antes de o aviso chegar
+        LocalDate checkIn = LocalDate.now().plusDays(900);
+        assertEquals(201, enviar("POST", enderecos.get(0) + "/api/reservas", reserva(casaIds.get(1), checkIn, 3)).status());
+        Casa casa = new Casa();
+        casa.setId(casaIds.get(1));
+        Reserva sobreposta = new Reserva(null, casa, "Outro", "outro@exemplo.com", "98765432100",
+                checkIn.plusDays(1), checkIn.plusDays(4), 2, null);
+        assertThrows(ReservaConflitanteException.class,
+                () -> instancias.get(1).getBean(ReservaService.class).criarReserva(sobreposta));
+    }
+
+    @Test
+    void pedidosPendentesRetomadosPorTodasAsInstanciasSaoProcessadosUmaVez() throws Exception
+    {
+        // Pares de pedidos para o mesmo período, gravados direto na tabela como se tivessem ficado pendentes
+        List<SolicitacaoReserva> pedidos = new ArrayList<>();
+        LocalDate inicio = LocalDate.now().plusDays(1500);
+        for (int i = 0; i < 60; i++)
+        {
+            LocalDate checkIn = inicio.plusDays((i / 2) % 20 * 3L);
+            pedidos.add(new SolicitacaoReserva(null, "retomada-" + i, casaIds.get(2 + i / 40), "Cliente",
+                    "cliente@exemplo.com", "12345678900", checkIn, checkIn.plusDays(2), 2,
+                    SolicitacaoReserva.Status.PENDENTE, null, null, Instant.now(), null));
+        }
+        List<Long> ids = instancias.get(0).getBean(SolicitacaoReservaRepository.class).saveAll(pedidos).stream()
+                .map(SolicitacaoReserva::getId).toList();
+
+        // Todas as instâncias retomam os mesmos pedidos ao mesmo tempo, como numa inicialização conjunta
+        instancias.parallelStream().forEach(instancia ->
+                ReflectionTestUtils.invokeMethod(instancia.getBean(FilaDeReservas.class), "retomarPendentes"));
+
+        String naLista = "IN (" + String.join(",", ids.stream().map(String::valueOf).toList()) + ")";
+        for (int i = 0; i < 100 && banco().queryForObject(
+                "SELECT count(*) FROM solicitacoes_reserva WHERE status = 'PENDENTE' AND id " + naLista, Long.class) > 0; i++)
+        {
+            Thread.sleep(100);
+        }
+        assertEquals(30L, banco().queryForObject(
+                "SELECT count(*) FROM solicitacoes_reserva WHERE status = 'CONFIRMADA' AND id " + naLista, Long.class));
+        assertEquals(30L, banco().queryForObject(
+                "SELECT count(*) FROM solicitacoes_reserva WHERE status = 'RECUSADA' AND id " + naLista, Long.class));
+        // Cada pedido confirmado aponta para uma reserva que existe, e nenhuma reserva foi gravada além delas
+        assertEquals(30L, banco().queryForObject("SELECT count(*) FROM solicitacoes_reserva s JOIN reservas r "
+                + "ON r.id = s.reserva_id WHERE s.id " + naLista, Long.class));
+        assertEquals(30L, banco().queryForObject("SELECT count(*) FROM reservas WHERE check_in >= ?",
+                Long.class, inicio));
+    }
+
+    // Reservas aleatórias durante um tempo fixo, distribuídas entre as primeiras instâncias; devolve as respostas por segundo
+    private static double carga(int quantasInstancias, LocalDate inicio) throws Exception
+    {
+        AtomicLong criadas = new AtomicLong();
+        AtomicLong recusadas = new AtomicLong();
+        long antes = banco().queryForObject("SELECT count(*) FROM reservas", Long.class);
+        long fim = System.nanoTime() + DURACAO_DA_CARGA.toNanos();
+        ExecutorService clientes = Executors.newFixedThreadPool(quantasInstancias * CLIENTES_POR_INSTANCIA);
+        try
+        {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int c = 0; c < quantasInstancias * CLIENTES_POR_INSTANCIA; c++)
+            {
+                String endereco = enderecos.get(c % quantasInstancias);
+                tarefas.add(clientes.submit(() ->
+                {
+                    ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+                    while (System.nanoTime() < fim)
+                    {
+                        LocalDate checkIn = inicio.plusDays(aleatorio.nextInt(120));
+                        int status = enviar("POST", endereco + "/api/reservas",
+                                reserva(casaIds.get(aleatorio.nextInt(CASAS)), checkIn, 1 + aleatorio.nextInt(4))).status();
+                        // Conflitos de data não têm um status próprio nesse endpoint; o banco confere o resultado no fim
+                        (status == 201 ? criadas : recusadas).incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas)
+            {
+                tarefa.get(DURACAO_DA_CARGA.toSeconds() + 30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            clientes.shutdownNow();
+        }
+
+        // Toda reserva confirmada está no banco, e nenhuma a mais
+        assertEquals(antes + criadas.get(), banco().queryForObject("SELECT count(*) FROM reservas", Long.class));
+        assertTrue(criadas.get() > 0 && recusadas.get() > 0, "Carga sem disputa: " + criadas + " criadas, " + recusadas + " recusadas");
+        return (criadas.get() + recusadas.get()) / (double) DURACAO_DA_CARGA.toSeconds();
+    }
+
+    private static Map<String, Object> reserva(Long casaId, LocalDate checkIn, int noites)
+    {
+        return Map.of("casaId", casaId, "nomeCliente", "Cliente", "emailCliente", "cliente@exemplo.com",
+                "cpfCliente", "12345678900", "checkIn", checkIn.toString(), "checkOut", checkIn.plusDays(noites).toString(),
+                "quantidadePessoas", 2);
+    }
+
+    private record Resposta(int status, JsonNode corpo) {}
+
+    private static Resposta enviar(String metodo, String url, Object corpo) throws Exception
+    {
+        HttpRequest.Builder requisicao = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json");
+        requisicao.method(metodo, corpo == null ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(json.writeValueAsString(corpo)));
+        HttpResponse<String> resposta = http.send(requisicao.build(), HttpResponse.BodyHandlers.ofString());
+        return new Resposta(resposta.statusCode(), resposta.body().isEmpty() ? null : json.readTree(resposta.body()));
+    }
+
+    private static JdbcTemplate banco()
+    {
+        return instancias.get(0).getBean(JdbcTemplate.class);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demo;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+import com.example.demo.service.ReservaConflitanteException;
+
+import jakarta.servlet.ServletException;
+
+/**
+ * Verifica que endpoints, repositórios e reservas recusadas aparecem em /actuator/prometheus.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class MetricasTest 
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @AfterEach
+    void limparReservas() 
+    {
+        reservaRepository.deleteAll();
+    }
+
+    @Test
+    void expoeTemposDeEndpointsRepositoriosEConflitosDeReserva() throws Exception 
+    {
+        Casa casa = casaRepository.save(new Casa(null, "Casa", "Rua", null, null, null, 2, 1, 200.0, 4, null));
+        LocalDate checkIn = LocalDate.now().plusDays(3);
+        String reserva = "{\"casaId\":" + casa.getId() + ",\"nomeCliente\":\"Cliente\",\"emailCliente\":\"c@exemplo.com\","
+                + "\"cpfCliente\":\"00000000000\",\"checkIn\":\"" + checkIn + "\",\"checkOut\":\"" + checkIn.plusDays(2) + "\","
+                + "\"quantidadePessoas\":2}";
+
+        mockMvc.perform(get("/api/casas")).andExpect(status().isOk());
+        mockMvc.perform(post("/api/reservas").contentType(MediaType.APPLICATION_JSON).content(reserva))
+                .andExpect(status().isCreated());
+        // O controller ainda não traduz o conflito em um status HTTP: a exceção chega ao MockMvc dentro da ServletException
+        ServletException conflito = assertThrows(ServletException.class, () ->
+                mockMvc.perform(post("/api/reservas").contentType(MediaType.APPLICATION_JSON).content(reserva)));
+        assertInstanceOf(ReservaConflitanteException.class, conflito.getCause());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+                .andExpect(content().string(containsString("uri=\"/api/casas\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_count{")))
+                .andExpect(content().string(containsString("reservas_criacao_seconds_count{application=\"reserva-de-casas\",resultado=\"conflito\"} 1")))
+                .andExpect(content().string(containsString("reservas_criacao_seconds_count{application=\"reserva-de-casas\",resultado=\"criada\"} 1")));
+    }
+}
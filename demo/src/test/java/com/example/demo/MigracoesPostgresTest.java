@@ -0,0 +1,82 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Aplica as migrações de db/migration em um Postgres de verdade, já que os testes com H2 rodam sem o Flyway.
+ * Cada teste usa um banco próprio dentro do mesmo container. Precisa de Docker; sem ele o teste é ignorado.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MigracoesPostgresTest
+{
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Test
+    void bancoVazioRecebeTodasAsMigracoes() throws SQLException
+    {
+        Flyway flyway = flyway(novoBanco("vazio"));
+
+        flyway.migrate();
+
+        assertEquals("5", flyway.info().current().getVersion().getVersion());
+    }
+
+    @Test
+    void bancoAntigoComReservasSobrepostasSoMigraDepoisDeResolvidas() throws SQLException
+    {
+        String url = novoBanco("antigo");
+        // Banco criado antes da restrição de exclusão, com duas reservas da mesma casa cruzando as datas
+        Flyway.configure().dataSource(url, POSTGRES.getUsername(), POSTGRES.getPassword()).target("1").load().migrate();
+        executar(url, "INSERT INTO casas (id, nome, endereco, quantidade_quartos, quantidade_banheiros, preco_diaria, "
+                + "capacidade_pessoas) VALUES (7, 'Casa antiga', 'Rua', 2, 1, 200, 4)");
+        executar(url, "INSERT INTO reservas (id, casa_id, nome_cliente, email_cliente, cpf_cliente, check_in, check_out, "
+                + "quantidade_pessoas) VALUES "
+                + "(11, 7, 'A', 'a@exemplo.com', '1', DATE '2026-01-10', DATE '2026-01-15', 2), "
+                + "(12, 7, 'B', 'b@exemplo.com', '2', DATE '2026-01-14', DATE '2026-01-16', 2), "
+                + "(13, 7, 'C', 'c@exemplo.com', '3', DATE '2026-01-16', DATE '2026-01-18', 2)");
+
+        FlywayException erro = assertThrows(FlywayException.class, () -> flyway(url).migrate());
+        assertTrue(erro.getMessage().contains("casa 7: reservas 11 e 12"), erro.getMessage());
+        // A V2 é desfeita inteira: o banco continua na V1
+        assertEquals("1", flyway(url).info().current().getVersion().getVersion());
+
+        executar(url, "DELETE FROM reservas WHERE id = 12");
+        flyway(url).migrate();
+        assertEquals("5", flyway(url).info().current().getVersion().getVersion());
+    }
+
+    private static Flyway flyway(String url)
+    {
+        return Flyway.configure().dataSource(url, POSTGRES.getUsername(), POSTGRES.getPassword()).load();
+    }
+
+    private static String novoBanco(String nome) throws SQLException
+    {
+        executar(POSTGRES.getJdbcUrl(), "CREATE DATABASE " + nome);
+        return "jdbc:postgresql://" + POSTGRES.getHost() + ":" + POSTGRES.getFirstMappedPort() + "/" + nome;
+    }
+
+    private static void executar(String url, String sql) throws SQLException
+    {
+        try (Connection conexao = DriverManager.getConnection(url, POSTGRES.getUsername(), POSTGRES.getPassword());
+             Statement comando = conexao.createStatement())
+        {
+            comando.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+
+/**
+ * Compara o modo padrão (threads de plataforma do Tomcat) com o profile "virtual" sob uma carga mista
+ * de /api/casas e /api/reservas, medindo vazão e latência p99. Só roda quando solicitado:
+ * mvn test -Dtest=ModoThreadsBenchmarkTest -Dbenchmark.threads=true [-Dbenchmark.clientes=512 -Dbenchmark.segundos=30]
+ * Por padrão usa o H2 do profile de teste; para números representativos aponte
+ * -Dbenchmark.datasource.url para um Postgres, onde as threads passam a maior parte do tempo bloqueadas.
+ */
+@EnabledIfSystemProperty(named = "benchmark.threads", matches = "true")
+class ModoThreadsBenchmarkTest
+{
+    private static final int CLIENTES = Integer.getInteger("benchmark.clientes", 512);
+    private static final int SEGUNDOS = Integer.getInteger("benchmark.segundos", 20);
+    private static final int AQUECIMENTO_SEGUNDOS = 5;
+    private static final int CASAS = 2_000;
+
+    // Falhas de transporte (conexão recusada, timeout); respostas de conflito da API não entram aqui
+    private static final AtomicLong ERROS = new AtomicLong();
+
+    private record Resultado(String modo, double requisicoesPorSegundo, double p50Ms, double p99Ms, long erros) {}
+
+    @Test
+    void comparaThreadsDePlataformaEThreadsVirtuais() throws Exception
+    {
+        Resultado plataforma = executar(false);
+        Resultado virtual = executar(true);
+
+        for (Resultado resultado : List.of(plataforma, virtual))
+        {
+            System.out.printf("%-10s %10.1f req/s   p50=%7.2fms   p99=%7.2fms   erros=%d%n",
+                    resultado.modo(), resultado.requisicoesPorSegundo(), resultado.p50Ms(), resultado.p99Ms(), resultado.erros());
+        }
+        assertTrue(plataforma.requisicoesPorSegundo() > 0 && virtual.requisicoesPorSegundo() > 0);
+    }
+
+    private Resultado executar(boolean threadsVirtuais) throws Exception
+    {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.profiles.active=test" + (threadsVirtuais ? ",virtual" : ""),
+                "--spring.jpa.show-sql=false"));
+        String url = System.getProperty("benchmark.datasource.url");
+        argumentos.add("--spring.datasource.url=" + (url != null ? url
+                : "jdbc:h2:mem:benchmark" + threadsVirtuais + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(DemoApplication.class)
+                .run(argumentos.toArray(String[]::new)))
+        {
+            int porta = contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            List<Long> casaIds = cadastrarCasas(contexto.getBean(CasaRepository.class));
+            String base = "http://localhost:" + porta;
+
+            executarCarga(base, casaIds, AQUECIMENTO_SEGUNDOS);
+            long[][] latencias = executarCarga(base, casaIds, SEGUNDOS);
+
+            long[] todas = Arrays.stream(latencias).flatMapToLong(Arrays::stream).sorted().toArray();
+            long erros = ERROS.getAndSet(0);
+            return new Resultado(threadsVirtuais ? "virtual" : "plataforma",
+                    todas.length / (double) SEGUNDOS,
+                    percentil(todas, 0.50), percentil(todas, 0.99), erros);
+        }
+    }
+
+    // Cada cliente repete a mistura de requisições até o fim do tempo e devolve as latências em nanossegundos
+    private long[][] executarCarga(String base, List<Long> casaIds, int segundos) throws Exception
+    {
+        ERROS.set(0);
+        long fim = System.nanoTime() + Duration.ofSeconds(segundos).toNanos();
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build())
+        {
+            List<Future<long[]>> futuros = new ArrayList<>();
+            for (int c = 0; c < CLIENTES; c++)
+            {
+                futuros.add(clientes.submit(() ->
+                {
+                    long[] medidas = new long[1024];
+                    int quantidade = 0;
+                    while (System.nanoTime() < fim)
+                    {
+                        HttpRequest requisicao = proximaRequisicao(base, casaIds);
+                        long inicio = System.nanoTime();
+                        try
+                        {
+                            http.send(requisicao, HttpResponse.BodyHandlers.discarding());
+                        }
+                        catch (Exception e)
+                        {
+                            ERROS.incrementAndGet();
+                            continue;
+                        }
+                        if (quantidade == medidas.length)
+                        {
+                            medidas = Arrays.copyOf(medidas, quantidade * 2);
+                        }
+                        medidas[quantidade++] = System.nanoTime() - inicio;
+                    }
+                    return Arrays.copyOf(medidas, quantidade);
+                }));
+            }
+
+            long[][] latencias = new long[futuros.size()][];
+            for (int i = 0; i < futuros.size(); i++)
+            {
+                latencias[i] = futuros.get(i).get();
+            }
+            return latencias;
+        }
+    }
+
+    // Mistura: 40% listagem de casas, 30% filtro, 20% novas reservas e 10% consulta de reservas
+    private static HttpRequest proximaRequisicao(String base, List<Long> casaIds)
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sorteio = random.nextInt(100);
+        if (sorteio < 40)
+        {
+            return HttpRequest.newBuilder(URI.create(base + "/api/casas?size=20&page=" + random.nextInt(50))).GET().build();
+        }
+        if (sorteio < 70)
+        {
+            return HttpRequest.newBuilder(URI.create(base + "/api/casas/filtrar?precoMin=" + random.nextInt(100, 400)
+                    + "&precoMax=" + random.nextInt(400, 800) + "&quartosMin=2&size=20")).GET().build();
+        }
+        if (sorteio < 90)
+        {
+            LocalDate checkIn = LocalDate.now().plusDays(1 + random.nextInt(700));
+            String corpo = "{\"casaId\":" + casaIds.get(random.nextInt(casaIds.size()))
+                    + ",\"nomeCliente\":\"Cliente\",\"emailCliente\":\"cliente@exemplo.com\",\"cpfCliente\":\"00000000000\""
+                    + ",\"checkIn\":\"" + checkIn + "\",\"checkOut\":\"" + checkIn.plusDays(1 + random.nextInt(5)) + "\""
+                    + ",\"quantidadePessoas\":2}";
+            return HttpRequest.newBuilder(URI.create(base + "/api/reservas"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(corpo))
+                    .build();
+        }
+        return HttpRequest.newBuilder(URI.create(base + "/api/reservas/" + (1 + random.nextInt(1000)))).GET().build();
+    }
+
+    private static List<Long> cadastrarCasas(CasaRepository casaRepository)
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Casa> casas = new ArrayList<>();
+        for (int i = 0; i < CASAS; i++)
+        {
+            Casa casa = new Casa();
+            casa.setNome("Casa " + i);
+            casa.setEndereco("Rua " + i);
+            casa.setPrecoDiaria((double) random.nextInt(80, 900));
+            casa.setQuantidadeQuartos(random.nextInt(1, 6));
+            casa.setQuantidadeBanheiros(random.nextInt(1, 4));
+            casa.setCapacidadePessoas(random.nextInt(2, 12));
+            casas.add(casa);
+        }
+        return casaRepository.saveAll(casas).stream().map(Casa::getId).toList();
+    }
+
+    private static double percentil(long[] ordenadas, double percentil)
+    {
+        if (ordenadas.length == 0)
+        {
+            return 0;
+        }
+        int indice = (int) Math.min(ordenadas.length - 1, Math.ceil(percentil * ordenadas.length) - 1);
+        return ordenadas[Math.max(indice, 0)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.dto.CasaRequestDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+import com.example.demo.service.CasaAlteradaEvent;
+import com.example.demo.service.CasaService;
+import com.example.demo.service.IndiceColunarCasas;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CacheRespostasCasasFilterTest 
+{
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private IndiceColunarCasas indiceColunar;
+
+    @MockitoSpyBean
+    private CacheRespostasCasasFilter cacheRespostas;
+
+    @BeforeEach
+    void preparar() 
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        List<Casa> casas = new ArrayList<>();
+        for (int i = 0; i < 30; i++) 
+        {
+            casas.add(new Casa(null, "Casa " + i, "Rua " + i, null, null, null, 1 + i % 4, 1, 100.0 + i * 10, 4, null));
+        }
+        casaRepository.saveAll(casas);
+        indiceColunar.carregar();
+        // As casas foram gravadas direto no repositório: avisa os caches como o CasaService faria
+        eventos.publishEvent(new CasaAlteradaEvent(0L, null));
+    }
+
+    @Test
+    void segundaRequisicaoVemDoCacheERevalidacaoResponde304() throws Exception 
+    {
+        MvcResult primeira = mockMvc.perform(get("/api/casas/filtrar?precoMax=300&quartosMin=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache", "MISS"))
+                .andReturn();
+        String etag = primeira.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Mesmos filtros em outra ordem e com a página padrão explícita: mesma chave
+        MvcResult segunda = mockMvc.perform(get("/api/casas/filtrar?quartosMin=2&page=0&precoMax=300"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache", "HIT"))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andReturn();
+        assertEquals(primeira.getResponse().getContentAsString(), segunda.getResponse().getContentAsString());
+
+        mockMvc.perform(get("/api/casas/filtrar?precoMax=300&quartosMin=2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void escritaEmCasaInvalidaAsRespostas() throws Exception 
+    {
+        String etag = mockMvc.perform(get("/api/casas?size=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        CasaRequestDTO dto = new CasaRequestDTO();
+        dto.setNome("Casa nova");
+        dto.setEndereco("Rua nova");
+        dto.setPrecoDiaria(150.0);
+        dto.setQuantidadeQuartos(2);
+        dto.setQuantidadeBanheiros(1);
+        dto.setCapacidadePessoas(4);
+        casaService.cadastrarCasa(dto);
+
+        MvcResult depois = mockMvc.perform(get("/api/casas?size=5").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache", "MISS"))
+                .andReturn();
+        assertNotEquals(etag, depois.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void requisicaoLogoDepoisDaNovaGeracaoNaoGuardaAPaginaAntiga() throws Exception 
+    {
+        String url = "/api/casas/filtrar?precoMax=300";
+        long antes = totalDeCasas(mockMvc.perform(get(url)).andReturn());
+
+        // Uma requisição que chega logo depois de o cache de respostas avançar a geração, ainda durante a alteração
+        AtomicReference<MvcResult> durante = new AtomicReference<>();
+        doAnswer(chamada -> 
+        {
+            chamada.callRealMethod();
+            durante.set(mockMvc.perform(get(url)).andReturn());
+            return null;
+        }).when(cacheRespostas).aoAlterarCasa(any());
+
+        CasaRequestDTO dto = new CasaRequestDTO();
+        dto.setNome("Casa nova");
+        dto.setEndereco("Rua nova");
+        dto.setPrecoDiaria(150.0);
+        dto.setQuantidadeQuartos(2);
+        dto.setQuantidadeBanheiros(1);
+        dto.setCapacidadePessoas(4);
+        casaService.cadastrarCasa(dto);
+
+        assertNotNull(durante.get());
+        assertEquals(antes + 1, totalDeCasas(durante.get()));
+        assertEquals(antes + 1, totalDeCasas(mockMvc.perform(get(url)).andExpect(header().string("X-Cache", "HIT")).andReturn()));
+    }
+
+    private static long totalDeCasas(MvcResult resultado) throws Exception 
+    {
+        Matcher total = Pattern.compile("\"totalElements\":(\\d+)").matcher(resultado.getResponse().getContentAsString());
+        assertTrue(total.find(), resultado.getResponse().getContentAsString());
+        return Long.parseLong(total.group(1));
+    }
+
+    @Test
+    void chaveIgnoraOrdemParametrosVaziosEPaginacaoPadrao() 
+    {
+        MockHttpServletRequest a = new MockHttpServletRequest("GET", "/api/casas/filtrar");
+        a.addParameter("precoMax", "300");
+        a.addParameter("quartosMin", "");
+        a.addParameter("size", "20");
+        MockHttpServletRequest b = new MockHttpServletRequest("GET", "/api/casas/filtrar");
+        b.addParameter("page", "0");
+        b.addParameter("precoMax", "300");
+
+        assertEquals("/api/casas/filtrar?precoMax=300", CacheRespostasCasasFilter.chave(a));
+        assertEquals(CacheRespostasCasasFilter.chave(a), CacheRespostasCasasFilter.chave(b));
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.dto.CasaRequestDTO;
+import com.example.demo.dto.EventoAlteracaoDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.EventoAlteracao;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.EventoAlteracaoRepository;
+import com.example.demo.repository.ReservaRepository;
+
+// Lote de um evento e buffer de um lote por assinante, para que um consumidor lento perca lotes com facilidade
+@SpringBootTest(properties = {
+        "alteracoes.publicar=true",
+        "alteracoes.tamanho-lote=1",
+        "alteracoes.buffer-por-assinante=1",
+        "alteracoes.intervalo=200ms"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AlteracoesTest
+{
+    @Autowired
+    private PublicadorDeAlteracoes publicador;
+
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private EventoAlteracaoRepository eventoRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final List<PublicadorDeAlteracoes.Assinatura> assinaturas = new ArrayList<>();
+
+    // O banco H2 é compartilhado entre os contextos de teste; sem isso outras classes
+    // não conseguiriam apagar as casas que ficaram com reservas
+    @AfterEach
+    void limpar()
+    {
+        assinaturas.forEach(PublicadorDeAlteracoes.Assinatura::cancelar);
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void preparar()
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        assinaturas.clear();
+    }
+
+    @Test
+    void entregaAsAlteracoesEmOrdemESemLacunas() throws Exception
+    {
+        List<EventoAlteracaoDTO> recebidos = Collections.synchronizedList(new ArrayList<>());
+        assinaturas.add(publicador.assinar(null, recebidos::addAll, null));
+
+        Long casaId = casaService.cadastrarCasa(casa("Casa do Lago")).getId();
+        casaService.atualizarCasa(casaId, new Casa(null, "Casa do Lago Azul", "Rua A", null, null, null, 2, 1, 250.0, 4, null));
+        Long reservaId = reservaService.criarReserva(reserva(casaId)).getId();
+        reservaService.cancelarReserva(reservaId);
+        casaService.deletarCasa(casaId);
+
+        List<EventoAlteracaoDTO> daCasa = aguardar(recebidos, 5, evento -> casaId.equals(evento.getEntidadeId())
+                && evento.getEntidade() == EventoAlteracao.Entidade.CASA || reservaId.equals(evento.getEntidadeId())
+                && evento.getEntidade() == EventoAlteracao.Entidade.RESERVA);
+        assertEquals(List.of("CASA.CRIADA", "CASA.ATUALIZADA", "RESERVA.CRIADA", "RESERVA.CANCELADA", "CASA.REMOVIDA"),
+                daCasa.stream().map(evento -> evento.getEntidade() + "." + evento.getTipo()).toList());
+        assertTrue(daCasa.get(1).getDados().contains("Casa do Lago Azul"));
+        assertTrue(daCasa.get(2).getDados().contains("\"casaId\":" + casaId));
+        assertEquals(null, daCasa.get(4).getDados());
+        assertPosicoesConsecutivas(recebidos);
+    }
+
+    @Test
+    void consumidorLentoRecebeTudoRelendoOQueFoiDescartado() throws Exception
+    {
+        long inicio = publicador.ultimaPosicao();
+        List<EventoAlteracaoDTO> recebidos = Collections.synchronizedList(new ArrayList<>());
+        assinaturas.add(publicador.assinar(inicio, lote ->
+        {
+            dormir(20);
+            recebidos.addAll(lote);
+        }, null));
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+        {
+            ids.add(casaService.cadastrarCasa(casa("Casa " + i)).getId());
+        }
+
+        List<EventoAlteracaoDTO> cadastros = aguardar(recebidos, 30, evento -> ids.contains(evento.getEntidadeId()));
+        assertEquals(ids, cadastros.stream().map(EventoAlteracaoDTO::getEntidadeId).toList());
+        assertPosicoesConsecutivas(recebidos);
+
+        // Um assinante novo, a partir da mesma posição, relê tudo do banco
+        List<EventoAlteracaoDTO> relidos = Collections.synchronizedList(new ArrayList<>());
+        assinaturas.add(publicador.assinar(inicio, relidos::addAll, null));
+        assertEquals(ids, aguardar(relidos, 30, evento -> ids.contains(evento.getEntidadeId())).stream()
+                .map(EventoAlteracaoDTO::getEntidadeId).toList());
+    }
+
+    @Test
+    void alteracoesDesfeitasNaoGeramEventos() throws Exception
+    {
+        long inicio = publicador.ultimaPosicao();
+        Long casaId = casaService.cadastrarCasa(casa("Casa com reserva")).getId();
+        reservaService.criarReserva(reserva(casaId));
+
+        // A reserva conflitante e a remoção de uma casa com reservas não chegam a ser confirmadas
+        assertThrows(ReservaConflitanteException.class, () -> reservaService.criarReserva(reserva(casaId)));
+        assertThrows(RuntimeException.class, () -> casaService.deletarCasa(casaId));
+
+        List<EventoAlteracaoDTO> recebidos = Collections.synchronizedList(new ArrayList<>());
+        assinaturas.add(publicador.assinar(inicio, recebidos::addAll, null));
+        aguardar(recebidos, 2, evento -> true);
+        dormir(500);
+        assertEquals(Set.of("CASA.CRIADA", "RESERVA.CRIADA"), Set.copyOf(recebidos.stream()
+                .filter(evento -> evento.getPosicao() > inicio)
+                .map(evento -> evento.getEntidade() + "." + evento.getTipo()).toList()));
+        assertEquals(2, recebidos.size());
+    }
+
+    @Test
+    void endpointEnviaOsEventosEmServerSentEvents() throws Exception
+    {
+        long inicio = publicador.ultimaPosicao();
+        MvcResult resultado = mockMvc.perform(get("/api/alteracoes").header("Last-Event-ID", String.valueOf(inicio)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Long casaId = casaService.cadastrarCasa(casa("Casa do SSE")).getId();
+
+        String corpo = "";
+        for (int i = 0; i < 100 && !corpo.contains("Casa do SSE"); i++)
+        {
+            dormir(50);
+            corpo = resultado.getResponse().getContentAsString();
+        }
+        assertTrue(corpo.contains("id:" + (inicio + 1)), corpo);
+        assertTrue(corpo.contains("event:casa.criada"), corpo);
+        assertTrue(corpo.contains("\"entidadeId\":" + casaId), corpo);
+        assertTrue(corpo.contains("\"nome\":\"Casa do SSE\""), corpo);
+
+        mockMvc.perform(get("/api/alteracoes").header("Last-Event-ID", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void retencaoNaoReiniciaANumeracao() throws Exception
+    {
+        List<EventoAlteracaoDTO> recebidos = Collections.synchronizedList(new ArrayList<>());
+        assinaturas.add(publicador.assinar(null, recebidos::addAll, null));
+        casaService.cadastrarCasa(casa("Casa antiga"));
+        aguardar(recebidos, 1, evento -> true);
+        long ultima = publicador.ultimaPosicao();
+
+        // Todos os eventos passam do prazo de retenção, como depois de um período sem alterações
+        List<EventoAlteracao> eventos = eventoRepository.findAll();
+        eventos.forEach(evento -> evento.setPublicadoEm(Instant.now().minus(Duration.ofDays(30))));
+        eventoRepository.saveAll(eventos);
+        publicador.apagarAntigos();
+
+        assertEquals(1, eventoRepository.count());
+        assertEquals(ultima, eventoRepository.buscarUltimaPosicao());
+        casaService.cadastrarCasa(casa("Casa nova"));
+        List<EventoAlteracaoDTO> novos = aguardar(recebidos, 1, evento -> evento.getPosicao() > ultima);
+        assertEquals(ultima + 1, novos.get(0).getPosicao());
+    }
+
+    private static List<EventoAlteracaoDTO> aguardar(List<EventoAlteracaoDTO> recebidos, int quantidade,
+            Predicate<EventoAlteracaoDTO> filtro) throws InterruptedException
+    {
+        List<EventoAlteracaoDTO> encontrados = List.of();
+        for (int i = 0; i < 200 && encontrados.size() < quantidade; i++)
+        {
+            Thread.sleep(50);
+            synchronized (recebidos)
+            {
+                encontrados = recebidos.stream().filter(filtro).toList();
+            }
+        }
+        assertEquals(quantidade, encontrados.size(), "Eventos recebidos: " + encontrados);
+        return encontrados;
+    }
+
+    private static void assertPosicoesConsecutivas(List<EventoAlteracaoDTO> recebidos)
+    {
+        synchronized (recebidos)
+        {
+            for (int i = 1; i < recebidos.size(); i++)
+            {
+                assertEquals(recebidos.get(i - 1).getPosicao() + 1, recebidos.get(i).getPosicao());
+            }
+        }
+    }
+
+    private static void dormir(long milissegundos)
+    {
+        try
+        {
+            Thread.sleep(milissegundos);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CasaRequestDTO casa(String nome)
+    {
+        CasaRequestDTO dto = new CasaRequestDTO();
+        dto.setNome(nome);
+        dto.setEndereco("Rua A");
+        dto.setPrecoDiaria(200.0);
+        dto.setQuantidadeQuartos(2);
+        dto.setQuantidadeBanheiros(1);
+        dto.setCapacidadePessoas(4);
+        return dto;
+    }
+
+    private static Reserva reserva(Long casaId)
+    {
+        Casa casa = new Casa();
+        casa.setId(casaId);
+        LocalDate checkIn = LocalDate.now().plusDays(20);
+        return new Reserva(null, casa, "Cliente", "cliente@exemplo.com", "12345678900", checkIn, checkIn.plusDays(2), 2, null);
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.dto.IndicadoresOcupacaoDTO;
+import com.example.demo.dto.OcupacaoDiaDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AnaliseOcupacaoTest
+{
+    // Dois meses à frente, para que todas as datas fiquem no futuro
+    private static final YearMonth MES = YearMonth.now().plusMonths(2);
+
+    @Autowired
+    private AnaliseOcupacao analiseOcupacao;
+
+    @Autowired
+    private IndiceColunarCasas indiceColunar;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @MockitoSpyBean
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Casa casa;
+
+    @BeforeEach
+    void preparar()
+    {
+        reservaRepository.deleteAll();
+        casa = casaRepository.save(new Casa(null, "Casa analisada", "Rua", null, null, null, 2, 1, 200.0, 4, null));
+        analiseOcupacao.carregar();
+    }
+
+    // O banco H2 é compartilhado entre os contextos de teste
+    @AfterEach
+    void limpar()
+    {
+        reservaRepository.deleteAll();
+    }
+
+    @Test
+    void reservasECancelamentosAtualizamOsIndicadores()
+    {
+        // Três noites que atravessam a virada do mês: duas em MES e uma no mês seguinte
+        Reserva virada = reservaService.criarReserva(novaReserva(MES.atEndOfMonth().minusDays(1), MES.plusMonths(1).atDay(2), 3));
+        Reserva curta = reservaService.criarReserva(novaReserva(MES.atDay(1), MES.atDay(3), 1));
+
+        List<IndicadoresOcupacaoDTO> meses = analiseOcupacao.indicadoresDaCasa(casa.getId(), MES, MES.plusMonths(1));
+        IndicadoresOcupacaoDTO primeiro = meses.get(0);
+        assertEquals(4, primeiro.getNoitesOcupadas());
+        assertEquals(800.0, primeiro.getReceita(), 0.001);
+        assertEquals(200.0, primeiro.getDiariaMedia(), 0.001);
+        assertEquals(4 / (double) MES.lengthOfMonth(), primeiro.getTaxaOcupacao(), 1e-9);
+        assertEquals(2.0, primeiro.getMediaHospedes(), 0.001);
+        assertEquals(1, meses.get(1).getNoitesOcupadas());
+
+        List<OcupacaoDiaDTO> dias = analiseOcupacao.ocupacaoDiaria(casa.getId(), MES);
+        assertTrue(dias.get(0).isOcupada() && dias.get(1).isOcupada());
+        assertFalse(dias.get(2).isOcupada());
+
+        reservaService.cancelarReserva(curta.getId());
+        reservaService.cancelarReserva(virada.getId());
+
+        meses = analiseOcupacao.indicadoresDaCasa(casa.getId(), MES, MES.plusMonths(1));
+        assertEquals(0, meses.get(0).getNoitesOcupadas());
+        assertEquals(0.0, meses.get(0).getReceita(), 0.001);
+        assertEquals(0, meses.get(1).getNoitesOcupadas());
+    }
+
+    @Test
+    void cargaDoHistoricoChegaAosMesmosNumerosQueAsAtualizacoes()
+    {
+        List<Casa> casas = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            casas.add(new Casa(null, "Casa " + i, "Rua", null, null, null, 2, 1, 100.0 + i, 4, null));
+        }
+        casas = casaRepository.saveAll(casas);
+
+        // Gravadas direto no repositório, sem passar pelo serviço: só a carga do histórico as enxerga
+        List<Reserva> reservas = new ArrayList<>();
+        for (Casa outra : casas)
+        {
+            for (int i = 0; i < 10; i++)
+            {
+                Reserva reserva = new Reserva(null, outra, "Cliente", "cliente@exemplo.com", "00000000000",
+                        MES.atDay(1).plusDays(i * 5L), MES.atDay(1).plusDays(i * 5L + 3), 2, outra.getPrecoDiaria());
+                reservas.add(reserva);
+            }
+        }
+        reservaRepository.saveAll(reservas);
+
+        // A quantidade de casas dos indicadores gerais vem do índice colunar, que também só as vê na carga
+        indiceColunar.carregar();
+        analiseOcupacao.carregar();
+
+        IndicadoresOcupacaoDTO geral = analiseOcupacao.indicadoresGerais(MES, MES).get(0);
+        long noitesNoMes = reservas.stream()
+                .mapToLong(r -> r.getCheckIn().datesUntil(r.getCheckOut()).filter(d -> YearMonth.from(d).equals(MES)).count())
+                .sum();
+        double receitaNoMes = reservas.stream()
+                .mapToDouble(r -> r.getPrecoDiaria() * r.getCheckIn().datesUntil(r.getCheckOut())
+                        .filter(d -> YearMonth.from(d).equals(MES)).count())
+                .sum();
+        assertEquals(noitesNoMes, geral.getNoitesOcupadas());
+        assertEquals(receitaNoMes, geral.getReceita(), 0.01);
+        assertEquals(casaRepository.count() * MES.lengthOfMonth(), geral.getNoitesDisponiveis());
+
+        // A receita usa a diária gravada na reserva: mudar o preço da casa depois não altera o passado
+        Casa primeira = casas.get(0);
+        primeira.setPrecoDiaria(999.0);
+        casaRepository.save(primeira);
+        analiseOcupacao.carregar();
+        assertEquals(receitaNoMes, analiseOcupacao.indicadoresGerais(MES, MES).get(0).getReceita(), 0.01);
+    }
+
+    @Test
+    void recusaIntervalosInvalidos()
+    {
+        assertThrows(IllegalArgumentException.class, () -> analiseOcupacao.indicadoresGerais(MES, MES.minusMonths(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> analiseOcupacao.indicadoresGerais(MES, MES.plusMonths(AnaliseOcupacao.MAXIMO_MESES)));
+    }
+
+    @Test
+    void endpointsRecebemOsMesesNoFormatoAnoMes() throws Exception
+    {
+        reservaService.criarReserva(novaReserva(MES.atDay(10), MES.atDay(12), 2));
+
+        mockMvc.perform(get("/api/analises/casas/" + casa.getId()).param("de", MES.toString()).param("ate", MES.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].mes").value(MES.toString()))
+                .andExpect(jsonPath("$[0].noitesOcupadas").value(2));
+        mockMvc.perform(get("/api/analises/meses").param("de", MES.toString()).param("ate", MES.minusMonths(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void alteracoesDuranteARecargaNaoSePerdemNemContamDuasVezes()
+    {
+        Reserva cancelada = reservaService.criarReserva(novaReserva(MES.atDay(1), MES.atDay(5), 2));
+
+        // Na ressincronização do modo cluster a carga corre com reservas chegando: uma gravada antes da leitura do
+        // banco (que a leitura já vê) e, depois dela, outra reserva e o cancelamento da primeira
+        Answer<?> repositorio = mockingDetails(reservaRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(chamada ->
+        {
+            reservaService.criarReserva(novaReserva(MES.atDay(10), MES.atDay(12), 2));
+            Object lidas = repositorio.answer(chamada);
+            reservaService.criarReserva(novaReserva(MES.atDay(20), MES.atDay(23), 2));
+            reservaService.cancelarReserva(cancelada.getId());
+            return lidas;
+        }).when(reservaRepository).buscarTodasParaOcupacao();
+
+        analiseOcupacao.carregar();
+
+        assertEquals(5, analiseOcupacao.indicadoresDaCasa(casa.getId(), MES, MES).get(0).getNoitesOcupadas());
+        List<OcupacaoDiaDTO> dias = analiseOcupacao.ocupacaoDiaria(casa.getId(), MES);
+        assertFalse(dias.get(0).isOcupada());
+        assertTrue(dias.get(9).isOcupada() && dias.get(21).isOcupada());
+    }
+
+    private Reserva novaReserva(LocalDate checkIn, LocalDate checkOut, int pessoas)
+    {
+        Casa referencia = new Casa();
+        referencia.setId(casa.getId());
+        return new Reserva(null, referencia, "Cliente", "cliente@exemplo.com", "00000000000", checkIn, checkOut, pessoas, null);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.PeriodoReserva;
+import com.example.demo.repository.ReservaRepository;
+
+class CalendarioDisponibilidadeTest 
+{
+    private static final LocalDate BASE = LocalDate.now().plusDays(10);
+
+    private final ReservaRepository reservaRepository = mock(ReservaRepository.class);
+    private final CalendarioDisponibilidade calendario = new CalendarioDisponibilidade(reservaRepository);
+
+    @Test
+    void detectaSobreposicaoERespeitaCheckOutExclusivo() 
+    {
+        calendario.registrar(1L, 10L, BASE, BASE.plusDays(3));
+
+        assertFalse(calendario.estaDisponivel(1L, BASE.plusDays(2), BASE.plusDays(5)));
+        assertFalse(calendario.estaDisponivel(1L, BASE.minusDays(1), BASE.plusDays(1)));
+        assertFalse(calendario.estaDisponivel(1L, BASE.minusDays(5), BASE.plusDays(10)));
+        assertTrue(calendario.estaDisponivel(1L, BASE.plusDays(3), BASE.plusDays(5)));
+        assertTrue(calendario.estaDisponivel(1L, BASE.minusDays(2), BASE));
+        assertTrue(calendario.estaDisponivel(2L, BASE, BASE.plusDays(3)));
+    }
+
+    @Test
+    void periodoLongoAnteriorContinuaBloqueandoDatasPosteriores() 
+    {
+        // Um período longo seguido de outro que começa depois: o maior check-out acumulado cobre o caso
+        calendario.registrar(1L, 10L, BASE, BASE.plusDays(30));
+        calendario.registrar(1L, 11L, BASE.plusDays(5), BASE.plusDays(6));
+
+        assertFalse(calendario.estaDisponivel(1L, BASE.plusDays(20), BASE.plusDays(22)));
+    }
+
+    @Test
+    void cancelamentoLiberaOPeriodo() 
+    {
+        calendario.registrar(1L, 10L, BASE, BASE.plusDays(3));
+        calendario.registrar(1L, 11L, BASE.plusDays(5), BASE.plusDays(7));
+
+        calendario.remover(1L, 10L);
+
+        assertTrue(calendario.estaDisponivel(1L, BASE, BASE.plusDays(3)));
+        assertFalse(calendario.estaDisponivel(1L, BASE.plusDays(6), BASE.plusDays(8)));
+    }
+
+    @Test
+    void carregaPeriodosDoBanco() 
+    {
+        when(reservaRepository.findPeriodosComCheckOutApos(any())).thenReturn(List.of(
+                periodo(20L, 3L, BASE.plusDays(4), BASE.plusDays(8)),
+                periodo(21L, 3L, BASE, BASE.plusDays(2))));
+
+        calendario.carregar();
+
+        assertFalse(calendario.estaDisponivel(3L, BASE.plusDays(1), BASE.plusDays(2)));
+        assertTrue(calendario.estaDisponivel(3L, BASE.plusDays(2), BASE.plusDays(4)));
+        assertFalse(calendario.estaDisponivel(3L, BASE.plusDays(7), BASE.plusDays(9)));
+    }
+
+    private static PeriodoReserva periodo(Long id, Long casaId, LocalDate checkIn, LocalDate checkOut) 
+    {
+        return new PeriodoReserva() 
+        {
+            public Long getId() { return id; }
+            public Long getCasaId() { return casaId; }
+            public LocalDate getCheckIn() { return checkIn; }
+            public LocalDate getCheckOut() { return checkOut; }
+        };
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dto.CasaRequestDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Cache de leituras de casas: acertos, invalidação nas escritas e idas ao banco por reserva.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class CasaCacheTest 
+{
+    private static final int RESERVAS = 50;
+
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @MockitoSpyBean
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estatisticas;
+    private Long casaId;
+
+    @AfterEach
+    void limparReservas() 
+    {
+        estatisticas.setStatisticsEnabled(false);
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void preparar() 
+    {
+        CasaRequestDTO dto = new CasaRequestDTO();
+        dto.setNome("Casa do lago");
+        dto.setEndereco("Estrada do Lago, 10");
+        dto.setPrecoDiaria(400.0);
+        dto.setQuantidadeQuartos(3);
+        dto.setQuantidadeBanheiros(2);
+        dto.setCapacidadePessoas(6);
+        casaId = casaService.cadastrarCasa(dto).getId();
+
+        // Ligadas só durante cada teste, e não no contexto todo: com generate_statistics=true o Hibernate
+        // também registra as métricas de cada sessão no log
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.setStatisticsEnabled(true);
+        estatisticas.clear();
+    }
+
+    @Test
+    void leituraPorIdVemDoCacheAteACasaSerAtualizada() 
+    {
+        casaService.buscarCasaPorId(casaId);
+        casaService.buscarCasaPorId(casaId);
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+
+        Casa alterada = casaService.buscarCasaPorId(casaId).orElseThrow();
+        Casa novosDados = new Casa(null, "Casa do lago reformada", alterada.getEndereco(), null, null, null,
+                3, 2, 450.0, 6, null);
+        casaService.atualizarCasa(casaId, novosDados);
+
+        assertEquals("Casa do lago reformada", casaService.buscarCasaPorId(casaId).orElseThrow().getNome());
+
+        casaService.deletarCasa(casaId);
+        assertTrue(casaService.buscarCasaPorId(casaId).isEmpty());
+    }
+
+    @Test
+    void leituraAnteriorAUmaAlteracaoNaoFicaNoCache() throws Exception
+    {
+        // A próxima leitura da casa no banco devolve o estado atual e só termina depois que a alteração for gravada
+        Answer<?> repositorio = mockingDetails(casaRepository).getMockCreationSettings().getDefaultAnswer();
+        AtomicBoolean segurar = new AtomicBoolean(true);
+        CountDownLatch leu = new CountDownLatch(1);
+        CountDownLatch alterou = new CountDownLatch(1);
+        doAnswer(chamada ->
+        {
+            Object lida = repositorio.answer(chamada);
+            if (segurar.getAndSet(false))
+            {
+                leu.countDown();
+                assertTrue(alterou.await(10, TimeUnit.SECONDS));
+            }
+            return lida;
+        }).when(casaRepository).findById(any());
+
+        CompletableFuture<Optional<Casa>> leitura = CompletableFuture.supplyAsync(() -> casaService.buscarCasaPorId(casaId));
+        assertTrue(leu.await(10, TimeUnit.SECONDS));
+        Casa novosDados = new Casa(null, "Casa do lago", "Estrada do Lago, 10", null, null, null, 3, 2, 520.0, 6, null);
+        casaService.atualizarCasa(casaId, novosDados);
+        alterou.countDown();
+
+        // A leitura em andamento devolve o que leu, mas não o guarda por cima da invalidação
+        assertEquals(400.0, leitura.get(10, TimeUnit.SECONDS).orElseThrow().getPrecoDiaria());
+        assertEquals(520.0, casaService.buscarCasaPorId(casaId).orElseThrow().getPrecoDiaria());
+    }
+
+    @Test
+    void paginasDoFiltroSaoDescartadasQuandoUmaCasaMuda() 
+    {
+        long antes = casaService.listarCasasComFiltro(null, null, null, null, null, null, null, null,
+                PageRequest.of(0, 10)).getTotalElements();
+        long statements = estatisticas.getPrepareStatementCount();
+        casaService.listarCasasComFiltro(null, null, null, null, null, null, null, null, PageRequest.of(0, 10));
+        assertEquals(statements, estatisticas.getPrepareStatementCount());
+
+        casaService.deletarCasa(casaId);
+
+        assertEquals(antes - 1, casaService.listarCasasComFiltro(null, null, null, null, null, null, null, null,
+                PageRequest.of(0, 10)).getTotalElements());
+        assertTrue(meterRegistry.get("cache.gets").tag("cache", CacheConfig.FILTROS_CASAS).tag("result", "hit")
+                .functionCounter().count() >= 1);
+    }
+
+    @Test
+    void reservasDeixamDeLerACasaNoBanco() 
+    {
+        cacheManager.getCache(CacheConfig.CASAS).clear();
+        double semCache = idasAoBancoPorReserva(0, true);
+        double comCache = idasAoBancoPorReserva(RESERVAS, false);
+
+        assertTrue(comCache < semCache, "Idas ao banco por reserva: sem cache=" + semCache + ", com cache=" + comCache);
+    }
+
+    private double idasAoBancoPorReserva(int deslocamento, boolean limparCache) 
+    {
+        estatisticas.clear();
+        LocalDate base = LocalDate.now().plusDays(1);
+        for (int i = 0; i < RESERVAS; i++) 
+        {
+            if (limparCache) 
+            {
+                cacheManager.getCache(CacheConfig.CASAS).clear();
+            }
+            Reserva reserva = new Reserva();
+            Casa casa = new Casa();
+            casa.setId(casaId);
+            reserva.setCasa(casa);
+            reserva.setNomeCliente("Cliente " + i);
+            reserva.setEmailCliente("cliente@exemplo.com");
+            reserva.setCpfCliente("00000000000");
+            reserva.setCheckIn(base.plusDays((deslocamento + i) * 2L));
+            reserva.setCheckOut(base.plusDays((deslocamento + i) * 2L + 1));
+            reserva.setQuantidadePessoas(2);
+            reservaService.criarReserva(reserva);
+        }
+        return estatisticas.getPrepareStatementCount() / (double) RESERVAS;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Teste de carga do filtro de casas: mede a latência de {@link CasaService#listarCasasComFiltro}
+ * enquanto a tabela casas cresce. Só roda quando solicitado, por exemplo:
+ * mvn test -Dtest=CasaFiltroCargaTest -Dcarga.casas=10000,100000,1000000
+ * Para medir contra o Postgres, basta rodar com o profile apontando para o banco real.
+ * O cache de leituras fica desligado, senão a consulta repetida nunca chegaria ao banco.
+ */
+@SpringBootTest(properties = "spring.cache.type=none")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "carga.casas", matches = ".+")
+class CasaFiltroCargaTest 
+{
+    private static final int REPETICOES = 50;
+
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IndiceColunarCasas indiceColunar;
+
+    @Test
+    void latenciaDoFiltroPermaneceEstavelComOCrescimentoDaTabela() 
+    {
+        int[] tamanhos = Arrays.stream(System.getProperty("carga.casas").split(","))
+                .mapToInt(t -> Integer.parseInt(t.trim()))
+                .sorted()
+                .toArray();
+
+        jdbcTemplate.update("DELETE FROM casas");
+        Random random = new Random(42);
+        int inseridas = 0;
+        double primeiraMediana = -1;
+
+        for (int tamanho : tamanhos) 
+        {
+            inseridas += inserirCasas(tamanho - inseridas, random);
+            // As casas são inseridas direto no banco, sem os eventos que atualizam o índice
+            indiceColunar.carregar();
+
+            double mediana = medirMedianaEmMs();
+            if (primeiraMediana < 0) 
+            {
+                primeiraMediana = mediana;
+            }
+            System.out.printf("casas=%d mediana=%.3fms%n", tamanho, mediana);
+
+            // O custo deve depender das casas encontradas, e não do tamanho da tabela
+            assertTrue(mediana <= Math.max(primeiraMediana * 4, primeiraMediana + 5),
+                    "Latência do filtro cresceu com a tabela: " + mediana + "ms");
+        }
+    }
+
+    private double medirMedianaEmMs() 
+    {
+        double[] tempos = new double[REPETICOES];
+        for (int i = 0; i < REPETICOES; i++) 
+        {
+            long inicio = System.nanoTime();
+            casaService.listarCasasComFiltro(
+                    1001.0, 2, 1, 1000.0, 4, null, 2, null, PageRequest.of(0, 20));
+            tempos[i] = (System.nanoTime() - inicio) / 1_000_000.0;
+        }
+        Arrays.sort(tempos);
+        return tempos[REPETICOES / 2];
+    }
+
+    private int inserirCasas(int quantidade, Random random) 
+    {
+        String sql = "INSERT INTO casas (id, nome, endereco, preco_diaria, quantidade_quartos, "
+                + "quantidade_banheiros, capacidade_pessoas) VALUES (nextval('casas_seq'), ?, ?, ?, ?, ?, ?)";
+
+        List<Object[]> lote = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) 
+        {
+            lote.add(new Object[] {
+                "Casa " + i,
+                "Rua " + i,
+                Math.round((50 + random.nextDouble() * 4950) * 100) / 100.0,
+                1 + random.nextInt(6),
+                1 + random.nextInt(4),
+                1 + random.nextInt(12)
+            });
+            if (lote.size() == 5_000) 
+            {
+                jdbcTemplate.batchUpdate(sql, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) 
+        {
+            jdbcTemplate.batchUpdate(sql, lote);
+        }
+        return quantidade;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.example.demo.dto.ImportacaoResultadoDTO;
+import com.example.demo.dto.ViaCepResponseDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+
+@SpringBootTest(properties = "casas.importacao.tamanho-lote=2")
+@ActiveProfiles("test")
+class CasaImportacaoServiceTest 
+{
+    @Autowired
+    private CasaImportacaoService importacaoService;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @MockitoBean
+    private ViaCepService viaCepService;
+
+    @BeforeEach
+    void limpar() 
+    {
+        casaRepository.deleteAll();
+
+        ViaCepResponseDTO endereco = new ViaCepResponseDTO();
+        endereco.setCep("01001-000");
+        endereco.setLogradouro("Praça da Sé");
+        endereco.setBairro("Sé");
+        endereco.setLocalidade("São Paulo");
+        endereco.setUf("SP");
+        when(viaCepService.buscarCepAsync(anyString())).thenReturn(CompletableFuture.completedFuture(endereco));
+    }
+
+    @Test
+    void importaNdjsonReportandoErrosPorLinha() throws Exception 
+    {
+        String ndjson = String.join("\n",
+                "{\"nome\":\"Casa 1\",\"cep\":\"01001-000\",\"precoDiaria\":200,\"quantidadeQuartos\":2,\"quantidadeBanheiros\":1,\"capacidadePessoas\":4}",
+                "{\"nome\":\"Casa 2\",\"cep\":\"01001000\",\"precoDiaria\":300,\"quantidadeQuartos\":3,\"quantidadeBanheiros\":2,\"capacidadePessoas\":6}",
+                "{isso não é json",
+                "",
+                "{\"endereco\":\"Rua A\",\"precoDiaria\":100,\"quantidadeQuartos\":1,\"quantidadeBanheiros\":1,\"capacidadePessoas\":2}",
+                "{\"nome\":\"Casa 4\",\"endereco\":\"Rua B\",\"precoDiaria\":150,\"quantidadeQuartos\":1,\"quantidadeBanheiros\":1,\"capacidadePessoas\":2}");
+
+        ImportacaoResultadoDTO resultado = importacaoService.importar(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), CasaImportacaoService.Formato.NDJSON);
+
+        assertEquals(5, resultado.getLinhasLidas());
+        assertEquals(3, resultado.getImportadas());
+        assertEquals(2, resultado.getTotalErros());
+        assertEquals(List.of(3L, 5L), resultado.getErros().stream().map(e -> e.getLinha()).toList());
+        assertTrue(resultado.getLinhasPorSegundo() > 0);
+
+        // Os dois CEPs iguais do primeiro lote geram uma única consulta
+        verify(viaCepService, times(1)).buscarCepAsync(anyString());
+        List<Casa> casas = casaRepository.findAll();
+        assertEquals(3, casas.size());
+        assertTrue(casas.stream().anyMatch(c -> c.getEndereco().startsWith("Praça da Sé")));
+    }
+
+    @Test
+    void importaCsvComCabecalho() throws Exception 
+    {
+        String csv = String.join("\n",
+                "nome,endereco,descricao,precoDiaria,quantidadeQuartos,quantidadeBanheiros,capacidadePessoas",
+                "Casa A,Rua 1,\"Perto da praia, com piscina\",250.5,2,1,4",
+                "Casa B,Rua 2,,abc,2,1,4",
+                "Casa C,Rua 3,,180,1,1");
+
+        ImportacaoResultadoDTO resultado = importacaoService.importar(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), CasaImportacaoService.Formato.CSV);
+
+        assertEquals(3, resultado.getLinhasLidas());
+        assertEquals(1, resultado.getImportadas());
+        assertEquals(List.of(3L, 4L), resultado.getErros().stream().map(e -> e.getLinha()).toList());
+        assertEquals("Perto da praia, com piscina", casaRepository.findAll().get(0).getDescricao());
+    }
+}
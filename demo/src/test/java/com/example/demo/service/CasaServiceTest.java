@@ -0,0 +1,193 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.demo.dto.CasaProximaDTO;
+import com.example.demo.dto.CasaRequestDTO;
+import com.example.demo.dto.CasaResponseDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CasaServiceTest 
+{
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private IndiceGeografico indiceGeografico;
+
+    @Autowired
+    private IndiceColunarCasas indiceColunar;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    void limparReservas() 
+    {
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void prepararCasas() 
+    {
+        casaRepository.deleteAll();
+        // As casas são gravadas direto no repositório, sem passar pela invalidação do cache
+        cacheManager.getCacheNames().forEach(nome -> cacheManager.getCache(nome).clear());
+
+        List<Casa> casas = new ArrayList<>();
+        for (int i = 0; i < 50; i++) 
+        {
+            Casa casa = new Casa();
+            casa.setNome("Casa " + i);
+            casa.setEndereco("Rua " + i);
+            casa.setPrecoDiaria(100.0 + i * 10);
+            casa.setQuantidadeQuartos(1 + i % 5);
+            casa.setQuantidadeBanheiros(1 + i % 3);
+            casa.setCapacidadePessoas(2 + i % 8);
+            casas.add(casa);
+        }
+        casaRepository.saveAll(casas);
+        indiceGeografico.carregar();
+        indiceColunar.carregar();
+    }
+
+    @Test
+    void filtroContaTodasAsCasasEPaginaNoBanco() 
+    {
+        // Filtro que casa com registros espalhados por várias páginas de findAll
+        Page<Casa> primeira = casaService.listarCasasComFiltro(
+                400.0, 3, null, 150.0, null, null, null, null,
+                PageRequest.of(0, 5, Sort.by("id")));
+
+        long esperado = casaRepository.findAll().stream()
+                .filter(c -> c.getPrecoDiaria() >= 150.0 && c.getPrecoDiaria() <= 400.0)
+                .filter(c -> c.getQuantidadeQuartos() >= 3)
+                .count();
+
+        assertEquals(esperado, primeira.getTotalElements());
+        assertEquals(5, primeira.getContent().size());
+        assertTrue(primeira.getContent().stream().allMatch(c -> c.getQuantidadeQuartos() >= 3));
+    }
+
+    @Test
+    void filtroSemParametrosRetornaTodas() 
+    {
+        Page<Casa> pagina = casaService.listarCasasComFiltro(
+                null, null, null, null, null, null, null, null, PageRequest.of(2, 10));
+
+        assertEquals(50, pagina.getTotalElements());
+        assertEquals(10, pagina.getContent().size());
+    }
+
+    @Test
+    void filtroPorCapacidade() 
+    {
+        Page<Casa> pagina = casaService.listarCasasComFiltro(
+                null, null, null, null, null, null, 8, 9, PageRequest.of(0, 50));
+
+        assertEquals(12, pagina.getTotalElements());
+        assertTrue(pagina.getContent().stream().allMatch(c -> c.getCapacidadePessoas() >= 8));
+    }
+
+    @Test
+    void disponiveisExcluiCasasComReservaSobrepostaEPoucaCapacidade() 
+    {
+        LocalDate checkIn = LocalDate.now().plusDays(30);
+        LocalDate checkOut = checkIn.plusDays(4);
+        List<Casa> casas = casaRepository.findAll(Sort.by("id"));
+        reservar(casas.get(0), checkIn.plusDays(2), checkIn.plusDays(6));   // sobrepõe
+        reservar(casas.get(1), checkIn.minusDays(3), checkIn);              // termina no check-in: não sobrepõe
+        reservar(casas.get(2), checkOut, checkOut.plusDays(2));             // começa no check-out: não sobrepõe
+
+        Page<Casa> disponiveis = casaService.listarCasasDisponiveis(checkIn, checkOut, null,
+                null, null, null, null, null, null, PageRequest.of(0, 100));
+        assertEquals(49, disponiveis.getTotalElements());
+        assertFalse(disponiveis.getContent().stream().anyMatch(c -> c.getId().equals(casas.get(0).getId())));
+
+        Page<Casa> paraOito = casaService.listarCasasDisponiveis(checkIn, checkOut, 8,
+                null, null, null, null, null, null, PageRequest.of(0, 100));
+        long esperado = casas.stream().skip(1).filter(c -> c.getCapacidadePessoas() >= 8).count();
+        assertEquals(esperado, paraOito.getTotalElements());
+        assertTrue(paraOito.getContent().stream().allMatch(c -> c.getCapacidadePessoas() >= 8));
+    }
+
+    @Test
+    void buscaDeProximasAcompanhaCadastroERemocao() 
+    {
+        // Avenida Paulista e Pinheiros (~4 km) e Campinas (~90 km)
+        Long paulista = cadastrarComCoordenadas("Paulista", -23.5614, -46.6559, 300.0).getId();
+        Long pinheiros = cadastrarComCoordenadas("Pinheiros", -23.5670, -46.6950, 200.0).getId();
+        cadastrarComCoordenadas("Campinas", -22.9099, -47.0626, 150.0);
+        IndiceGeografico.Area area = new IndiceGeografico.Area(-23.5600, -46.6500, 10.0, null, null, null, null);
+
+        Page<CasaProximaDTO> proximas = casaService.buscarCasasProximas(area,
+                null, null, null, null, null, null, null, null, PageRequest.of(0, 10));
+        assertEquals(List.of(paulista, pinheiros), proximas.getContent().stream().map(CasaProximaDTO::getId).toList());
+        assertTrue(proximas.getContent().get(0).getDistanciaKm() < proximas.getContent().get(1).getDistanciaKm());
+
+        Page<CasaProximaDTO> baratas = casaService.buscarCasasProximas(area,
+                250.0, null, null, null, null, null, null, null, PageRequest.of(0, 10));
+        assertEquals(List.of(pinheiros), baratas.getContent().stream().map(CasaProximaDTO::getId).toList());
+
+        casaService.deletarCasa(paulista);
+        Page<CasaProximaDTO> depois = casaService.buscarCasasProximas(area,
+                null, null, null, null, null, null, null, null, PageRequest.of(0, 10));
+        assertEquals(1, depois.getTotalElements());
+        assertFalse(depois.getContent().stream().anyMatch(c -> c.getId().equals(paulista)));
+    }
+
+    private CasaResponseDTO cadastrarComCoordenadas(String nome, double latitude, double longitude, double preco) 
+    {
+        CasaRequestDTO dto = new CasaRequestDTO();
+        dto.setNome(nome);
+        dto.setEndereco("Rua " + nome);
+        dto.setLatitude(latitude);
+        dto.setLongitude(longitude);
+        dto.setPrecoDiaria(preco);
+        dto.setQuantidadeQuartos(2);
+        dto.setQuantidadeBanheiros(1);
+        dto.setCapacidadePessoas(4);
+        return casaService.cadastrarCasa(dto);
+    }
+
+    private void reservar(Casa casa, LocalDate checkIn, LocalDate checkOut) 
+    {
+        Reserva reserva = new Reserva();
+        reserva.setCasa(casa);
+        reserva.setNomeCliente("Cliente");
+        reserva.setEmailCliente("cliente@exemplo.com");
+        reserva.setCpfCliente("00000000000");
+        reserva.setCheckIn(checkIn);
+        reserva.setCheckOut(checkOut);
+        reserva.setQuantidadePessoas(2);
+        reservaRepository.save(reserva);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.dto.ReservaRequestDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.model.SolicitacaoReserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+import com.example.demo.repository.SolicitacaoReservaRepository;
+
+// Novas tentativas rápidas e em menor número, para que os testes de falha não esperem os valores padrão
+@SpringBootTest(properties = { "reservas.fila.nova-tentativa=50ms", "reservas.fila.tentativas=3" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FilaDeReservasTest
+{
+    private static final LocalDate BASE = LocalDate.now().plusDays(30);
+
+    @Autowired
+    private FilaDeReservas filaDeReservas;
+
+    @MockitoSpyBean
+    private SolicitacaoReservaRepository solicitacaoRepository;
+
+    @MockitoSpyBean
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Long casaId;
+
+    @BeforeEach
+    void preparar()
+    {
+        solicitacaoRepository.deleteAll();
+        reservaRepository.deleteAll();
+        casaId = casaRepository.save(new Casa(null, "Casa da fila", "Rua", null, null, null, 2, 1, 200.0, 4, null)).getId();
+    }
+
+    // O banco H2 é compartilhado entre os contextos de teste
+    @AfterEach
+    void limpar()
+    {
+        solicitacaoRepository.deleteAll();
+        reservaRepository.deleteAll();
+    }
+
+    @Test
+    void processaOsPedidosEmLoteRecusandoOsQueConflitam() throws Exception
+    {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            // Pares de pedidos para o mesmo período: o primeiro de cada par é confirmado, o segundo conflita
+            LocalDate checkIn = BASE.plusDays((i / 2) * 3L);
+            ids.add(filaDeReservas.enfileirar("pedido-" + i, pedido(casaId, checkIn, checkIn.plusDays(2), 2)).getId());
+        }
+        ids.add(filaDeReservas.enfileirar("lotado", pedido(casaId, BASE.plusDays(200), BASE.plusDays(201), 9)).getId());
+        ids.add(filaDeReservas.enfileirar("sem-casa", pedido(-1L, BASE, BASE.plusDays(1), 2)).getId());
+
+        List<SolicitacaoReserva> processadas = aguardarProcessamento(ids);
+
+        long confirmadas = processadas.stream().filter(s -> s.getStatus() == SolicitacaoReserva.Status.CONFIRMADA).count();
+        assertEquals(20, confirmadas);
+        assertEquals(20, reservaRepository.count());
+        for (int i = 0; i < 40; i += 2)
+        {
+            assertEquals(SolicitacaoReserva.Status.CONFIRMADA, processadas.get(i).getStatus());
+            assertNotNull(processadas.get(i).getReservaId());
+            assertEquals(SolicitacaoReserva.Status.RECUSADA, processadas.get(i + 1).getStatus());
+        }
+        assertTrue(processadas.get(40).getMensagem().contains("capacidade"));
+        assertTrue(processadas.get(41).getMensagem().contains("Casa não encontrada"));
+    }
+
+    @Test
+    void repetirAChaveDevolveOMesmoPedido() throws Exception
+    {
+        ReservaRequestDTO dto = pedido(casaId, BASE, BASE.plusDays(2), 2);
+
+        SolicitacaoReserva primeira = filaDeReservas.enfileirar("mesma-chave", dto);
+        SolicitacaoReserva repetida = filaDeReservas.enfileirar("mesma-chave", dto);
+
+        assertEquals(primeira.getId(), repetida.getId());
+        aguardarProcessamento(List.of(primeira.getId()));
+        assertEquals(1, reservaRepository.count());
+    }
+
+    @Test
+    void endpointRespondeAceitoComOEnderecoDoPedido() throws Exception
+    {
+        String corpo = "{\"casaId\":" + casaId + ",\"nomeCliente\":\"Cliente\",\"emailCliente\":\"cliente@exemplo.com\""
+                + ",\"cpfCliente\":\"00000000000\",\"checkIn\":\"" + BASE + "\",\"checkOut\":\"" + BASE.plusDays(2) + "\""
+                + ",\"quantidadePessoas\":2}";
+
+        String endereco = mockMvc.perform(post("/api/reservas/assincronas")
+                        .header("Idempotency-Key", "http-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(corpo))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.chaveIdempotencia").value("http-1"))
+                .andReturn().getResponse().getHeader("Location");
+
+        assertNotNull(endereco);
+        Long id = Long.valueOf(endereco.substring(endereco.lastIndexOf('/') + 1));
+        aguardarProcessamento(List.of(id));
+        mockMvc.perform(get(endereco))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("CONFIRMADA"));
+
+        mockMvc.perform(post("/api/reservas/assincronas").contentType(MediaType.APPLICATION_JSON).content(corpo))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().doesNotExist("Location"));
+    }
+
+    @Test
+    void loteQueFalhaEhRefeitoDepoisDeUmaEspera() throws Exception
+    {
+        // As duas primeiras tentativas de processar o lote falham como se o banco estivesse fora do ar
+        // O repositório é um proxy: a resposta padrão do spy é a que repassa a chamada ao repositório de verdade
+        Answer<?> repositorio = mockingDetails(solicitacaoRepository).getMockCreationSettings().getDefaultAnswer();
+        AtomicInteger tentativas = new AtomicInteger();
+        doAnswer(chamada ->
+        {
+            if (tentativas.incrementAndGet() <= 2)
+            {
+                throw new QueryTimeoutException("Banco indisponível");
+            }
+            return repositorio.answer(chamada);
+        }).when(solicitacaoRepository).findByIdInAndStatusOrderById(anyCollection(), eq(SolicitacaoReserva.Status.PENDENTE));
+
+        Long primeiro = filaDeReservas.enfileirar("falha-1", pedido(casaId, BASE, BASE.plusDays(2), 2)).getId();
+        Long conflitante = filaDeReservas.enfileirar("falha-2", pedido(casaId, BASE, BASE.plusDays(2), 2)).getId();
+
+        List<SolicitacaoReserva> processadas = aguardarProcessamento(List.of(primeiro, conflitante));
+        // O lote refeito mantém a ordem de chegada: o primeiro pedido é o confirmado
+        assertEquals(SolicitacaoReserva.Status.CONFIRMADA, processadas.get(0).getStatus());
+        assertEquals(SolicitacaoReserva.Status.RECUSADA, processadas.get(1).getStatus());
+        assertEquals(1, reservaRepository.count());
+        assertEquals(3, tentativas.get());
+    }
+
+    @Test
+    void pedidoQueSempreFalhaEhRecusadoSemSegurarOsSeguintesDaCasa() throws Exception
+    {
+        // Gravar a reserva do cliente "Problema" sempre falha, em qualquer lote em que ela esteja
+        Answer<?> repositorio = mockingDetails(reservaRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(chamada ->
+        {
+            Iterable<Reserva> reservas = chamada.getArgument(0);
+            for (Reserva reserva : reservas)
+            {
+                if (reserva.getNomeCliente().equals("Problema"))
+                {
+                    throw new QueryTimeoutException("Falha ao gravar");
+                }
+            }
+            return repositorio.answer(chamada);
+        }).when(reservaRepository).saveAllAndFlush(anyIterable());
+
+        ReservaRequestDTO problematico = pedido(casaId, BASE, BASE.plusDays(2), 2);
+        problematico.setNomeCliente("Problema");
+        Long recusado = filaDeReservas.enfileirar("problema", problematico).getId();
+        Long junto = filaDeReservas.enfileirar("junto", pedido(casaId, BASE.plusDays(5), BASE.plusDays(7), 2)).getId();
+
+        List<SolicitacaoReserva> processadas = aguardarProcessamento(List.of(recusado, junto));
+        assertEquals(SolicitacaoReserva.Status.RECUSADA, processadas.get(0).getStatus());
+        assertTrue(processadas.get(0).getMensagem().contains("Falha ao gravar"), processadas.get(0).getMensagem());
+        assertEquals(SolicitacaoReserva.Status.CONFIRMADA, processadas.get(1).getStatus());
+
+        // A faixa da casa segue normalmente depois da recusa
+        Long seguinte = filaDeReservas.enfileirar("seguinte", pedido(casaId, BASE.plusDays(10), BASE.plusDays(12), 2)).getId();
+        assertEquals(SolicitacaoReserva.Status.CONFIRMADA, aguardarProcessamento(List.of(seguinte)).get(0).getStatus());
+        assertEquals(2, reservaRepository.count());
+    }
+
+    // Espera até todos os pedidos saírem de PENDENTE e os devolve na ordem dos IDs informados
+    private List<SolicitacaoReserva> aguardarProcessamento(List<Long> ids) throws InterruptedException
+    {
+        long limite = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < limite)
+        {
+            List<SolicitacaoReserva> solicitacoes = ids.stream()
+                    .map(id -> solicitacaoRepository.findById(id).orElseThrow())
+                    .toList();
+            if (solicitacoes.stream().noneMatch(s -> s.getStatus() == SolicitacaoReserva.Status.PENDENTE))
+            {
+                return solicitacoes;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("Pedidos ainda pendentes após 10 segundos");
+    }
+
+    private static ReservaRequestDTO pedido(Long casaId, LocalDate checkIn, LocalDate checkOut, int pessoas)
+    {
+        return new ReservaRequestDTO(casaId, "Cliente", "cliente@exemplo.com", "00000000000", checkIn, checkOut, pessoas);
+    }
+}
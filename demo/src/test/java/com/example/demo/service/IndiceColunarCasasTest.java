@@ -0,0 +1,181 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.demo.dto.CasaRequestDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+@SpringBootTest(properties = "spring.cache.type=none")
+@ActiveProfiles("test")
+class IndiceColunarCasasTest
+{
+    @Autowired
+    private IndiceColunarCasas indiceColunar;
+
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @BeforeEach
+    void prepararCasas()
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        Random random = new Random(7);
+        List<Casa> casas = new ArrayList<>();
+        // Mais de 1024 casas, para que os vetores cresçam e os bitmaps tenham várias palavras
+        for (int i = 0; i < 1500; i++)
+        {
+            casas.add(new Casa(null, "Casa " + i, "Rua " + i, null, null, null,
+                    1 + random.nextInt(6), 1 + random.nextInt(4),
+                    Math.round((50 + random.nextDouble() * 950) * 100) / 100.0, 1 + random.nextInt(12), null));
+        }
+        casaRepository.saveAll(casas);
+        indiceColunar.carregar();
+    }
+
+    @Test
+    void filtroEmMemoriaDevolveOMesmoQueOBanco()
+    {
+        conferirComOBanco(200);
+    }
+
+    @Test
+    void posicoesDeCasasRemovidasNaoSeAcumulam()
+    {
+        // Cadastros e remoções seguidos: sem compactação, cada casa removida deixaria uma posição morta
+        for (long id = 1_000_000; id < 1_003_000; id++)
+        {
+            indiceColunar.aoAlterarCasa(CasaAlteradaEvent.cadastro(
+                    new Casa(id, "Casa passageira", "Rua", null, null, null, 2, 1, 100.0, 4, null)));
+            indiceColunar.aoAlterarCasa(new CasaAlteradaEvent(id, null));
+        }
+        assertTrue(indiceColunar.posicoesUsadas() <= 1500 + 1500 / 3, "posições usadas: " + indiceColunar.posicoesUsadas());
+
+        // Remove metade das casas do banco; a compactação mantém as casas restantes em ordem de ID
+        List<Long> removidas = new ArrayList<>();
+        List<Casa> casas = casaRepository.findAll(Sort.by("id"));
+        for (int i = 0; i < casas.size(); i += 2)
+        {
+            removidas.add(casas.get(i).getId());
+        }
+        casaRepository.deleteAllByIdInBatch(removidas);
+        removidas.forEach(id -> indiceColunar.aoAlterarCasa(new CasaAlteradaEvent(id, null)));
+
+        assertTrue(indiceColunar.posicoesUsadas() <= 750 + 750 / 3, "posições usadas: " + indiceColunar.posicoesUsadas());
+        conferirComOBanco(50);
+    }
+
+    // Compara filtros aleatórios no índice com a mesma consulta feita no banco
+    private void conferirComOBanco(int consultas)
+    {
+        Random random = new Random(11);
+        for (int i = 0; i < consultas; i++)
+        {
+            Double precoMin = random.nextBoolean() ? 50 + random.nextDouble() * 500 : null;
+            Double precoMax = random.nextBoolean() ? 400 + random.nextDouble() * 600 : null;
+            if (i % 3 == 0)
+            {
+                // Faixa estreita, respondida pelo índice ordenado de preço
+                precoMin = 50 + random.nextDouble() * 900;
+                precoMax = precoMin + random.nextDouble() * 40;
+            }
+            Integer quartosMin = random.nextBoolean() ? 1 + random.nextInt(6) : null;
+            Integer quartosMax = random.nextBoolean() ? 1 + random.nextInt(6) : null;
+            Integer banheirosMin = random.nextBoolean() ? 1 + random.nextInt(4) : null;
+            Integer banheirosMax = random.nextBoolean() ? 1 + random.nextInt(4) : null;
+            Integer capacidadeMin = random.nextBoolean() ? 1 + random.nextInt(12) : null;
+            Integer capacidadeMax = random.nextBoolean() ? 1 + random.nextInt(12) : null;
+            PageRequest pagina = PageRequest.of(random.nextInt(3), 1 + random.nextInt(40));
+
+            Page<Casa> emMemoria = casaService.listarCasasComFiltro(precoMax, quartosMin, banheirosMin, precoMin,
+                    quartosMax, banheirosMax, capacidadeMin, capacidadeMax, pagina);
+            Page<Casa> noBanco = casaRepository.filtrarCasas(
+                    precoMax != null ? precoMax : Double.MAX_VALUE,
+                    precoMin != null ? precoMin : -Double.MAX_VALUE,
+                    quartosMax != null ? quartosMax : Integer.MAX_VALUE,
+                    quartosMin != null ? quartosMin : Integer.MIN_VALUE,
+                    banheirosMax != null ? banheirosMax : Integer.MAX_VALUE,
+                    banheirosMin != null ? banheirosMin : Integer.MIN_VALUE,
+                    capacidadeMax != null ? capacidadeMax : Integer.MAX_VALUE,
+                    capacidadeMin != null ? capacidadeMin : Integer.MIN_VALUE,
+                    pagina.withSort(Sort.by("id")));
+
+            assertEquals(noBanco.getTotalElements(), emMemoria.getTotalElements());
+            assertEquals(ids(noBanco), ids(emMemoria));
+        }
+    }
+
+    @Test
+    void cadastrosAtualizacoesERemocoesAlteramOIndice()
+    {
+        CasaRequestDTO dto = new CasaRequestDTO();
+        dto.setNome("Casa rara");
+        dto.setEndereco("Rua Rara, 1");
+        dto.setPrecoDiaria(5000.0);
+        dto.setQuantidadeQuartos(20);
+        dto.setQuantidadeBanheiros(9);
+        dto.setCapacidadePessoas(40);
+        Long id = casaService.cadastrarCasa(dto).getId();
+
+        assertEquals(List.of(id), ids(casaService.listarCasasComFiltro(null, 20, null, null, null, null, null, null,
+                PageRequest.of(0, 10))));
+
+        assertEquals(List.of(id), ids(casaService.listarCasasComFiltro(5000.0, null, null, 5000.0, null, null, null, null,
+                PageRequest.of(0, 10))));
+
+        Casa novosDados = new Casa(null, "Casa rara", "Rua Rara, 1", null, null, null, 7, 9, 4321.0, 40, null);
+        casaService.atualizarCasa(id, novosDados);
+        assertTrue(casaService.listarCasasComFiltro(null, 20, null, null, null, null, null, null,
+                PageRequest.of(0, 10)).isEmpty());
+        assertTrue(casaService.listarCasasComFiltro(5000.0, null, null, 5000.0, null, null, null, null,
+                PageRequest.of(0, 10)).isEmpty());
+        assertEquals(List.of(id), ids(casaService.listarCasasComFiltro(4400.0, 7, null, 4300.0, 7, null, null, null,
+                PageRequest.of(0, 10))));
+
+        casaService.deletarCasa(id);
+        assertTrue(casaService.listarCasasComFiltro(4400.0, null, null, 4300.0, null, null, null, null,
+                PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void outrasOrdenacoesContinuamNoBanco()
+    {
+        assertTrue(indiceColunar.atende(PageRequest.of(0, 10)));
+        assertTrue(indiceColunar.atende(PageRequest.of(0, 10, Sort.by("id"))));
+        assertFalse(indiceColunar.atende(PageRequest.of(0, 10, Sort.by("precoDiaria"))));
+        assertFalse(indiceColunar.atende(PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"))));
+
+        Page<Casa> porPreco = casaService.listarCasasComFiltro(null, null, null, null, null, null, null, null,
+                PageRequest.of(0, 5, Sort.by("precoDiaria")));
+        assertEquals(casaRepository.count(), porPreco.getTotalElements());
+        assertTrue(porPreco.getContent().get(0).getPrecoDiaria() <= porPreco.getContent().get(4).getPrecoDiaria());
+    }
+
+    private static List<Long> ids(Page<Casa> pagina)
+    {
+        return pagina.getContent().stream().map(Casa::getId).toList();
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import com.example.demo.dto.LocalizacaoCasa;
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+
+class IndiceGeograficoTest 
+{
+    private final CasaRepository casaRepository = mock(CasaRepository.class);
+    private final IndiceGeografico indice = new IndiceGeografico(casaRepository, 0.05);
+
+    @Test
+    void ordenaPorDistanciaERespeitaORaio() 
+    {
+        registrar(1L, -23.5614, -46.6559, 300.0);  // ~1 km do centro
+        registrar(2L, -23.5670, -46.6950, 200.0);  // ~4,6 km
+        registrar(3L, -22.9099, -47.0626, 150.0);  // ~82 km
+
+        IndiceGeografico.Pagina pagina = indice.buscar(raio(10), IndiceGeografico.Filtro.NENHUM, 0, 10);
+
+        assertEquals(List.of(1L, 2L), ids(pagina));
+        assertEquals(2, pagina.total());
+        assertEquals(3, indice.buscar(raio(100), IndiceGeografico.Filtro.NENHUM, 0, 10).total());
+    }
+
+    @Test
+    void combinaRetanguloFiltrosEPaginacao() 
+    {
+        for (long id = 1; id <= 30; id++) 
+        {
+            registrar(id, -23.56 + id * 0.001, -46.65, 100.0 + id);
+        }
+        IndiceGeografico.Area retangulo = new IndiceGeografico.Area(-23.56, -46.65, null,
+                -23.56, -23.54, -46.66, -46.64);
+        IndiceGeografico.Filtro ate115 = new IndiceGeografico.Filtro(-Double.MAX_VALUE, 115.0,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+        IndiceGeografico.Pagina segunda = indice.buscar(retangulo, ate115, 5, 5);
+
+        assertEquals(15, segunda.total());
+        assertEquals(List.of(6L, 7L, 8L, 9L, 10L), ids(segunda));
+    }
+
+    @Test
+    void atualizacaoMoveACasaERemocaoTiraDoIndice() 
+    {
+        registrar(1L, -23.5614, -46.6559, 300.0);
+        registrar(1L, -22.9099, -47.0626, 300.0); // mudou para Campinas
+
+        assertEquals(0, indice.buscar(raio(10), IndiceGeografico.Filtro.NENHUM, 0, 10).total());
+
+        indice.aoAlterarCasa(new CasaAlteradaEvent(1L, null));
+        assertEquals(0, indice.buscar(raio(1000), IndiceGeografico.Filtro.NENHUM, 0, 10).total());
+    }
+
+    @Test
+    void carregaDoBancoERejeitaAreaSemLimites() 
+    {
+        LocalizacaoCasa localizacao = mock(LocalizacaoCasa.class);
+        when(localizacao.getId()).thenReturn(7L);
+        when(localizacao.getLatitude()).thenReturn(-23.5614);
+        when(localizacao.getLongitude()).thenReturn(-46.6559);
+        when(localizacao.getPrecoDiaria()).thenReturn(200.0);
+        when(localizacao.getQuantidadeQuartos()).thenReturn(2);
+        when(localizacao.getQuantidadeBanheiros()).thenReturn(1);
+        when(localizacao.getCapacidadePessoas()).thenReturn(4);
+        when(casaRepository.buscarLocalizacoes()).thenReturn(List.of(localizacao));
+
+        indice.carregar();
+
+        assertEquals(List.of(7L), ids(indice.buscar(raio(5), IndiceGeografico.Filtro.NENHUM, 0, 10)));
+        assertThrows(IllegalArgumentException.class, () -> indice.buscar(
+                new IndiceGeografico.Area(-23.56, -46.65, null, null, null, null, null), IndiceGeografico.Filtro.NENHUM, 0, 10));
+    }
+
+    /**
+     * Latência da busca com um milhão de casas espalhadas pelo Sudeste. Só roda quando solicitado:
+     * mvn test -Dtest=IndiceGeograficoTest -Dcarga.geo=1000000
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "carga.geo", matches = "\\d+")
+    void latenciaComUmMilhaoDeCasas() 
+    {
+        int quantidade = Integer.getInteger("carga.geo");
+        Random random = new Random(42);
+        List<LocalizacaoCasa> localizacoes = new ArrayList<>(quantidade);
+        for (long id = 1; id <= quantidade; id++) 
+        {
+            long casaId = id;
+            double latitude = -25 + random.nextDouble() * 7;
+            double longitude = -50 + random.nextDouble() * 10;
+            double preco = 80 + random.nextInt(900);
+            int quartos = 1 + random.nextInt(5);
+            localizacoes.add(new LocalizacaoCasa() 
+            {
+                public Long getId() { return casaId; }
+                public Double getLatitude() { return latitude; }
+                public Double getLongitude() { return longitude; }
+                public Double getPrecoDiaria() { return preco; }
+                public Integer getQuantidadeQuartos() { return quartos; }
+                public Integer getQuantidadeBanheiros() { return 1; }
+                public Integer getCapacidadePessoas() { return 4; }
+            });
+        }
+        when(casaRepository.buscarLocalizacoes()).thenReturn(localizacoes);
+        indice.carregar();
+
+        IndiceGeografico.Filtro filtro = new IndiceGeografico.Filtro(150.0, 600.0,
+                2, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        long[] tempos = new long[2_000];
+        for (int i = 0; i < tempos.length + 500; i++) 
+        {
+            IndiceGeografico.Area area = new IndiceGeografico.Area(-24 + random.nextDouble() * 5,
+                    -49 + random.nextDouble() * 8, 10.0, null, null, null, null);
+            long inicio = System.nanoTime();
+            indice.buscar(area, filtro, 0, 20);
+            if (i >= 500) // Descarta o aquecimento
+            {
+                tempos[i - 500] = System.nanoTime() - inicio;
+            }
+        }
+        Arrays.sort(tempos);
+        double p50 = tempos[tempos.length / 2] / 1_000_000.0;
+        double p99 = tempos[(int) (tempos.length * 0.99)] / 1_000_000.0;
+        System.out.printf("casas=%d raio=10km p50=%.3fms p99=%.3fms%n", quantidade, p50, p99);
+        assertTrue(p99 < 10, "p99 da busca acima de 10 ms: " + p99);
+    }
+
+    private void registrar(long id, double latitude, double longitude, double preco) 
+    {
+        Casa casa = new Casa(id, "Casa " + id, "Rua", null, latitude, longitude, 2, 1, preco, 4, null);
+        indice.aoAlterarCasa(new CasaAlteradaEvent(id, casa));
+    }
+
+    private static IndiceGeografico.Area raio(double km) 
+    {
+        return new IndiceGeografico.Area(-23.5600, -46.6500, km, null, null, null, null);
+    }
+
+    private static List<Long> ids(IndiceGeografico.Pagina pagina) 
+    {
+        return pagina.itens().stream().map(IndiceGeografico.Resultado::casaId).toList();
+    }
+}
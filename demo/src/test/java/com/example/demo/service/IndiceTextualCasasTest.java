@@ -0,0 +1,242 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.dto.CasaBuscaDTO;
+import com.example.demo.dto.CasaRequestDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IndiceTextualCasasTest
+{
+    @Autowired
+    private IndiceTextualCasas indiceTextual;
+
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Casa praia;
+    private Casa chale;
+
+    @BeforeEach
+    void prepararCasas()
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        praia = casaRepository.save(new Casa(null, "Casa da Praia", "Avenida Atlântica, 100 - Copacabana",
+                "Varanda com vista para o mar", null, null, 3, 2, 600.0, 6, null));
+        chale = casaRepository.save(new Casa(null, "Chalé com piscinas", "Estrada da Serra, 5 - Ubatuba",
+                "Fica a 200 m da praia, com churrasqueira", null, null, 2, 1, 350.0, 4, null));
+        casaRepository.save(new Casa(null, "Apartamento no centro", "Rua Augusta, 1500 - São Paulo",
+                "Próximo ao metrô", null, null, 1, 1, 200.0, 2, null));
+        indiceTextual.carregar();
+    }
+
+    @Test
+    void encontraPorRadicalESemAcentoOrdenandoPelaRelevancia()
+    {
+        Page<CasaBuscaDTO> pagina = buscar("casa com piscina perto da praia", null);
+
+        assertEquals(2, pagina.getTotalElements());
+        // "casa" e "praia" no nome pesam mais que "piscina" no nome e "praia" na descrição
+        assertEquals(List.of(praia.getId(), chale.getId()), ids(pagina));
+        assertTrue(pagina.getContent().get(0).getRelevancia() > pagina.getContent().get(1).getRelevancia());
+
+        assertEquals(List.of(chale.getId()), ids(buscar("CHALE", null)));
+        assertEquals(List.of(chale.getId()), ids(buscar("ubatuba", null)));
+    }
+
+    @Test
+    void combinaOTextoComOsFiltrosNumericos()
+    {
+        assertEquals(List.of(praia.getId()), ids(buscar("praia", 5)));
+        assertTrue(buscar("praia", 10).isEmpty());
+    }
+
+    @Test
+    void cadastrosAtualizacoesERemocoesAlteramOIndice()
+    {
+        CasaRequestDTO dto = new CasaRequestDTO();
+        dto.setNome("Sítio do Pica-Pau");
+        dto.setEndereco("Estrada Velha, km 3");
+        dto.setDescricao("Lago para pesca e trilhas");
+        dto.setPrecoDiaria(300.0);
+        dto.setQuantidadeQuartos(4);
+        dto.setQuantidadeBanheiros(2);
+        dto.setCapacidadePessoas(10);
+        Long id = casaService.cadastrarCasa(dto).getId();
+        assertEquals(List.of(id), ids(buscar("sitio com lago", null)));
+
+        Casa novosDados = new Casa(null, "Fazenda do Pica-Pau", "Estrada Velha, km 3", "Trilhas",
+                null, null, 4, 2, 300.0, 10, null);
+        casaService.atualizarCasa(id, novosDados);
+        assertTrue(buscar("lago", null).isEmpty());
+        assertEquals(List.of(id), ids(buscar("fazendas", null)));
+
+        casaService.deletarCasa(id);
+        assertTrue(buscar("fazenda", null).isEmpty());
+    }
+
+    @Test
+    void recusaTextoSemPalavrasEPaginasFundasDemais() throws Exception
+    {
+        assertThrows(IllegalArgumentException.class, () -> buscar("com da de", null));
+        assertThrows(IllegalArgumentException.class, () -> indiceTextual.buscar("praia",
+                IndiceGeografico.Filtro.NENHUM, IndiceTextualCasas.MAXIMO_RESULTADOS, 10));
+
+        mockMvc.perform(get("/api/casas/busca").param("q", "piscina praia").param("capacidadeMin", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2))
+                .andExpect(jsonPath("$.content[0].relevancia").isNumber());
+        mockMvc.perform(get("/api/casas/busca").param("q", "e o"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void buscasContinuamRespondendoEnquantoOIndiceEhRemontado() throws Exception
+    {
+        List<Casa> casas = new ArrayList<>();
+        for (long i = 1; i <= 5; i++)
+        {
+            casas.add(new Casa(i, "Casa com piscina " + i, "Rua " + i, "Perto da praia", null, null, 2, 1, 300.0, 4, null));
+        }
+        CasaRepository repositorio = mock(CasaRepository.class);
+        when(repositorio.findAll()).thenReturn(casas);
+        IndiceTextualCasas indice = new IndiceTextualCasas(repositorio);
+        indice.carregar();
+
+        // A remontagem fecha o índice anterior enquanto as buscas ainda podem estar com ele
+        AtomicBoolean remontando = new AtomicBoolean(true);
+        Thread remontagem = Thread.ofPlatform().start(() ->
+        {
+            long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            while (System.nanoTime() < fim)
+            {
+                indice.carregar();
+            }
+            remontando.set(false);
+        });
+        ExecutorService buscas = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> resultados = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            resultados.add(buscas.submit(() ->
+            {
+                int feitas = 0;
+                while (remontando.get())
+                {
+                    assertEquals(5, indice.buscar("piscina", IndiceGeografico.Filtro.NENHUM, 0, 10).total());
+                    feitas++;
+                }
+                return feitas;
+            }));
+        }
+        remontagem.join();
+        buscas.shutdown();
+        for (Future<Integer> resultado : resultados)
+        {
+            // Falha aqui se alguma busca lançou exceção (um índice já fechado, por exemplo)
+            resultado.get(1, TimeUnit.MINUTES);
+        }
+        indice.fechar();
+    }
+
+    /**
+     * Latência da busca por texto com dez mil casas. Mede tempo de relógio, então só roda quando solicitado:
+     * mvn test -Dtest=IndiceTextualCasasTest -Dmedicao.busca=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "medicao.busca", matches = "true")
+    void buscaEmDezMilCasasLevaPoucosMilissegundos()
+    {
+        List<String> palavras = Arrays.asList(("piscina praia churrasqueira varanda lago montanha serra centro "
+                + "jardim sauna lareira vista mar trilha campo quintal garagem suíte cozinha rede wi-fi").split(" "));
+        Random random = new Random(3);
+        List<Casa> casas = new ArrayList<>();
+        for (long i = 1; i <= 10_000; i++)
+        {
+            StringBuilder descricao = new StringBuilder();
+            for (int j = 0; j < 40; j++)
+            {
+                descricao.append(palavras.get(random.nextInt(palavras.size()))).append(' ');
+            }
+            casas.add(new Casa(i, "Casa " + palavras.get(random.nextInt(palavras.size())), "Rua " + i,
+                    descricao.toString(), null, null, 1 + random.nextInt(5), 1 + random.nextInt(3),
+                    100.0 + random.nextInt(900), 2 + random.nextInt(8), null));
+        }
+        CasaRepository repositorio = mock(CasaRepository.class);
+        when(repositorio.findAll()).thenReturn(casas);
+        IndiceTextualCasas indice = new IndiceTextualCasas(repositorio);
+        indice.carregar();
+
+        IndiceGeografico.Filtro filtro = new IndiceGeografico.Filtro(200, 700, 2, Integer.MAX_VALUE,
+                Integer.MIN_VALUE, Integer.MAX_VALUE, 4, Integer.MAX_VALUE);
+        // "casa" aparece em todos os nomes: é o pior caso, toda a coleção é pontuada para a contagem exata
+        for (int i = 0; i < 100; i++)
+        {
+            indice.buscar("casa com piscina perto da praia", filtro, 0, 20);
+        }
+        double[] tempos = new double[200];
+        for (int i = 0; i < tempos.length; i++)
+        {
+            long inicio = System.nanoTime();
+            indice.buscar("casa com piscina perto da praia", filtro, (i % 5) * 20L, 20);
+            tempos[i] = (System.nanoTime() - inicio) / 1_000_000.0;
+        }
+        Arrays.sort(tempos);
+        assertTrue(tempos[tempos.length / 2] < 20, "Mediana da busca: " + tempos[tempos.length / 2] + "ms");
+        indice.fechar();
+    }
+
+    private Page<CasaBuscaDTO> buscar(String texto, Integer capacidadeMin)
+    {
+        return casaService.buscarCasasPorTexto(texto, null, null, null, null, null, null, capacidadeMin, null,
+                PageRequest.of(0, 10));
+    }
+
+    private static List<Long> ids(Page<CasaBuscaDTO> pagina)
+    {
+        return pagina.getContent().stream().map(CasaBuscaDTO::getId).toList();
+    }
+}
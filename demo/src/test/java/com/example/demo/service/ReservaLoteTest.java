@@ -0,0 +1,223 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.dto.ItemLoteReservaDTO;
+import com.example.demo.dto.ReservaLoteRequestDTO;
+import com.example.demo.dto.ReservaLoteResponseDTO;
+import com.example.demo.dto.ReservaRequestDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReservaLoteTest
+{
+    private static final LocalDate CHECK_IN = LocalDate.now().plusDays(30);
+    private static final LocalDate CHECK_OUT = CHECK_IN.plusDays(3);
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private CalendarioDisponibilidade calendario;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<Long> casaIds = new ArrayList<>();
+
+    // O banco H2 é compartilhado entre os contextos de teste; sem isso outras classes
+    // não conseguiriam apagar as casas que ficaram com reservas
+    @AfterEach
+    void limparReservas()
+    {
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().setStatisticsEnabled(false);
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void prepararCasas()
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        calendario.carregar();
+        casaIds.clear();
+        for (int i = 0; i < 40; i++)
+        {
+            casaIds.add(casaRepository.save(new Casa(null, "Casa " + i, "Rua " + i, null, null, null,
+                    2, 1, 100.0 + i, 4, null)).getId());
+        }
+    }
+
+    @Test
+    void gravaTodoOLoteComPoucasIdasAoBanco()
+    {
+        // Ligadas só durante a medição (ver CasaCacheTest)
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.setStatisticsEnabled(true);
+        estatisticas.clear();
+        for (int i = 0; i < 10; i++)
+        {
+            reservaService.criarReserva(paraReserva(item(casaIds.get(30 + i), CHECK_IN, CHECK_OUT)));
+        }
+        long umaAUma = estatisticas.getPrepareStatementCount();
+
+        List<ReservaRequestDTO> itens = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+        {
+            itens.add(item(casaIds.get(i), CHECK_IN, CHECK_OUT));
+        }
+        estatisticas.clear();
+        ReservaLoteResponseDTO resposta = reservaService.criarReservasEmLote(itens);
+        long emLote = estatisticas.getPrepareStatementCount();
+
+        assertTrue(resposta.isCriadas());
+        assertTrue(resposta.getItens().stream().allMatch(item -> ReservaService.CRIADA.equals(item.getStatus())));
+        assertEquals(40, reservaRepository.count());
+        Reserva gravada = reservaRepository.findById(resposta.getItens().get(7).getReservaId()).orElseThrow();
+        assertEquals(107.0, gravada.getPrecoDiaria());
+        // O calendário já conhece as reservas do lote
+        assertFalse(calendario.estaDisponivel(casaIds.get(29), CHECK_IN.plusDays(1), CHECK_OUT));
+        // Uma consulta de casas, a sequence e um insert em lote, contra uma ou mais instruções por reserva
+        assertTrue(emLote <= 4, "Instruções no lote de 30: " + emLote);
+        assertTrue(umaAUma >= 10, "Instruções em 10 reservas avulsas: " + umaAUma);
+    }
+
+    @Test
+    void recusaOLoteInteiroEApontaCadaProblema()
+    {
+        reservaService.criarReserva(paraReserva(item(casaIds.get(1), CHECK_IN.plusDays(2), CHECK_OUT.plusDays(2))));
+
+        ReservaRequestDTO semCampos = item(casaIds.get(4), CHECK_IN, CHECK_OUT);
+        semCampos.setCpfCliente(null);
+        ReservaRequestDTO lotado = item(casaIds.get(5), CHECK_IN, CHECK_OUT);
+        lotado.setQuantidadePessoas(9);
+        ReservaLoteResponseDTO resposta = reservaService.criarReservasEmLote(List.of(
+                item(casaIds.get(0), CHECK_IN, CHECK_OUT),
+                item(casaIds.get(1), CHECK_IN, CHECK_OUT),
+                item(casaIds.get(2), CHECK_IN, CHECK_OUT),
+                item(casaIds.get(2), CHECK_IN.plusDays(1), CHECK_OUT.plusDays(1)),
+                item(-1L, CHECK_IN, CHECK_OUT),
+                semCampos,
+                lotado));
+
+        assertFalse(resposta.isCriadas());
+        assertEquals(List.of(ReservaService.NAO_GRAVADA, ReservaService.CONFLITO, ReservaService.NAO_GRAVADA,
+                ReservaService.CONFLITO, ReservaService.INVALIDA, ReservaService.INVALIDA, ReservaService.INVALIDA),
+                resposta.getItens().stream().map(ItemLoteReservaDTO::getStatus).toList());
+        assertNotNull(resposta.getItens().get(0).getMensagem());
+        assertEquals(1, reservaRepository.count());
+        assertTrue(calendario.estaDisponivel(casaIds.get(0), CHECK_IN, CHECK_OUT));
+
+        assertThrows(IllegalArgumentException.class, () -> reservaService.criarReservasEmLote(List.of()));
+    }
+
+    @Test
+    void endpointRespondeConformeOResultadoDoLote() throws Exception
+    {
+        String lote = objectMapper.writeValueAsString(new ReservaLoteRequestDTO(List.of(
+                item(casaIds.get(0), CHECK_IN, CHECK_OUT), item(casaIds.get(1), CHECK_IN, CHECK_OUT))));
+
+        mockMvc.perform(post("/api/reservas/lote").contentType(MediaType.APPLICATION_JSON).content(lote))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.criadas").value(true))
+                .andExpect(jsonPath("$.itens[1].reservaId").isNumber());
+        mockMvc.perform(post("/api/reservas/lote").contentType(MediaType.APPLICATION_JSON).content(lote))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.itens[0].status").value(ReservaService.CONFLITO));
+        mockMvc.perform(post("/api/reservas/lote").contentType(MediaType.APPLICATION_JSON).content("{\"itens\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void travasDeVariasCasasNaoEntramEmDeadlock() throws Exception
+    {
+        TravasPorCasa travas = new TravasPorCasa(16);
+        List<Long> crescente = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        List<Long> decrescente = crescente.reversed();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 4; t++)
+            {
+                List<Long> ordem = t % 2 == 0 ? crescente : decrescente;
+                tarefas.add(executor.submit(() ->
+                {
+                    for (int i = 0; i < 2000; i++)
+                    {
+                        travas.executarTodas(ordem, () -> travas.executar(ordem.get(0), () -> null));
+                    }
+                }));
+            }
+            for (Future<?> tarefa : tarefas)
+            {
+                tarefa.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertFalse(travas.travaDa(1L).isLocked());
+    }
+
+    private static ReservaRequestDTO item(Long casaId, LocalDate checkIn, LocalDate checkOut)
+    {
+        return new ReservaRequestDTO(casaId, "Empresa", "eventos@empresa.com", "12345678900", checkIn, checkOut, 2);
+    }
+
+    private static Reserva paraReserva(ReservaRequestDTO item)
+    {
+        Casa casa = new Casa();
+        casa.setId(item.getCasaId());
+        return new Reserva(null, casa, item.getNomeCliente(), item.getEmailCliente(), item.getCpfCliente(),
+                item.getCheckIn(), item.getCheckOut(), item.getQuantidadePessoas(), null);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.dto.ReservaResponseDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Garante que as leituras de reservas usam projeções: uma única consulta, sem carregar entidades.
+ * A comparação de bytes e alocações com a leitura antiga (entidade com a casa inteira) só roda quando solicitada:
+ * mvn test -Dtest=ReservaProjecaoTest -Dmedicao.projecoes=true
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservaProjecaoTest 
+{
+    private static final int RESERVAS = 200;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Statistics estatisticas;
+    private Long primeiraReservaId;
+
+    // O banco H2 é compartilhado entre os contextos de teste; sem isso outras classes
+    // não conseguiriam apagar as casas que ficaram com reservas
+    @AfterEach
+    void limparReservas() 
+    {
+        estatisticas.setStatisticsEnabled(false);
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void preparar() 
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+
+        Casa casa = new Casa();
+        casa.setNome("Casa de praia");
+        casa.setEndereco("Avenida Beira Mar, 100");
+        casa.setDescricao("x".repeat(1000));
+        casa.setPrecoDiaria(350.0);
+        casa.setQuantidadeQuartos(3);
+        casa.setQuantidadeBanheiros(2);
+        casa.setCapacidadePessoas(6);
+        casa = casaRepository.save(casa);
+
+        LocalDate base = LocalDate.now().plusDays(5);
+        List<Reserva> reservas = new ArrayList<>();
+        for (int i = 0; i < RESERVAS; i++) 
+        {
+            Reserva reserva = new Reserva();
+            reserva.setCasa(casa);
+            reserva.setNomeCliente("Cliente " + i);
+            reserva.setEmailCliente("cliente" + i + "@exemplo.com");
+            reserva.setCpfCliente("00000000000");
+            reserva.setCheckIn(base.plusDays(i * 2L));
+            reserva.setCheckOut(base.plusDays(i * 2L + 1));
+            reserva.setQuantidadePessoas(2);
+            reservas.add(reserva);
+        }
+        primeiraReservaId = reservaRepository.saveAll(reservas).get(0).getId();
+
+        // Ligadas só durante cada teste (ver CasaCacheTest)
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.setStatisticsEnabled(true);
+        estatisticas.clear();
+    }
+
+    @Test
+    void buscaPorIdFazUmaConsultaSemCarregarEntidades() 
+    {
+        ReservaResponseDTO reserva = reservaService.buscarReservaPorId(primeiraReservaId).orElseThrow();
+
+        assertEquals("Casa de praia", reserva.getCasaNome());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+    }
+
+    @Test
+    void paginaFazUmaConsultaSemCarregarEntidades() 
+    {
+        assertEquals(50, reservaService.listarReservas(null, 50, null, null, null, null, null).getItens().size());
+
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "medicao.projecoes", matches = "true")
+    void comparaLeituraPorEntidadeComProjecao() 
+    {
+        for (int i = 0; i < 200; i++) // Aquecimento
+        {
+            lerComoEntidade();
+            lerComoProjecao();
+        }
+
+        estatisticas.clear();
+        long bytesAlocados = alocadoNaThread();
+        long tamanhoJson = lerComoEntidade();
+        long alocacaoEntidade = alocadoNaThread() - bytesAlocados;
+        long linhasEntidade = estatisticas.getEntityLoadCount();
+
+        estatisticas.clear();
+        bytesAlocados = alocadoNaThread();
+        long tamanhoJsonProjecao = lerComoProjecao();
+        long alocacaoProjecao = alocadoNaThread() - bytesAlocados;
+        long linhasProjecao = estatisticas.getEntityLoadCount();
+
+        assertTrue(tamanhoJsonProjecao < tamanhoJson, String.format(
+                "entidade: %d entidades carregadas, %d bytes de JSON, %d bytes alocados; "
+                + "projeção: %d entidades carregadas, %d bytes de JSON, %d bytes alocados",
+                linhasEntidade, tamanhoJson, alocacaoEntidade, linhasProjecao, tamanhoJsonProjecao, alocacaoProjecao));
+    }
+
+    // Leitura como era antes: a página de entidades, cada uma com a casa inteira serializada
+    private long lerComoEntidade() 
+    {
+        return transactionTemplate.execute(status -> 
+        {
+            long bytes = 0;
+            for (Reserva reserva : reservaRepository.findAll()) 
+            {
+                reserva.setCasa((Casa) Hibernate.unproxy(reserva.getCasa()));
+                bytes += escrever(reserva);
+            }
+            return bytes;
+        });
+    }
+
+    private long lerComoProjecao() 
+    {
+        long bytes = 0;
+        for (ReservaResponseDTO reserva : reservaService.listarReservas(null, RESERVAS, null, null, null, null, null).getItens()) 
+        {
+            bytes += escrever(reserva);
+        }
+        return bytes;
+    }
+
+    private long escrever(Object valor) 
+    {
+        try 
+        {
+            return objectMapper.writeValueAsBytes(valor).length;
+        } 
+        catch (Exception e) 
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long alocadoNaThread() 
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+/**
+ * Teste de estresse do fluxo de reservas: várias threads disputando as mesmas casas e datas
+ * não podem gerar reservas sobrepostas.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservaServiceConcorrenciaTest 
+{
+    private static final int THREADS = 32;
+    private static final int TENTATIVAS_POR_THREAD = 200;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private CalendarioDisponibilidade calendario;
+
+    private final List<Long> casaIds = new ArrayList<>();
+
+    // O banco H2 é compartilhado entre os contextos de teste; sem isso outras classes
+    // não conseguiriam apagar as casas que ficaram com reservas
+    @AfterEach
+    void limparReservas() 
+    {
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void prepararCasas() 
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        calendario.carregar();
+
+        casaIds.clear();
+        for (int i = 0; i < 4; i++) 
+        {
+            Casa casa = new Casa();
+            casa.setNome("Casa " + i);
+            casa.setEndereco("Rua " + i);
+            casa.setPrecoDiaria(200.0);
+            casa.setQuantidadeQuartos(2);
+            casa.setQuantidadeBanheiros(1);
+            casa.setCapacidadePessoas(4);
+            casaIds.add(casaRepository.save(casa).getId());
+        }
+    }
+
+    @Test
+    void mesmasDatasNaMesmaCasaGeramApenasUmaReserva() throws Exception 
+    {
+        LocalDate checkIn = LocalDate.now().plusDays(30);
+        AtomicInteger sucessos = executarEmParalelo(THREADS, 1, () -> 
+                novaReserva(casaIds.get(0), checkIn, checkIn.plusDays(3)));
+
+        assertEquals(1, sucessos.get());
+        assertEquals(1, reservaRepository.count());
+    }
+
+    @Test
+    void reservasAleatoriasConcorrentesNuncaSeSobrepoem() throws Exception 
+    {
+        LocalDate inicio = LocalDate.now().plusDays(1);
+        AtomicInteger sucessos = executarEmParalelo(THREADS, TENTATIVAS_POR_THREAD, () -> 
+        {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            LocalDate checkIn = inicio.plusDays(random.nextInt(365));
+            return novaReserva(casaIds.get(random.nextInt(casaIds.size())), checkIn, checkIn.plusDays(1 + random.nextInt(7)));
+        });
+
+        List<Reserva> reservas = reservaRepository.findAll();
+        assertEquals(sucessos.get(), reservas.size());
+        assertTrue(sucessos.get() > 0);
+
+        Map<Long, List<Reserva>> porCasa = reservas.stream()
+                .collect(Collectors.groupingBy(r -> r.getCasa().getId()));
+        for (List<Reserva> daCasa : porCasa.values()) 
+        {
+            daCasa.sort((a, b) -> a.getCheckIn().compareTo(b.getCheckIn()));
+            for (int i = 1; i < daCasa.size(); i++) 
+            {
+                assertFalse(daCasa.get(i).getCheckIn().isBefore(daCasa.get(i - 1).getCheckOut()),
+                        "Reservas sobrepostas: " + daCasa.get(i - 1).getId() + " e " + daCasa.get(i).getId());
+            }
+        }
+    }
+
+    private AtomicInteger executarEmParalelo(int threads, int tentativas, java.util.function.Supplier<Reserva> fabrica) 
+            throws Exception 
+    {
+        AtomicInteger sucessos = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> trabalhadores = new ArrayList<>();
+        for (int t = 0; t < threads; t++) 
+        {
+            trabalhadores.add(executor.submit(() -> 
+            {
+                largada.await();
+                for (int i = 0; i < tentativas; i++) 
+                {
+                    try 
+                    {
+                        reservaService.criarReserva(fabrica.get());
+                        sucessos.incrementAndGet();
+                    } 
+                    catch (IllegalArgumentException e) 
+                    {
+                        // Conflito esperado com outra reserva
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+        // Só o conflito de datas é esperado; qualquer outra exceção de um trabalhador falha o teste aqui
+        for (Future<Void> trabalhador : trabalhadores) 
+        {
+            trabalhador.get();
+        }
+        return sucessos;
+    }
+
+    private static Reserva novaReserva(Long casaId, LocalDate checkIn, LocalDate checkOut) 
+    {
+        Casa casa = new Casa();
+        casa.setId(casaId);
+
+        Reserva reserva = new Reserva();
+        reserva.setCasa(casa);
+        reserva.setNomeCliente("Cliente");
+        reserva.setEmailCliente("cliente@exemplo.com");
+        reserva.setCpfCliente("00000000000");
+        reserva.setCheckIn(checkIn);
+        reserva.setCheckOut(checkOut);
+        reserva.setQuantidadePessoas(2);
+        return reserva;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.demo.dto.PaginaReservasDTO;
+import com.example.demo.dto.ReservaResponseDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservaServiceTest 
+{
+    private static final LocalDate BASE = LocalDate.now().plusDays(10);
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    private Casa casaA;
+    private Casa casaB;
+
+    // O banco H2 é compartilhado entre os contextos de teste; sem isso outras classes
+    // não conseguiriam apagar as casas que ficaram com reservas
+    @AfterEach
+    void limparReservas() 
+    {
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void preparar() 
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        casaA = casaRepository.save(novaCasa("Casa A"));
+        casaB = casaRepository.save(novaCasa("Casa B"));
+
+        List<Reserva> reservas = new ArrayList<>();
+        for (int i = 0; i < 25; i++) 
+        {
+            Reserva reserva = new Reserva();
+            reserva.setCasa(i % 2 == 0 ? casaA : casaB);
+            reserva.setNomeCliente("Cliente " + i);
+            reserva.setEmailCliente("cliente" + (i % 3) + "@exemplo.com");
+            reserva.setCpfCliente("0000000000" + (i % 3));
+            reserva.setCheckIn(BASE.plusDays(i * 3L));
+            reserva.setCheckOut(BASE.plusDays(i * 3L + 2));
+            reserva.setQuantidadePessoas(2);
+            reservas.add(reserva);
+        }
+        reservaRepository.saveAll(reservas);
+    }
+
+    @Test
+    void percorreTodasAsPaginasPeloCursor() 
+    {
+        List<Long> ids = new ArrayList<>();
+        Long cursor = null;
+        int paginas = 0;
+        do 
+        {
+            PaginaReservasDTO pagina = reservaService.listarReservas(cursor, 10, null, null, null, null, null);
+            pagina.getItens().forEach(item -> ids.add(item.getId()));
+            cursor = pagina.getProximoCursor();
+            paginas++;
+        } 
+        while (cursor != null);
+
+        assertEquals(25, ids.size());
+        assertEquals(3, paginas);
+        assertEquals(ids.stream().sorted().toList(), ids);
+    }
+
+    @Test
+    void aplicaFiltrosDeCasaPeriodoECliente() 
+    {
+        PaginaReservasDTO daCasaA = reservaService.listarReservas(null, 100, casaA.getId(), null, null, null, null);
+        assertEquals(13, daCasaA.getItens().size());
+        assertNull(daCasaA.getProximoCursor());
+
+        // Reservas que ocupam alguma noite entre BASE+9 e BASE+16 (saída exclusiva): índices 3, 4 e 5
+        PaginaReservasDTO noPeriodo = reservaService.listarReservas(null, 100, null, BASE.plusDays(9), BASE.plusDays(16), null, null);
+        assertEquals(List.of("Cliente 3", "Cliente 4", "Cliente 5"),
+                noPeriodo.getItens().stream().map(ReservaResponseDTO::getNomeCliente).toList());
+
+        PaginaReservasDTO doCliente = reservaService.listarReservas(null, 100, null, null, null, "00000000001", null);
+        assertTrue(doCliente.getItens().stream().allMatch(r -> r.getCpfCliente().equals("00000000001")));
+        assertEquals(8, doCliente.getItens().size());
+    }
+
+    @Test
+    void exportaUmaReservaPorLinha() throws Exception 
+    {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        reservaService.exportarReservas(saida, casaB.getId(), null, null, null, null);
+
+        String[] linhas = saida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(12, linhas.length);
+        assertTrue(linhas[0].startsWith("{") && linhas[0].contains("\"nomeCliente\":\"Cliente 1\""));
+    }
+
+    @Test
+    void reconheceViolacaoDaRestricaoDeSobreposicao() 
+    {
+        // O H2 dos testes não tem a restrição de exclusão; simula o erro que o driver do Postgres devolve
+        SQLException exclusao = new SQLException("conflicting key value violates exclusion constraint", "23P01");
+        SQLException chaveDuplicada = new SQLException("duplicate key value violates unique constraint", "23505");
+
+        assertTrue(ReservaService.violouExclusao(new DataIntegrityViolationException("insert", exclusao)));
+        assertFalse(ReservaService.violouExclusao(new DataIntegrityViolationException("insert", chaveDuplicada)));
+    }
+
+    private static Casa novaCasa(String nome) 
+    {
+        Casa casa = new Casa();
+        casa.setNome(nome);
+        casa.setEndereco("Rua");
+        casa.setPrecoDiaria(200.0);
+        casa.setQuantidadeQuartos(2);
+        casa.setQuantidadeBanheiros(1);
+        casa.setCapacidadePessoas(4);
+        return casa;
+    }
+}
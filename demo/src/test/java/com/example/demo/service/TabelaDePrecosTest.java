@@ -0,0 +1,186 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.config.PrecoProperties;
+import com.example.demo.dto.CotacaoDTO;
+import com.example.demo.dto.DiariaCotadaDTO;
+import com.example.demo.model.Casa;
+import com.example.demo.model.Reserva;
+import com.example.demo.repository.CasaRepository;
+import com.example.demo.repository.ReservaRepository;
+
+@SpringBootTest(properties = {
+        "precos.ultima-hora.dias=14",
+        "precos.ultima-hora.ocupacao-minima=0.5",
+        "precos.ultima-hora.multiplicador=1.5"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TabelaDePrecosTest
+{
+    @Autowired
+    private TabelaDePrecos tabelaDePrecos;
+
+    @Autowired
+    private AnaliseOcupacao analiseOcupacao;
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private CasaService casaService;
+
+    @Autowired
+    private IndiceColunarCasas indiceColunar;
+
+    @Autowired
+    private CasaRepository casaRepository;
+
+    @Autowired
+    private ReservaRepository reservaRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private Casa casaA;
+    private Casa casaB;
+
+    // O banco H2 é compartilhado entre os contextos de teste; sem isso outras classes
+    // não conseguiriam apagar as casas que ficaram com reservas
+    @AfterEach
+    void limparReservas()
+    {
+        reservaRepository.deleteAll();
+    }
+
+    @BeforeEach
+    void preparar()
+    {
+        reservaRepository.deleteAll();
+        casaRepository.deleteAll();
+        casaA = casaRepository.save(new Casa(null, "Casa A", "Rua A", null, null, null, 2, 1, 200.0, 4, null));
+        casaB = casaRepository.save(new Casa(null, "Casa B", "Rua B", null, null, null, 2, 1, 300.0, 4, null));
+        // As casas foram gravadas direto no repositório, sem eventos; a quantidade de casas vem do índice colunar
+        indiceColunar.carregar();
+        analiseOcupacao.carregar();
+        tabelaDePrecos.compilar();
+    }
+
+    @Test
+    void cotaNoiteANoiteComTemporadaDiaDaSemanaUltimaHoraEDesconto()
+    {
+        LocalDate hoje = LocalDate.now();
+        // Uma semana de segunda a segunda, a partir da segunda-feira depois de amanhã
+        LocalDate segunda = hoje.plusDays(2).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+        Map<String, String> valores = new HashMap<>();
+        valores.put("precos.horizonte-dias", "60");
+        valores.put("precos.dias-da-semana.SATURDAY", "1.5");
+        valores.put("precos.temporadas[0].nome", "feriado");
+        valores.put("precos.temporadas[0].inicio", segunda.plusDays(2).toString());
+        valores.put("precos.temporadas[0].fim", segunda.plusDays(3).toString());
+        valores.put("precos.temporadas[0].multiplicador", "2");
+        valores.put("precos.descontos-estadia[0].noites-minimas", "3");
+        valores.put("precos.descontos-estadia[0].desconto", "0.05");
+        valores.put("precos.descontos-estadia[1].noites-minimas", "7");
+        valores.put("precos.descontos-estadia[1].desconto", "0.1");
+        valores.put("precos.ultima-hora.dias", "40");
+        valores.put("precos.ultima-hora.ocupacao-minima", "0.8");
+        valores.put("precos.ultima-hora.multiplicador", "1.1");
+        PrecoProperties regras = new Binder(new MapConfigurationPropertySource(valores))
+                .bind("precos", PrecoProperties.class).get();
+
+        TabelaDePrecos tabela = new TabelaDePrecos(regras, null, null);
+        double[] ocupacao = new double[40];
+        ocupacao[(int) (segunda.toEpochDay() - hoje.toEpochDay()) + 4] = 0.9;
+        tabela.compilar(hoje, ocupacao);
+
+        Casa casa = new Casa(1L, "Casa", "Rua", null, null, null, 1, 1, 100.0, 2, null);
+        CotacaoDTO cotacao = tabela.cotar(casa, segunda, segunda.plusDays(7));
+
+        // seg e ter sem ajuste, qua e qui na temporada (x2), sex com ocupação alta (x1.1), sáb (x1.5), dom sem ajuste
+        assertEquals(List.of(100.0, 100.0, 200.0, 200.0, 110.0, 150.0, 100.0),
+                cotacao.getDiarias().stream().map(DiariaCotadaDTO::getValor).toList());
+        assertEquals(960.0, cotacao.getSubtotal());
+        assertEquals(96.0, cotacao.getDesconto());
+        assertEquals(864.0, cotacao.getTotal());
+        assertEquals(0.0, tabela.cotar(casa, segunda, segunda.plusDays(2)).getDesconto());
+        assertEquals(20.0, tabela.cotar(casa, segunda, segunda.plusDays(3)).getDesconto());
+
+        assertThrows(IllegalArgumentException.class, () -> tabela.cotar(casa, hoje.plusDays(55), hoje.plusDays(61)));
+        assertThrows(IllegalArgumentException.class, () -> tabela.cotar(casa, hoje.minusDays(1), hoje.plusDays(1)));
+        assertThrows(IllegalArgumentException.class, () -> tabela.cotar(casa, segunda, segunda));
+    }
+
+    @Test
+    void ocupacaoAltaNasNoitesProximasEncareceAsCotacoes()
+    {
+        LocalDate checkIn = LocalDate.now().plusDays(3);
+        LocalDate checkOut = checkIn.plusDays(2);
+        double antes = tabelaDePrecos.cotar(casaB.getId(), checkIn, checkOut).getSubtotal();
+
+        // Com uma das duas casas ocupada, a ocupação das noites chega a 50% e o acréscimo passa a valer
+        Reserva reserva = new Reserva(null, casaA, "Cliente", "cliente@exemplo.com", "00000000000",
+                checkIn, checkOut, 2, null);
+        Long reservaId = reservaService.criarReserva(reserva).getId();
+        assertEquals(antes * 1.5, tabelaDePrecos.cotar(casaB.getId(), checkIn, checkOut).getSubtotal(), 0.011);
+
+        reservaService.cancelarReserva(reservaId);
+        assertEquals(antes, tabelaDePrecos.cotar(casaB.getId(), checkIn, checkOut).getSubtotal(), 0.001);
+    }
+
+    @Test
+    void novaCasaDiluiAOcupacaoDasNoitesProximas()
+    {
+        LocalDate checkIn = LocalDate.now().plusDays(3);
+        LocalDate checkOut = checkIn.plusDays(2);
+        double antes = tabelaDePrecos.cotar(casaB.getId(), checkIn, checkOut).getSubtotal();
+        reservaService.criarReserva(new Reserva(null, casaA, "Cliente", "cliente@exemplo.com", "00000000000",
+                checkIn, checkOut, 2, null));
+        assertEquals(antes * 1.5, tabelaDePrecos.cotar(casaB.getId(), checkIn, checkOut).getSubtotal(), 0.011);
+
+        // Com uma terceira casa, a mesma reserva ocupa só um terço das casas, abaixo do mínimo de 50%
+        casaService.cadastrarCasasEmLote(List.of(new Casa(null, "Casa C", "Rua C", null, null, null, 2, 1, 250.0, 4, null)));
+        assertEquals(antes, tabelaDePrecos.cotar(casaB.getId(), checkIn, checkOut).getSubtotal(), 0.001);
+    }
+
+    @Test
+    void endpointDeCotacao() throws Exception
+    {
+        LocalDate checkIn = LocalDate.now().plusDays(30);
+        mockMvc.perform(get("/api/casas/{id}/cotacao", casaA.getId())
+                        .param("checkIn", checkIn.toString()).param("checkOut", checkIn.plusDays(7).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.noites").value(7))
+                .andExpect(jsonPath("$.diarias.length()").value(7))
+                .andExpect(jsonPath("$.desconto").isNumber());
+        mockMvc.perform(get("/api/casas/{id}/cotacao", casaA.getId())
+                        .param("checkIn", checkIn.toString()).param("checkOut", checkIn.toString()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/casas/{id}/cotacao", -1)
+                        .param("checkIn", checkIn.toString()).param("checkOut", checkIn.plusDays(1).toString()))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.config.ViaCepProperties;
+import com.example.demo.dto.ViaCepResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Testa o cache de CEPs contra um servidor HTTP local que imita o ViaCEP.
+ */
+class ViaCepServiceTest 
+{
+    private HttpServer servidor;
+    private final Map<String, AtomicInteger> chamadas = new ConcurrentHashMap<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @TempDir
+    Path diretorio;
+
+    @BeforeEach
+    void iniciarServidor() throws IOException 
+    {
+        servidor = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        servidor.setExecutor(Executors.newCachedThreadPool());
+        servidor.createContext("/ws/", troca -> 
+        {
+            String cep = troca.getRequestURI().getPath().split("/")[2];
+            chamadas.computeIfAbsent(cep, c -> new AtomicInteger()).incrementAndGet();
+            if (cep.equals("11111111")) 
+            {
+                // Simula um ViaCEP travado
+                try 
+                {
+                    Thread.sleep(5_000);
+                } 
+                catch (InterruptedException e) 
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (cep.equals("50000000")) 
+            {
+                troca.sendResponseHeaders(500, -1);
+                troca.close();
+                return;
+            }
+            String corpo = cep.equals("99999999")
+                    ? "{\"erro\": \"true\"}"
+                    : "{\"cep\": \"" + cep + "\", \"logradouro\": \"Praça da Sé\", \"bairro\": \"Sé\", "
+                      + "\"localidade\": \"São Paulo\", \"uf\": \"SP\"}";
+            byte[] bytes = corpo.getBytes(StandardCharsets.UTF_8);
+            troca.getResponseHeaders().add("Content-Type", "application/json");
+            troca.sendResponseHeaders(200, bytes.length);
+            try (OutputStream saida = troca.getResponseBody()) 
+            {
+                saida.write(bytes);
+            }
+        });
+        servidor.start();
+    }
+
+    @AfterEach
+    void pararServidor() 
+    {
+        servidor.stop(0);
+    }
+
+    @Test
+    void segundaConsultaDoMesmoCepVemDoCache() 
+    {
+        ViaCepService service = novoServico("");
+
+        ViaCepResponseDTO primeira = service.buscarCep("01001-000");
+        ViaCepResponseDTO segunda = service.buscarCep("01001000");
+
+        assertNotNull(primeira);
+        assertEquals("Praça da Sé", segunda.getLogradouro());
+        assertEquals(1, chamadas.get("01001000").get());
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "viacep", "result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "viacep", "result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("viacep.consultas").tag("result", "hit").timer().count());
+        assertEquals(1, registry.get("viacep.consultas").tag("result", "miss").timer().count());
+    }
+
+    @Test
+    void cepInexistenteTambemFicaNoCache() 
+    {
+        ViaCepService service = novoServico("");
+
+        assertNull(service.buscarCep("99999-999"));
+        assertNull(service.buscarCep("99999999"));
+        assertEquals(1, chamadas.get("99999999").get());
+    }
+
+    @Test
+    void cepMalFormatadoNaoConsultaAApi() 
+    {
+        ViaCepService service = novoServico("");
+
+        assertNull(service.buscarCep("123"));
+        assertTrue(chamadas.isEmpty());
+    }
+
+    @Test
+    void snapshotPermiteReiniciarComCacheAquecido() throws IOException 
+    {
+        Path arquivo = diretorio.resolve("ceps.json");
+        ViaCepService primeiro = novoServico(arquivo.toString());
+        primeiro.buscarCep("01001000");
+        primeiro.buscarCep("99999999");
+        primeiro.salvarSnapshot();
+        assertTrue(Files.exists(arquivo));
+
+        ViaCepService segundo = novoServico(arquivo.toString());
+        segundo.carregarSnapshot();
+
+        assertEquals("São Paulo", segundo.buscarCep("01001000").getLocalidade());
+        assertNull(segundo.buscarCep("99999999"));
+        assertEquals(1, chamadas.get("01001000").get());
+        assertEquals(1, chamadas.get("99999999").get());
+    }
+
+    @Test
+    void respostaLentaEsgotaOTempoSemPrenderAChamada() 
+    {
+        ViaCepService service = novoServico("");
+
+        long inicio = System.nanoTime();
+        assertThrows(ViaCepIndisponivelException.class, () -> service.buscarCep("11111111"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - inicio).compareTo(Duration.ofSeconds(2)) < 0);
+    }
+
+    @Test
+    void circuitoAbreDepoisDeFalhasSeguidas() 
+    {
+        ViaCepService service = novoServico("");
+
+        for (int i = 0; i < 3; i++) 
+        {
+            assertThrows(ViaCepIndisponivelException.class, () -> service.buscarCep("50000000"));
+            // A falha não fica no cache: cada consulta seguinte chega ao ViaCEP até o circuito abrir
+            assertEquals(i + 1, chamadas.get("50000000").get());
+        }
+        ViaCepIndisponivelException erro = assertThrows(ViaCepIndisponivelException.class,
+                () -> service.buscarCep("50000000"));
+
+        assertTrue(erro.getMessage().contains("circuito aberto"));
+        assertEquals(3, chamadas.get("50000000").get());
+        assertEquals(4, registry.get("viacep.consultas").tag("result", "error").timer().count());
+    }
+
+    private ViaCepService novoServico(String snapshot) 
+    {
+        String url = "http://localhost:" + servidor.getAddress().getPort() + "/ws/{cep}/json/";
+        ViaCepProperties propriedades = new ViaCepProperties(url, Duration.ofSeconds(1), Duration.ofMillis(300), 10,
+                new ViaCepProperties.Cache(1000, Duration.ofHours(1), Duration.ofMinutes(10), snapshot),
+                new ViaCepProperties.Disjuntor(3, Duration.ofMinutes(1)));
+        return new ViaCepService(propriedades, new ObjectMapper(), registry);
+    }
+}
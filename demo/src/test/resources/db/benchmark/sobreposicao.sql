@@ -0,0 +1,44 @@
+-- Medição da verificação de sobreposição e do insert de reservas com dezenas de milhões de linhas.
+-- Rode em um banco Postgres descartável, já migrado pelo Flyway (basta subir a aplicação uma vez):
+--   psql -d reservasecasas_bench -f src/test/resources/db/benchmark/sobreposicao.sql
+-- Para latência sob concorrência, use o mesmo insert com o pgbench:
+--   pgbench -n -c 32 -j 8 -T 60 -f insert-reserva.pgbench reservasecasas_bench
+-- onde insert-reserva.pgbench contém as linhas marcadas com "pgbench:" abaixo, sem o prefixo.
+
+\timing on
+
+-- 200 mil casas com 100 reservas cada (20 milhões), de 3 dias e sem sobreposição entre si
+INSERT INTO casas (id, nome, endereco, quantidade_quartos, quantidade_banheiros, preco_diaria, capacidade_pessoas)
+SELECT nextval('casas_seq'), 'Casa ' || g, 'Rua ' || g, 2, 1, 200, 4
+FROM generate_series(1, 200000) AS g;
+
+INSERT INTO reservas (casa_id, nome_cliente, email_cliente, cpf_cliente, check_in, check_out, quantidade_pessoas)
+SELECT c.id, 'Cliente', 'cliente@exemplo.com', '00000000000',
+       DATE '2030-01-01' + r * 4, DATE '2030-01-01' + r * 4 + 3, 2
+FROM casas c CROSS JOIN generate_series(0, 99) AS r;
+
+VACUUM ANALYZE reservas;
+
+-- Verificação isolada: usa o índice GiST da restrição (casa_id, periodo)
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT EXISTS (
+    SELECT 1 FROM reservas
+    WHERE casa_id = (SELECT MIN(id) FROM casas) + 1000
+      AND periodo && daterange(DATE '2030-03-01', DATE '2030-03-05', '[)'));
+
+-- Insert sem conflito: a própria restrição faz a verificação, na mesma operação
+EXPLAIN (ANALYZE, BUFFERS)
+INSERT INTO reservas (casa_id, nome_cliente, email_cliente, cpf_cliente, check_in, check_out, quantidade_pessoas)
+VALUES ((SELECT MIN(id) FROM casas) + 2000, 'Cliente', 'cliente@exemplo.com', '00000000000',
+        DATE '2031-06-01', DATE '2031-06-04', 2);
+
+-- pgbench: \set casa random(1, 200000)
+-- pgbench: \set dia random(0, 3000)
+-- pgbench: INSERT INTO reservas (casa_id, nome_cliente, email_cliente, cpf_cliente, check_in, check_out, quantidade_pessoas)
+-- pgbench:     SELECT MIN(id) + :casa - 1, 'Cliente', 'c@exemplo.com', '0', DATE '2032-01-01' + :dia, DATE '2032-01-01' + :dia + 2, 2
+-- pgbench:     FROM casas ON CONFLICT DO NOTHING;
+
+-- Insert com conflito: falha com SQLSTATE 23P01, que a aplicação devolve como ReservaConflitanteException
+INSERT INTO reservas (casa_id, nome_cliente, email_cliente, cpf_cliente, check_in, check_out, quantidade_pessoas)
+VALUES ((SELECT MIN(id) FROM casas), 'Cliente', 'cliente@exemplo.com', '00000000000',
+        DATE '2030-01-02', DATE '2030-01-03', 2);